@@ -16,19 +16,71 @@
 
 package com.hazelcast.aws;
 
+import com.hazelcast.aws.impl.AssumeRoleCredentialsProvider;
+import com.hazelcast.aws.impl.DescribeInstanceStatus;
 import com.hazelcast.aws.impl.DescribeInstances;
+import com.hazelcast.aws.impl.Ec2Instance;
+import com.hazelcast.aws.impl.ServiceEndpoint;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.aws.utility.AwsCompletableFuture;
+import com.hazelcast.aws.utility.DaemonThreadFactory;
+import com.hazelcast.aws.utility.InstanceMetadata;
+import com.hazelcast.aws.utility.RetryUtils;
 import com.hazelcast.config.InvalidConfigurationException;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+import com.hazelcast.util.ExceptionUtil;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import static com.hazelcast.aws.utility.MetadataUtil.AVAILABILITY_ZONE_URI;
-import static com.hazelcast.aws.utility.MetadataUtil.INSTANCE_METADATA_URI;
-import static com.hazelcast.aws.utility.MetadataUtil.retrieveMetadataFromURI;
-
+@SuppressWarnings("checkstyle:methodcount")
 public class AWSClient {
+    /**
+     * Upper bound of the DescribeInstances requests (one per region and account) running concurrently; the remaining ones
+     * wait for a free thread.
+     */
+    static final int MAX_PARALLEL_REQUESTS = 8;
+
+    private static final ILogger LOGGER = Logger.getLogger(AWSClient.class);
+    private static final long DISCOVERY_THREAD_KEEP_ALIVE_SECONDS = 60L;
+    private static final long ENDPOINT_PROBE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
 
     private final AwsConfig awsConfig;
+    private final Map<String, String> regionEndpoints = new LinkedHashMap<String, String>();
+    private final List<AssumeRoleCredentialsProvider> assumedRoles = new ArrayList<AssumeRoleCredentialsProvider>();
+    private final ExecutorService credentialsRefreshExecutor;
+    private final ThreadPoolExecutor discoveryExecutor;
+    private final ScheduledThreadPoolExecutor asyncScheduler;
+    private final EndpointPool endpointPool;
+
+    /**
+     * The configured keys or, if there are none, the credentials of the IAM Role of the instance. They are resolved once per
+     * discovery, so that all its requests are signed with the same credentials, and the roles are assumed with them.
+     */
+    private final Callable<AwsCredentials> baseCredentials = new Callable<AwsCredentials>() {
+        @Override
+        public AwsCredentials call()
+                throws Exception {
+            return new DescribeInstances(awsConfig, endpoint).resolveCredentials();
+        }
+    };
 
     private String endpoint;
 
@@ -39,27 +91,347 @@ public class AWSClient {
         this.awsConfig = awsConfig;
         this.endpoint = awsConfig.getHostHeader();
         if (awsConfig.getRegion() != null && awsConfig.getRegion().length() > 0) {
-            if (!awsConfig.getHostHeader().startsWith("ec2.")) {
-                throw new InvalidConfigurationException("HostHeader should start with \"ec2.\" prefix");
-            }
-            setEndpoint(awsConfig.getHostHeader().replace("ec2.", "ec2." + awsConfig.getRegion() + "."));
+            setEndpoint(endpointFor(awsConfig.getRegion()));
+        }
+        for (String region : awsConfig.getRegions()) {
+            regionEndpoints.put(region, endpointFor(region));
+        }
+        if (awsConfig.getEndpoints().isEmpty()) {
+            this.endpointPool = null;
+        } else {
+            this.endpointPool = new EndpointPool(awsConfig.getEndpoints(), ENDPOINT_PROBE_INTERVAL_MILLIS);
+            setEndpoint(awsConfig.getEndpoints().get(0));
+        }
+
+        this.credentialsRefreshExecutor = createAssumedRoles();
+
+        int requestsPerDiscovery = Math.max(regionEndpoints.size(), 1) * Math.max(assumedRoles.size(), 1);
+        this.discoveryExecutor = requestsPerDiscovery > 1 ? newDiscoveryExecutor(requestsPerDiscovery) : null;
+        // the availability zone lookup may run along with the DescribeInstances requests
+        this.asyncScheduler = newAsyncScheduler(Math.min(requestsPerDiscovery + 1, MAX_PARALLEL_REQUESTS));
+    }
+
+    private String endpointFor(String region) {
+        if (ServiceEndpoint.hasProtocol(awsConfig.getHostHeader())) {
+            // custom endpoint, e.g. a local stand-in of the EC2 API, serving all the regions
+            return awsConfig.getHostHeader();
+        }
+        if (!awsConfig.getHostHeader().startsWith("ec2.")) {
+            throw new InvalidConfigurationException("HostHeader should start with \"ec2.\" prefix");
+        }
+        return awsConfig.getHostHeader().replace("ec2.", "ec2." + region + ".");
+    }
+
+    private ExecutorService createAssumedRoles() {
+        if (awsConfig.getAssumeRoleArns().isEmpty()) {
+            return null;
+        }
+        ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(
+                new DaemonThreadFactory("hz-aws-credentials-refresh"));
+        for (String roleArn : awsConfig.getAssumeRoleArns()) {
+            assumedRoles.add(new AssumeRoleCredentialsProvider(awsConfig, roleArn, baseCredentials, refreshExecutor));
         }
+        return refreshExecutor;
     }
 
+    private static ThreadPoolExecutor newDiscoveryExecutor(int requestsPerDiscovery) {
+        int threads = Math.min(requestsPerDiscovery, MAX_PARALLEL_REQUESTS);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, DISCOVERY_THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("hz-aws-discovery"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ScheduledThreadPoolExecutor newAsyncScheduler(int threads) {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(threads, new DaemonThreadFactory("hz-aws-async"));
+        scheduler.setKeepAliveTime(DISCOVERY_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        return scheduler;
+    }
+
+
     public Collection<String> getPrivateIpAddresses()
             throws Exception {
-        Map<String, String> result = new DescribeInstances(awsConfig, endpoint).execute();
-        return result.keySet();
+        return getAddresses().keySet();
     }
 
     public Map<String, String> getAddresses()
             throws Exception {
-        return new DescribeInstances(awsConfig, endpoint).execute();
+        if (discoveryExecutor == null) {
+            AwsCredentials credentials = assumedRoles.isEmpty() ? baseCredentials.call() : assumedRoles.get(0).getCredentials();
+            Map.Entry<String, String> regionEndpoint = getEndpointsByRegion().entrySet().iterator().next();
+            return describeInstances(regionEndpoint.getKey(), regionEndpoint.getValue(), credentials);
+        }
+        Map<String, String> addresses = new LinkedHashMap<String, String>();
+        for (Map<String, String> regionAddresses : getAddressesByRegion().values()) {
+            addresses.putAll(regionAddresses);
+        }
+        return addresses;
+    }
+
+    /**
+     * Queries all the configured regions, and in each region all the accounts of the assumed roles, in parallel, so the call
+     * takes as long as the slowest request.
+     * <p>
+     * A region or account that cannot be queried is logged and left out of the result, unless all of them fail.
+     *
+     * @return map from region to the private to public IP map of the instances discovered in the region
+     * @throws Exception if no region could be queried
+     */
+    public Map<String, Map<String, String>> getAddressesByRegion()
+            throws Exception {
+        if (discoveryExecutor == null) {
+            return Collections.singletonMap(getEndpointsByRegion().keySet().iterator().next(), getAddresses());
+        }
+
+        AwsCredentials credentials = assumedRoles.isEmpty() ? baseCredentials.call() : null;
+        List<DiscoveryRequest> requests = new ArrayList<DiscoveryRequest>();
+        for (Map.Entry<String, String> regionEndpoint : getEndpointsByRegion().entrySet()) {
+            if (assumedRoles.isEmpty()) {
+                requests.add(submit(regionEndpoint.getKey(), regionEndpoint.getValue(), credentials, null));
+            }
+            for (AssumeRoleCredentialsProvider role : assumedRoles) {
+                requests.add(submit(regionEndpoint.getKey(), regionEndpoint.getValue(), null, role));
+            }
+        }
+        return collect(requests);
+    }
+
+    private Map<String, String> getEndpointsByRegion() {
+        return regionEndpoints.isEmpty() ? Collections.singletonMap(awsConfig.getRegion(), endpoint) : regionEndpoints;
+    }
+
+    private static Map<String, Map<String, String>> collect(List<DiscoveryRequest> requests)
+            throws InterruptedException {
+        Map<String, Map<String, String>> result = new LinkedHashMap<String, Map<String, String>>();
+        Throwable lastFailure = null;
+        for (DiscoveryRequest request : requests) {
+            try {
+                putAddresses(result, request.region, request.future.get());
+            } catch (ExecutionException e) {
+                lastFailure = e.getCause();
+                LOGGER.warning("Cannot discover instances in " + request, lastFailure);
+            }
+        }
+        if (result.isEmpty() && lastFailure != null) {
+            throw ExceptionUtil.rethrow(lastFailure);
+        }
+        return result;
     }
 
+    static void putAddresses(Map<String, Map<String, String>> result, String region, Map<String, String> addresses) {
+        Map<String, String> regionAddresses = result.get(region);
+        if (regionAddresses == null) {
+            regionAddresses = new LinkedHashMap<String, String>();
+            result.put(region, regionAddresses);
+        }
+        regionAddresses.putAll(addresses);
+    }
+
+    /**
+     * @param credentials the credentials of the discovery, used if there is no {@code role}
+     */
+    private DiscoveryRequest submit(final String region, final String regionEndpoint, final AwsCredentials credentials,
+                                    final AssumeRoleCredentialsProvider role) {
+        Future<Map<String, String>> future = discoveryExecutor.submit(new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call()
+                    throws Exception {
+                return describeInstances(region, regionEndpoint, role == null ? credentials : role.getCredentials());
+            }
+        });
+        return new DiscoveryRequest(region, role == null ? null : role.getRoleArn(), future);
+    }
+
+    /**
+     * @param credentials the credentials to sign the request with or {@code null} to use the configured ones
+     */
+    // visible for testing
+    Map<String, String> describeInstances(String region, String regionEndpoint, AwsCredentials credentials)
+            throws Exception {
+        // the endpoint pool holds the endpoints of the configured region only
+        if (endpointPool != null && region.equals(awsConfig.getRegion())) {
+            return RetryUtils.retry(describeInstancesWithFailover(region, credentials), awsConfig.getConnectionRetries());
+        }
+        return new DescribeInstances(awsConfig, region, regionEndpoint, credentials).execute();
+    }
+
+    /**
+     * Returns a single attempt of the request, sent to the endpoints of the {@link EndpointPool} until one succeeds.
+     */
+    private Callable<Map<String, String>> describeInstancesWithFailover(final String region, final AwsCredentials credentials) {
+        return new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call()
+                    throws Exception {
+                return endpointPool.send(new EndpointPool.Request<Map<String, String>>() {
+                    @Override
+                    public Map<String, String> send(String endpoint)
+                            throws Exception {
+                        return new DescribeInstances(awsConfig, region, endpoint, credentials).singleAttempt().execute();
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Describes the instances with the given IDs, in the configured region, which match the configured filters.
+     *
+     * @param instanceIds the IDs of the instances, or an empty collection to describe all the matching instances
+     * @return the matching instances
+     * @throws Exception if the instances cannot be described
+     */
+    public List<Ec2Instance> getInstances(final Collection<String> instanceIds)
+            throws Exception {
+        final AwsCredentials credentials = baseCredentials.call();
+        if (endpointPool != null) {
+            // a single attempt per endpoint, the retries failing over again from the preferred one
+            return RetryUtils.retry(new Callable<List<Ec2Instance>>() {
+                @Override
+                public List<Ec2Instance> call()
+                        throws Exception {
+                    return endpointPool.send(new EndpointPool.Request<List<Ec2Instance>>() {
+                        @Override
+                        public List<Ec2Instance> send(String endpoint)
+                                throws Exception {
+                            return new DescribeInstances(awsConfig, awsConfig.getRegion(), endpoint, credentials)
+                                    .singleAttempt().describe(instanceIds);
+                        }
+                    });
+                }
+            }, awsConfig.getConnectionRetries());
+        }
+        return new DescribeInstances(awsConfig, awsConfig.getRegion(), endpoint, credentials).describe(instanceIds);
+    }
+
+    /**
+     * Returns the instances, among the given ones in the configured region, which fail their EC2 status checks.
+     *
+     * @param credentials the credentials to sign the requests with
+     * @param instanceIds the IDs of the running instances
+     * @return the IDs of the impaired instances
+     * @throws Exception if the status checks cannot be described
+     */
+    public Set<String> getImpairedInstanceIds(final AwsCredentials credentials, final List<String> instanceIds)
+            throws Exception {
+        if (endpointPool != null) {
+            // a single attempt per endpoint, the retries failing over again from the preferred one
+            return RetryUtils.retry(new Callable<Set<String>>() {
+                @Override
+                public Set<String> call()
+                        throws Exception {
+                    return endpointPool.send(new EndpointPool.Request<Set<String>>() {
+                        @Override
+                        public Set<String> send(String endpoint)
+                                throws Exception {
+                            return new DescribeInstanceStatus(awsConfig, endpoint).singleAttempt()
+                                    .getImpairedInstanceIds(credentials, instanceIds);
+                        }
+                    });
+                }
+            }, awsConfig.getConnectionRetries());
+        }
+        return new DescribeInstanceStatus(awsConfig, endpoint).getImpairedInstanceIds(credentials, instanceIds);
+    }
+
+    /**
+     * Non-blocking variant of {@link #getAddresses()}.
+     *
+     * @return future completed with the map from private to public IP of the discovered instances
+     * @see #getAddressesByRegionAsync()
+     */
+    public ICompletableFuture<Map<String, String>> getAddressesAsync() {
+        return AsyncAddressCollector.flatten(getAddressesByRegionAsync(), asyncScheduler);
+    }
+
+    /**
+     * Non-blocking variant of {@link #getAddressesByRegion()}. The requests run on a small scheduler owned by this client
+     * and their retries are scheduled after the backoff interval instead of sleeping, so the caller's thread is never
+     * blocked; it can compose the result with {@link ICompletableFuture#andThen}, wait for it with a timeout, or cancel
+     * it, which also cancels the pending retries.
+     * <p>
+     * The credentials are resolved the same way before the requests: the Instance Metadata Service lookups of the IAM Role
+     * are single attempts retried on the scheduler, and the roles are assumed on the thread refreshing their session
+     * credentials, so no scheduler thread sleeps or waits for STS. The requests are not hedged.
+     *
+     * @return future completed with the map from region to the private to public IP map of the instances discovered in
+     * the region, or failed if no region could be queried
+     */
+    public ICompletableFuture<Map<String, Map<String, String>>> getAddressesByRegionAsync() {
+        ICompletableFuture<AwsCredentials> credentials = null;
+        if (assumedRoles.isEmpty()) {
+            credentials = RetryUtils.retryAsync(new Callable<AwsCredentials>() {
+                @Override
+                public AwsCredentials call()
+                        throws Exception {
+                    return new DescribeInstances(awsConfig, endpoint).singleAttempt().resolveCredentials();
+                }
+            }, awsConfig.getConnectionRetries(), asyncScheduler);
+        }
+        List<String> regions = new ArrayList<String>();
+        List<ICompletableFuture<Map<String, String>>> requests = new ArrayList<ICompletableFuture<Map<String, String>>>();
+        for (Map.Entry<String, String> regionEndpoint : getEndpointsByRegion().entrySet()) {
+            if (assumedRoles.isEmpty()) {
+                regions.add(regionEndpoint.getKey());
+                requests.add(describeInstancesAsync(regionEndpoint.getKey(), regionEndpoint.getValue(), credentials));
+            }
+            for (AssumeRoleCredentialsProvider role : assumedRoles) {
+                regions.add(regionEndpoint.getKey());
+                requests.add(describeInstancesAsync(regionEndpoint.getKey(), regionEndpoint.getValue(),
+                        role.getCredentialsAsync(asyncScheduler)));
+            }
+        }
+        return AsyncAddressCollector.collect(regions, requests, asyncScheduler);
+    }
+
+    /**
+     * Sends the request, and schedules its retries, once the {@code credentials} to sign it with are resolved.
+     */
+    private ICompletableFuture<Map<String, String>> describeInstancesAsync(final String region, final String regionEndpoint,
+                                                                         ICompletableFuture<AwsCredentials> credentials) {
+        final AwsCompletableFuture<Map<String, String>> result = new AwsCompletableFuture<Map<String, String>>(asyncScheduler);
+        result.cancelOnCancellation(credentials);
+        credentials.andThen(new ExecutionCallback<AwsCredentials>() {
+            @Override
+            public void onResponse(final AwsCredentials response) {
+                ICompletableFuture<Map<String, String>> request = RetryUtils.retryAsync(new Callable<Map<String, String>>() {
+                    @Override
+                    public Map<String, String> call()
+                            throws Exception {
+                        if (endpointPool != null && region.equals(awsConfig.getRegion())) {
+                            return describeInstancesWithFailover(region, response).call();
+                        }
+                        return new DescribeInstances(awsConfig, region, regionEndpoint, response).singleAttempt().execute();
+                    }
+                }, awsConfig.getConnectionRetries(), asyncScheduler);
+                result.completeWith(request);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the Availability Zone of this instance from the JVM-wide {@link InstanceMetadata} cache, which fetches it
+     * from the Instance Metadata Service once per JVM.
+     */
     public String getAvailabilityZone() {
-        String uri = INSTANCE_METADATA_URI.concat(AVAILABILITY_ZONE_URI);
-        return retrieveMetadataFromURI(uri, awsConfig.getConnectionTimeoutSeconds(), awsConfig.getConnectionRetries());
+        return InstanceMetadata.get().get(InstanceMetadata.Key.AVAILABILITY_ZONE, awsConfig.getConnectionTimeoutSeconds(),
+                awsConfig.getConnectionRetries(), awsConfig.isImdsV1Fallback());
+    }
+
+    /**
+     * Non-blocking variant of {@link #getAvailabilityZone()}, running the Instance Metadata Service request and its
+     * retries on the scheduler of this client unless the Availability Zone is cached.
+     */
+    public ICompletableFuture<String> getAvailabilityZoneAsync() {
+        return InstanceMetadata.get().getAsync(InstanceMetadata.Key.AVAILABILITY_ZONE, awsConfig.getConnectionTimeoutSeconds(),
+                awsConfig.getConnectionRetries(), awsConfig.isImdsV1Fallback(), asyncScheduler);
     }
 
     public String getEndpoint() {
@@ -69,4 +441,45 @@ public class AWSClient {
     public void setEndpoint(String s) {
         this.endpoint = s;
     }
+
+    /**
+     * Returns the EC2 API endpoints of the regions configured with {@link AwsProperties#REGIONS}.
+     */
+    public Map<String, String> getRegionEndpoints() {
+        return Collections.unmodifiableMap(regionEndpoints);
+    }
+
+    /**
+     * Releases the threads used to query multiple regions or accounts, to run the asynchronous requests and to refresh the
+     * session credentials.
+     */
+    public void shutdown() {
+        asyncScheduler.shutdownNow();
+        if (discoveryExecutor != null) {
+            discoveryExecutor.shutdownNow();
+        }
+        if (credentialsRefreshExecutor != null) {
+            credentialsRefreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * DescribeInstances request submitted for a region and, optionally, the account of an assumed role.
+     */
+    private static final class DiscoveryRequest {
+        private final String region;
+        private final String roleArn;
+        private final Future<Map<String, String>> future;
+
+        DiscoveryRequest(String region, String roleArn, Future<Map<String, String>> future) {
+            this.region = region;
+            this.roleArn = roleArn;
+            this.future = future;
+        }
+
+        @Override
+        public String toString() {
+            return roleArn == null ? "region " + region : "region " + region + " with role " + roleArn;
+        }
+    }
 }
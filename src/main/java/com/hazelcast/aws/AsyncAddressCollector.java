@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.utility.AwsCompletableFuture;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Combines the futures of the asynchronous DescribeInstances requests of {@link AWSClient}, without blocking any thread.
+ */
+final class AsyncAddressCollector {
+    private static final ILogger LOGGER = Logger.getLogger(AsyncAddressCollector.class);
+
+    private AsyncAddressCollector() {
+    }
+
+    /**
+     * Completes the returned future once all the requests complete. A region or account that cannot be queried is logged
+     * and left out of the result, unless all of them fail. Cancelling the returned future cancels the requests.
+     *
+     * @param regions  the region of each request
+     * @param requests the requests, returning the private to public IP map of the instances discovered
+     */
+    static ICompletableFuture<Map<String, Map<String, String>>> collect(
+            final List<String> regions, final List<ICompletableFuture<Map<String, String>>> requests, Executor executor) {
+        final AwsCompletableFuture<Map<String, Map<String, String>>> result
+                = new AwsCompletableFuture<Map<String, Map<String, String>>>(executor);
+        final Object[] outcomes = new Object[requests.size()];
+        final AtomicInteger pending = new AtomicInteger(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final int index = i;
+            result.cancelOnCancellation(requests.get(i));
+            requests.get(i).andThen(new ExecutionCallback<Map<String, String>>() {
+                @Override
+                public void onResponse(Map<String, String> response) {
+                    complete(response);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    LOGGER.warning("Cannot discover instances in region " + regions.get(index), t);
+                    complete(t);
+                }
+
+                private void complete(Object outcome) {
+                    synchronized (outcomes) {
+                        outcomes[index] = outcome;
+                    }
+                    if (pending.decrementAndGet() == 0) {
+                        completeCollected(regions, outcomes, result);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void completeCollected(List<String> regions, Object[] outcomes,
+                                          AwsCompletableFuture<Map<String, Map<String, String>>> result) {
+        Map<String, Map<String, String>> addressesByRegion = new LinkedHashMap<String, Map<String, String>>();
+        Throwable lastFailure = null;
+        synchronized (outcomes) {
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] instanceof Throwable) {
+                    lastFailure = (Throwable) outcomes[i];
+                } else {
+                    AWSClient.putAddresses(addressesByRegion, regions.get(i), (Map<String, String>) outcomes[i]);
+                }
+            }
+        }
+        if (addressesByRegion.isEmpty() && lastFailure != null) {
+            result.completeExceptionally(lastFailure);
+        } else {
+            result.complete(addressesByRegion);
+        }
+    }
+
+    /**
+     * Merges the addresses of all the regions, keeping the outcome and the cancellation of {@code addressesByRegion}.
+     */
+    static ICompletableFuture<Map<String, String>> flatten(ICompletableFuture<Map<String, Map<String, String>>> addressesByRegion,
+                                                           Executor executor) {
+        final AwsCompletableFuture<Map<String, String>> result = new AwsCompletableFuture<Map<String, String>>(executor);
+        result.cancelOnCancellation(addressesByRegion);
+        addressesByRegion.andThen(new ExecutionCallback<Map<String, Map<String, String>>>() {
+            @Override
+            public void onResponse(Map<String, Map<String, String>> response) {
+                Map<String, String> addresses = new LinkedHashMap<String, String>();
+                for (Map<String, String> regionAddresses : response.values()) {
+                    addresses.putAll(regionAddresses);
+                }
+                result.complete(addresses);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+}
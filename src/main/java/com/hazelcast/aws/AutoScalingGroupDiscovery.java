@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.impl.AutoScalingGroups;
+import com.hazelcast.aws.impl.Ec2Instance;
+import com.hazelcast.aws.impl.Filter;
+import com.hazelcast.aws.security.AwsCredentials;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Discovers the instances of Auto Scaling groups that are {@value AutoScalingGroups#IN_SERVICE}. Instances that are still
+ * launching or warming up, or that the group is terminating, are {@code running} for EC2 as well, and discovering them
+ * would migrate partitions to members that are about to leave, or are not ready yet.
+ * <p>
+ * The groups only list instance IDs, so the in-service instances are then described by ID, in batches of
+ * {@value Filter#MAX_VALUES}, which also applies the configured filters and instance predicate.
+ */
+final class AutoScalingGroupDiscovery {
+    private final AutoScalingGroups autoScalingGroups;
+    private final AWSClient awsClient;
+    private final Callable<AwsCredentials> credentialsProvider;
+    private final List<String> groupNames;
+
+    /**
+     * Discovers the instances of the configured groups in the configured region.
+     */
+    AutoScalingGroupDiscovery(AwsConfig awsConfig, AWSClient awsClient, Callable<AwsCredentials> credentialsProvider) {
+        this(new AutoScalingGroups(awsConfig, AutoScalingGroups.endpointFor(awsConfig)), awsClient, credentialsProvider,
+                awsConfig.getAutoScalingGroupNames());
+    }
+
+    AutoScalingGroupDiscovery(AutoScalingGroups autoScalingGroups, AWSClient awsClient,
+                              Callable<AwsCredentials> credentialsProvider, List<String> groupNames) {
+        this.autoScalingGroups = autoScalingGroups;
+        this.awsClient = awsClient;
+        this.credentialsProvider = credentialsProvider;
+        this.groupNames = groupNames;
+    }
+
+    /**
+     * Returns the private to public IP map of the in-service instances.
+     *
+     * @throws Exception if the groups or the instances cannot be described
+     */
+    Map<String, String> getAddresses()
+            throws Exception {
+        List<String> instanceIds = autoScalingGroups.getInServiceInstanceIds(credentialsProvider.call(), groupNames);
+        Map<String, String> addresses = new LinkedHashMap<String, String>();
+        for (int from = 0; from < instanceIds.size(); from += Filter.MAX_VALUES) {
+            List<String> batch = instanceIds.subList(from, Math.min(from + Filter.MAX_VALUES, instanceIds.size()));
+            for (Ec2Instance instance : awsClient.getInstances(batch)) {
+                addresses.put(instance.getPrivateIp(), instance.getPublicIp());
+            }
+        }
+        return addresses;
+    }
+}
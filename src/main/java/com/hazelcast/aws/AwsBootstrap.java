@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.utility.DaemonThreadFactory;
+import com.hazelcast.util.ExceptionUtil;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the independent I/O calls needed at startup concurrently: the availability zone lookup and the first discovery
+ * (including the IAM role and credentials lookups it depends on). The startup then takes as long as the longest call
+ * instead of their sum.
+ * <p>
+ * The first discovery is started by {@link #start()}, while the availability zone is looked up only once it is asked for,
+ * i.e. for the metadata of a member, so that clients do not pay for a lookup whose result they never use. The
+ * availability zone is kept, while the result of the first discovery is handed over only once, since the later
+ * discoveries must see the current instances.
+ */
+final class AwsBootstrap {
+    private final Callable<String> availabilityZoneLookup;
+    private final Callable<Map<String, Map<String, String>>> discovery;
+
+    private Future<String> availabilityZone;
+    private Future<Map<String, Map<String, String>>> initialAddresses;
+    private boolean initialAddressesTaken;
+
+    AwsBootstrap(Callable<String> availabilityZoneLookup, Callable<Map<String, Map<String, String>>> discovery) {
+        this.availabilityZoneLookup = availabilityZoneLookup;
+        this.discovery = discovery;
+    }
+
+    /**
+     * Starts the first discovery in the background unless it is started already.
+     */
+    synchronized void start() {
+        if (initialAddresses == null) {
+            initialAddresses = submit(discovery);
+        }
+    }
+
+    /**
+     * Returns the availability zone, starting its lookup, and the first discovery if needed, in the background first.
+     */
+    String getAvailabilityZone() {
+        Future<String> future;
+        synchronized (this) {
+            start();
+            if (availabilityZone == null) {
+                availabilityZone = submit(availabilityZoneLookup);
+            }
+            future = availabilityZone;
+        }
+        return get(future);
+    }
+
+    private static <T> Future<T> submit(Callable<T> call) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("hz-aws-bootstrap"));
+        Future<T> future = executor.submit(call);
+        // the thread terminates once the call completes
+        executor.shutdown();
+        return future;
+    }
+
+    /**
+     * Returns the result of the first discovery, or {@code null} if the calls have not been started or the result has
+     * been taken already.
+     */
+    Map<String, Map<String, String>> takeInitialAddresses() {
+        Future<Map<String, Map<String, String>>> future;
+        synchronized (this) {
+            if (initialAddresses == null || initialAddressesTaken) {
+                return null;
+            }
+            initialAddressesTaken = true;
+            future = initialAddresses;
+        }
+        return get(future);
+    }
+
+    synchronized void cancel() {
+        if (availabilityZone != null) {
+            availabilityZone.cancel(true);
+        }
+        if (initialAddresses != null) {
+            initialAddresses.cancel(true);
+        }
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw ExceptionUtil.rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ExceptionUtil.rethrow(e);
+        }
+    }
+}
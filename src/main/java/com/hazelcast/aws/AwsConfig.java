@@ -16,12 +16,25 @@
 
 package com.hazelcast.aws;
 
+import com.hazelcast.aws.impl.DescribeApi;
+import com.hazelcast.aws.impl.ImpairedInstancePolicy;
+import com.hazelcast.aws.utility.InstancePredicate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * AWS Discovery Strategy configuration that corresponds to the properties passed in the Hazelcast configuration and listed in
  * {@link AwsProperties}.
  */
+@SuppressWarnings("checkstyle:methodcount")
 public final class AwsConfig {
     private final String region;
+    private final List<String> regions;
     private final String hostHeader;
     private final String securityGroupName;
     private final String tagKey;
@@ -29,18 +42,53 @@ public final class AwsConfig {
     private final int connectionTimeoutSeconds;
     private final int connectionRetries;
     private final PortRange hzPort;
+    private final List<String> assumeRoleArns;
+    private final String assumeRoleExternalId;
+    private final String stsEndpoint;
+    private final boolean imdsV1Fallback;
+    private final String eventQueueUrl;
+    private final int reconciliationIntervalSeconds;
+    private final int refreshIntervalMinSeconds;
+    private final int refreshIntervalMaxSeconds;
+    private final Map<String, List<String>> tags;
+    private final String vpcId;
+    private final List<String> subnetIds;
+    private final List<String> instanceTypes;
+    private final String placementGroup;
+    private final InstancePredicate instancePredicate;
+    private final String ecsCluster;
+    private final String ecsServiceName;
+    private final List<String> autoScalingGroupNames;
+    private final DescribeApi describeApi;
+    private final List<String> fallbackSeedIps;
+    private final List<String> fallbackDnsNames;
+    private final String snapshotFile;
+    private final int discoveryBudgetMillis;
+    private final int hedgePercentile;
+    private final String hedgeEndpoint;
+    private final List<String> endpoints;
+    private final ImpairedInstancePolicy impairedInstancePolicy;
     private String accessKey;
     private String secretKey;
     private String iamRole;
 
-    @SuppressWarnings("checkstyle:parameternumber")
+    @SuppressWarnings({"checkstyle:parameternumber", "checkstyle:executablestatementcount"})
     // Constructor has a lot of parameters, but it's private.
-    private AwsConfig(String accessKey, String secretKey, String region, String iamRole, String hostHeader,
-                      String securityGroupName, String tagKey, String tagValue, int connectionTimeoutSeconds,
-                      int connectionRetries, PortRange hzPort) {
+    private AwsConfig(String accessKey, String secretKey, String region, List<String> regions, String iamRole,
+                      String hostHeader, String securityGroupName, String tagKey, String tagValue, int connectionTimeoutSeconds,
+                      int connectionRetries, PortRange hzPort, List<String> assumeRoleArns, String assumeRoleExternalId,
+                      String stsEndpoint, boolean imdsV1Fallback, String eventQueueUrl,
+                      int reconciliationIntervalSeconds, int refreshIntervalMinSeconds, int refreshIntervalMaxSeconds,
+                      Map<String, List<String>> tags, String vpcId, List<String> subnetIds, List<String> instanceTypes,
+                      String placementGroup, InstancePredicate instancePredicate, String ecsCluster,
+                      String ecsServiceName, List<String> autoScalingGroupNames, DescribeApi describeApi,
+                      List<String> fallbackSeedIps, List<String> fallbackDnsNames, String snapshotFile,
+                      int discoveryBudgetMillis, int hedgePercentile, String hedgeEndpoint,
+                      List<String> endpoints, ImpairedInstancePolicy impairedInstancePolicy) {
         this.accessKey = accessKey;
         this.secretKey = secretKey;
         this.region = region;
+        this.regions = regions;
         this.iamRole = iamRole;
         this.hostHeader = hostHeader;
         this.securityGroupName = securityGroupName;
@@ -49,6 +97,32 @@ public final class AwsConfig {
         this.connectionTimeoutSeconds = connectionTimeoutSeconds;
         this.connectionRetries = connectionRetries;
         this.hzPort = hzPort;
+        this.assumeRoleArns = assumeRoleArns;
+        this.assumeRoleExternalId = assumeRoleExternalId;
+        this.stsEndpoint = stsEndpoint;
+        this.imdsV1Fallback = imdsV1Fallback;
+        this.eventQueueUrl = eventQueueUrl;
+        this.reconciliationIntervalSeconds = reconciliationIntervalSeconds;
+        this.refreshIntervalMinSeconds = refreshIntervalMinSeconds;
+        this.refreshIntervalMaxSeconds = refreshIntervalMaxSeconds;
+        this.tags = tags;
+        this.vpcId = vpcId;
+        this.subnetIds = subnetIds;
+        this.instanceTypes = instanceTypes;
+        this.placementGroup = placementGroup;
+        this.instancePredicate = instancePredicate;
+        this.ecsCluster = ecsCluster;
+        this.ecsServiceName = ecsServiceName;
+        this.autoScalingGroupNames = autoScalingGroupNames;
+        this.describeApi = describeApi;
+        this.fallbackSeedIps = fallbackSeedIps;
+        this.fallbackDnsNames = fallbackDnsNames;
+        this.snapshotFile = snapshotFile;
+        this.discoveryBudgetMillis = discoveryBudgetMillis;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeEndpoint = hedgeEndpoint;
+        this.endpoints = endpoints;
+        this.impairedInstancePolicy = impairedInstancePolicy;
     }
 
     public static Builder builder() {
@@ -87,6 +161,15 @@ public final class AwsConfig {
         return region;
     }
 
+    /**
+     * Returns the regions to discover members in. If empty, only {@link #getRegion()} is queried.
+     *
+     * @return unmodifiable list of regions, never {@code null}
+     */
+    public List<String> getRegions() {
+        return regions;
+    }
+
     public String getIamRole() {
         return iamRole;
     }
@@ -129,18 +212,208 @@ public final class AwsConfig {
         return hzPort;
     }
 
+    /**
+     * Returns the ARNs of the roles to assume, one per account to discover members in. If empty, members are discovered
+     * with the credentials of the configured keys or IAM Role only.
+     *
+     * @return unmodifiable list of role ARNs, never {@code null}
+     */
+    public List<String> getAssumeRoleArns() {
+        return assumeRoleArns;
+    }
+
+    public String getAssumeRoleExternalId() {
+        return assumeRoleExternalId;
+    }
+
+    public String getStsEndpoint() {
+        return stsEndpoint;
+    }
+
+    /**
+     * Returns whether the Instance Metadata Service may be queried without the IMDSv2 session token (IMDSv1) if the token
+     * cannot be fetched.
+     */
+    public boolean isImdsV1Fallback() {
+        return imdsV1Fallback;
+    }
+
+    /**
+     * Returns the URL of the SQS queue receiving the EC2 instance state-change events, or {@code null} if the members are
+     * discovered by polling DescribeInstances.
+     */
+    public String getEventQueueUrl() {
+        return eventQueueUrl;
+    }
+
+    public int getReconciliationIntervalSeconds() {
+        return reconciliationIntervalSeconds;
+    }
+
+    public int getRefreshIntervalMinSeconds() {
+        return refreshIntervalMinSeconds;
+    }
+
+    /**
+     * Returns the longest period of the background refresh of the discovered instances, or 0 if there is no background
+     * refresh.
+     */
+    public int getRefreshIntervalMaxSeconds() {
+        return refreshIntervalMaxSeconds;
+    }
+
+    /**
+     * Returns the tags the instances must have, in addition to {@link #getTagKey()}/{@link #getTagValue()}: the instances
+     * must have all the keys, each with any of its values, or with any value if the list is empty.
+     *
+     * @return unmodifiable map from tag key to the accepted values, never {@code null}
+     */
+    public Map<String, List<String>> getTags() {
+        return tags;
+    }
+
+    public String getVpcId() {
+        return vpcId;
+    }
+
+    /**
+     * @return unmodifiable list of the subnet IDs the instances must be in, any subnet if empty, never {@code null}
+     */
+    public List<String> getSubnetIds() {
+        return subnetIds;
+    }
+
+    /**
+     * @return unmodifiable list of the accepted instance types, any type if empty, never {@code null}
+     */
+    public List<String> getInstanceTypes() {
+        return instanceTypes;
+    }
+
+    public String getPlacementGroup() {
+        return placementGroup;
+    }
+
+    /**
+     * @return the client-side predicate the discovered instances must match, {@link InstancePredicate#ACCEPT_ALL} if
+     * there is none, never {@code null}
+     */
+    public InstancePredicate getInstancePredicate() {
+        return instancePredicate;
+    }
+
+    /**
+     * @return the ECS cluster whose tasks are discovered, or {@code null} if EC2 instances are discovered
+     */
+    public String getEcsCluster() {
+        return ecsCluster;
+    }
+
+    public String getEcsServiceName() {
+        return ecsServiceName;
+    }
+
+    /**
+     * @return unmodifiable list of the Auto Scaling groups whose in-service instances are discovered, empty to discover
+     * all the running instances, never {@code null}
+     */
+    public List<String> getAutoScalingGroupNames() {
+        return autoScalingGroupNames;
+    }
+
+    /**
+     * @return the EC2 API the members are discovered with, {@link DescribeApi#INSTANCES} by default
+     */
+    public DescribeApi getDescribeApi() {
+        return describeApi;
+    }
+
+    /**
+     * @return unmodifiable list of the static private IPs returned when no other source answers in time, never
+     * {@code null}
+     */
+    public List<String> getFallbackSeedIps() {
+        return fallbackSeedIps;
+    }
+
+    /**
+     * @return unmodifiable list of the DNS names resolved concurrently with the EC2 API, never {@code null}
+     */
+    public List<String> getFallbackDnsNames() {
+        return fallbackDnsNames;
+    }
+
+    /**
+     * @return the file the last EC2 API answer is persisted in, or {@code null} to keep it in memory only
+     */
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * @return how long a discovery waits for the EC2 API before a fallback source may answer instead
+     */
+    public int getDiscoveryBudgetMillis() {
+        return discoveryBudgetMillis;
+    }
+
+    /**
+     * @return the percentile of the recent DescribeInstances latencies after which the request is hedged, or {@code 0} if
+     * the requests are not hedged
+     */
+    public int getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    /**
+     * @return the EC2 API endpoint the hedged requests of the configured region are sent to, or {@code null} to send them
+     * to the same endpoint as the first request
+     */
+    public String getHedgeEndpoint() {
+        return hedgeEndpoint;
+    }
+
+    /**
+     * @return unmodifiable list of the EC2 API endpoints of the region, in the order they are preferred in, or an empty
+     * list to use the endpoint derived from the host header; never {@code null}
+     */
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return what discovery does with the instances failing their EC2 status checks, {@link ImpairedInstancePolicy#INCLUDE}
+     * by default
+     */
+    public ImpairedInstancePolicy getImpairedInstancePolicy() {
+        return impairedInstancePolicy;
+    }
+
     @Override
     public String toString() {
-        return "AwsConfig{" + "accessKey='***', secretKey='***', region='" + region + '\'' + ", iamRole='" + iamRole + '\''
-                + ", hostHeader='" + hostHeader + '\'' + ", securityGroupName='" + securityGroupName + '\'' + ", tagKey='"
-                + tagKey + '\'' + ", tagValue='" + tagValue + '\'' + ", connectionTimeoutSeconds=" + connectionTimeoutSeconds
-                + ", connectionRetries=" + connectionRetries + ", hzPort=" + hzPort + '}';
+        return "AwsConfig{" + "accessKey='***', secretKey='***', region='" + region + '\'' + ", regions=" + regions
+                + ", iamRole='" + iamRole + '\'' + ", hostHeader='" + hostHeader + '\'' + ", securityGroupName='"
+                + securityGroupName + '\'' + ", tagKey='" + tagKey + '\'' + ", tagValue='" + tagValue + '\''
+                + ", connectionTimeoutSeconds=" + connectionTimeoutSeconds + ", connectionRetries=" + connectionRetries
+                + ", hzPort=" + hzPort + ", assumeRoleArns=" + assumeRoleArns + ", assumeRoleExternalId='***'"
+                + ", stsEndpoint='" + stsEndpoint + '\'' + ", imdsV1Fallback=" + imdsV1Fallback
+                + ", eventQueueUrl='" + eventQueueUrl + '\'' + ", reconciliationIntervalSeconds="
+                + reconciliationIntervalSeconds + ", refreshIntervalMinSeconds=" + refreshIntervalMinSeconds
+                + ", refreshIntervalMaxSeconds=" + refreshIntervalMaxSeconds + ", tags=" + tags + ", vpcId='" + vpcId + '\''
+                + ", subnetIds=" + subnetIds + ", instanceTypes=" + instanceTypes + ", placementGroup='" + placementGroup
+                + '\'' + ", instancePredicate='" + instancePredicate + '\'' + ", ecsCluster='" + ecsCluster + '\''
+                + ", ecsServiceName='" + ecsServiceName + '\'' + ", autoScalingGroupNames=" + autoScalingGroupNames
+                + ", describeApi=" + describeApi + ", fallbackSeedIps=" + fallbackSeedIps + ", fallbackDnsNames="
+                + fallbackDnsNames + ", snapshotFile='" + snapshotFile + '\'' + ", discoveryBudgetMillis="
+                + discoveryBudgetMillis + ", hedgePercentile=" + hedgePercentile + ", hedgeEndpoint='" + hedgeEndpoint
+                + '\'' + ", endpoints=" + endpoints + ", impairedInstancePolicy=" + impairedInstancePolicy + '}';
     }
 
     public static class Builder {
         private String accessKey;
         private String secretKey;
         private String region;
+        private List<String> regions = Collections.emptyList();
         private String iamRole;
         private String hostHeader;
         private String securityGroupName;
@@ -149,6 +422,32 @@ public final class AwsConfig {
         private int connectionTimeoutSeconds;
         private int connectionRetries;
         private PortRange hzPort;
+        private List<String> assumeRoleArns = Collections.emptyList();
+        private String assumeRoleExternalId;
+        private String stsEndpoint;
+        private boolean imdsV1Fallback = true;
+        private String eventQueueUrl;
+        private int reconciliationIntervalSeconds;
+        private int refreshIntervalMinSeconds;
+        private int refreshIntervalMaxSeconds;
+        private Map<String, List<String>> tags = Collections.emptyMap();
+        private String vpcId;
+        private List<String> subnetIds = Collections.emptyList();
+        private List<String> instanceTypes = Collections.emptyList();
+        private String placementGroup;
+        private InstancePredicate instancePredicate = InstancePredicate.ACCEPT_ALL;
+        private String ecsCluster;
+        private String ecsServiceName;
+        private List<String> autoScalingGroupNames = Collections.emptyList();
+        private DescribeApi describeApi = DescribeApi.INSTANCES;
+        private List<String> fallbackSeedIps = Collections.emptyList();
+        private List<String> fallbackDnsNames = Collections.emptyList();
+        private String snapshotFile;
+        private int discoveryBudgetMillis;
+        private int hedgePercentile;
+        private String hedgeEndpoint;
+        private List<String> endpoints = Collections.emptyList();
+        private ImpairedInstancePolicy impairedInstancePolicy = ImpairedInstancePolicy.INCLUDE;
 
         public Builder setAccessKey(String accessKey) {
             this.accessKey = accessKey;
@@ -165,6 +464,11 @@ public final class AwsConfig {
             return this;
         }
 
+        public Builder setRegions(Collection<String> regions) {
+            this.regions = Collections.unmodifiableList(new ArrayList<String>(regions));
+            return this;
+        }
+
         public Builder setIamRole(String iamRole) {
             this.iamRole = iamRole;
             return this;
@@ -205,9 +509,152 @@ public final class AwsConfig {
             return this;
         }
 
+        public Builder setAssumeRoleArns(Collection<String> assumeRoleArns) {
+            this.assumeRoleArns = Collections.unmodifiableList(new ArrayList<String>(assumeRoleArns));
+            return this;
+        }
+
+        public Builder setAssumeRoleExternalId(String assumeRoleExternalId) {
+            this.assumeRoleExternalId = assumeRoleExternalId;
+            return this;
+        }
+
+        public Builder setStsEndpoint(String stsEndpoint) {
+            this.stsEndpoint = stsEndpoint;
+            return this;
+        }
+
+        public Builder setImdsV1Fallback(boolean imdsV1Fallback) {
+            this.imdsV1Fallback = imdsV1Fallback;
+            return this;
+        }
+
+        public Builder setEventQueueUrl(String eventQueueUrl) {
+            this.eventQueueUrl = eventQueueUrl;
+            return this;
+        }
+
+        public Builder setReconciliationIntervalSeconds(int reconciliationIntervalSeconds) {
+            this.reconciliationIntervalSeconds = reconciliationIntervalSeconds;
+            return this;
+        }
+
+        public Builder setRefreshIntervalMinSeconds(int refreshIntervalMinSeconds) {
+            this.refreshIntervalMinSeconds = refreshIntervalMinSeconds;
+            return this;
+        }
+
+        public Builder setRefreshIntervalMaxSeconds(int refreshIntervalMaxSeconds) {
+            this.refreshIntervalMaxSeconds = refreshIntervalMaxSeconds;
+            return this;
+        }
+
+        /**
+         * @param tags map from tag key to the accepted values, or to an empty collection to accept any value
+         */
+        public Builder setTags(Map<String, ? extends Collection<String>> tags) {
+            Map<String, List<String>> copy = new LinkedHashMap<String, List<String>>();
+            for (Map.Entry<String, ? extends Collection<String>> tag : tags.entrySet()) {
+                copy.put(tag.getKey(), Collections.unmodifiableList(new ArrayList<String>(tag.getValue())));
+            }
+            this.tags = Collections.unmodifiableMap(copy);
+            return this;
+        }
+
+        public Builder setVpcId(String vpcId) {
+            this.vpcId = vpcId;
+            return this;
+        }
+
+        public Builder setSubnetIds(Collection<String> subnetIds) {
+            this.subnetIds = Collections.unmodifiableList(new ArrayList<String>(subnetIds));
+            return this;
+        }
+
+        public Builder setInstanceTypes(Collection<String> instanceTypes) {
+            this.instanceTypes = Collections.unmodifiableList(new ArrayList<String>(instanceTypes));
+            return this;
+        }
+
+        public Builder setPlacementGroup(String placementGroup) {
+            this.placementGroup = placementGroup;
+            return this;
+        }
+
+        public Builder setInstancePredicate(InstancePredicate instancePredicate) {
+            this.instancePredicate = instancePredicate == null ? InstancePredicate.ACCEPT_ALL : instancePredicate;
+            return this;
+        }
+
+        public Builder setEcsCluster(String ecsCluster) {
+            this.ecsCluster = ecsCluster;
+            return this;
+        }
+
+        public Builder setEcsServiceName(String ecsServiceName) {
+            this.ecsServiceName = ecsServiceName;
+            return this;
+        }
+
+        public Builder setAutoScalingGroupNames(Collection<String> autoScalingGroupNames) {
+            this.autoScalingGroupNames = Collections.unmodifiableList(new ArrayList<String>(autoScalingGroupNames));
+            return this;
+        }
+
+        public Builder setDescribeApi(DescribeApi describeApi) {
+            this.describeApi = describeApi == null ? DescribeApi.INSTANCES : describeApi;
+            return this;
+        }
+
+        public Builder setFallbackSeedIps(Collection<String> fallbackSeedIps) {
+            this.fallbackSeedIps = Collections.unmodifiableList(new ArrayList<String>(fallbackSeedIps));
+            return this;
+        }
+
+        public Builder setFallbackDnsNames(Collection<String> fallbackDnsNames) {
+            this.fallbackDnsNames = Collections.unmodifiableList(new ArrayList<String>(fallbackDnsNames));
+            return this;
+        }
+
+        public Builder setSnapshotFile(String snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        public Builder setDiscoveryBudgetMillis(int discoveryBudgetMillis) {
+            this.discoveryBudgetMillis = discoveryBudgetMillis;
+            return this;
+        }
+
+        public Builder setHedgePercentile(int hedgePercentile) {
+            this.hedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        public Builder setHedgeEndpoint(String hedgeEndpoint) {
+            this.hedgeEndpoint = hedgeEndpoint;
+            return this;
+        }
+
+        public Builder setEndpoints(Collection<String> endpoints) {
+            this.endpoints = Collections.unmodifiableList(new ArrayList<String>(endpoints));
+            return this;
+        }
+
+        public Builder setImpairedInstancePolicy(ImpairedInstancePolicy impairedInstancePolicy) {
+            this.impairedInstancePolicy = impairedInstancePolicy == null ? ImpairedInstancePolicy.INCLUDE
+                    : impairedInstancePolicy;
+            return this;
+        }
+
         public AwsConfig build() {
-            return new AwsConfig(accessKey, secretKey, region, iamRole, hostHeader, securityGroupName, tagKey, tagValue,
-                    connectionTimeoutSeconds, connectionRetries, hzPort);
+            return new AwsConfig(accessKey, secretKey, region, regions, iamRole, hostHeader, securityGroupName, tagKey,
+                    tagValue, connectionTimeoutSeconds, connectionRetries, hzPort, assumeRoleArns, assumeRoleExternalId,
+                    stsEndpoint, imdsV1Fallback, eventQueueUrl, reconciliationIntervalSeconds,
+                    refreshIntervalMinSeconds, refreshIntervalMaxSeconds, tags, vpcId, subnetIds, instanceTypes, placementGroup,
+                    instancePredicate, ecsCluster, ecsServiceName, autoScalingGroupNames, describeApi,
+                    fallbackSeedIps, fallbackDnsNames, snapshotFile, discoveryBudgetMillis,
+                    hedgePercentile, hedgeEndpoint, endpoints, impairedInstancePolicy);
         }
     }
 }
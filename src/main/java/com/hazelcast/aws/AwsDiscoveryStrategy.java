@@ -16,6 +16,16 @@
 
 package com.hazelcast.aws;
 
+import com.hazelcast.aws.impl.DescribeApi;
+import com.hazelcast.aws.impl.DescribeInstances;
+import com.hazelcast.aws.impl.EventQueue;
+import com.hazelcast.aws.impl.ImpairedInstancePolicy;
+import com.hazelcast.aws.metrics.DiscoveryMetrics;
+import com.hazelcast.aws.metrics.DiscoveryMetrics.Phase;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.aws.utility.InstanceMetadata;
+import com.hazelcast.aws.utility.InstancePredicate;
+import com.hazelcast.aws.utility.RuntimeEnvironment;
 import com.hazelcast.config.InvalidConfigurationException;
 import com.hazelcast.config.properties.PropertyDefinition;
 import com.hazelcast.logging.ILogger;
@@ -28,50 +38,119 @@ import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
 import com.hazelcast.spi.partitiongroup.PartitionGroupMetaData;
 import com.hazelcast.util.StringUtil;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import static com.hazelcast.aws.AwsProperties.ACCESS_KEY;
+import static com.hazelcast.aws.AwsProperties.ASSUME_ROLE_ARNS;
+import static com.hazelcast.aws.AwsProperties.ASSUME_ROLE_EXTERNAL_ID;
 import static com.hazelcast.aws.AwsProperties.CONNECTION_RETRIES;
 import static com.hazelcast.aws.AwsProperties.CONNECTION_TIMEOUT_SECONDS;
+import static com.hazelcast.aws.AwsProperties.DESCRIBE_API;
+import static com.hazelcast.aws.AwsProperties.DISCOVERY_BUDGET_MILLIS;
+import static com.hazelcast.aws.AwsProperties.AUTO_SCALING_GROUP_NAMES;
+import static com.hazelcast.aws.AwsProperties.ECS_CLUSTER;
+import static com.hazelcast.aws.AwsProperties.ECS_SERVICE_NAME;
+import static com.hazelcast.aws.AwsProperties.ENDPOINTS;
+import static com.hazelcast.aws.AwsProperties.EVENT_QUEUE_URL;
+import static com.hazelcast.aws.AwsProperties.FALLBACK_DNS_NAMES;
+import static com.hazelcast.aws.AwsProperties.FALLBACK_SEED_IPS;
+import static com.hazelcast.aws.AwsProperties.HEDGE_ENDPOINT;
+import static com.hazelcast.aws.AwsProperties.HEDGE_PERCENTILE;
 import static com.hazelcast.aws.AwsProperties.HOST_HEADER;
+import static com.hazelcast.aws.AwsProperties.IMDSV1_FALLBACK;
 import static com.hazelcast.aws.AwsProperties.IAM_ROLE;
+import static com.hazelcast.aws.AwsProperties.IMPAIRED_INSTANCES;
+import static com.hazelcast.aws.AwsProperties.INSTANCE_PREDICATE;
+import static com.hazelcast.aws.AwsProperties.INSTANCE_TYPES;
+import static com.hazelcast.aws.AwsProperties.PLACEMENT_GROUP;
 import static com.hazelcast.aws.AwsProperties.PORT;
+import static com.hazelcast.aws.AwsProperties.RECONCILIATION_INTERVAL_SECONDS;
+import static com.hazelcast.aws.AwsProperties.REFRESH_INTERVAL_MAX_SECONDS;
+import static com.hazelcast.aws.AwsProperties.REFRESH_INTERVAL_MIN_SECONDS;
 import static com.hazelcast.aws.AwsProperties.REGION;
+import static com.hazelcast.aws.AwsProperties.REGIONS;
 import static com.hazelcast.aws.AwsProperties.SECRET_KEY;
 import static com.hazelcast.aws.AwsProperties.SECURITY_GROUP_NAME;
+import static com.hazelcast.aws.AwsProperties.SNAPSHOT_FILE;
+import static com.hazelcast.aws.AwsProperties.STS_ENDPOINT;
+import static com.hazelcast.aws.AwsProperties.SUBNET_IDS;
+import static com.hazelcast.aws.AwsProperties.TAGS;
 import static com.hazelcast.aws.AwsProperties.TAG_KEY;
 import static com.hazelcast.aws.AwsProperties.TAG_VALUE;
+import static com.hazelcast.aws.AwsProperties.VPC_ID;
 
 /**
  * AWS implementation of {@link DiscoveryStrategy}.
  *
  * @see AWSClient
  */
+@SuppressWarnings({"checkstyle:methodcount", "checkstyle:classdataabstractioncoupling"})
 public class AwsDiscoveryStrategy
         extends AbstractDiscoveryStrategy {
+    /**
+     * Name of the {@link DiscoveryNode} property holding the region the node was discovered in. It is set only when
+     * members are discovered in multiple regions.
+     */
+    public static final String REGION_PROPERTY = "aws-region";
+
     private static final ILogger LOGGER = Logger.getLogger(AwsDiscoveryStrategy.class);
     private static final String DEFAULT_PORT_RANGE = "5701-5708";
     private static final Integer DEFAULT_CONNECTION_RETRIES = 10;
     private static final int DEFAULT_CONNECTION_TIMEOUT_SECONDS = 10;
     private static final String DEFAULT_REGION = "us-east-1";
     private static final String DEFAULT_HOST_HEADER = "ec2.amazonaws.com";
+    private static final int DEFAULT_RECONCILIATION_INTERVAL_SECONDS = 300;
+    private static final int DEFAULT_REFRESH_INTERVAL_MIN_SECONDS = 5;
+    private static final int DEFAULT_DISCOVERY_BUDGET_MILLIS = 2000;
+    private static final int MAX_HEDGE_PERCENTILE = 100;
 
     private final AwsConfig awsConfig;
     private final AWSClient awsClient;
+    private final AwsBootstrap bootstrap;
+    private final EcsTaskDiscovery ecsTaskDiscovery;
+    private final AutoScalingGroupDiscovery autoScalingGroupDiscovery;
+    private final InstanceEventWatcher eventWatcher;
+    private final DiscoveryRefresher refresher;
+    private final DiscoveryRace race;
+    private final InstanceStatusFilter instanceStatusFilter;
+    private final Callable<Integer> clusterSize;
 
     private final Map<String, Object> memberMetadata = new HashMap<String, Object>();
 
     public AwsDiscoveryStrategy(Map<String, Comparable> properties) {
+        this(properties, (Callable<Integer>) null);
+    }
+
+    /**
+     * @param properties  the properties of {@link AwsProperties}
+     * @param clusterSize the lookup of the size of the local member's cluster, used to refresh the discovered instances
+     *                    faster while members are joining, or {@code null} on clients and if the size is not known
+     */
+    public AwsDiscoveryStrategy(Map<String, Comparable> properties, Callable<Integer> clusterSize) {
         super(LOGGER, properties);
+        this.clusterSize = clusterSize;
         this.awsConfig = getAwsConfig();
         try {
             this.awsClient = new AWSClient(awsConfig);
         } catch (IllegalArgumentException e) {
             throw new InvalidConfigurationException("AWS configuration is not valid", e);
         }
+        this.race = createRace();
+        this.bootstrap = createBootstrap();
+        this.ecsTaskDiscovery = createEcsTaskDiscovery();
+        this.autoScalingGroupDiscovery = createAutoScalingGroupDiscovery();
+        this.eventWatcher = createEventWatcher();
+        this.instanceStatusFilter = createInstanceStatusFilter();
+        this.refresher = createRefresher();
     }
 
     /**
@@ -79,14 +158,211 @@ public class AwsDiscoveryStrategy
      */
     AwsDiscoveryStrategy(Map<String, Comparable> properties, AWSClient client) {
         super(LOGGER, properties);
+        this.clusterSize = null;
         this.awsConfig = getAwsConfig();
         this.awsClient = client;
+        this.race = createRace();
+        this.bootstrap = createBootstrap();
+        this.ecsTaskDiscovery = createEcsTaskDiscovery();
+        this.autoScalingGroupDiscovery = createAutoScalingGroupDiscovery();
+        this.eventWatcher = createEventWatcher();
+        this.instanceStatusFilter = createInstanceStatusFilter();
+        this.refresher = createRefresher();
+    }
+
+    /**
+     * Returns the background refresher of the discovered addresses, or {@code null} if every discovery calls AWS.
+     */
+    private DiscoveryRefresher createRefresher() {
+        if (awsConfig.getRefreshIntervalMaxSeconds() <= 0) {
+            return null;
+        }
+        if (awsConfig.getRefreshIntervalMinSeconds() <= 0
+                || awsConfig.getRefreshIntervalMinSeconds() > awsConfig.getRefreshIntervalMaxSeconds()) {
+            throw new InvalidConfigurationException("Property '" + REFRESH_INTERVAL_MIN_SECONDS.getDefinition().key()
+                    + "' must be positive and not greater than '" + REFRESH_INTERVAL_MAX_SECONDS.getDefinition().key() + "'");
+        }
+        return new DiscoveryRefresher(new Callable<Map<String, Map<String, String>>>() {
+            @Override
+            public Map<String, Map<String, String>> call()
+                    throws Exception {
+                // through the race, so that a refresh shares its EC2 API call and updates its snapshot
+                return race != null ? race.discover() : getAddressesByRegion();
+            }
+        }, new Callable<Integer>() {
+            @Override
+            public Integer call()
+                    throws Exception {
+                return getClusterSize();
+            }
+        }, TimeUnit.SECONDS.toMillis(awsConfig.getRefreshIntervalMinSeconds()),
+                TimeUnit.SECONDS.toMillis(awsConfig.getRefreshIntervalMaxSeconds()));
+    }
+
+    /**
+     * Returns the size of the cluster of the local member, or {@link DiscoveryRefresher#UNKNOWN_CLUSTER_SIZE} if no
+     * lookup was passed in or it has no answer yet.
+     */
+    private int getClusterSize()
+            throws Exception {
+        Integer size = clusterSize != null ? clusterSize.call() : null;
+        return size != null ? size : DiscoveryRefresher.UNKNOWN_CLUSTER_SIZE;
+    }
+
+    private AwsBootstrap createBootstrap() {
+        return new AwsBootstrap(new Callable<String>() {
+            @Override
+            public String call() {
+                return awsClient.getAvailabilityZone();
+            }
+        }, new Callable<Map<String, Map<String, String>>>() {
+            @Override
+            public Map<String, Map<String, String>> call()
+                    throws Exception {
+                return race != null ? race.discover() : getAddressesByRegion();
+            }
+        });
+    }
+
+    /**
+     * Returns the race of the EC2 API against the fallback sources, or {@code null} if none is configured.
+     */
+    private DiscoveryRace createRace() {
+        if (awsConfig.getFallbackSeedIps().isEmpty() && awsConfig.getFallbackDnsNames().isEmpty()
+                && awsConfig.getSnapshotFile() == null) {
+            return null;
+        }
+        return new DiscoveryRace(new Callable<Map<String, Map<String, String>>>() {
+            @Override
+            public Map<String, Map<String, String>> call()
+                    throws Exception {
+                return getAddressesByRegion();
+            }
+        }, awsConfig);
+    }
+
+    /**
+     * Returns the discovery of the tasks of {@link AwsProperties#ECS_CLUSTER}, or {@code null} if EC2 instances are
+     * discovered.
+     */
+    private EcsTaskDiscovery createEcsTaskDiscovery() {
+        if (awsConfig.getEcsCluster() == null) {
+            return null;
+        }
+        return new EcsTaskDiscovery(awsConfig, credentialsProvider());
+    }
+
+    /**
+     * Returns the discovery of the in-service instances of {@link AwsProperties#AUTO_SCALING_GROUP_NAMES}, or {@code null}
+     * if all the running instances are discovered.
+     */
+    private AutoScalingGroupDiscovery createAutoScalingGroupDiscovery() {
+        if (awsConfig.getAutoScalingGroupNames().isEmpty()) {
+            return null;
+        }
+        return new AutoScalingGroupDiscovery(awsConfig, awsClient, credentialsProvider());
+    }
+
+    /**
+     * Returns the filter of the instances failing their EC2 status checks, or {@code null} if all the running instances are
+     * discovered.
+     */
+    private InstanceStatusFilter createInstanceStatusFilter() {
+        if (awsConfig.getImpairedInstancePolicy() == ImpairedInstancePolicy.INCLUDE) {
+            return null;
+        }
+        if (ecsTaskDiscovery != null || autoScalingGroupDiscovery != null || eventWatcher != null
+                || awsConfig.getRegions().size() > 1 || !awsConfig.getAssumeRoleArns().isEmpty()) {
+            getLogger().warning("Property '" + IMPAIRED_INSTANCES.getDefinition().key() + "' is supported only when polling"
+                    + " DescribeInstances in a single region and account, all the running instances are discovered");
+            return null;
+        }
+        return new InstanceStatusFilter(awsConfig, awsClient, credentialsProvider());
+    }
+
+    /**
+     * The configured keys or, if there are none, the credentials of the IAM Role or the IAM Task Role.
+     */
+    private Callable<AwsCredentials> credentialsProvider() {
+        return new Callable<AwsCredentials>() {
+            @Override
+            public AwsCredentials call()
+                    throws Exception {
+                return new DescribeInstances(awsConfig, awsClient.getEndpoint()).resolveCredentials();
+            }
+        };
+    }
+
+    /**
+     * Returns the watcher of the {@link AwsProperties#EVENT_QUEUE_URL} events, or {@code null} if the members are discovered
+     * by polling DescribeInstances.
+     */
+    private InstanceEventWatcher createEventWatcher() {
+        if (awsConfig.getEventQueueUrl() == null) {
+            return null;
+        }
+        if (ecsTaskDiscovery != null || autoScalingGroupDiscovery != null) {
+            getLogger().warning("Property '" + EVENT_QUEUE_URL.getDefinition().key() + "' is not supported with '"
+                    + ECS_CLUSTER.getDefinition().key() + "' or '" + AUTO_SCALING_GROUP_NAMES.getDefinition().key()
+                    + "', members are discovered by polling");
+            return null;
+        }
+        if (awsConfig.getRegions().size() > 1 || !awsConfig.getAssumeRoleArns().isEmpty()) {
+            getLogger().warning("Property '" + EVENT_QUEUE_URL.getDefinition().key() + "' is not supported with multiple"
+                    + " regions or assumed roles, members are discovered by polling DescribeInstances");
+            return null;
+        }
+        if (awsConfig.getDescribeApi() == DescribeApi.NETWORK_INTERFACES) {
+            // the events name instances, not the private IPs of their network interfaces
+            getLogger().warning("Property '" + EVENT_QUEUE_URL.getDefinition().key() + "' is not supported with '"
+                    + DESCRIBE_API.getDefinition().key() + "' " + DescribeApi.NETWORK_INTERFACES.getKey()
+                    + ", members are discovered by polling DescribeNetworkInterfaces");
+            return null;
+        }
+        EventQueue eventQueue;
+        try {
+            eventQueue = new EventQueue(awsConfig, awsConfig.getEventQueueUrl());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException("AWS configuration is not valid", e);
+        }
+        return new InstanceEventWatcher(awsClient, eventQueue, credentialsProvider(),
+                TimeUnit.SECONDS.toMillis(awsConfig.getReconciliationIntervalSeconds()), InstanceEventWatcher.WAIT_TIME_SECONDS);
+    }
+
+    /**
+     * Returns the region of this instance from the Instance Metadata Service, so that the members are discovered with the
+     * EC2 API endpoint of their own region when no region is configured, or {@link #DEFAULT_REGION} when not running on
+     * EC2, e.g. for a Hazelcast Client outside of AWS.
+     * <p>
+     * The lookup blocks the construction of the strategy, so it is skipped where the Instance Metadata Service is not
+     * reachable ({@link RuntimeEnvironment.Type#OTHER}, or ECS on Fargate) and is a single attempt, without the sleeping
+     * retries.
+     */
+    private String detectRegion() {
+        if (!RuntimeEnvironment.get().isInstanceMetadataAvailable()) {
+            return DEFAULT_REGION;
+        }
+        try {
+            String region = InstanceMetadata.get().getRegion(
+                    getOrDefault(CONNECTION_TIMEOUT_SECONDS.getDefinition(), DEFAULT_CONNECTION_TIMEOUT_SECONDS), 0,
+                    getOrDefault(IMDSV1_FALLBACK.getDefinition(), true));
+            LOGGER.info("No region configured, discovering members in the region of this instance: " + region);
+            return region;
+        } catch (RuntimeException e) {
+            LOGGER.warning("Cannot detect the region of this instance, discovering members in " + DEFAULT_REGION + ": "
+                    + e.getMessage());
+            return DEFAULT_REGION;
+        }
     }
 
     private AwsConfig getAwsConfig()
             throws IllegalArgumentException {
+        final List<String> regions = getList(REGIONS);
+        final String configuredRegion = getOrNull(REGION);
         final AwsConfig config = AwsConfig.builder().setAccessKey(getOrNull(ACCESS_KEY)).setSecretKey(getOrNull(SECRET_KEY))
-                                          .setRegion(getOrDefault(REGION.getDefinition(), DEFAULT_REGION))
+                                          .setRegion(configuredRegion != null ? configuredRegion
+                                                  : regions.isEmpty() ? detectRegion() : regions.get(0))
+                                          .setRegions(regions)
                                           .setIamRole(getOrNull(IAM_ROLE))
                                           .setHostHeader(getOrDefault(HOST_HEADER.getDefinition(), DEFAULT_HOST_HEADER))
                                           .setSecurityGroupName(getOrNull(SECURITY_GROUP_NAME)).setTagKey(getOrNull(TAG_KEY))
@@ -94,7 +370,39 @@ public class AwsDiscoveryStrategy
                         getOrDefault(CONNECTION_TIMEOUT_SECONDS.getDefinition(), DEFAULT_CONNECTION_TIMEOUT_SECONDS))
                                           .setConnectionRetries(
                                                   getOrDefault(CONNECTION_RETRIES.getDefinition(), DEFAULT_CONNECTION_RETRIES))
-                                          .setHzPort(new PortRange(getPortRange())).build();
+                                          .setHzPort(new PortRange(getPortRange()))
+                                          .setAssumeRoleArns(getList(ASSUME_ROLE_ARNS))
+                                          .setAssumeRoleExternalId(getOrNull(ASSUME_ROLE_EXTERNAL_ID))
+                                          .setStsEndpoint(getOrNull(STS_ENDPOINT))
+                                          .setImdsV1Fallback(getOrDefault(IMDSV1_FALLBACK.getDefinition(), true))
+                                          .setEventQueueUrl(getOrNull(EVENT_QUEUE_URL))
+                                          .setReconciliationIntervalSeconds(getOrDefault(
+                                                  RECONCILIATION_INTERVAL_SECONDS.getDefinition(),
+                                                  DEFAULT_RECONCILIATION_INTERVAL_SECONDS))
+                                          .setRefreshIntervalMinSeconds(getOrDefault(
+                                                  REFRESH_INTERVAL_MIN_SECONDS.getDefinition(),
+                                                  DEFAULT_REFRESH_INTERVAL_MIN_SECONDS))
+                                          .setRefreshIntervalMaxSeconds(getOrDefault(
+                                                  REFRESH_INTERVAL_MAX_SECONDS.getDefinition(), 0))
+                                          .setTags(getTags())
+                                          .setVpcId(getOrNull(VPC_ID))
+                                          .setSubnetIds(getList(SUBNET_IDS))
+                                          .setInstanceTypes(getList(INSTANCE_TYPES))
+                                          .setPlacementGroup(getOrNull(PLACEMENT_GROUP))
+                                          .setInstancePredicate(getInstancePredicate())
+                                          .setEcsCluster(getOrNull(ECS_CLUSTER))
+                                          .setEcsServiceName(getOrNull(ECS_SERVICE_NAME))
+                                          .setAutoScalingGroupNames(getList(AUTO_SCALING_GROUP_NAMES))
+                                          .setDescribeApi(getDescribeApi())
+                                          .setFallbackSeedIps(getList(FALLBACK_SEED_IPS))
+                                          .setFallbackDnsNames(getList(FALLBACK_DNS_NAMES))
+                                          .setSnapshotFile(getOrNull(SNAPSHOT_FILE))
+                                          .setDiscoveryBudgetMillis(getOrDefault(DISCOVERY_BUDGET_MILLIS.getDefinition(),
+                                                  DEFAULT_DISCOVERY_BUDGET_MILLIS))
+                                          .setHedgePercentile(getHedgePercentile())
+                                          .setHedgeEndpoint(getOrNull(HEDGE_ENDPOINT))
+                                          .setEndpoints(getList(ENDPOINTS))
+                                          .setImpairedInstancePolicy(getImpairedInstancePolicy()).build();
 
         reviewConfiguration(config);
         return config;
@@ -114,6 +422,102 @@ public class AwsDiscoveryStrategy
         return portRange.toString();
     }
 
+    /**
+     * Returns the values of a comma-separated list property or an empty list if the property does not exist.
+     */
+    private List<String> getList(AwsProperties awsProperties) {
+        final List<String> values = new ArrayList<String>();
+        final String spec = getOrNull(awsProperties);
+        if (spec != null) {
+            for (String value : spec.split(",")) {
+                if (!StringUtil.isNullOrEmptyAfterTrim(value)) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the "key=value" or "key" entries of the {@link AwsProperties#TAGS} property grouped by key.
+     */
+    private Map<String, List<String>> getTags() {
+        Map<String, List<String>> tags = new LinkedHashMap<String, List<String>>();
+        for (String tag : getList(TAGS)) {
+            int separator = tag.indexOf('=');
+            String key = (separator < 0 ? tag : tag.substring(0, separator)).trim();
+            if (key.length() == 0) {
+                throw new InvalidConfigurationException("Invalid tag '" + tag + "' in property '"
+                        + TAGS.getDefinition().key() + "', expected 'key=value' or 'key'");
+            }
+            List<String> values = tags.get(key);
+            if (values == null) {
+                values = new ArrayList<String>();
+                tags.put(key, values);
+            }
+            if (separator >= 0) {
+                values.add(tag.substring(separator + 1).trim());
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Compiles the {@link AwsProperties#INSTANCE_PREDICATE} property once, so that it is only evaluated per instance.
+     */
+    private InstancePredicate getInstancePredicate() {
+        try {
+            return InstancePredicate.compile(getOrNull(INSTANCE_PREDICATE));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException("Invalid property '" + INSTANCE_PREDICATE.getDefinition().key()
+                    + "': " + e.getMessage());
+        }
+    }
+
+    private int getHedgePercentile() {
+        int percentile = getOrDefault(HEDGE_PERCENTILE.getDefinition(), 0);
+        if (percentile < 0 || percentile >= MAX_HEDGE_PERCENTILE) {
+            throw new InvalidConfigurationException("Property '" + HEDGE_PERCENTILE.getDefinition().key()
+                    + "' must be between 0 and " + (MAX_HEDGE_PERCENTILE - 1) + ", was " + percentile);
+        }
+        return percentile;
+    }
+
+    /**
+     * Returns the API of the {@link AwsProperties#DESCRIBE_API} property. The instance type and placement group filters
+     * exist only for {@code DescribeInstances}.
+     */
+    private DescribeApi getDescribeApi() {
+        String key = getOrNull(DESCRIBE_API);
+        if (key == null) {
+            return DescribeApi.INSTANCES;
+        }
+        DescribeApi describeApi;
+        try {
+            describeApi = DescribeApi.forKey(key.trim());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException("Invalid property '" + DESCRIBE_API.getDefinition().key() + "': "
+                    + e.getMessage());
+        }
+        if (describeApi == DescribeApi.NETWORK_INTERFACES
+                && (getOrNull(INSTANCE_TYPES) != null || getOrNull(PLACEMENT_GROUP) != null)) {
+            throw new InvalidConfigurationException("Properties '" + INSTANCE_TYPES.getDefinition().key() + "' and '"
+                    + PLACEMENT_GROUP.getDefinition().key() + "' are not supported with '"
+                    + DESCRIBE_API.getDefinition().key() + "' " + describeApi.getKey());
+        }
+        return describeApi;
+    }
+
+    private ImpairedInstancePolicy getImpairedInstancePolicy() {
+        String key = getOrNull(IMPAIRED_INSTANCES);
+        try {
+            return key == null ? ImpairedInstancePolicy.INCLUDE : ImpairedInstancePolicy.forKey(key.trim());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException("Invalid property '" + IMPAIRED_INSTANCES.getDefinition().key() + "': "
+                    + e.getMessage());
+        }
+    }
+
     private void reviewConfiguration(AwsConfig config) {
         if (StringUtil.isNullOrEmptyAfterTrim(config.getSecretKey()) || StringUtil
                 .isNullOrEmptyAfterTrim(config.getAccessKey())) {
@@ -132,43 +536,146 @@ public class AwsDiscoveryStrategy
         }
     }
 
+    /**
+     * Starts discovering the members in the background, so that the availability zone lookup of
+     * {@link #discoverLocalMetadata()} and the first {@link #discoverNodes()} do not wait for each other's calls.
+     */
+    @Override
+    public void start() {
+        bootstrap.start();
+    }
+
     @Override
     public Map<String, Object> discoverLocalMetadata() {
         if (memberMetadata.isEmpty()) {
-            memberMetadata.put(PartitionGroupMetaData.PARTITION_GROUP_ZONE, awsClient.getAvailabilityZone());
+            memberMetadata.put(PartitionGroupMetaData.PARTITION_GROUP_ZONE, bootstrap.getAvailabilityZone());
         }
         return memberMetadata;
     }
 
     @Override
     public Iterable<DiscoveryNode> discoverNodes() {
+        final DiscoveryMetrics metrics = DiscoveryMetrics.get();
+        final long start = System.nanoTime();
         try {
-            final Map<String, String> privatePublicIpAddressPairs = awsClient.getAddresses();
-            if (privatePublicIpAddressPairs.isEmpty()) {
+            Map<String, Map<String, String>> addressesByRegion = bootstrap.takeInitialAddresses();
+            if (refresher != null) {
+                addressesByRegion = refresher.getAddresses(addressesByRegion);
+            } else if (addressesByRegion == null) {
+                addressesByRegion = race != null ? race.discover() : getAddressesByRegion();
+            }
+            int instanceCount = 0;
+            for (Map<String, String> regionAddresses : addressesByRegion.values()) {
+                instanceCount += regionAddresses.size();
+            }
+            metrics.recordInstanceCount(instanceCount);
+            if (instanceCount == 0) {
                 getLogger().warning("No EC2 instances found!");
                 return Collections.emptyList();
             }
 
             if (getLogger().isFinestEnabled()) {
-                final StringBuilder sb = new StringBuilder("Found the following EC2 instances:\n");
-                for (Map.Entry<String, String> entry : privatePublicIpAddressPairs.entrySet()) {
-                    sb.append("    ").append(entry.getKey()).append(" : ").append(entry.getValue()).append("\n");
-                }
-                getLogger().finest(sb.toString());
-            }
-
-            final ArrayList<DiscoveryNode> nodes = new ArrayList<DiscoveryNode>(privatePublicIpAddressPairs.size());
-            for (Map.Entry<String, String> entry : privatePublicIpAddressPairs.entrySet()) {
-                for (int port = awsConfig.getHzPort().getFromPort(); port <= awsConfig.getHzPort().getToPort(); port++) {
-                    nodes.add(new SimpleDiscoveryNode(new Address(entry.getKey(), port), new Address(entry.getValue(), port)));
-                }
+                logDiscoveredInstances(addressesByRegion);
             }
 
+            final long expansionStart = System.nanoTime();
+            final List<DiscoveryNode> nodes = createNodes(addressesByRegion, instanceCount);
+            metrics.recordLatency(Phase.NODE_EXPANSION, expansionStart);
             return nodes;
         } catch (Exception e) {
+            metrics.recordFailedDiscovery();
             LOGGER.warning("Cannot discover nodes, returning empty list", e);
             return Collections.emptyList();
+        } finally {
+            metrics.recordLatency(Phase.DISCOVERY, start);
+        }
+    }
+
+    private List<DiscoveryNode> createNodes(Map<String, Map<String, String>> addressesByRegion, int instanceCount)
+            throws UnknownHostException {
+        final PortRange hzPort = awsConfig.getHzPort();
+        final List<Integer> rangePorts = new ArrayList<Integer>(hzPort.getToPort() - hzPort.getFromPort() + 1);
+        for (int port = hzPort.getFromPort(); port <= hzPort.getToPort(); port++) {
+            rangePorts.add(port);
+        }
+        final ArrayList<DiscoveryNode> nodes = new ArrayList<DiscoveryNode>(instanceCount * rangePorts.size());
+        for (Map.Entry<String, Map<String, String>> regionAddresses : addressesByRegion.entrySet()) {
+            final Map<String, Object> properties = regionAddresses.getKey() == null
+                    ? Collections.<String, Object>emptyMap()
+                    : Collections.<String, Object>singletonMap(REGION_PROPERTY, regionAddresses.getKey());
+            for (Map.Entry<String, String> entry : regionAddresses.getValue().entrySet()) {
+                // resolved once per instance rather than once per port
+                final InetAddress privateAddress = InetAddress.getByName(entry.getKey());
+                final InetAddress publicAddress = InetAddress.getByName(entry.getValue());
+                for (int port : getPorts(entry.getKey(), rangePorts)) {
+                    nodes.add(new SimpleDiscoveryNode(new Address(entry.getKey(), privateAddress, port),
+                            new Address(entry.getValue(), publicAddress, port), properties));
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the exact ports of an ECS task or, if they are not known, all the ports of the range.
+     */
+    private List<Integer> getPorts(String privateIp, List<Integer> rangePorts) {
+        final List<Integer> taskPorts = ecsTaskDiscovery == null ? null : ecsTaskDiscovery.getPorts(privateIp);
+        return taskPorts != null ? taskPorts : rangePorts;
+    }
+
+    private void logDiscoveredInstances(Map<String, Map<String, String>> addressesByRegion) {
+        final StringBuilder sb = new StringBuilder("Found the following EC2 instances:\n");
+        for (Map.Entry<String, Map<String, String>> regionAddresses : addressesByRegion.entrySet()) {
+            for (Map.Entry<String, String> entry : regionAddresses.getValue().entrySet()) {
+                sb.append("    ").append(entry.getKey()).append(" : ").append(entry.getValue());
+                if (regionAddresses.getKey() != null) {
+                    sb.append(" (").append(regionAddresses.getKey()).append(")");
+                }
+                sb.append("\n");
+            }
+        }
+        getLogger().finest(sb.toString());
+    }
+
+    /**
+     * Returns the discovered addresses keyed by region. With a single region, the key is {@code null} and the nodes are
+     * not tagged with {@link #REGION_PROPERTY}.
+     */
+    private Map<String, Map<String, String>> getAddressesByRegion()
+            throws Exception {
+        if (ecsTaskDiscovery != null) {
+            return Collections.singletonMap(null, ecsTaskDiscovery.getAddresses());
+        }
+        if (autoScalingGroupDiscovery != null) {
+            return Collections.singletonMap(null, autoScalingGroupDiscovery.getAddresses());
+        }
+        if (eventWatcher != null) {
+            return Collections.singletonMap(null, eventWatcher.getAddresses());
+        }
+        if (awsConfig.getRegions().size() > 1) {
+            return awsClient.getAddressesByRegion();
+        }
+        if (instanceStatusFilter != null) {
+            return Collections.singletonMap(null,
+                    instanceStatusFilter.getAddresses(awsClient.getInstances(Collections.<String>emptyList())));
+        }
+        return Collections.singletonMap(null, awsClient.getAddresses());
+    }
+
+    @Override
+    public void destroy() {
+        bootstrap.cancel();
+        if (refresher != null) {
+            refresher.shutdown();
+        }
+        if (eventWatcher != null) {
+            eventWatcher.shutdown();
+        }
+        if (race != null) {
+            race.shutdown();
         }
+        awsClient.shutdown();
     }
 
     private String getOrNull(AwsProperties awsProperties) {
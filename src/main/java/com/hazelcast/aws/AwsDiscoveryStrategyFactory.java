@@ -25,12 +25,27 @@ import com.hazelcast.spi.discovery.DiscoveryStrategyFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Factory class which returns {@link AwsDiscoveryStrategy} to Discovery SPI
  */
 public class AwsDiscoveryStrategyFactory
         implements DiscoveryStrategyFactory {
+    private final Callable<Integer> clusterSize;
+
+    public AwsDiscoveryStrategyFactory() {
+        this(null);
+    }
+
+    /**
+     * @param clusterSize the lookup of the size of the local member's cluster, e.g. the member count kept by a
+     *                    {@code MembershipListener}, returning {@code null} while it is not known
+     */
+    public AwsDiscoveryStrategyFactory(Callable<Integer> clusterSize) {
+        this.clusterSize = clusterSize;
+    }
+
     @Override
     public Class<? extends DiscoveryStrategy> getDiscoveryStrategyType() {
         return AwsDiscoveryStrategy.class;
@@ -39,7 +54,8 @@ public class AwsDiscoveryStrategyFactory
     @Override
     public DiscoveryStrategy newDiscoveryStrategy(DiscoveryNode discoveryNode, ILogger logger,
                                                   Map<String, Comparable> properties) {
-        return new AwsDiscoveryStrategy(properties);
+        // clients have no local member, hence no cluster size
+        return new AwsDiscoveryStrategy(properties, discoveryNode != null ? clusterSize : null);
     }
 
     @Override
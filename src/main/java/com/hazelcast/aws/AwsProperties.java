@@ -22,6 +22,7 @@ import com.hazelcast.config.properties.PropertyTypeConverter;
 import com.hazelcast.config.properties.SimplePropertyDefinition;
 import com.hazelcast.config.properties.ValueValidator;
 
+import static com.hazelcast.config.properties.PropertyTypeConverter.BOOLEAN;
 import static com.hazelcast.config.properties.PropertyTypeConverter.INTEGER;
 import static com.hazelcast.config.properties.PropertyTypeConverter.STRING;
 
@@ -42,11 +43,18 @@ public enum AwsProperties {
     SECRET_KEY("secret-key", STRING, true),
 
     /**
-     * The region where your members are running. Default value is us-east-1. You need to specify this if the region is other
-     * than the default one.
+     * The region where your members are running. If neither this nor {@link #REGIONS} is set, the region of the EC2
+     * instance is detected from the Instance Metadata Service; us-east-1 is used when the service is not reachable, e.g.
+     * outside of AWS, or when the detection fails.
      */
     REGION("region", STRING, true),
 
+    /**
+     * Comma-separated list of regions where your members are running, e.g. "us-east-1,eu-west-1". When set, the EC2 API is
+     * queried in all the given regions in parallel and the results are merged. It takes precedence over {@link #REGION}.
+     */
+    REGIONS("regions", STRING, true),
+
     /**
      * IAM roles are used to make secure requests from your clients. You can provide the name
      * of your IAM role that you created previously on your AWS console.
@@ -96,7 +104,171 @@ public enum AwsProperties {
      * <p>
      * The default value is "5701-5708".
      */
-    PORT("hz-port", STRING, true);
+    PORT("hz-port", STRING, true),
+
+    /**
+     * Comma-separated list of ARNs of IAM roles to assume, e.g. one role per AWS account the members are running in. The
+     * instances of all the accounts are discovered in parallel and merged. The roles are assumed with the credentials of
+     * {@link #ACCESS_KEY}/{@link #SECRET_KEY} or of the IAM Role. It is optional.
+     */
+    ASSUME_ROLE_ARNS("assume-role-arns", STRING, true),
+
+    /**
+     * External ID passed when assuming the roles of {@link #ASSUME_ROLE_ARNS}. It is optional.
+     */
+    ASSUME_ROLE_EXTERNAL_ID("assume-role-external-id", STRING, true),
+
+    /**
+     * The STS endpoint used to assume the roles of {@link #ASSUME_ROLE_ARNS}. Default value is sts.amazonaws.com.
+     */
+    STS_ENDPOINT("sts-endpoint", STRING, true),
+
+    /**
+     * Whether the Instance Metadata Service may be queried without the IMDSv2 session token (IMDSv1) if the token cannot
+     * be fetched, e.g. because the token PUT request exceeds the hop limit of a container. Disable it on instances where
+     * IMDSv1 is turned off to fail fast. Default value is true.
+     */
+    IMDSV1_FALLBACK("imdsv1-fallback", BOOLEAN, true),
+
+    /**
+     * URL of an SQS queue receiving the EC2 Instance State-change Notification events of EventBridge. If set, the members
+     * are discovered from the events instead of polling DescribeInstances, which is then called only for the instances that
+     * started running and for the periodic reconciliation. Not supported with {@link #REGIONS} or {@link #ASSUME_ROLE_ARNS}.
+     * It is optional.
+     */
+    EVENT_QUEUE_URL("event-queue-url", STRING, true),
+
+    /**
+     * Interval in seconds of the full DescribeInstances reconciliation when the members are discovered from the
+     * {@link #EVENT_QUEUE_URL} events, correcting lost or out-of-order events. Default value is 300.
+     */
+    RECONCILIATION_INTERVAL_SECONDS("reconciliation-interval-seconds", INTEGER, true),
+
+    /**
+     * Shortest period in seconds of the background refresh of the discovered instances, used while instances are added or
+     * removed. Default value is 5.
+     */
+    REFRESH_INTERVAL_MIN_SECONDS("refresh-interval-min-seconds", INTEGER, true),
+
+    /**
+     * Longest period in seconds of the background refresh of the discovered instances, reached while the fleet is stable.
+     * If set, the discovery returns the result of the last refresh instead of calling AWS. If not set, there is no
+     * background refresh and every discovery calls AWS.
+     */
+    REFRESH_INTERVAL_MAX_SECONDS("refresh-interval-max-seconds", INTEGER, true),
+
+    /**
+     * Comma-separated list of tags the instances must have, as "key=value" pairs or bare "key" (any value), e.g.
+     * "cluster=prod,team=data". Pairs with the same key match any of their values. It is optional and combined with
+     * {@link #TAG_KEY}/{@link #TAG_VALUE}.
+     */
+    TAGS("tags", STRING, true),
+
+    /**
+     * Filter to look only for EC2 Instances in the given VPC. It is optional.
+     */
+    VPC_ID("vpc-id", STRING, true),
+
+    /**
+     * Comma-separated list of subnet IDs; only EC2 Instances in one of the subnets are looked for. It is optional.
+     */
+    SUBNET_IDS("subnet-ids", STRING, true),
+
+    /**
+     * Comma-separated list of instance types, e.g. "r5.xlarge,r5.2xlarge"; only EC2 Instances of one of the types are
+     * looked for. It is optional.
+     */
+    INSTANCE_TYPES("instance-types", STRING, true),
+
+    /**
+     * Filter to look only for EC2 Instances in the given placement group. It is optional.
+     */
+    PLACEMENT_GROUP("placement-group", STRING, true),
+
+    /**
+     * Client-side predicate the discovered EC2 Instances must match, for rules the EC2 filters cannot express, e.g.
+     * "tag:Name ~ hz-.* &amp;&amp; !tag:draining &amp;&amp; private-ip in 10.0.0.0/16 &amp;&amp; launch-age &gt; 2m".
+     * See {@link com.hazelcast.aws.utility.InstancePredicate} for the syntax. It is optional.
+     */
+    INSTANCE_PREDICATE("instance-predicate", STRING, true),
+
+    /**
+     * Name or ARN of the ECS cluster whose tasks are discovered instead of EC2 Instances, e.g. with the awsvpc network
+     * mode, where every task has its own IP. It is optional.
+     */
+    ECS_CLUSTER("ecs-cluster", STRING, true),
+
+    /**
+     * Name of the ECS service whose tasks are discovered in {@link #ECS_CLUSTER}. It is optional; if not set, all the
+     * tasks of the cluster are discovered.
+     */
+    ECS_SERVICE_NAME("ecs-service-name", STRING, true),
+
+    /**
+     * Comma-separated list of Auto Scaling group names; only their {@code InService} instances are discovered, so that
+     * instances which are launching, warming up or being terminated by the group are not. It is optional.
+     */
+    AUTO_SCALING_GROUP_NAMES("auto-scaling-group-names", STRING, true),
+
+    /**
+     * EC2 API the members are discovered with: "instances" ({@code DescribeInstances}, the default) or
+     * "network-interfaces" ({@code DescribeNetworkInterfaces}), which discovers the secondary private IPs as well and
+     * whose responses are much smaller. It is optional.
+     */
+    DESCRIBE_API("describe-api", STRING, true),
+
+    /**
+     * Comma-separated list of static private IPs of members, returned when neither the EC2 API nor the other fallback
+     * sources answer within {@link #DISCOVERY_BUDGET_MILLIS}. It is optional.
+     */
+    FALLBACK_SEED_IPS("fallback-seed-ips", STRING, true),
+
+    /**
+     * Comma-separated list of DNS names of the members, resolved concurrently with the EC2 API and returned if the EC2 API
+     * does not answer within {@link #DISCOVERY_BUDGET_MILLIS}. It is optional.
+     */
+    FALLBACK_DNS_NAMES("fallback-dns-names", STRING, true),
+
+    /**
+     * File the last EC2 API answer is persisted in, and returned from if the EC2 API does not answer within
+     * {@link #DISCOVERY_BUDGET_MILLIS}, also after a restart. It is optional.
+     */
+    SNAPSHOT_FILE("snapshot-file", STRING, true),
+
+    /**
+     * Milliseconds a discovery waits for the EC2 API before the fallback sources may answer instead, if
+     * {@link #FALLBACK_SEED_IPS}, {@link #FALLBACK_DNS_NAMES} or {@link #SNAPSHOT_FILE} is set. Its default value is 2000.
+     */
+    DISCOVERY_BUDGET_MILLIS("discovery-budget-millis", INTEGER, true),
+
+    /**
+     * Percentile (1-99) of the recent DescribeInstances latencies after which a second request is sent if the first one
+     * has not answered, the first answer being used. The hedged requests are limited to a tenth of the requests and are
+     * suspended while the EC2 API throttles. Its default value is 0, which disables the hedging.
+     */
+    HEDGE_PERCENTILE("hedge-percentile", INTEGER, true),
+
+    /**
+     * EC2 API endpoint the hedged requests of {@link #REGION} are sent to, e.g. an interface VPC endpoint
+     * {@code vpce-0123456789abcdef0-abcdefgh.ec2.us-east-1.vpce.amazonaws.com}. If not set, they are sent to the same
+     * endpoint as the first request.
+     */
+    HEDGE_ENDPOINT("hedge-endpoint", STRING, true),
+
+    /**
+     * Comma-separated list of EC2 API endpoints of {@link #REGION}, in the order they are preferred in, e.g. an interface VPC
+     * endpoint followed by the regional endpoint. The requests fail over to the next endpoint when one fails or is much
+     * slower than the others, and the preferred endpoints are probed periodically to switch back to them. If not set, the
+     * endpoint is derived from {@link #HOST_HEADER} and {@link #REGION}.
+     */
+    ENDPOINTS("endpoints", STRING, true),
+
+    /**
+     * What discovery does with the instances failing their EC2 status checks, looked up with
+     * {@code DescribeInstanceStatus}: "include" (the default, the status checks are not looked up), "deprioritize" (they
+     * are discovered after the healthy instances) or "exclude". It is optional.
+     */
+    IMPAIRED_INSTANCES("impaired-instances", STRING, true);
 
     private final PropertyDefinition propertyDefinition;
 
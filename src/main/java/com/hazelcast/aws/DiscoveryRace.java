@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.impl.DnsResolver;
+import com.hazelcast.aws.impl.SrvRecord;
+import com.hazelcast.aws.utility.DaemonThreadFactory;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Races the EC2 API against fallback sources, so that a degraded EC2 API delays a discovery by the latency budget at most
+ * instead of returning no members. The sources, in the order they are preferred in:
+ * <ol>
+ * <li>the EC2 API (including the ECS and Auto Scaling variants), the authoritative source</li>
+ * <li>the A and AAAA records of DNS names, or of the targets of their SRV records, resolved concurrently with the EC2 API</li>
+ * <li>the {@link DiscoverySnapshot} of the last EC2 API answer</li>
+ * <li>static seed IPs</li>
+ * </ol>
+ * The first source in this order with a non-empty answer when the EC2 API answers or the budget elapses wins. If none has
+ * one, the discovery waits for the EC2 API as if there was no race. An EC2 API answer arriving after the budget is still
+ * saved to the snapshot, so that the next discovery returns it even if the EC2 API is still slow.
+ */
+final class DiscoveryRace {
+    /**
+     * Source of a discovery, in the order the sources are preferred in.
+     */
+    enum Source {
+        EC2, DNS, SNAPSHOT, SEEDS
+    }
+
+    private static final ILogger LOGGER = Logger.getLogger(DiscoveryRace.class);
+    private static final int MAX_DNS_THREADS = 4;
+    private static final int THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private final Callable<Map<String, Map<String, String>>> ec2Discovery;
+    private final DiscoverySnapshot snapshot;
+    private final Map<String, Map<String, String>> seeds;
+    private final DnsResolver dnsResolver;
+    private final List<String> dnsNames;
+    private final long budgetNanos;
+    private final ThreadPoolExecutor ec2Executor;
+    private final ThreadPoolExecutor dnsExecutor;
+
+    private Future<Map<String, Map<String, String>>> ec2InFlight;
+    private volatile Source lastWinner;
+
+    /**
+     * Creates the race configured by {@code awsConfig}: its fallback seed IPs, fallback DNS names (resolved with the system
+     * resolver), snapshot file and discovery budget.
+     */
+    DiscoveryRace(Callable<Map<String, Map<String, String>>> ec2Discovery, AwsConfig awsConfig) {
+        this(ec2Discovery,
+                new DiscoverySnapshot(awsConfig.getSnapshotFile() == null ? null : new File(awsConfig.getSnapshotFile())),
+                awsConfig.getFallbackSeedIps(), new DnsResolver(null, awsConfig.getConnectionTimeoutSeconds()),
+                awsConfig.getFallbackDnsNames(), awsConfig.getDiscoveryBudgetMillis());
+    }
+
+    /**
+     * @param ec2Discovery the EC2 API discovery, returning the addresses keyed by region
+     * @param snapshot     the snapshot the EC2 API answers are saved to
+     * @param seedIps      the static private IPs of the members, possibly empty
+     * @param dnsResolver  the resolver of {@code dnsNames}
+     * @param dnsNames     the DNS names of the members, possibly empty
+     * @param budgetMillis how long the EC2 API is waited for before a fallback source may win
+     */
+    DiscoveryRace(Callable<Map<String, Map<String, String>>> ec2Discovery, DiscoverySnapshot snapshot, List<String> seedIps,
+                  DnsResolver dnsResolver, List<String> dnsNames, long budgetMillis) {
+        this.ec2Discovery = ec2Discovery;
+        this.snapshot = snapshot;
+        this.seeds = toAddresses(seedIps);
+        this.dnsResolver = dnsResolver;
+        this.dnsNames = dnsNames;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        // a single EC2 API call is in flight at a time, see startEc2Discovery
+        this.ec2Executor = new ThreadPoolExecutor(1, 1, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("hz-aws-race-ec2"));
+        this.ec2Executor.allowCoreThreadTimeOut(true);
+        // never run on the discovering thread: a rejected resolution is a DNS source without answer
+        this.dnsExecutor = new ThreadPoolExecutor(0, MAX_DNS_THREADS, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new DaemonThreadFactory("hz-aws-race-dns"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Returns the addresses of the winning source, keyed by region.
+     *
+     * @throws Exception if no source answers within the budget and the EC2 API fails
+     */
+    Map<String, Map<String, String>> discover()
+            throws Exception {
+        long deadline = System.nanoTime() + budgetNanos;
+        Future<Map<String, Map<String, String>>> ec2 = startEc2Discovery(deadline);
+        Future<Map<String, Map<String, String>>> dns = startDnsDiscovery();
+        try {
+            Map<String, Map<String, String>> addresses = await(ec2, deadline);
+            return addresses != null ? won(Source.EC2, addresses) : fallBack(ec2, dns, deadline);
+        } finally {
+            if (dns != null) {
+                dns.cancel(true);
+            }
+        }
+    }
+
+    private Map<String, Map<String, String>> fallBack(Future<Map<String, Map<String, String>>> ec2,
+                                                      Future<Map<String, Map<String, String>>> dns, long deadline)
+            throws Exception {
+        Map<String, Map<String, String>> addresses = await(dns, deadline);
+        if (addresses != null) {
+            return won(Source.DNS, addresses);
+        }
+        addresses = snapshot.get();
+        if (addresses != null) {
+            return won(Source.SNAPSHOT, addresses);
+        }
+        if (!seeds.isEmpty()) {
+            return won(Source.SEEDS, seeds);
+        }
+        return awaitAny(ec2, dns);
+    }
+
+    /**
+     * Returns the source of the last discovery, or {@code null} if there was none.
+     */
+    Source getLastWinner() {
+        return lastWinner;
+    }
+
+    void shutdown() {
+        ec2Executor.shutdownNow();
+        dnsExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts an EC2 API call, unless the call of a previous discovery is still running, so that a slow EC2 API does not
+     * pile up calls.
+     */
+    private synchronized Future<Map<String, Map<String, String>>> startEc2Discovery(final long deadline) {
+        if (ec2InFlight == null || ec2InFlight.isDone()) {
+            ec2InFlight = ec2Executor.submit(new Callable<Map<String, Map<String, String>>>() {
+                @Override
+                public Map<String, Map<String, String>> call()
+                        throws Exception {
+                    Map<String, Map<String, String>> addresses = ec2Discovery.call();
+                    if (!isEmpty(addresses)) {
+                        snapshot.save(addresses);
+                        if (System.nanoTime() > deadline) {
+                            LOGGER.info("The EC2 API answered after the latency budget, its instances are used from the"
+                                    + " next discovery on");
+                        }
+                    }
+                    return addresses;
+                }
+            });
+        }
+        return ec2InFlight;
+    }
+
+    /**
+     * Starts the resolution of the DNS names, returning {@code null} if there are none or too many resolutions are still
+     * running.
+     */
+    private Future<Map<String, Map<String, String>>> startDnsDiscovery() {
+        if (dnsNames.isEmpty()) {
+            return null;
+        }
+        try {
+            return dnsExecutor.submit(dnsDiscovery());
+        } catch (RejectedExecutionException e) {
+            LOGGER.fine("Skipping the DNS names, " + MAX_DNS_THREADS + " resolutions are still running");
+            return null;
+        }
+    }
+
+    private Callable<Map<String, Map<String, String>>> dnsDiscovery() {
+        return new Callable<Map<String, Map<String, String>>>() {
+            @Override
+            public Map<String, Map<String, String>> call()
+                    throws Exception {
+                Map<String, String> addresses = new LinkedHashMap<String, String>();
+                for (String name : dnsNames) {
+                    List<SrvRecord> srvRecords = dnsResolver.resolveSrv(name);
+                    if (srvRecords.isEmpty()) {
+                        putAll(addresses, dnsResolver.resolveAddresses(name));
+                    }
+                    for (SrvRecord srvRecord : srvRecords) {
+                        putAll(addresses, dnsResolver.resolveAddresses(srvRecord.getTarget()));
+                    }
+                }
+                return Collections.singletonMap(null, addresses);
+            }
+        };
+    }
+
+    /**
+     * Waits for the non-empty answer of a source until the deadline.
+     *
+     * @return the answer or {@code null} if the source has not answered, has failed or has answered with no addresses
+     */
+    private static Map<String, Map<String, String>> await(Future<Map<String, Map<String, String>>> source, long deadline)
+            throws InterruptedException {
+        if (source == null) {
+            return null;
+        }
+        try {
+            Map<String, Map<String, String>> addresses = source.get(Math.max(0, deadline - System.nanoTime()),
+                    TimeUnit.NANOSECONDS);
+            return isEmpty(addresses) ? null : addresses;
+        } catch (TimeoutException e) {
+            return null;
+        } catch (ExecutionException e) {
+            LOGGER.fine("Discovery source failed: " + e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the non-empty answer of a source without limit.
+     *
+     * @return the answer or {@code null} if the source has failed or has answered with no addresses
+     */
+    private static Map<String, Map<String, String>> awaitWithoutLimit(Future<Map<String, Map<String, String>>> source)
+            throws InterruptedException {
+        if (source == null) {
+            return null;
+        }
+        try {
+            Map<String, Map<String, String>> addresses = source.get();
+            return isEmpty(addresses) ? null : addresses;
+        } catch (ExecutionException e) {
+            LOGGER.fine("Discovery source failed: " + e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the EC2 API without limit, or for the DNS names if it fails.
+     */
+    private Map<String, Map<String, String>> awaitAny(Future<Map<String, Map<String, String>>> ec2,
+                                                      Future<Map<String, Map<String, String>>> dns)
+            throws Exception {
+        try {
+            return won(Source.EC2, ec2.get());
+        } catch (ExecutionException e) {
+            Map<String, Map<String, String>> addresses = awaitWithoutLimit(dns);
+            if (addresses != null) {
+                return won(Source.DNS, addresses);
+            }
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private Map<String, Map<String, String>> won(Source source, Map<String, Map<String, String>> addresses) {
+        if (source != lastWinner) {
+            LOGGER.info("Discovered the members with " + source + (source == Source.EC2 ? "" : ", the EC2 API did not answer"
+                    + " within the latency budget"));
+        } else if (LOGGER.isFineEnabled()) {
+            LOGGER.fine("Discovered the members with " + source);
+        }
+        lastWinner = source;
+        return addresses;
+    }
+
+    private static Map<String, Map<String, String>> toAddresses(List<String> ips) {
+        if (ips.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> addresses = new LinkedHashMap<String, String>();
+        putAll(addresses, ips);
+        return Collections.singletonMap(null, addresses);
+    }
+
+    private static void putAll(Map<String, String> addresses, List<String> privateIps) {
+        for (String privateIp : privateIps) {
+            addresses.put(privateIp, null);
+        }
+    }
+
+    private static boolean isEmpty(Map<String, Map<String, String>> addressesByRegion) {
+        if (addressesByRegion != null) {
+            for (Map<String, String> addresses : addressesByRegion.values()) {
+                if (!addresses.isEmpty()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.utility.DaemonThreadFactory;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the discovered addresses in the background, so that a discovery returns the last result instead of calling
+ * AWS. The refresh period adapts to the churn of the fleet:
+ * <ul>
+ * <li>it drops to the minimum when the last refresh found added or removed instances, or when the local cluster has
+ * fewer members than the discovered instances (members are still joining)</li>
+ * <li>it doubles, up to the maximum, after each refresh without changes, and after a failed refresh</li>
+ * </ul>
+ */
+final class DiscoveryRefresher {
+    /**
+     * Value of the cluster size lookup when the size is not known, e.g. while the local member is joining.
+     */
+    static final int UNKNOWN_CLUSTER_SIZE = -1;
+
+    private static final ILogger LOGGER = Logger.getLogger(DiscoveryRefresher.class);
+
+    private final Callable<Map<String, Map<String, String>>> discovery;
+    private final Callable<Integer> clusterSize;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+
+    private ScheduledExecutorService scheduler;
+    private volatile Map<String, Map<String, String>> addresses;
+    private volatile long intervalMillis;
+    private boolean stopped;
+
+    /**
+     * @param discovery   the discovery, returning the addresses keyed by region
+     * @param clusterSize the lookup of the local cluster size, returning {@link #UNKNOWN_CLUSTER_SIZE} if unknown
+     */
+    DiscoveryRefresher(Callable<Map<String, Map<String, String>>> discovery, Callable<Integer> clusterSize,
+                       long minIntervalMillis, long maxIntervalMillis) {
+        this.discovery = discovery;
+        this.clusterSize = clusterSize;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.intervalMillis = minIntervalMillis;
+    }
+
+    /**
+     * Returns the last discovered addresses. The first call takes the {@code initialAddresses} or, if {@code null}, runs
+     * the discovery, and starts the background refreshes.
+     *
+     * @throws Exception if the first discovery fails
+     */
+    Map<String, Map<String, String>> getAddresses(Map<String, Map<String, String>> initialAddresses)
+            throws Exception {
+        Map<String, Map<String, String>> current = addresses;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (addresses == null) {
+                addresses = initialAddresses != null ? initialAddresses : discovery.call();
+                if (!stopped) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("hz-aws-refresh"));
+                    scheduleRefresh();
+                }
+            }
+            return addresses;
+        }
+    }
+
+    /**
+     * Returns the current refresh period in milliseconds.
+     */
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    private void scheduleRefresh() {
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+                synchronized (DiscoveryRefresher.this) {
+                    if (!stopped) {
+                        scheduleRefresh();
+                    }
+                }
+            }
+        }, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // visible for testing
+    void refresh() {
+        Map<String, Map<String, String>> refreshed;
+        try {
+            refreshed = discovery.call();
+        } catch (Exception e) {
+            LOGGER.warning("Cannot refresh the discovered instances, keeping the last ones", e);
+            intervalMillis = lengthen(intervalMillis);
+            return;
+        }
+        Set<String> previousIps = privateIps(addresses);
+        Set<String> refreshedIps = privateIps(refreshed);
+        addresses = refreshed;
+        boolean changed = !previousIps.equals(refreshedIps);
+        if (changed || isJoining(refreshedIps.size())) {
+            intervalMillis = minIntervalMillis;
+        } else {
+            intervalMillis = lengthen(intervalMillis);
+        }
+        if (LOGGER.isFineEnabled()) {
+            LOGGER.fine("Refreshed " + refreshedIps.size() + " instances" + (changed ? " (changed)" : "")
+                    + ", next refresh in " + intervalMillis + " ms");
+        }
+    }
+
+    private long lengthen(long interval) {
+        return Math.min(interval * 2, maxIntervalMillis);
+    }
+
+    private boolean isJoining(int instanceCount) {
+        try {
+            int size = clusterSize.call();
+            return size != UNKNOWN_CLUSTER_SIZE && size < instanceCount;
+        } catch (Exception e) {
+            LOGGER.finest("Cannot look up the cluster size", e);
+            return false;
+        }
+    }
+
+    private static Set<String> privateIps(Map<String, Map<String, String>> addressesByRegion) {
+        Set<String> ips = new HashSet<String>();
+        for (Map<String, String> regionAddresses : addressesByRegion.values()) {
+            ips.addAll(regionAddresses.keySet());
+        }
+        return ips;
+    }
+
+    synchronized void shutdown() {
+        stopped = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.hazelcast.nio.IOUtil.closeResource;
+
+/**
+ * Last addresses discovered with the EC2 API, kept in memory and, if a file is given, persisted so that a restarted member
+ * still knows where the cluster was. The file has one "private IP,public IP,region" line per instance, with empty fields
+ * for a missing public IP or region, and is replaced atomically where the file system allows it.
+ */
+final class DiscoverySnapshot {
+    private static final ILogger LOGGER = Logger.getLogger(DiscoverySnapshot.class);
+    private static final String CHARSET = "UTF-8";
+
+    private final File file;
+    private volatile Map<String, Map<String, String>> addresses;
+
+    /**
+     * @param file the file to persist the snapshot in, or {@code null} to keep it in memory only
+     */
+    DiscoverySnapshot(File file) {
+        this.file = file;
+        this.addresses = file != null && file.isFile() ? load(file) : null;
+    }
+
+    /**
+     * Returns the last saved addresses by region, or {@code null} if there are none.
+     */
+    Map<String, Map<String, String>> get() {
+        return addresses;
+    }
+
+    void save(Map<String, Map<String, String>> addressesByRegion) {
+        addresses = addressesByRegion;
+        if (file == null) {
+            return;
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(temporary), CHARSET);
+            for (Map.Entry<String, Map<String, String>> region : addressesByRegion.entrySet()) {
+                for (Map.Entry<String, String> address : region.getValue().entrySet()) {
+                    writer.write(address.getKey() + "," + nullToEmpty(address.getValue()) + ","
+                            + nullToEmpty(region.getKey()) + "\n");
+                }
+            }
+            writer.close();
+            if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+                throw new IOException("Cannot rename " + temporary + " to " + file);
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Cannot persist the discovered addresses to " + file + ": " + e.getMessage());
+        } finally {
+            closeResource(writer);
+        }
+    }
+
+    private static Map<String, Map<String, String>> load(File file) {
+        Map<String, Map<String, String>> addressesByRegion = new LinkedHashMap<String, Map<String, String>>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] fields = line.split(",", -1);
+                if (fields.length != 3 || fields[0].length() == 0) {
+                    continue;
+                }
+                String region = emptyToNull(fields[2]);
+                Map<String, String> addresses = addressesByRegion.get(region);
+                if (addresses == null) {
+                    addresses = new LinkedHashMap<String, String>();
+                    addressesByRegion.put(region, addresses);
+                }
+                addresses.put(fields[0], emptyToNull(fields[1]));
+            }
+            return addressesByRegion.isEmpty() ? null : Collections.unmodifiableMap(addressesByRegion);
+        } catch (IOException e) {
+            LOGGER.warning("Cannot load the discovered addresses from " + file + ": " + e.getMessage());
+            return null;
+        } finally {
+            closeResource(reader);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.length() == 0 ? null : value;
+    }
+}
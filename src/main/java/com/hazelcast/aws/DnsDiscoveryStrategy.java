@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.impl.DnsResolver;
+import com.hazelcast.aws.impl.SrvRecord;
+import com.hazelcast.aws.utility.DaemonThreadFactory;
+import com.hazelcast.config.InvalidConfigurationException;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+import com.hazelcast.nio.Address;
+import com.hazelcast.spi.discovery.AbstractDiscoveryStrategy;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import com.hazelcast.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.aws.DnsProperties.CACHE_TTL_SECONDS;
+import static com.hazelcast.aws.DnsProperties.DNS_SERVER;
+import static com.hazelcast.aws.DnsProperties.PORT;
+import static com.hazelcast.aws.DnsProperties.RESOLVE_TIMEOUT_SECONDS;
+import static com.hazelcast.aws.DnsProperties.SERVICE_DNS_NAMES;
+
+/**
+ * Discovers the members registered at DNS names, e.g. the instances of an AWS Cloud Map service, which is much cheaper
+ * than signed EC2 API calls and not subject to their throttling. For each name:
+ * <ul>
+ * <li>if it has SRV records, each target is discovered at the exact port of its record</li>
+ * <li>otherwise its A and AAAA records are discovered at all the ports of {@link DnsProperties#PORT}</li>
+ * </ul>
+ * The names, and the targets of their SRV records, are resolved concurrently. The members of a name are cached for
+ * {@link DnsProperties#CACHE_TTL_SECONDS}, and the last members are kept if the name cannot be resolved again.
+ */
+public class DnsDiscoveryStrategy
+        extends AbstractDiscoveryStrategy {
+    private static final ILogger LOGGER = Logger.getLogger(DnsDiscoveryStrategy.class);
+    private static final String DEFAULT_PORT_RANGE = "5701-5708";
+    private static final int DEFAULT_CACHE_TTL_SECONDS = 15;
+    private static final int DEFAULT_RESOLVE_TIMEOUT_SECONDS = 5;
+    private static final int MAX_RESOLVER_THREADS = 8;
+    private static final int RESOLVER_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private final List<String> serviceNames;
+    private final PortRange hzPort;
+    private final long cacheTtlMillis;
+    private final long resolveTimeoutMillis;
+    private final DnsResolver resolver;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, CachedMembers> cache = new ConcurrentHashMap<String, CachedMembers>();
+
+    public DnsDiscoveryStrategy(Map<String, Comparable> properties) {
+        super(LOGGER, properties);
+        this.serviceNames = getServiceNames();
+        try {
+            // "hz-port" can be either a String or an Integer
+            Object portRange = getOrNull(PORT.getDefinition());
+            this.hzPort = new PortRange(portRange == null ? DEFAULT_PORT_RANGE : portRange.toString());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException("DNS configuration is not valid", e);
+        }
+        int resolveTimeoutSeconds = getOrDefault(RESOLVE_TIMEOUT_SECONDS.getDefinition(), DEFAULT_RESOLVE_TIMEOUT_SECONDS);
+        this.cacheTtlMillis = TimeUnit.SECONDS.toMillis(
+                getOrDefault(CACHE_TTL_SECONDS.getDefinition(), DEFAULT_CACHE_TTL_SECONDS));
+        // a query is retried once, with a doubled timeout
+        this.resolveTimeoutMillis = TimeUnit.SECONDS.toMillis(resolveTimeoutSeconds * 3);
+        this.resolver = new DnsResolver((String) getOrNull(DNS_SERVER.getDefinition()), resolveTimeoutSeconds);
+        // the resolution of the SRV targets is submitted from within the resolution of a name, so a saturated pool runs
+        // it in the calling thread instead of queueing it behind the task waiting for it
+        this.executor = new ThreadPoolExecutor(0, MAX_RESOLVER_THREADS, RESOLVER_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new DaemonThreadFactory("hz-dns-resolver"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private List<String> getServiceNames() {
+        List<String> names = new ArrayList<String>();
+        String spec = getOrNull(SERVICE_DNS_NAMES.getDefinition());
+        if (spec != null) {
+            for (String name : spec.split(",")) {
+                if (!StringUtil.isNullOrEmptyAfterTrim(name)) {
+                    names.add(name.trim());
+                }
+            }
+        }
+        if (names.isEmpty()) {
+            throw new InvalidConfigurationException("Property '" + SERVICE_DNS_NAMES.getDefinition().key()
+                    + "' must contain at least one DNS name");
+        }
+        return names;
+    }
+
+    @Override
+    public Iterable<DiscoveryNode> discoverNodes() {
+        resolveExpiredNames();
+        List<DiscoveryNode> nodes = new ArrayList<DiscoveryNode>();
+        for (String name : serviceNames) {
+            CachedMembers cached = cache.get(name);
+            if (cached != null) {
+                for (Address member : cached.members) {
+                    nodes.add(new SimpleDiscoveryNode(member));
+                }
+            }
+        }
+        if (nodes.isEmpty()) {
+            LOGGER.warning("No members found at " + serviceNames);
+        }
+        return nodes;
+    }
+
+    /**
+     * Resolves the names whose cached members are missing or expired, concurrently.
+     */
+    private void resolveExpiredNames() {
+        long now = System.currentTimeMillis();
+        Map<String, Future<List<Address>>> lookups = new LinkedHashMap<String, Future<List<Address>>>();
+        for (String name : serviceNames) {
+            CachedMembers cached = cache.get(name);
+            if (cached == null || cached.expirationMillis <= now) {
+                lookups.put(name, executor.submit(resolveTask(name)));
+            }
+        }
+        for (Map.Entry<String, Future<List<Address>>> lookup : lookups.entrySet()) {
+            try {
+                List<Address> members = lookup.getValue().get(resolveTimeoutMillis, TimeUnit.MILLISECONDS);
+                cache.put(lookup.getKey(), new CachedMembers(members, System.currentTimeMillis() + cacheTtlMillis));
+            } catch (Exception e) {
+                lookup.getValue().cancel(true);
+                LOGGER.warning("Cannot resolve '" + lookup.getKey() + "', keeping the last members: " + e.getMessage());
+            }
+        }
+    }
+
+    private Callable<List<Address>> resolveTask(final String name) {
+        return new Callable<List<Address>>() {
+            @Override
+            public List<Address> call()
+                    throws Exception {
+                return resolve(name);
+            }
+        };
+    }
+
+    /**
+     * Resolves the members of the name, from its SRV records or, if it has none, from its A and AAAA records.
+     */
+    private List<Address> resolve(String name)
+            throws Exception {
+        List<SrvRecord> srvRecords = resolver.resolveSrv(name);
+        List<Address> members = new ArrayList<Address>();
+        if (srvRecords.isEmpty()) {
+            for (String ip : resolver.resolveAddresses(name)) {
+                for (int port = hzPort.getFromPort(); port <= hzPort.getToPort(); port++) {
+                    members.add(new Address(ip, port));
+                }
+            }
+            return members;
+        }
+
+        Map<String, Future<List<Address>>> targets = new LinkedHashMap<String, Future<List<Address>>>();
+        for (SrvRecord srvRecord : srvRecords) {
+            if (!targets.containsKey(srvRecord.getTarget())) {
+                targets.put(srvRecord.getTarget(), executor.submit(resolveTargetTask(srvRecord.getTarget())));
+            }
+        }
+        for (SrvRecord srvRecord : srvRecords) {
+            for (Address target : targets.get(srvRecord.getTarget()).get()) {
+                members.add(new Address(target.getHost(), srvRecord.getPort()));
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Resolves the addresses of an SRV target, with port 0 until it is replaced with the port of the record.
+     */
+    private Callable<List<Address>> resolveTargetTask(final String target) {
+        return new Callable<List<Address>>() {
+            @Override
+            public List<Address> call()
+                    throws Exception {
+                List<String> ips = resolver.resolveAddresses(target);
+                if (ips.isEmpty()) {
+                    // e.g. an instance deregistered between the two lookups
+                    LOGGER.warning("The SRV target " + target + " has no A or AAAA records, skipping it");
+                }
+                List<Address> addresses = new ArrayList<Address>(ips.size());
+                for (String ip : ips) {
+                    addresses.add(new Address(ip, 0));
+                }
+                return addresses;
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static final class CachedMembers {
+        private final List<Address> members;
+        private final long expirationMillis;
+
+        CachedMembers(List<Address> members, long expirationMillis) {
+            this.members = Collections.unmodifiableList(members);
+            this.expirationMillis = expirationMillis;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws;
+
+import com.hazelcast.config.properties.PropertyDefinition;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.DiscoveryStrategy;
+import com.hazelcast.spi.discovery.DiscoveryStrategyFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Factory class which returns {@link DnsDiscoveryStrategy} to Discovery SPI
+ */
+public class DnsDiscoveryStrategyFactory
+        implements DiscoveryStrategyFactory {
+    @Override
+    public Class<? extends DiscoveryStrategy> getDiscoveryStrategyType() {
+        return DnsDiscoveryStrategy.class;
+    }
+
+    @Override
+    public DiscoveryStrategy newDiscoveryStrategy(DiscoveryNode discoveryNode, ILogger logger,
+                                                  Map<String, Comparable> properties) {
+        return new DnsDiscoveryStrategy(properties);
+    }
+
+    @Override
+    public Collection<PropertyDefinition> getConfigurationProperties() {
+        final DnsProperties[] props = DnsProperties.values();
+        final ArrayList<PropertyDefinition> definitions = new ArrayList<PropertyDefinition>(props.length);
+        for (DnsProperties prop : props) {
+            definitions.add(prop.getDefinition());
+        }
+        return definitions;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws;
+
+import com.hazelcast.config.properties.PropertyDefinition;
+import com.hazelcast.config.properties.PropertyTypeConverter;
+import com.hazelcast.config.properties.SimplePropertyDefinition;
+
+import static com.hazelcast.config.properties.PropertyTypeConverter.INTEGER;
+import static com.hazelcast.config.properties.PropertyTypeConverter.STRING;
+
+/**
+ * Configuration properties of the {@link DnsDiscoveryStrategy}.
+ */
+public enum DnsProperties {
+
+    /**
+     * Comma-separated list of DNS names the members are registered at, e.g. the name of an AWS Cloud Map service
+     * "hazelcast.cluster.local". Their SRV records are resolved or, if they have none, their A and AAAA records.
+     */
+    SERVICE_DNS_NAMES("service-dns-names", STRING, false),
+
+    /**
+     * "host" or "host:port" of the DNS server to query. It is optional; if not set, the DNS servers of the system are
+     * queried, e.g. the Route 53 Resolver of the VPC.
+     */
+    DNS_SERVER("dns-server", STRING, true),
+
+    /**
+     * Port or port range on which the members of A and AAAA records are expected to be running; the members of SRV records
+     * are discovered at the port of the record only. The default value is "5701-5708".
+     */
+    PORT("hz-port", STRING, true),
+
+    /**
+     * Number of seconds the resolved members of a name are reused for before it is resolved again. Its default value is
+     * 15.
+     */
+    CACHE_TTL_SECONDS("cache-ttl-seconds", INTEGER, true),
+
+    /**
+     * Timeout of a DNS query in seconds. Its default value is 5.
+     */
+    RESOLVE_TIMEOUT_SECONDS("resolve-timeout-seconds", INTEGER, true);
+
+    private final PropertyDefinition propertyDefinition;
+
+    DnsProperties(String key, PropertyTypeConverter typeConverter, boolean optional) {
+        this.propertyDefinition = new SimplePropertyDefinition(key, optional, typeConverter);
+    }
+
+    public PropertyDefinition getDefinition() {
+        return propertyDefinition;
+    }
+}
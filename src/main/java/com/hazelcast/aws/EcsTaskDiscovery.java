@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.impl.EcsTask;
+import com.hazelcast.aws.impl.EcsTasks;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Discovers the tasks of an ECS cluster, optionally of one service, instead of the EC2 instances. In the awsvpc network
+ * mode every task has its own elastic network interface, so the task IPs are returned rather than the IPs of the hosts,
+ * along with the exact ports of the task: the container ports of the network bindings or, in awsvpc mode, of the port
+ * mappings of the task definition that are in the configured port range.
+ * <p>
+ * Task definition revisions are immutable, so their ports are described once and cached.
+ */
+final class EcsTaskDiscovery {
+    private static final ILogger LOGGER = Logger.getLogger(EcsTaskDiscovery.class);
+
+    private final EcsTasks ecsTasks;
+    private final Callable<AwsCredentials> credentialsProvider;
+    private final String cluster;
+    private final String serviceName;
+    private final PortRange hzPort;
+    private final ConcurrentMap<String, List<Integer>> taskDefinitionPorts = new ConcurrentHashMap<String, List<Integer>>();
+
+    private volatile Map<String, List<Integer>> portsByIp = Collections.emptyMap();
+
+    /**
+     * Discovers the tasks of the configured cluster and service in the configured region.
+     */
+    EcsTaskDiscovery(AwsConfig awsConfig, Callable<AwsCredentials> credentialsProvider) {
+        this(new EcsTasks(awsConfig, EcsTasks.endpointFor(awsConfig)), credentialsProvider, awsConfig.getEcsCluster(),
+                awsConfig.getEcsServiceName(), awsConfig.getHzPort());
+    }
+
+    EcsTaskDiscovery(EcsTasks ecsTasks, Callable<AwsCredentials> credentialsProvider, String cluster, String serviceName,
+                     PortRange hzPort) {
+        this.ecsTasks = ecsTasks;
+        this.credentialsProvider = credentialsProvider;
+        this.cluster = cluster;
+        this.serviceName = serviceName;
+        this.hzPort = hzPort;
+    }
+
+    /**
+     * Lists and describes the running tasks.
+     *
+     * @return map from the task IP to itself, since tasks are only reachable at their private IP
+     * @throws Exception if the tasks cannot be listed or described
+     */
+    Map<String, String> getAddresses()
+            throws Exception {
+        AwsCredentials credentials = credentialsProvider.call();
+        List<String> taskArns = ecsTasks.listTasks(credentials, cluster, serviceName);
+        List<EcsTask> tasks = taskArns.isEmpty()
+                ? Collections.<EcsTask>emptyList() : ecsTasks.describeTasks(credentials, cluster, taskArns);
+
+        Map<String, String> addresses = new LinkedHashMap<String, String>();
+        Map<String, List<Integer>> ports = new HashMap<String, List<Integer>>();
+        for (EcsTask task : tasks) {
+            if (task.getPrivateIp() == null) {
+                LOGGER.finest("Skipping ECS task without an elastic network interface: " + task.getTaskArn());
+                continue;
+            }
+            addresses.put(task.getPrivateIp(), task.getPrivateIp());
+            ports.put(task.getPrivateIp(), getPorts(credentials, task));
+        }
+        portsByIp = ports;
+        return addresses;
+    }
+
+    /**
+     * Returns the ports Hazelcast may listen on in the task of the given IP, or {@code null} if the task is not known or
+     * none of its ports is in the configured port range, in which case the whole range should be tried.
+     */
+    List<Integer> getPorts(String privateIp) {
+        return portsByIp.get(privateIp);
+    }
+
+    private List<Integer> getPorts(AwsCredentials credentials, EcsTask task)
+            throws Exception {
+        List<Integer> ports = task.getPorts();
+        if (ports.isEmpty() && task.getTaskDefinitionArn() != null) {
+            ports = taskDefinitionPorts.get(task.getTaskDefinitionArn());
+            if (ports == null) {
+                ports = ecsTasks.describeTaskDefinitionPorts(credentials, task.getTaskDefinitionArn());
+                taskDefinitionPorts.put(task.getTaskDefinitionArn(), ports);
+            }
+        }
+        List<Integer> hzPorts = new ArrayList<Integer>(ports.size());
+        for (Integer port : ports) {
+            if (port >= hzPort.getFromPort() && port <= hzPort.getToPort()) {
+                hzPorts.add(port);
+            }
+        }
+        return hzPorts.isEmpty() ? null : hzPorts;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordered list of the EC2 API endpoints of a region, e.g. an interface VPC endpoint and the regional endpoint, tracking
+ * the health of each one with an exponentially weighted moving average (EWMA) of its latency and of its error rate.
+ * <p>
+ * A request is sent to the first healthy endpoint in order, unless it is more than {@value #SLOWER_FACTOR} times (and
+ * {@value #LATENCY_TOLERANCE_MILLIS} ms) as slow as the fastest healthy one, and fails over to the other endpoints if it
+ * fails. An endpoint is unhealthy while its error rate is at least {@value #MAX_ERROR_RATE}, i.e. after two consecutive
+ * failures. An endpoint that is preferred over the one in use, because it is unhealthy or slow, is probed with a request at
+ * most once per probe interval, so that the requests switch back to it when it recovers.
+ */
+final class EndpointPool {
+    static final double EWMA_WEIGHT = 0.3;
+    static final double MAX_ERROR_RATE = 0.5;
+    static final double SLOWER_FACTOR = 2.0;
+    static final long LATENCY_TOLERANCE_MILLIS = 10;
+
+    private static final int PERCENT = 100;
+    private static final long LATENCY_TOLERANCE_NANOS = TimeUnit.MILLISECONDS.toNanos(LATENCY_TOLERANCE_MILLIS);
+    private static final ILogger LOGGER = Logger.getLogger(EndpointPool.class);
+
+    private final List<Endpoint> endpoints = new ArrayList<Endpoint>();
+    private final long probeIntervalMillis;
+
+    private Endpoint lastUsed;
+
+    /**
+     * A request which can be sent to any of the endpoints.
+     */
+    interface Request<T> {
+        T send(String endpoint)
+                throws Exception;
+    }
+
+    EndpointPool(List<String> endpoints, long probeIntervalMillis) {
+        for (String endpoint : endpoints) {
+            this.endpoints.add(new Endpoint(endpoint));
+        }
+        this.probeIntervalMillis = probeIntervalMillis;
+    }
+
+    /**
+     * Sends the request to the endpoints in the order of {@link #candidates()} until it succeeds.
+     *
+     * @return the response of the first successful endpoint
+     * @throws Exception the failure of the last endpoint if the request fails on all of them
+     */
+    <T> T send(Request<T> request)
+            throws Exception {
+        Exception lastFailure = null;
+        for (Endpoint endpoint : candidates()) {
+            long start = System.nanoTime();
+            try {
+                T response = request.send(endpoint.address);
+                succeeded(endpoint, System.nanoTime() - start);
+                return response;
+            } catch (Exception e) {
+                failed(endpoint, e);
+                lastFailure = e;
+            }
+        }
+        throw lastFailure;
+    }
+
+    /**
+     * Returns the endpoint the requests are sent to first, unless an endpoint is probed.
+     */
+    synchronized String getPreferred() {
+        return select().address;
+    }
+
+    /**
+     * Returns the endpoints in the order a request tries them in: a preferred endpoint due for a probe, the selected
+     * endpoint, the other healthy endpoints and the unhealthy ones.
+     */
+    synchronized List<Endpoint> candidates() {
+        Endpoint selected = select();
+        List<Endpoint> candidates = new ArrayList<Endpoint>(endpoints.size());
+        long now = System.currentTimeMillis();
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint == selected) {
+                break;
+            }
+            if (endpoint.nextProbeMillis <= now) {
+                endpoint.nextProbeMillis = now + probeIntervalMillis;
+                candidates.add(endpoint);
+                break;
+            }
+        }
+        candidates.add(selected);
+        for (Endpoint endpoint : endpoints) {
+            if (!candidates.contains(endpoint) && endpoint.isHealthy()) {
+                candidates.add(endpoint);
+            }
+        }
+        for (Endpoint endpoint : endpoints) {
+            if (!candidates.contains(endpoint)) {
+                candidates.add(endpoint);
+            }
+        }
+        return candidates;
+    }
+
+    private Endpoint select() {
+        double fastest = Double.MAX_VALUE / 2;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isHealthy() && endpoint.samples > 0) {
+                fastest = Math.min(fastest, endpoint.latencyNanos);
+            }
+        }
+        double slowest = SLOWER_FACTOR * fastest + LATENCY_TOLERANCE_NANOS;
+        for (Endpoint endpoint : endpoints) {
+            // an endpoint which has not answered yet is not known to be slow
+            if (endpoint.isHealthy() && (endpoint.samples == 0 || endpoint.latencyNanos <= slowest)) {
+                return endpoint;
+            }
+        }
+        // all the endpoints are unhealthy, the one failing the least is the best bet
+        Endpoint best = endpoints.get(0);
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.errorRate < best.errorRate) {
+                best = endpoint;
+            }
+        }
+        return best;
+    }
+
+    private synchronized void succeeded(Endpoint endpoint, long latencyNanos) {
+        boolean wasHealthy = endpoint.isHealthy();
+        endpoint.latencyNanos = endpoint.samples == 0 ? latencyNanos
+                : EWMA_WEIGHT * latencyNanos + (1 - EWMA_WEIGHT) * endpoint.latencyNanos;
+        endpoint.errorRate = (1 - EWMA_WEIGHT) * endpoint.errorRate;
+        endpoint.samples++;
+        if (!wasHealthy && endpoint.isHealthy()) {
+            LOGGER.info("EC2 API endpoint " + endpoint + " recovered");
+        }
+        used(endpoint);
+    }
+
+    private synchronized void failed(Endpoint endpoint, Exception e) {
+        boolean wasHealthy = endpoint.isHealthy();
+        endpoint.errorRate = EWMA_WEIGHT + (1 - EWMA_WEIGHT) * endpoint.errorRate;
+        if (wasHealthy && !endpoint.isHealthy()) {
+            endpoint.nextProbeMillis = System.currentTimeMillis() + probeIntervalMillis;
+            LOGGER.warning("EC2 API endpoint " + endpoint + " is unhealthy, failing over: " + e.getMessage());
+        } else if (LOGGER.isFineEnabled()) {
+            LOGGER.fine("Request to the EC2 API endpoint " + endpoint + " failed: " + e.getMessage());
+        }
+    }
+
+    private void used(Endpoint endpoint) {
+        if (endpoint != lastUsed) {
+            if (lastUsed != null) {
+                LOGGER.info("Switched the EC2 API requests from " + lastUsed + " to " + endpoint);
+            }
+            lastUsed = endpoint;
+        }
+    }
+
+    /**
+     * An endpoint with its statistics, guarded by the pool.
+     */
+    static final class Endpoint {
+        private final String address;
+        private double latencyNanos;
+        private double errorRate;
+        private long samples;
+        private long nextProbeMillis;
+
+        Endpoint(String address) {
+            this.address = address;
+        }
+
+        String getAddress() {
+            return address;
+        }
+
+        boolean isHealthy() {
+            return errorRate < MAX_ERROR_RATE;
+        }
+
+        @Override
+        public String toString() {
+            return address + " (latency " + TimeUnit.NANOSECONDS.toMillis((long) latencyNanos) + " ms, error rate "
+                    + Math.round(errorRate * PERCENT) + "%)";
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.impl.Ec2Instance;
+import com.hazelcast.aws.impl.EventQueue;
+import com.hazelcast.aws.impl.InstanceStateChange;
+import com.hazelcast.aws.impl.QueueMessage;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.aws.utility.DaemonThreadFactory;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the discovered instances up to date from the EC2 instance state-change events received from an SQS queue, so that
+ * a discovery does not need to call DescribeInstances.
+ * <p>
+ * The first {@link #getAddresses()} call describes all the instances and starts the background thread long-polling the
+ * queue. An instance entering the {@code running} state is described by its ID, since the event carries neither its IPs
+ * nor its tags, and added if it matches the configured filters; an instance leaving it is removed. Since events may be
+ * lost or delivered out of order, all the instances are described again every reconciliation interval.
+ */
+final class InstanceEventWatcher
+        implements Runnable {
+    static final int WAIT_TIME_SECONDS = 20;
+
+    private static final ILogger LOGGER = Logger.getLogger(InstanceEventWatcher.class);
+    private static final long INITIAL_BACKOFF_MILLIS = 1000L;
+    private static final long MAX_BACKOFF_MILLIS = 60000L;
+
+    private final AWSClient awsClient;
+    private final EventQueue eventQueue;
+    private final Callable<AwsCredentials> credentialsProvider;
+    private final long reconciliationIntervalMillis;
+    private final int waitTimeSeconds;
+    private final Map<String, Ec2Instance> instances = new LinkedHashMap<String, Ec2Instance>();
+
+    private Thread thread;
+    private volatile boolean stopped;
+    private long lastReconciliation;
+
+    InstanceEventWatcher(AWSClient awsClient, EventQueue eventQueue, Callable<AwsCredentials> credentialsProvider,
+                         long reconciliationIntervalMillis, int waitTimeSeconds) {
+        this.awsClient = awsClient;
+        this.eventQueue = eventQueue;
+        this.credentialsProvider = credentialsProvider;
+        this.reconciliationIntervalMillis = reconciliationIntervalMillis;
+        this.waitTimeSeconds = waitTimeSeconds;
+    }
+
+    /**
+     * Returns the private to public IP map of the known instances. The first call describes all the instances and starts
+     * watching the events.
+     *
+     * @throws Exception if the instances cannot be described on the first call
+     */
+    Map<String, String> getAddresses()
+            throws Exception {
+        synchronized (this) {
+            if (thread == null) {
+                if (stopped) {
+                    throw new IllegalStateException("Instance event watcher is shut down");
+                }
+                reconcile();
+                thread = new DaemonThreadFactory("hz-aws-events").newThread(this);
+                thread.start();
+            }
+            Map<String, String> addresses = new LinkedHashMap<String, String>();
+            for (Ec2Instance instance : instances.values()) {
+                addresses.put(instance.getPrivateIp(), instance.getPublicIp());
+            }
+            return addresses;
+        }
+    }
+
+    @Override
+    public void run() {
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+        while (!stopped) {
+            try {
+                if (System.currentTimeMillis() - lastReconciliation >= reconciliationIntervalMillis) {
+                    reconcile();
+                }
+                poll();
+                backoffMillis = INITIAL_BACKOFF_MILLIS;
+            } catch (Exception e) {
+                if (stopped) {
+                    return;
+                }
+                LOGGER.warning("Cannot process the EC2 instance events, retrying in " + backoffMillis + " ms", e);
+                if (!sleep(backoffMillis)) {
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void reconcile()
+            throws Exception {
+        List<Ec2Instance> described = awsClient.getInstances(Collections.<String>emptyList());
+        synchronized (this) {
+            instances.clear();
+            for (Ec2Instance instance : described) {
+                instances.put(instance.getInstanceId(), instance);
+            }
+            lastReconciliation = System.currentTimeMillis();
+        }
+        LOGGER.fine("Reconciled the instances, found " + described.size());
+    }
+
+    /**
+     * Receives a batch of events, applies them and deletes them from the queue. Events of the same instance are applied in
+     * the order they are received.
+     */
+    private void poll()
+            throws Exception {
+        AwsCredentials credentials = credentialsProvider.call();
+        List<QueueMessage> messages = eventQueue.receive(credentials, waitTimeSeconds);
+        if (messages.isEmpty()) {
+            return;
+        }
+        Map<String, Boolean> runningByInstance = new LinkedHashMap<String, Boolean>();
+        for (QueueMessage message : messages) {
+            InstanceStateChange change = InstanceStateChange.parse(message.getBody());
+            if (change == null) {
+                LOGGER.finest("Ignoring the message " + message.getBody());
+            } else if (change.isRunning() || change.isStopping()) {
+                runningByInstance.remove(change.getInstanceId());
+                runningByInstance.put(change.getInstanceId(), change.isRunning());
+            }
+        }
+        apply(runningByInstance);
+        eventQueue.delete(credentials, messages);
+    }
+
+    private void apply(Map<String, Boolean> runningByInstance)
+            throws Exception {
+        Set<String> started = new LinkedHashSet<String>();
+        List<String> stopping = new ArrayList<String>();
+        for (Map.Entry<String, Boolean> entry : runningByInstance.entrySet()) {
+            if (entry.getValue()) {
+                started.add(entry.getKey());
+            } else {
+                stopping.add(entry.getKey());
+            }
+        }
+        // the instances not matching the configured filters are not described
+        List<Ec2Instance> described = started.isEmpty()
+                ? Collections.<Ec2Instance>emptyList() : awsClient.getInstances(started);
+        synchronized (this) {
+            for (String instanceId : stopping) {
+                if (instances.remove(instanceId) != null) {
+                    LOGGER.fine("Instance " + instanceId + " is stopping, removed it");
+                }
+            }
+            for (Ec2Instance instance : described) {
+                instances.put(instance.getInstanceId(), instance);
+                LOGGER.fine("Instance " + instance.getInstanceId() + " is running, added it");
+            }
+        }
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stops watching the events. Messages being processed are not deleted and are received again by the next consumer.
+     */
+    void shutdown() {
+        Thread watcherThread;
+        synchronized (this) {
+            stopped = true;
+            watcherThread = thread;
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+}
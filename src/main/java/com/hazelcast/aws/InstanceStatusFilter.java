@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.impl.Ec2Instance;
+import com.hazelcast.aws.impl.ImpairedInstancePolicy;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the {@link ImpairedInstancePolicy} to the discovered instances, so that members do not waste connection timeouts
+ * on instances failing their EC2 status checks, nor migrate partitions to degraded hardware.
+ * <p>
+ * The status checks are cached for {@link #STATUS_TTL_MILLIS}, since EC2 updates them about once a minute: a discovery
+ * describes the status of the instances without a cached one only, in batches. If they cannot be described, e.g. because
+ * the IAM policy does not allow {@code ec2:DescribeInstanceStatus}, all the instances are discovered.
+ */
+final class InstanceStatusFilter {
+    static final long STATUS_TTL_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private static final ILogger LOGGER = Logger.getLogger(InstanceStatusFilter.class);
+
+    private final AWSClient awsClient;
+    private final Callable<AwsCredentials> credentialsProvider;
+    private final ImpairedInstancePolicy policy;
+    private final long ttlNanos;
+
+    /**
+     * Whether each instance is impaired and until when it is known, by instance ID.
+     */
+    private final Map<String, CachedStatus> statuses = new HashMap<String, CachedStatus>();
+
+    /**
+     * Filters with the policy of {@code awsConfig} and the status checks of its region.
+     */
+    InstanceStatusFilter(AwsConfig awsConfig, AWSClient awsClient, Callable<AwsCredentials> credentialsProvider) {
+        this(awsClient, credentialsProvider, awsConfig.getImpairedInstancePolicy(), STATUS_TTL_MILLIS);
+    }
+
+    InstanceStatusFilter(AWSClient awsClient, Callable<AwsCredentials> credentialsProvider, ImpairedInstancePolicy policy,
+                         long ttlMillis) {
+        this.awsClient = awsClient;
+        this.credentialsProvider = credentialsProvider;
+        this.policy = policy;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Returns the private to public IP map of the instances, without the impaired ones or with them last, depending on the
+     * policy.
+     */
+    synchronized Map<String, String> getAddresses(List<Ec2Instance> instances) {
+        Set<String> impaired = getImpairedInstanceIds(instances);
+        Map<String, String> addresses = new LinkedHashMap<String, String>();
+        for (Ec2Instance instance : instances) {
+            if (!impaired.contains(instance.getInstanceId())) {
+                addresses.put(instance.getPrivateIp(), instance.getPublicIp());
+            }
+        }
+        if (policy == ImpairedInstancePolicy.DEPRIORITIZE) {
+            for (Ec2Instance instance : instances) {
+                if (impaired.contains(instance.getInstanceId())) {
+                    addresses.put(instance.getPrivateIp(), instance.getPublicIp());
+                }
+            }
+        }
+        return addresses;
+    }
+
+    private Set<String> getImpairedInstanceIds(List<Ec2Instance> instances) {
+        long now = System.nanoTime();
+        Set<String> instanceIds = new HashSet<String>();
+        List<String> expired = new ArrayList<String>();
+        for (Ec2Instance instance : instances) {
+            if (instance.getInstanceId() == null) {
+                // no status checks without an instance, it is kept
+                continue;
+            }
+            CachedStatus status = statuses.get(instance.getInstanceId());
+            if (instanceIds.add(instance.getInstanceId()) && (status == null || now - status.expiresAt > 0)) {
+                expired.add(instance.getInstanceId());
+            }
+        }
+        // forget the instances which are gone
+        statuses.keySet().retainAll(instanceIds);
+        if (!expired.isEmpty()) {
+            describe(expired, now);
+        }
+
+        Set<String> impaired = new HashSet<String>();
+        for (Map.Entry<String, CachedStatus> status : statuses.entrySet()) {
+            if (status.getValue().impaired) {
+                impaired.add(status.getKey());
+            }
+        }
+        return impaired;
+    }
+
+    private void describe(List<String> instanceIds, long now) {
+        Set<String> impaired;
+        try {
+            impaired = awsClient.getImpairedInstanceIds(credentialsProvider.call(), instanceIds);
+        } catch (Exception e) {
+            LOGGER.warning("Cannot describe the status checks of the instances, impaired instances are not "
+                    + (policy == ImpairedInstancePolicy.EXCLUDE ? "excluded" : "deprioritized") + ": " + e.getMessage());
+            return;
+        }
+        for (String instanceId : instanceIds) {
+            boolean instanceImpaired = impaired.contains(instanceId);
+            CachedStatus previous = statuses.put(instanceId, new CachedStatus(instanceImpaired, now + ttlNanos));
+            if (instanceImpaired && (previous == null || !previous.impaired)) {
+                LOGGER.info("Instance " + instanceId + " fails its EC2 status checks, it is "
+                        + (policy == ImpairedInstancePolicy.EXCLUDE ? "excluded" : "deprioritized"));
+            }
+        }
+    }
+
+    private static final class CachedStatus {
+        private final boolean impaired;
+        private final long expiresAt;
+
+        CachedStatus(boolean impaired, long expiresAt) {
+            this.impaired = impaired;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+/**
+ * Listener of the Spot Instance events watched by {@link SpotInterruptionWatcher}. The methods are called on the watcher
+ * thread, once per event, so a long-running reaction (e.g. a graceful shutdown of the member) should be handed over to
+ * another thread.
+ */
+public interface SpotInterruptionListener {
+
+    /**
+     * Called when the instance receives a rebalance recommendation: it is at an elevated risk of interruption, which
+     * usually arrives before the interruption notice.
+     *
+     * @param noticeTimeMillis the time of the recommendation in epoch milliseconds, or -1 if it cannot be parsed
+     */
+    void onRebalanceRecommendation(long noticeTimeMillis);
+
+    /**
+     * Called when the instance is about to be interrupted, about two minutes before {@code actionTimeMillis}.
+     *
+     * @param action           the action of the interruption: "terminate", "stop" or "hibernate"
+     * @param actionTimeMillis the time of the action in epoch milliseconds, or -1 if it cannot be parsed
+     */
+    void onInterruption(String action, long actionTimeMillis);
+}
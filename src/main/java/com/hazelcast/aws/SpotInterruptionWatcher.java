@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.utility.DaemonThreadFactory;
+import com.hazelcast.aws.utility.InstanceMetadataUnavailableException;
+import com.hazelcast.aws.utility.MetadataUtil;
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonValue;
+import com.hazelcast.internal.json.ParseException;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.aws.utility.MetadataUtil.INSTANCE_METADATA_URI;
+import static com.hazelcast.aws.utility.MetadataUtil.REBALANCE_RECOMMENDATION_URI;
+import static com.hazelcast.aws.utility.MetadataUtil.SPOT_INSTANCE_ACTION_URI;
+
+/**
+ * Polls the Instance Metadata Service for the interruption notice and the rebalance recommendation of a Spot Instance
+ * and notifies a {@link SpotInterruptionListener}, so that the member can shut down gracefully, migrating its partitions,
+ * during the two-minute warning instead of being detected by heartbeat timeouts.
+ * <p>
+ * Both metadata exist only while the event is pending, so a poll costs two local requests answered with HTTP 404,
+ * sharing the cached IMDSv2 session token. The interruption notice, the urgent one, is polled first. Each distinct event
+ * is notified once; if the listener fails, it is logged and notified again on the next poll. Polling stops when the
+ * member is not running on EC2.
+ * <pre>
+ * final HazelcastInstance member = Hazelcast.newHazelcastInstance(config);
+ * SpotInterruptionWatcher watcher = new SpotInterruptionWatcher(new SpotInterruptionListener() {
+ *     public void onRebalanceRecommendation(long noticeTimeMillis) {
+ *     }
+ *
+ *     public void onInterruption(String action, long actionTimeMillis) {
+ *         new Thread() {
+ *             public void run() {
+ *                 member.shutdown();
+ *             }
+ *         }.start();
+ *     }
+ * });
+ * watcher.start();
+ * </pre>
+ */
+public final class SpotInterruptionWatcher {
+    /**
+     * Default polling interval, as recommended by AWS for the interruption notice.
+     */
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 5000L;
+
+    private static final ILogger LOGGER = Logger.getLogger(SpotInterruptionWatcher.class);
+    private static final int TIMEOUT_SECONDS = 2;
+
+    private final String metadataUri;
+    private final long pollIntervalMillis;
+    private final boolean imdsV1Fallback;
+    private final SpotInterruptionListener listener;
+
+    private ScheduledExecutorService scheduler;
+    private String lastInstanceAction;
+    private String lastRebalanceRecommendation;
+
+    /**
+     * Creates a watcher polling the Instance Metadata Service every {@value #DEFAULT_POLL_INTERVAL_MILLIS} milliseconds.
+     */
+    public SpotInterruptionWatcher(SpotInterruptionListener listener) {
+        this(INSTANCE_METADATA_URI, DEFAULT_POLL_INTERVAL_MILLIS, true, listener);
+    }
+
+    /**
+     * @param metadataUri        the metadata base URI, e.g. {@link MetadataUtil#INSTANCE_METADATA_URI}
+     * @param pollIntervalMillis the polling interval in milliseconds
+     * @param imdsV1Fallback     whether the Instance Metadata Service may be queried without the IMDSv2 session token if
+     *                           the token cannot be fetched
+     * @param listener           the listener to notify
+     */
+    public SpotInterruptionWatcher(String metadataUri, long pollIntervalMillis, boolean imdsV1Fallback,
+                                   SpotInterruptionListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("SpotInterruptionListener is required!");
+        }
+        this.metadataUri = metadataUri;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.imdsV1Fallback = imdsV1Fallback;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts polling in the background, unless it is started already.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("hz-aws-spot"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                poll();
+            }
+        }, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling.
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // visible for testing
+    void poll() {
+        try {
+            pollInstanceAction();
+            pollRebalanceRecommendation();
+        } catch (InstanceMetadataUnavailableException e) {
+            LOGGER.info("Not running on EC2, Spot Instance interruptions are not watched");
+            shutdown();
+        } catch (RuntimeException e) {
+            LOGGER.fine("Cannot poll the Spot Instance events, retrying in " + pollIntervalMillis + " ms", e);
+        }
+    }
+
+    private void pollInstanceAction() {
+        String instanceAction = retrieve(SPOT_INSTANCE_ACTION_URI);
+        if (instanceAction == null || instanceAction.equals(lastInstanceAction)) {
+            return;
+        }
+        JsonValue action = getField(instanceAction, "action");
+        LOGGER.warning("Spot Instance interruption notice received: " + instanceAction);
+        try {
+            listener.onInterruption(action != null && action.isString() ? action.asString() : null,
+                    parseTime(getField(instanceAction, "time")));
+            lastInstanceAction = instanceAction;
+        } catch (Throwable t) {
+            // including errors, which would otherwise cancel the polling
+            LOGGER.warning("SpotInterruptionListener failed on the interruption notice, notifying it again in "
+                    + pollIntervalMillis + " ms", t);
+        }
+    }
+
+    private void pollRebalanceRecommendation() {
+        String rebalanceRecommendation = retrieve(REBALANCE_RECOMMENDATION_URI);
+        if (rebalanceRecommendation == null || rebalanceRecommendation.equals(lastRebalanceRecommendation)) {
+            return;
+        }
+        JsonValue noticeTime = getField(rebalanceRecommendation, "noticeTime");
+        LOGGER.warning("Spot Instance rebalance recommendation received: " + rebalanceRecommendation);
+        try {
+            listener.onRebalanceRecommendation(parseTime(noticeTime));
+            lastRebalanceRecommendation = rebalanceRecommendation;
+        } catch (Throwable t) {
+            LOGGER.warning("SpotInterruptionListener failed on the rebalance recommendation, notifying it again in "
+                    + pollIntervalMillis + " ms", t);
+        }
+    }
+
+    private String retrieve(String relativeUri) {
+        return MetadataUtil.retrieveOptionalMetadataFromURI(metadataUri.concat(relativeUri), TIMEOUT_SECONDS, imdsV1Fallback);
+    }
+
+    private static JsonValue getField(String json, String name) {
+        try {
+            JsonValue value = Json.parse(json);
+            return value.isObject() ? value.asObject().get(name) : null;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses an ISO 8601 UTC timestamp like "2020-10-27T08:22:00Z".
+     *
+     * @return epoch milliseconds or -1 if the value is not such a timestamp
+     */
+    private static long parseTime(JsonValue value) {
+        if (value == null || !value.isString()) {
+            return -1;
+        }
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return df.parse(value.asString()).getTime();
+        } catch (java.text.ParseException e) {
+            return -1;
+        }
+    }
+}
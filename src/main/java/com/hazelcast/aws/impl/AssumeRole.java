@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.aws.utility.CloudyUtility;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.hazelcast.aws.impl.Constants.STS_DOC_VERSION;
+import static com.hazelcast.aws.utility.StringUtil.isNotEmpty;
+import static com.hazelcast.nio.IOUtil.closeResource;
+
+/**
+ * See https://docs.aws.amazon.com/STS/latest/APIReference/API_AssumeRole.html
+ * for AWS API details.
+ */
+public class AssumeRole {
+    /**
+     * Global STS endpoint, used when no {@code sts-endpoint} is configured.
+     */
+    public static final String DEFAULT_STS_ENDPOINT = "sts.amazonaws.com";
+
+    static final String ROLE_SESSION_NAME = "hazelcast-aws-discovery";
+
+    private static final String GLOBAL_STS_REGION = "us-east-1";
+    private static final Pattern REGIONAL_STS_ENDPOINT = Pattern.compile("^sts\\.([a-z0-9-]+)\\.amazonaws\\.com");
+    private static final int SESSION_DURATION_SECONDS = 3600;
+
+    private final AwsConfig awsConfig;
+    private final String roleArn;
+    private final AwsCredentials baseCredentials;
+    private final ServiceEndpoint serviceEndpoint;
+
+    /**
+     * @param awsConfig       the configuration providing the STS endpoint, external ID and connection settings
+     * @param roleArn         ARN of the role to assume
+     * @param baseCredentials credentials of the instance (or of the configured keys) used to sign the request
+     */
+    public AssumeRole(AwsConfig awsConfig, String roleArn, AwsCredentials baseCredentials) {
+        this.awsConfig = awsConfig;
+        this.roleArn = roleArn;
+        this.baseCredentials = baseCredentials;
+
+        String stsEndpoint = isNotEmpty(awsConfig.getStsEndpoint()) ? awsConfig.getStsEndpoint() : DEFAULT_STS_ENDPOINT;
+        this.serviceEndpoint = ServiceEndpoint.parse(stsEndpoint);
+    }
+
+    /**
+     * Invoke the service to assume the role and unmarshal the session credentials from the response.
+     *
+     * @return the session credentials of the assumed role
+     * @throws Exception if there is an exception invoking the service
+     */
+    public AwsCredentials execute()
+            throws Exception {
+        Map<String, String> attributes = new HashMap<String, String>();
+        attributes.put("Action", "AssumeRole");
+        attributes.put("Version", STS_DOC_VERSION);
+        attributes.put("RoleArn", roleArn);
+        attributes.put("RoleSessionName", ROLE_SESSION_NAME);
+        attributes.put("DurationSeconds", String.valueOf(SESSION_DURATION_SECONDS));
+        if (isNotEmpty(awsConfig.getAssumeRoleExternalId())) {
+            attributes.put("ExternalId", awsConfig.getAssumeRoleExternalId());
+        }
+
+        InputStream stream = null;
+        try {
+            stream = new SignedRequest(awsConfig, serviceEndpoint, "sts", getSigningRegion(serviceEndpoint.getHost()))
+                    .get(attributes, baseCredentials);
+            return CloudyUtility.unmarshalCredentials(stream);
+        } finally {
+            closeResource(stream);
+        }
+    }
+
+    /**
+     * The global endpoint is signed for "us-east-1", regional endpoints (sts.REGION.amazonaws.com) for their own region.
+     */
+    static String getSigningRegion(String endpoint) {
+        Matcher matcher = REGIONAL_STS_ENDPOINT.matcher(endpoint);
+        return matcher.find() ? matcher.group(1) : GLOBAL_STS_REGION;
+    }
+}
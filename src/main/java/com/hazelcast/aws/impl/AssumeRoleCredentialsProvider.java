@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.metrics.DiscoveryMetrics;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.aws.utility.AwsCompletableFuture;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+import com.hazelcast.util.Clock;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Provides the session credentials of an assumed role, see {@link AssumeRole}.
+ * <p>
+ * The credentials are cached until shortly before they expire. When they get close to the expiration, they are still
+ * returned while fresh ones are fetched on the {@code refreshExecutor}, so the discovery never waits for STS unless the
+ * credentials are missing or (almost) expired.
+ */
+public class AssumeRoleCredentialsProvider {
+    /**
+     * Cached credentials expiring within this time are refreshed in the background.
+     */
+    static final long REFRESH_BEFORE_EXPIRATION_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Cached credentials expiring within this time are not used anymore, but refreshed synchronously.
+     */
+    static final long EXPIRATION_MARGIN_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final ILogger LOGGER = Logger.getLogger(AssumeRoleCredentialsProvider.class);
+
+    private final AwsConfig awsConfig;
+    private final String roleArn;
+    private final Callable<AwsCredentials> baseCredentials;
+    private final Executor refreshExecutor;
+    private final AtomicBoolean refreshInProgress = new AtomicBoolean();
+
+    private volatile AwsCredentials credentials;
+
+    /**
+     * @param awsConfig       the configuration used for the STS requests
+     * @param roleArn         ARN of the role to assume
+     * @param baseCredentials provides the credentials to sign the STS requests with
+     * @param refreshExecutor executor running the background refreshes
+     */
+    public AssumeRoleCredentialsProvider(AwsConfig awsConfig, String roleArn, Callable<AwsCredentials> baseCredentials,
+                                         Executor refreshExecutor) {
+        this.awsConfig = awsConfig;
+        this.roleArn = roleArn;
+        this.baseCredentials = baseCredentials;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    public String getRoleArn() {
+        return roleArn;
+    }
+
+    /**
+     * Returns the cached session credentials, assuming the role first if they are missing or about to expire.
+     *
+     * @return the session credentials of the assumed role
+     * @throws Exception if the role cannot be assumed
+     */
+    public AwsCredentials getCredentials()
+            throws Exception {
+        AwsCredentials current = getCachedCredentials();
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Non-blocking variant of {@link #getCredentials()}: the cached session credentials complete the returned future
+     * right away, otherwise the role is assumed on the {@code refreshExecutor}, so that the caller's thread never waits for
+     * STS and its retries.
+     *
+     * @param callbackExecutor the executor running the callbacks of the returned future
+     * @return future completed with the session credentials of the assumed role
+     */
+    public ICompletableFuture<AwsCredentials> getCredentialsAsync(Executor callbackExecutor) {
+        final AwsCompletableFuture<AwsCredentials> future = new AwsCompletableFuture<AwsCredentials>(callbackExecutor);
+        AwsCredentials current = getCachedCredentials();
+        if (current != null) {
+            future.complete(current);
+            return future;
+        }
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(refresh());
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Returns the cached session credentials, refreshing them in the background if they get close to the expiration, or
+     * {@code null} if they are missing or (almost) expired.
+     */
+    private AwsCredentials getCachedCredentials() {
+        AwsCredentials current = credentials;
+        if (current == null || isExpired(current)) {
+            return null;
+        }
+        if (Clock.currentTimeMillis() >= current.getExpirationMillis() - REFRESH_BEFORE_EXPIRATION_MS) {
+            refreshInBackground();
+        }
+        return current;
+    }
+
+    private static boolean isExpired(AwsCredentials credentials) {
+        return Clock.currentTimeMillis() >= credentials.getExpirationMillis() - EXPIRATION_MARGIN_MS;
+    }
+
+    private synchronized AwsCredentials refresh()
+            throws Exception {
+        AwsCredentials current = credentials;
+        if (current != null && !isExpired(current)) {
+            // refreshed by another thread meanwhile
+            return current;
+        }
+        current = assumeRole();
+        credentials = current;
+        return current;
+    }
+
+    private void refreshInBackground() {
+        if (!refreshInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        credentials = assumeRole();
+                    } catch (Exception e) {
+                        LOGGER.warning("Cannot refresh the session credentials of role " + roleArn, e);
+                    } finally {
+                        refreshInProgress.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshInProgress.set(false);
+        }
+    }
+
+    // visible for testing
+    AwsCredentials assumeRole()
+            throws Exception {
+        long start = System.nanoTime();
+        try {
+            return new AssumeRole(awsConfig, roleArn, baseCredentials.call()).execute();
+        } finally {
+            DiscoveryMetrics.get().recordLatency(DiscoveryMetrics.Phase.CREDENTIALS, start);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.aws.utility.CloudyUtility;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.hazelcast.aws.impl.Constants.AUTO_SCALING_DOC_VERSION;
+import static com.hazelcast.nio.IOUtil.closeResource;
+
+/**
+ * Auto Scaling API of the groups the members run in, used to tell the instances that are in service from those that are
+ * still launching, warming up or being terminated by the group, which are all {@code running} for EC2.
+ * <p>
+ * See https://docs.aws.amazon.com/autoscaling/ec2/APIReference/API_DescribeAutoScalingGroups.html for AWS API details.
+ */
+public class AutoScalingGroups {
+    /**
+     * Lifecycle state of the instances that passed the health checks and the lifecycle hooks of the group.
+     */
+    public static final String IN_SERVICE = "InService";
+
+    /**
+     * Maximum number of groups described with one request.
+     */
+    static final int MAX_RECORDS = 100;
+
+    private static final String SERVICE = "autoscaling";
+
+    private final AwsConfig awsConfig;
+    private final ServiceEndpoint serviceEndpoint;
+    private final String region;
+
+    /**
+     * @param awsConfig the configuration providing the region and connection settings
+     * @param endpoint  the Auto Scaling endpoint, e.g. autoscaling.us-east-1.amazonaws.com
+     */
+    public AutoScalingGroups(AwsConfig awsConfig, String endpoint) {
+        this.awsConfig = awsConfig;
+        this.serviceEndpoint = ServiceEndpoint.parse(endpoint);
+        this.region = awsConfig.getRegion();
+    }
+
+    /**
+     * Returns the Auto Scaling endpoint of the configured region or, if the host header is a custom endpoint (e.g. a local
+     * stand-in), the host header.
+     */
+    public static String endpointFor(AwsConfig awsConfig) {
+        if (ServiceEndpoint.hasProtocol(awsConfig.getHostHeader())) {
+            return awsConfig.getHostHeader();
+        }
+        return "autoscaling." + awsConfig.getRegion() + ".amazonaws.com";
+    }
+
+    /**
+     * Describes the groups, following the pagination, and returns their instances that are in service.
+     *
+     * @param groupNames the names of the groups
+     * @return the IDs of the {@value #IN_SERVICE} instances
+     * @throws Exception if there is an exception invoking the service
+     */
+    public List<String> getInServiceInstanceIds(AwsCredentials credentials, List<String> groupNames)
+            throws Exception {
+        Map<String, String> instanceStates = new LinkedHashMap<String, String>();
+        String nextToken = null;
+        do {
+            Map<String, String> attributes = new HashMap<String, String>();
+            attributes.put("Action", "DescribeAutoScalingGroups");
+            attributes.put("Version", AUTO_SCALING_DOC_VERSION);
+            attributes.put("MaxRecords", String.valueOf(MAX_RECORDS));
+            for (int i = 0; i < groupNames.size(); i++) {
+                attributes.put("AutoScalingGroupNames.member." + (i + 1), groupNames.get(i));
+            }
+            if (nextToken != null) {
+                attributes.put("NextToken", nextToken);
+            }
+            InputStream stream = null;
+            try {
+                stream = new SignedRequest(awsConfig, serviceEndpoint, SERVICE, region).get(attributes, credentials);
+                nextToken = CloudyUtility.unmarshalAutoScalingInstances(stream, instanceStates);
+            } finally {
+                closeResource(stream);
+            }
+        } while (nextToken != null);
+
+        List<String> instanceIds = new ArrayList<String>(instanceStates.size());
+        for (Map.Entry<String, String> instanceState : instanceStates.entrySet()) {
+            if (IN_SERVICE.equals(instanceState.getValue())) {
+                instanceIds.add(instanceState.getKey());
+            }
+        }
+        return instanceIds;
+    }
+}
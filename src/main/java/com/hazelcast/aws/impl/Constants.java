@@ -20,8 +20,14 @@ public final class Constants {
 
     public static final String DATE_FORMAT = "yyyyMMdd'T'HHmmss'Z'";
     public static final String DOC_VERSION = "2016-11-15";
+    public static final String STS_DOC_VERSION = "2011-06-15";
+    public static final String SQS_DOC_VERSION = "2012-11-05";
+    public static final String ECS_TARGET_PREFIX = "AmazonEC2ContainerServiceV20141113.";
+    public static final String AUTO_SCALING_DOC_VERSION = "2011-01-01";
+    public static final String ISO_8601_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
     public static final String SIGNATURE_METHOD_V4 = "AWS4-HMAC-SHA256";
     public static final String GET = "GET";
+    public static final String POST = "POST";
     public static final String ECS_CREDENTIALS_ENV_VAR_NAME = "AWS_CONTAINER_CREDENTIALS_RELATIVE_URI";
 
     private Constants() {
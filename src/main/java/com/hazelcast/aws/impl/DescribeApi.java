@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws.impl;
+
+/**
+ * EC2 API that {@link DescribeInstances} discovers the members with, and the names of its filters which differ between
+ * the APIs. Both APIs are signed, sent and filtered the same way, and both accept the tag, VPC and subnet filters.
+ */
+public enum DescribeApi {
+    /**
+     * {@code DescribeInstances}, which discovers the primary private IP of the running instances.
+     */
+    INSTANCES("instances", "DescribeInstances", "instance.group-name", "instance-state-name", "running", "instance-id"),
+
+    /**
+     * {@code DescribeNetworkInterfaces}, which discovers every private IP, primary and secondary, of the network interfaces
+     * in use, with a much smaller response per member than {@code DescribeInstances}.
+     */
+    NETWORK_INTERFACES("network-interfaces", "DescribeNetworkInterfaces", "group-name", "status", "in-use",
+            "attachment.instance-id");
+
+    private final String key;
+    private final String action;
+    private final String securityGroupFilter;
+    private final String stateFilter;
+    private final String stateFilterValue;
+    private final String instanceIdFilter;
+
+    DescribeApi(String key, String action, String securityGroupFilter, String stateFilter, String stateFilterValue,
+                String instanceIdFilter) {
+        this.key = key;
+        this.action = action;
+        this.securityGroupFilter = securityGroupFilter;
+        this.stateFilter = stateFilter;
+        this.stateFilterValue = stateFilterValue;
+        this.instanceIdFilter = instanceIdFilter;
+    }
+
+    /**
+     * Returns the API with the given configuration key, e.g. "network-interfaces".
+     *
+     * @throws IllegalArgumentException if there is no such API
+     */
+    public static DescribeApi forKey(String key) {
+        for (DescribeApi api : values()) {
+            if (api.key.equals(key)) {
+                return api;
+            }
+        }
+        throw new IllegalArgumentException("Unknown API '" + key + "', expected '" + INSTANCES.key + "' or '"
+                + NETWORK_INTERFACES.key + "'");
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    String getSecurityGroupFilter() {
+        return securityGroupFilter;
+    }
+
+    String getStateFilter() {
+        return stateFilter;
+    }
+
+    String getStateFilterValue() {
+        return stateFilterValue;
+    }
+
+    String getInstanceIdFilter() {
+        return instanceIdFilter;
+    }
+}
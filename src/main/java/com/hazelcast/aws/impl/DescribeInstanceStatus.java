@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.aws.utility.CloudyUtility;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.hazelcast.aws.impl.Constants.DOC_VERSION;
+import static com.hazelcast.nio.IOUtil.closeResource;
+
+/**
+ * EC2 API of the status checks of the instances, used to tell the instances that fail their system status check (e.g.
+ * degraded hardware or network) or instance status check from the healthy ones, which are all {@code running} for
+ * DescribeInstances.
+ * <p>
+ * See https://docs.aws.amazon.com/AWSEC2/latest/APIReference/API_DescribeInstanceStatus.html for AWS API details.
+ */
+public class DescribeInstanceStatus {
+    /**
+     * Status of a failed status check.
+     */
+    public static final String IMPAIRED = "impaired";
+
+    /**
+     * Maximum number of instances described with one request.
+     */
+    static final int MAX_INSTANCE_IDS = 100;
+
+    private static final String SERVICE = "ec2";
+
+    private final AwsConfig awsConfig;
+    private final ServiceEndpoint serviceEndpoint;
+    private boolean singleAttempt;
+
+    /**
+     * @param awsConfig the configuration providing the region and connection settings
+     * @param endpoint  the EC2 API endpoint, e.g. ec2.us-east-1.amazonaws.com
+     */
+    public DescribeInstanceStatus(AwsConfig awsConfig, String endpoint) {
+        this.awsConfig = awsConfig;
+        this.serviceEndpoint = ServiceEndpoint.parse(endpoint);
+    }
+
+    /**
+     * Makes a single attempt of each request, e.g. when the caller fails over to another endpoint and retries itself.
+     */
+    public DescribeInstanceStatus singleAttempt() {
+        singleAttempt = true;
+        return this;
+    }
+
+    /**
+     * Describes the status checks of the instances, in batches of {@value #MAX_INSTANCE_IDS}, and returns the instances
+     * failing one of them. Instances whose checks are still initializing or have insufficient data are not impaired.
+     *
+     * @param instanceIds the IDs of the running instances
+     * @return the IDs of the {@value #IMPAIRED} instances
+     * @throws Exception if there is an exception invoking the service
+     */
+    public Set<String> getImpairedInstanceIds(AwsCredentials credentials, List<String> instanceIds)
+            throws Exception {
+        Map<String, String> instanceStatuses = new LinkedHashMap<String, String>();
+        for (int from = 0; from < instanceIds.size(); from += MAX_INSTANCE_IDS) {
+            List<String> batch = instanceIds.subList(from, Math.min(from + MAX_INSTANCE_IDS, instanceIds.size()));
+            Map<String, String> attributes = new HashMap<String, String>();
+            attributes.put("Action", "DescribeInstanceStatus");
+            attributes.put("Version", DOC_VERSION);
+            for (int i = 0; i < batch.size(); i++) {
+                attributes.put("InstanceId." + (i + 1), batch.get(i));
+            }
+            InputStream stream = null;
+            try {
+                stream = newRequest().get(attributes, credentials);
+                CloudyUtility.unmarshalInstanceStatuses(stream, instanceStatuses);
+            } finally {
+                closeResource(stream);
+            }
+        }
+
+        Set<String> impaired = new LinkedHashSet<String>();
+        for (Map.Entry<String, String> instanceStatus : instanceStatuses.entrySet()) {
+            if (IMPAIRED.equals(instanceStatus.getValue())) {
+                impaired.add(instanceStatus.getKey());
+            }
+        }
+        return impaired;
+    }
+
+    private SignedRequest newRequest() {
+        SignedRequest request = new SignedRequest(awsConfig, serviceEndpoint, SERVICE, awsConfig.getRegion());
+        return singleAttempt ? request.singleAttempt() : request;
+    }
+}
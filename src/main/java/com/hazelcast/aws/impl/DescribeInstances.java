@@ -18,9 +18,14 @@ package com.hazelcast.aws.impl;
 
 import com.hazelcast.aws.AwsConfig;
 import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.metrics.DiscoveryMetrics;
+import com.hazelcast.aws.metrics.DiscoveryMetrics.Phase;
+import com.hazelcast.aws.security.AwsCredentials;
 import com.hazelcast.aws.security.EC2RequestSigner;
 import com.hazelcast.aws.utility.CloudyUtility;
 import com.hazelcast.aws.utility.Environment;
+import com.hazelcast.aws.utility.InstanceMetadata;
+import com.hazelcast.aws.utility.InstanceMetadataUnavailableException;
 import com.hazelcast.aws.utility.MetadataUtil;
 import com.hazelcast.aws.utility.RetryUtils;
 import com.hazelcast.config.InvalidConfigurationException;
@@ -32,8 +37,11 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.TimeZone;
@@ -53,6 +61,10 @@ import static com.hazelcast.nio.IOUtil.closeResource;
 /**
  * See http://docs.aws.amazon.com/AWSEC2/latest/APIReference/API_DescribeInstances.html
  * for AWS API details.
+ * <p>
+ * With {@link DescribeApi#NETWORK_INTERFACES}, the request is sent to
+ * https://docs.aws.amazon.com/AWSEC2/latest/APIReference/API_DescribeNetworkInterfaces.html instead, with the same
+ * credentials, signing, retries and filters.
  */
 public class DescribeInstances {
     /**
@@ -64,79 +76,114 @@ public class DescribeInstances {
 
     private static final int MIN_HTTP_CODE_FOR_AWS_ERROR = 400;
     private static final int MAX_HTTP_CODE_FOR_AWS_ERROR = 600;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
     private static final String UTF8_ENCODING = "UTF-8";
+    private static final String SECURITY_TOKEN_ATTRIBUTE = "X-Amz-Security-Token";
 
     private EC2RequestSigner rs;
     private AwsConfig awsConfig;
+    private String region;
     private String endpoint;
+    private AwsCredentials credentials;
     private Map<String, String> attributes = new HashMap<String, String>();
+    private Collection<String> instanceIds = Collections.emptyList();
+    private int retries;
+    private boolean hedging = true;
 
     public DescribeInstances(AwsConfig awsConfig, String endpoint)
             throws IOException {
+        this(awsConfig, awsConfig.getRegion(), endpoint);
+    }
+
+    /**
+     * Creates the request for the given {@code region}, which may differ from {@link AwsConfig#getRegion()} when members
+     * are discovered in multiple regions.
+     */
+    public DescribeInstances(AwsConfig awsConfig, String region, String endpoint) {
+        this(awsConfig, region, endpoint, null);
+    }
+
+    /**
+     * Creates the request signed with the given {@code credentials}, e.g. the session credentials of an assumed role.
+     * If {@code credentials} is {@code null}, they are resolved as described in {@link #resolveCredentials()}.
+     */
+    public DescribeInstances(AwsConfig awsConfig, String region, String endpoint, AwsCredentials credentials) {
         this.awsConfig = awsConfig;
+        this.region = region;
         this.endpoint = endpoint;
+        this.credentials = credentials;
+        this.retries = awsConfig.getConnectionRetries();
     }
 
     //Just for testing purposes
     DescribeInstances(AwsConfig awsConfig) {
         this.awsConfig = awsConfig;
+        this.region = awsConfig.getRegion();
+        this.retries = awsConfig.getConnectionRetries();
     }
 
     /**
      * AWS response codes for client and server errors are specified here:
      * {@see http://docs.aws.amazon.com/AWSEC2/latest/APIReference/errors-overview.html}.
      */
-    private static boolean isAwsError(int responseCode) {
+    static boolean isAwsError(int responseCode) {
         return responseCode >= MIN_HTTP_CODE_FOR_AWS_ERROR && responseCode < MAX_HTTP_CODE_FOR_AWS_ERROR;
     }
 
-    private static String extractErrorMessage(HttpURLConnection httpConnection) {
+    /**
+     * Throttled requests are answered with {@code RequestLimitExceeded}, see
+     * {@see https://docs.aws.amazon.com/AWSEC2/latest/APIReference/throttling.html}.
+     */
+    static boolean isThrottling(int responseCode, String errorMessage) {
+        return responseCode == HTTP_SERVICE_UNAVAILABLE || responseCode == HTTP_TOO_MANY_REQUESTS
+                || errorMessage.contains("RequestLimitExceeded") || errorMessage.contains("Throttling");
+    }
+
+    static String extractErrorMessage(HttpURLConnection httpConnection) {
         InputStream errorStream = httpConnection.getErrorStream();
         if (errorStream == null) {
             return "";
         }
-        return readFrom(errorStream);
-    }
-
-    private static String readFrom(InputStream stream) {
-        Scanner scanner = new Scanner(stream, UTF8_ENCODING).useDelimiter("\\A");
+        Scanner scanner = new Scanner(errorStream, UTF8_ENCODING).useDelimiter("\\A");
         return scanner.hasNext() ? scanner.next() : "";
     }
 
-    void fillKeysFromIamRoles()
+    /**
+     * Returns the credentials of the configured IAM Role, of the IAM Role of the instance profile or, if there is none, of
+     * the IAM Task Role. The resolved role and credentials are not written to the {@link AwsConfig}, which is shared by
+     * the requests running concurrently.
+     */
+    AwsCredentials resolveRoleCredentials()
             throws IOException {
-        if (isEmpty(awsConfig.getIamRole()) || "DEFAULT".equals(awsConfig.getIamRole())) {
-            String defaultIAMRole = getDefaultIamRole();
-            awsConfig.setIamRole(defaultIAMRole);
+        String iamRole = awsConfig.getIamRole();
+        if (isEmpty(iamRole) || "DEFAULT".equals(iamRole)) {
+            try {
+                iamRole = retrieveDefaultIamRole();
+            } catch (InstanceMetadataUnavailableException e) {
+                // not running on EC2, e.g. on ECS Fargate, so try the IAM Task Role instead
+                iamRole = "";
+            }
         }
 
-        if (isNotEmpty(awsConfig.getIamRole())) {
-            fillKeysFromIamRole();
-        } else {
-            fillKeysFromIamTaskRole(getEnvironment());
+        if (isNotEmpty(iamRole)) {
+            return getIamRoleCredentials(iamRole);
         }
-
-    }
-
-    private String getDefaultIamRole()
-            throws IOException {
-        String uri = INSTANCE_METADATA_URI.concat(IAM_SECURITY_CREDENTIALS_URI);
-        return retrieveRoleFromURI(uri);
+        return getIamTaskRoleCredentials(getEnvironment());
     }
 
-    private void fillKeysFromIamRole() {
+    private AwsCredentials getIamRoleCredentials(String iamRole) {
         try {
-            String query = IAM_SECURITY_CREDENTIALS_URI.concat(awsConfig.getIamRole());
+            String query = IAM_SECURITY_CREDENTIALS_URI.concat(iamRole);
             String uri = INSTANCE_METADATA_URI.concat(query);
             String json = retrieveRoleFromURI(uri);
-            parseAndStoreRoleCreds(json);
+            return parseRoleCredentials(json);
         } catch (Exception io) {
-            throw new InvalidConfigurationException("Unable to retrieve credentials from IAM Role: " + awsConfig.getIamRole(),
-                    io);
+            throw new InvalidConfigurationException("Unable to retrieve credentials from IAM Role: " + iamRole, io);
         }
     }
 
-    private void fillKeysFromIamTaskRole(Environment env)
+    private AwsCredentials getIamTaskRoleCredentials(Environment env)
             throws IOException {
         // before giving up, attempt to discover whether we're running in an ECS Container,
         // in which case, AWS_CONTAINER_CREDENTIALS_RELATIVE_URI will exist as an env var.
@@ -150,7 +197,7 @@ public class DescribeInstances {
         String json = "";
         try {
             json = retrieveRoleFromURI(uri);
-            parseAndStoreRoleCreds(json);
+            return parseRoleCredentials(json);
         } catch (Exception io) {
             throw new InvalidConfigurationException(
                     "Unable to retrieve credentials from IAM Task Role. " + "URI: " + uri + ". \n HTTP Response content: " + json,
@@ -166,21 +213,29 @@ public class DescribeInstances {
      * @return The content of the HTTP response, as a String. NOTE: This is NEVER null.
      */
     String retrieveRoleFromURI(String uri) {
-        return MetadataUtil
-                .retrieveMetadataFromURI(uri, awsConfig.getConnectionTimeoutSeconds(), awsConfig.getConnectionRetries());
+        return MetadataUtil.retrieveMetadataFromURI(uri, awsConfig.getConnectionTimeoutSeconds(), retries,
+                awsConfig.isImdsV1Fallback());
+    }
+
+    /**
+     * Returns the name of the IAM role of the instance profile from the JVM-wide {@link InstanceMetadata} cache, which
+     * fetches it from the Instance Metadata Service once per JVM.
+     */
+    String retrieveDefaultIamRole() {
+        return InstanceMetadata.get().get(InstanceMetadata.Key.IAM_ROLE_NAME, awsConfig.getConnectionTimeoutSeconds(), retries,
+                awsConfig.isImdsV1Fallback());
     }
 
     /**
-     * This helper method is responsible for just parsing the content of the HTTP response and
-     * storing the access keys and token it finds there.
+     * This helper method is responsible for just parsing the content of the HTTP response into
+     * the access keys and token it finds there.
      *
      * @param json The JSON representation of the IAM (Task) Role.
      */
-    private void parseAndStoreRoleCreds(String json) {
+    private static AwsCredentials parseRoleCredentials(String json) {
         JsonObject roleAsJson = JsonObject.readFrom(json);
-        awsConfig.setAccessKey(roleAsJson.getString("AccessKeyId", null));
-        awsConfig.setSecretKey(roleAsJson.getString("SecretAccessKey", null));
-        attributes.put("X-Amz-Security-Token", roleAsJson.getString("Token", null));
+        return new AwsCredentials(roleAsJson.getString("AccessKeyId", null), roleAsJson.getString("SecretAccessKey", null),
+                roleAsJson.getString("Token", null));
     }
 
     /**
@@ -218,10 +273,45 @@ public class DescribeInstances {
     }
 
     /**
-     * Add available filters to narrow down the scope of the query
+     * Adds the filters of the configuration, so that EC2 returns only the matching instances instead of all the running
+     * instances of the account.
      */
     private void addFilters() {
+        DescribeApi api = awsConfig.getDescribeApi();
         Filter filter = new Filter();
+        addTagFilters(filter);
+        if (isNotEmpty(awsConfig.getSecurityGroupName())) {
+            filter.addFilter(api.getSecurityGroupFilter(), awsConfig.getSecurityGroupName());
+        }
+        addPlacementFilters(filter);
+        if (!awsConfig.getInstanceTypes().isEmpty()) {
+            filter.addFilter("instance-type", awsConfig.getInstanceTypes());
+        }
+
+        filter.addFilter(api.getStateFilter(), api.getStateFilterValue());
+        if (api == DescribeApi.NETWORK_INTERFACES) {
+            // the interfaces of load balancers, NAT gateways, Lambda functions and VPC endpoints are managed by AWS
+            filter.addFilter("requester-managed", "false");
+        }
+        if (!instanceIds.isEmpty()) {
+            filter.addFilter(api.getInstanceIdFilter(), instanceIds);
+        }
+        attributes.putAll(filter.getFilters());
+    }
+
+    private void addPlacementFilters(Filter filter) {
+        if (isNotEmpty(awsConfig.getVpcId())) {
+            filter.addFilter("vpc-id", awsConfig.getVpcId());
+        }
+        if (!awsConfig.getSubnetIds().isEmpty()) {
+            filter.addFilter("subnet-id", awsConfig.getSubnetIds());
+        }
+        if (isNotEmpty(awsConfig.getPlacementGroup())) {
+            filter.addFilter("placement-group-name", awsConfig.getPlacementGroup());
+        }
+    }
+
+    private void addTagFilters(Filter filter) {
         if (isNotEmpty(awsConfig.getTagKey())) {
             if (isNotEmpty(awsConfig.getTagValue())) {
                 filter.addFilter("tag:" + awsConfig.getTagKey(), awsConfig.getTagValue());
@@ -231,13 +321,14 @@ public class DescribeInstances {
         } else if (isNotEmpty(awsConfig.getTagValue())) {
             filter.addFilter("tag-value", awsConfig.getTagValue());
         }
-
-        if (isNotEmpty(awsConfig.getSecurityGroupName())) {
-            filter.addFilter("instance.group-name", awsConfig.getSecurityGroupName());
+        // filters are combined with AND, the values of a filter with OR
+        for (Map.Entry<String, List<String>> tag : awsConfig.getTags().entrySet()) {
+            if (tag.getValue().isEmpty()) {
+                filter.addFilter("tag-key", tag.getKey());
+            } else {
+                filter.addFilter("tag:" + tag.getKey(), tag.getValue());
+            }
         }
-
-        filter.addFilter("instance-state-name", "running");
-        attributes.putAll(filter.getFilters());
     }
 
     /**
@@ -250,43 +341,161 @@ public class DescribeInstances {
      */
     public Map<String, String> execute()
             throws Exception {
-        if (isNotEmpty(awsConfig.getIamRole()) || isEmpty(awsConfig.getAccessKey())) {
-            fillKeysFromIamRoles();
+        InputStream stream = null;
+        try {
+            stream = send();
+            long parseStart = System.nanoTime();
+            Map<String, String> response = awsConfig.getDescribeApi() == DescribeApi.NETWORK_INTERFACES
+                    ? CloudyUtility.unmarshalNetworkInterfaceAddresses(stream, awsConfig.getInstancePredicate())
+                    : CloudyUtility.unmarshalTheResponse(stream, awsConfig.getInstancePredicate());
+            DiscoveryMetrics.get().recordLatency(Phase.PARSE, parseStart);
+            return response;
+        } finally {
+            closeResource(stream);
         }
+    }
 
-        String signature = getRequestSigner().sign("ec2", attributes);
-        Map<String, String> response;
+    /**
+     * Makes the service call and the credentials lookups of this request single attempts, without sleeping between
+     * retries or waiting for a hedged request, for callers retrying the whole request themselves.
+     *
+     * @return this request
+     */
+    public DescribeInstances singleAttempt() {
+        retries = 0;
+        hedging = false;
+        return this;
+    }
+
+    /**
+     * Invoke the service to describe the instances matching the filtering rules defined by the {@link #awsConfig} and,
+     * if {@code instanceIds} is not empty, having one of the given IDs.
+     *
+     * @param instanceIds the IDs of the instances to describe, or an empty collection to describe all the instances
+     * @return the instances with their IDs and IPs
+     * @throws Exception if there is an exception invoking the service or the response cannot be parsed
+     */
+    public List<Ec2Instance> describe(Collection<String> instanceIds)
+            throws Exception {
+        this.instanceIds = instanceIds;
         InputStream stream = null;
-        attributes.put("X-Amz-Signature", signature);
         try {
-            stream = callServiceWithRetries(endpoint);
-            response = CloudyUtility.unmarshalTheResponse(stream);
-            return response;
+            stream = send();
+            long parseStart = System.nanoTime();
+            List<Ec2Instance> instances = awsConfig.getDescribeApi() == DescribeApi.NETWORK_INTERFACES
+                    ? CloudyUtility.unmarshalNetworkInterfaces(stream, awsConfig.getInstancePredicate())
+                    : CloudyUtility.unmarshalInstances(stream, awsConfig.getInstancePredicate());
+            DiscoveryMetrics.get().recordLatency(Phase.PARSE, parseStart);
+            return instances;
         } finally {
             closeResource(stream);
         }
     }
 
+    /**
+     * Signs the request and calls the service.
+     *
+     * @return the response stream
+     */
+    private InputStream send()
+            throws Exception {
+        DiscoveryMetrics metrics = DiscoveryMetrics.get();
+        if (credentials == null) {
+            credentials = resolveCredentials();
+        }
+        if (credentials.getSessionToken() != null) {
+            attributes.put(SECURITY_TOKEN_ATTRIBUTE, credentials.getSessionToken());
+        }
+
+        long signingStart = System.nanoTime();
+        sign();
+        metrics.recordLatency(Phase.SIGNING, signingStart);
+        long httpStart = System.nanoTime();
+        InputStream stream = metrics.countResponseBytes(callServiceWithRetries(endpoint));
+        metrics.recordLatency(Phase.HTTP, httpStart);
+        return stream;
+    }
+
+    private void sign() {
+        String signature = getRequestSigner().sign("ec2", attributes);
+        attributes.put("X-Amz-Signature", signature);
+    }
+
+    /**
+     * Returns the credentials of the configured access and secret key or, if they are not configured, of the IAM Role
+     * (or IAM Task Role) of the instance. Each call resolves them again, so that the callers sharing the {@link AwsConfig}
+     * never see each other's credentials; resolve them once and pass them to the requests of a discovery instead.
+     *
+     * @return the credentials to sign AWS requests with
+     * @throws IOException if the credentials cannot be retrieved from the instance metadata
+     */
+    public AwsCredentials resolveCredentials()
+            throws IOException {
+        if (isEmpty(awsConfig.getIamRole()) && isNotEmpty(awsConfig.getAccessKey())) {
+            return new AwsCredentials(awsConfig.getAccessKey(), awsConfig.getSecretKey(), null);
+        }
+        long start = System.nanoTime();
+        AwsCredentials roleCredentials = resolveRoleCredentials();
+        DiscoveryMetrics.get().recordLatency(Phase.CREDENTIALS, start);
+        return roleCredentials;
+    }
+
     private InputStream callServiceWithRetries(final String endpoint)
             throws Exception {
         return RetryUtils.retry(new Callable<InputStream>() {
+            @Override
+            public InputStream call()
+                    throws Exception {
+                return hedging && awsConfig.getHedgePercentile() > 0 ? callServiceHedged() : callService(endpoint);
+            }
+        }, retries);
+    }
+
+    /**
+     * Calls the service with a {@link RequestHedger}, the hedged request being sent to the configured hedge endpoint of
+     * the region, if any, and signed for its host.
+     */
+    private InputStream callServiceHedged()
+            throws Exception {
+        final String hedgeEndpoint = isNotEmpty(awsConfig.getHedgeEndpoint()) && region.equals(awsConfig.getRegion())
+                ? awsConfig.getHedgeEndpoint() : endpoint;
+        return RequestHedger.forEndpoint(endpoint, awsConfig.getHedgePercentile()).call(new Callable<InputStream>() {
             @Override
             public InputStream call()
                     throws Exception {
                 return callService(endpoint);
             }
-        }, awsConfig.getConnectionRetries());
+        }, new Callable<InputStream>() {
+            @Override
+            public InputStream call()
+                    throws Exception {
+                if (hedgeEndpoint.equals(endpoint)) {
+                    return callService(endpoint);
+                }
+                // the same request, signed for the host of the hedge endpoint
+                DescribeInstances hedge = new DescribeInstances(awsConfig, region, hedgeEndpoint, credentials);
+                hedge.instanceIds = instanceIds;
+                if (credentials.getSessionToken() != null) {
+                    hedge.attributes.put(SECURITY_TOKEN_ATTRIBUTE, credentials.getSessionToken());
+                }
+                hedge.sign();
+                return hedge.callService(hedgeEndpoint);
+            }
+        });
     }
 
     // visible for testing
     InputStream callService(String endpoint)
             throws Exception {
         String query = getRequestSigner().getCanonicalizedQueryString(attributes);
-        URL url = new URL("https", endpoint, -1, "/?" + query);
+        URL url = new URL(ServiceEndpoint.parse(endpoint).toQueryUrl(query));
 
         HttpURLConnection httpConnection = (HttpURLConnection) (url.openConnection());
         httpConnection.setRequestMethod(Constants.GET);
-        httpConnection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(awsConfig.getConnectionTimeoutSeconds()));
+        int timeoutMillis = (int) TimeUnit.SECONDS.toMillis(awsConfig.getConnectionTimeoutSeconds());
+        httpConnection.setConnectTimeout(timeoutMillis);
+        // also bounds the attempts a RequestHedger has cancelled, since cancelling does not interrupt a blocking read
+        httpConnection.setReadTimeout(timeoutMillis);
         httpConnection.setDoOutput(false);
         httpConnection.connect();
 
@@ -301,6 +510,9 @@ public class DescribeInstances {
         int responseCode = httpConnection.getResponseCode();
         if (isAwsError(responseCode)) {
             String errorMessage = extractErrorMessage(httpConnection);
+            if (isThrottling(responseCode, errorMessage)) {
+                DiscoveryMetrics.get().recordThrottle();
+            }
             throw new AwsConnectionException(responseCode, errorMessage);
         }
     }
@@ -308,8 +520,8 @@ public class DescribeInstances {
     public EC2RequestSigner getRequestSigner() {
         if (null == rs) {
             String timeStamp = getFormattedTimestamp();
-            rs = new EC2RequestSigner(awsConfig, timeStamp, endpoint);
-            attributes.put("Action", this.getClass().getSimpleName());
+            rs = new EC2RequestSigner(awsConfig, timeStamp, region, ServiceEndpoint.parse(endpoint).getHost(), credentials);
+            attributes.put("Action", awsConfig.getDescribeApi().getAction());
             attributes.put("Version", DOC_VERSION);
             attributes.put("X-Amz-Algorithm", SIGNATURE_METHOD_V4);
             attributes.put("X-Amz-Credential", rs.createFormattedCredential());
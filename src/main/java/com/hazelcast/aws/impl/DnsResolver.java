@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws.impl;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the SRV, A and AAAA records of a name, e.g. of a service registered in AWS Cloud Map or Route 53, with the DNS
+ * provider of JNDI, which queries the DNS servers directly instead of going through the JVM-wide cache of
+ * {@link java.net.InetAddress}.
+ */
+public class DnsResolver {
+    private static final String DNS_CONTEXT_FACTORY = "com.sun.jndi.dns.DnsContextFactory";
+    private static final String TIMEOUT_PROPERTY = "com.sun.jndi.dns.timeout.initial";
+    private static final String RETRIES_PROPERTY = "com.sun.jndi.dns.timeout.retries";
+    private static final int SRV_FIELDS = 4;
+    private static final int SRV_PORT_FIELD = 2;
+    private static final int SRV_TARGET_FIELD = 3;
+
+    private final Hashtable<String, String> environment = new Hashtable<String, String>();
+
+    /**
+     * @param dnsServer      "host" or "host:port" of the DNS server to query, or {@code null} for the DNS servers of the
+     *                       system
+     * @param timeoutSeconds the timeout of a query, which is retried once
+     */
+    public DnsResolver(String dnsServer, int timeoutSeconds) {
+        environment.put(Context.INITIAL_CONTEXT_FACTORY, DNS_CONTEXT_FACTORY);
+        if (dnsServer != null) {
+            environment.put(Context.PROVIDER_URL, "dns://" + dnsServer);
+        }
+        environment.put(TIMEOUT_PROPERTY, String.valueOf(TimeUnit.SECONDS.toMillis(timeoutSeconds)));
+        environment.put(RETRIES_PROPERTY, "1");
+    }
+
+    /**
+     * Returns the SRV records of the name, or an empty list if the name does not exist or has no SRV records.
+     *
+     * @throws NamingException if the DNS servers cannot be queried or the records are invalid
+     */
+    public List<SrvRecord> resolveSrv(String name)
+            throws NamingException {
+        List<SrvRecord> records = new ArrayList<SrvRecord>();
+        for (String value : lookup(name, "SRV")) {
+            // "priority weight port target"
+            String[] fields = value.trim().split("\\s+");
+            if (fields.length != SRV_FIELDS) {
+                throw new NamingException("Invalid SRV record '" + value + "' of " + name);
+            }
+            String target = stripTrailingDot(fields[SRV_TARGET_FIELD]);
+            // "." means that the service is not available at this name
+            if (target.length() > 0) {
+                records.add(new SrvRecord(target, Integer.parseInt(fields[SRV_PORT_FIELD])));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Returns the IPv4 and IPv6 addresses of the name, from its A and AAAA records, or an empty list if the name does not
+     * exist or has neither.
+     *
+     * @throws NamingException if the DNS servers cannot be queried
+     */
+    public List<String> resolveAddresses(String name)
+            throws NamingException {
+        List<String> addresses = new ArrayList<String>(lookup(name, "A"));
+        addresses.addAll(lookup(name, "AAAA"));
+        return addresses;
+    }
+
+    /**
+     * Queries the records of a single type, since asking for several types at once is sent as an ANY query, which many DNS
+     * servers answer only partially.
+     */
+    private List<String> lookup(String name, String type)
+            throws NamingException {
+        DirContext context = new InitialDirContext(environment);
+        try {
+            Attribute attribute = context.getAttributes(name, new String[]{type}).get(type);
+            if (attribute == null) {
+                return Collections.emptyList();
+            }
+            List<String> values = new ArrayList<String>(attribute.size());
+            NamingEnumeration<?> all = attribute.getAll();
+            while (all.hasMore()) {
+                values.add(String.valueOf(all.next()));
+            }
+            return values;
+        } catch (NameNotFoundException e) {
+            return Collections.emptyList();
+        } finally {
+            context.close();
+        }
+    }
+
+    private static String stripTrailingDot(String name) {
+        return name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+    }
+}
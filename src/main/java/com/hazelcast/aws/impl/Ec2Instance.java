@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+/**
+ * EC2 instance as listed in a DescribeInstances response.
+ */
+public final class Ec2Instance {
+    private final String instanceId;
+    private final String privateIp;
+    private final String publicIp;
+
+    public Ec2Instance(String instanceId, String privateIp, String publicIp) {
+        this.instanceId = instanceId;
+        this.privateIp = privateIp;
+        this.publicIp = publicIp;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public String getPrivateIp() {
+        return privateIp;
+    }
+
+    /**
+     * Returns the public IP or {@code null} if the instance has none.
+     */
+    public String getPublicIp() {
+        return publicIp;
+    }
+
+    @Override
+    public String toString() {
+        return "Ec2Instance{instanceId='" + instanceId + "', privateIp='" + privateIp + "', publicIp='" + publicIp + "'}";
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import java.util.List;
+
+/**
+ * ECS task as listed in a DescribeTasks response.
+ */
+public final class EcsTask {
+    private final String taskArn;
+    private final String taskDefinitionArn;
+    private final String privateIp;
+    private final List<Integer> ports;
+
+    public EcsTask(String taskArn, String taskDefinitionArn, String privateIp, List<Integer> ports) {
+        this.taskArn = taskArn;
+        this.taskDefinitionArn = taskDefinitionArn;
+        this.privateIp = privateIp;
+        this.ports = ports;
+    }
+
+    public String getTaskArn() {
+        return taskArn;
+    }
+
+    public String getTaskDefinitionArn() {
+        return taskDefinitionArn;
+    }
+
+    /**
+     * Returns the IP of the task's elastic network interface (awsvpc network mode) or {@code null} if it has none.
+     */
+    public String getPrivateIp() {
+        return privateIp;
+    }
+
+    /**
+     * Returns the container ports of the network bindings, empty in awsvpc network mode, where the ports are only listed
+     * by the task definition.
+     */
+    public List<Integer> getPorts() {
+        return ports;
+    }
+
+    @Override
+    public String toString() {
+        return "EcsTask{taskArn='" + taskArn + "', taskDefinitionArn='" + taskDefinitionArn + "', privateIp='" + privateIp
+                + "', ports=" + ports + '}';
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonArray;
+import com.hazelcast.internal.json.JsonObject;
+import com.hazelcast.internal.json.JsonValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.hazelcast.aws.impl.Constants.ECS_TARGET_PREFIX;
+import static com.hazelcast.nio.IOUtil.closeResource;
+
+/**
+ * ECS API of the tasks of a cluster, called with the JSON protocol: {@code ListTasks} to list the running tasks,
+ * {@code DescribeTasks} to get their IPs and {@code DescribeTaskDefinition} to get their container ports. The requests
+ * are signed in the query string like the EC2 ones, with the hash of the JSON body.
+ * <p>
+ * See https://docs.aws.amazon.com/AmazonECS/latest/APIReference/API_DescribeTasks.html for AWS API details.
+ */
+public class EcsTasks {
+    /**
+     * Maximum number of tasks listed, and described, with one request.
+     */
+    public static final int MAX_TASKS_PER_REQUEST = 100;
+
+    private static final String SERVICE = "ecs";
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.1";
+    private static final String UTF_8 = "UTF-8";
+    private static final String RUNNING = "RUNNING";
+
+    private final AwsConfig awsConfig;
+    private final ServiceEndpoint serviceEndpoint;
+
+    /**
+     * @param awsConfig the configuration providing the region and connection settings
+     * @param endpoint  the ECS endpoint, e.g. ecs.us-east-1.amazonaws.com
+     */
+    public EcsTasks(AwsConfig awsConfig, String endpoint) {
+        this.awsConfig = awsConfig;
+        this.serviceEndpoint = ServiceEndpoint.parse(endpoint);
+    }
+
+    /**
+     * Returns the ECS endpoint of the configured region or, if the host header is a custom endpoint (e.g. a local
+     * stand-in), the host header.
+     */
+    public static String endpointFor(AwsConfig awsConfig) {
+        if (ServiceEndpoint.hasProtocol(awsConfig.getHostHeader())) {
+            return awsConfig.getHostHeader();
+        }
+        return "ecs." + awsConfig.getRegion() + ".amazonaws.com";
+    }
+
+    /**
+     * Lists the tasks of the cluster that should be running, following the pagination.
+     *
+     * @param cluster     the name or ARN of the cluster
+     * @param serviceName the service the tasks belong to, or {@code null} for all the tasks of the cluster
+     * @return the ARNs of the tasks
+     * @throws Exception if there is an exception invoking the service
+     */
+    public List<String> listTasks(AwsCredentials credentials, String cluster, String serviceName)
+            throws Exception {
+        List<String> taskArns = new ArrayList<String>();
+        String nextToken = null;
+        do {
+            JsonObject request = Json.object().add("cluster", cluster).add("desiredStatus", RUNNING)
+                                     .add("maxResults", MAX_TASKS_PER_REQUEST);
+            if (serviceName != null) {
+                request.add("serviceName", serviceName);
+            }
+            if (nextToken != null) {
+                request.add("nextToken", nextToken);
+            }
+            JsonObject response = callService("ListTasks", request, credentials);
+            for (JsonValue taskArn : getArray(response, "taskArns")) {
+                taskArns.add(taskArn.asString());
+            }
+            nextToken = getString(response, "nextToken");
+        } while (nextToken != null);
+        return taskArns;
+    }
+
+    /**
+     * Describes the tasks, with one request per {@value #MAX_TASKS_PER_REQUEST} tasks.
+     *
+     * @param cluster  the name or ARN of the cluster
+     * @param taskArns the ARNs of the tasks
+     * @return the tasks whose containers are running; tasks that are still being provisioned or already stopping are left
+     * out
+     * @throws Exception if there is an exception invoking the service
+     */
+    public List<EcsTask> describeTasks(AwsCredentials credentials, String cluster, List<String> taskArns)
+            throws Exception {
+        List<EcsTask> tasks = new ArrayList<EcsTask>(taskArns.size());
+        for (int from = 0; from < taskArns.size(); from += MAX_TASKS_PER_REQUEST) {
+            JsonArray batch = new JsonArray();
+            for (String taskArn : taskArns.subList(from, Math.min(from + MAX_TASKS_PER_REQUEST, taskArns.size()))) {
+                batch.add(taskArn);
+            }
+            JsonObject response = callService("DescribeTasks",
+                    Json.object().add("cluster", cluster).add("tasks", batch), credentials);
+            for (JsonValue task : getArray(response, "tasks")) {
+                if (RUNNING.equals(getString(task.asObject(), "lastStatus"))) {
+                    tasks.add(toTask(task.asObject()));
+                }
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the container ports of the port mappings of the task definition.
+     *
+     * @param taskDefinitionArn the ARN of the task definition, including the revision
+     * @throws Exception if there is an exception invoking the service
+     */
+    public List<Integer> describeTaskDefinitionPorts(AwsCredentials credentials, String taskDefinitionArn)
+            throws Exception {
+        JsonObject response = callService("DescribeTaskDefinition",
+                Json.object().add("taskDefinition", taskDefinitionArn), credentials);
+        List<Integer> ports = new ArrayList<Integer>();
+        JsonValue taskDefinition = response.get("taskDefinition");
+        if (taskDefinition == null || !taskDefinition.isObject()) {
+            return ports;
+        }
+        for (JsonValue container : getArray(taskDefinition.asObject(), "containerDefinitions")) {
+            for (JsonValue portMapping : getArray(container.asObject(), "portMappings")) {
+                addPort(ports, portMapping.asObject(), "containerPort");
+            }
+        }
+        return ports;
+    }
+
+    private static EcsTask toTask(JsonObject task) {
+        String privateIp = null;
+        for (JsonValue attachment : getArray(task, "attachments")) {
+            if ("ElasticNetworkInterface".equals(getString(attachment.asObject(), "type"))) {
+                for (JsonValue detail : getArray(attachment.asObject(), "details")) {
+                    if ("privateIPv4Address".equals(getString(detail.asObject(), "name"))) {
+                        privateIp = getString(detail.asObject(), "value");
+                    }
+                }
+            }
+        }
+        List<Integer> ports = new ArrayList<Integer>();
+        for (JsonValue container : getArray(task, "containers")) {
+            for (JsonValue networkBinding : getArray(container.asObject(), "networkBindings")) {
+                addPort(ports, networkBinding.asObject(), "containerPort");
+            }
+        }
+        return new EcsTask(getString(task, "taskArn"), getString(task, "taskDefinitionArn"), privateIp, ports);
+    }
+
+    private static void addPort(List<Integer> ports, JsonObject object, String name) {
+        JsonValue port = object.get(name);
+        if (port != null && port.isNumber() && !ports.contains(port.asInt())) {
+            ports.add(port.asInt());
+        }
+    }
+
+    private static List<JsonValue> getArray(JsonObject object, String name) {
+        JsonValue value = object.get(name);
+        return value != null && value.isArray() ? value.asArray().values() : Collections.<JsonValue>emptyList();
+    }
+
+    private static String getString(JsonObject object, String name) {
+        JsonValue value = object.get(name);
+        return value != null && value.isString() ? value.asString() : null;
+    }
+
+    private JsonObject callService(String action, JsonObject request, AwsCredentials credentials)
+            throws IOException {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", CONTENT_TYPE);
+        headers.put("X-Amz-Target", ECS_TARGET_PREFIX + action);
+        InputStream stream = new SignedRequest(awsConfig, serviceEndpoint, SERVICE, awsConfig.getRegion())
+                .post(headers, request.toString(), credentials);
+        try {
+            return Json.parse(new InputStreamReader(stream, UTF_8)).asObject();
+        } finally {
+            closeResource(stream);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.aws.utility.CloudyUtility;
+
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.hazelcast.aws.impl.Constants.SQS_DOC_VERSION;
+import static com.hazelcast.nio.IOUtil.closeResource;
+
+/**
+ * SQS queue receiving the EC2 instance state-change events, consumed with the {@code ReceiveMessage} and
+ * {@code DeleteMessageBatch} actions. The requests are sent to the root path of the queue's endpoint with the
+ * {@code QueueUrl} parameter.
+ * <p>
+ * See https://docs.aws.amazon.com/AWSSimpleQueueService/latest/APIReference/API_ReceiveMessage.html
+ * for AWS API details.
+ */
+public class EventQueue {
+    /**
+     * Maximum number of messages received, and deleted, with one request.
+     */
+    public static final int MAX_MESSAGES = 10;
+
+    private static final Pattern REGIONAL_SQS_HOST = Pattern.compile("^(?:sqs\\.([a-z0-9-]+)|([a-z0-9-]+)\\.queue)\\.amazonaws");
+
+    private final AwsConfig awsConfig;
+    private final String queueUrl;
+    private final ServiceEndpoint serviceEndpoint;
+    private final String signingRegion;
+
+    /**
+     * @param awsConfig the configuration providing the region and connection settings
+     * @param queueUrl  URL of the queue, e.g. https://sqs.us-east-1.amazonaws.com/123456789012/hazelcast-events
+     */
+    public EventQueue(AwsConfig awsConfig, String queueUrl) {
+        this.awsConfig = awsConfig;
+        this.queueUrl = queueUrl;
+        try {
+            URL url = new URL(queueUrl);
+            this.serviceEndpoint = ServiceEndpoint.parse(url.getProtocol() + "://" + url.getAuthority());
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid queue URL: " + queueUrl, e);
+        }
+        this.signingRegion = getSigningRegion(serviceEndpoint.getHost(), awsConfig.getRegion());
+    }
+
+    /**
+     * The queue's region is part of the host name (sqs.REGION.amazonaws.com or the legacy REGION.queue.amazonaws.com);
+     * other hosts, e.g. local stand-ins, are signed for the configured region.
+     */
+    static String getSigningRegion(String host, String defaultRegion) {
+        Matcher matcher = REGIONAL_SQS_HOST.matcher(host);
+        if (!matcher.find()) {
+            return defaultRegion;
+        }
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+
+    /**
+     * Receives up to {@value #MAX_MESSAGES} messages, waiting for them up to {@code waitTimeSeconds} (long polling).
+     *
+     * @return the received messages, empty if none arrived in time
+     * @throws Exception if there is an exception invoking the service
+     */
+    public List<QueueMessage> receive(AwsCredentials credentials, int waitTimeSeconds)
+            throws Exception {
+        Map<String, String> attributes = new HashMap<String, String>();
+        attributes.put("Action", "ReceiveMessage");
+        attributes.put("MaxNumberOfMessages", String.valueOf(MAX_MESSAGES));
+        attributes.put("WaitTimeSeconds", String.valueOf(waitTimeSeconds));
+        InputStream stream = null;
+        try {
+            stream = callService(attributes, credentials, waitTimeSeconds);
+            return CloudyUtility.unmarshalMessages(stream);
+        } finally {
+            closeResource(stream);
+        }
+    }
+
+    /**
+     * Deletes the given messages, at most {@value #MAX_MESSAGES}, so they are not received again.
+     *
+     * @throws Exception if there is an exception invoking the service
+     */
+    public void delete(AwsCredentials credentials, List<QueueMessage> messages)
+            throws Exception {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Map<String, String> attributes = new HashMap<String, String>();
+        attributes.put("Action", "DeleteMessageBatch");
+        for (int i = 0; i < messages.size(); i++) {
+            String entry = "DeleteMessageBatchRequestEntry." + (i + 1);
+            attributes.put(entry + ".Id", "message-" + (i + 1));
+            attributes.put(entry + ".ReceiptHandle", messages.get(i).getReceiptHandle());
+        }
+        closeResource(callService(attributes, credentials, 0));
+    }
+
+    private InputStream callService(Map<String, String> attributes, AwsCredentials credentials, int waitTimeSeconds) {
+        attributes.put("Version", SQS_DOC_VERSION);
+        attributes.put("QueueUrl", queueUrl);
+        // the response of a long poll takes up to the wait time
+        return new SignedRequest(awsConfig, serviceEndpoint, "sqs", signingRegion)
+                .extendReadTimeout(TimeUnit.SECONDS.toMillis(waitTimeSeconds)).get(attributes, credentials);
+    }
+}
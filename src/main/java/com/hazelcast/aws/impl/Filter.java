@@ -16,6 +16,7 @@
 
 package com.hazelcast.aws.impl;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,6 +24,10 @@ import java.util.Map;
  * Query filter to narrow down the scope of the queried EC2 instance set.
  */
 public class Filter {
+    /**
+     * Maximum number of values of a filter accepted by EC2, e.g. of instance IDs.
+     */
+    public static final int MAX_VALUES = 200;
 
     private Map<String, String> filters = new HashMap<String, String>();
 
@@ -43,6 +48,21 @@ public class Filter {
         ++index;
     }
 
+    /**
+     * Add a new filter matching any of the given values to the query.
+     *
+     * @param name   Filter name
+     * @param values Filter values
+     */
+    public void addFilter(String name, Collection<String> values) {
+        filters.put("Filter." + index + ".Name", name);
+        int valueIndex = 1;
+        for (String value : values) {
+            filters.put("Filter." + index + ".Value." + valueIndex++, value);
+        }
+        ++index;
+    }
+
     public Map<String, String> getFilters() {
         return filters;
     }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+/**
+ * What discovery does with the instances that fail their EC2 status checks, as reported by
+ * {@link DescribeInstanceStatus}.
+ */
+public enum ImpairedInstancePolicy {
+    /**
+     * The status checks are not looked up and all the running instances are discovered.
+     */
+    INCLUDE("include"),
+
+    /**
+     * Impaired instances are discovered after the healthy ones, so that they are tried last.
+     */
+    DEPRIORITIZE("deprioritize"),
+
+    /**
+     * Impaired instances are not discovered.
+     */
+    EXCLUDE("exclude");
+
+    private final String key;
+
+    ImpairedInstancePolicy(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Returns the policy with the given configuration key, e.g. "exclude".
+     *
+     * @throws IllegalArgumentException if there is no such policy
+     */
+    public static ImpairedInstancePolicy forKey(String key) {
+        for (ImpairedInstancePolicy policy : values()) {
+            if (policy.key.equals(key)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown policy '" + key + "', expected '" + INCLUDE.key + "', '"
+                + DEPRIORITIZE.key + "' or '" + EXCLUDE.key + "'");
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
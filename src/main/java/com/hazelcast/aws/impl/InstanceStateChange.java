@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonObject;
+import com.hazelcast.internal.json.JsonValue;
+import com.hazelcast.internal.json.ParseException;
+
+/**
+ * EC2 instance state-change event, as published by EventBridge (CloudWatch Events) with the detail type
+ * {@value #DETAIL_TYPE}, e.g.
+ * <pre>
+ * {"detail-type": "EC2 Instance State-change Notification", "source": "aws.ec2",
+ *  "detail": {"instance-id": "i-0123456789abcdef0", "state": "terminated"}}
+ * </pre>
+ * See https://docs.aws.amazon.com/AWSEC2/latest/UserGuide/monitoring-instance-state-changes.html.
+ */
+public final class InstanceStateChange {
+    static final String DETAIL_TYPE = "EC2 Instance State-change Notification";
+
+    private final String instanceId;
+    private final String state;
+
+    public InstanceStateChange(String instanceId, String state) {
+        this.instanceId = instanceId;
+        this.state = state;
+    }
+
+    /**
+     * Parses an event, e.g. the body of an SQS message.
+     *
+     * @return the state change or {@code null} if the event is not an EC2 instance state-change event
+     */
+    public static InstanceStateChange parse(String event) {
+        try {
+            JsonValue value = Json.parse(event);
+            if (!value.isObject() || !DETAIL_TYPE.equals(value.asObject().getString("detail-type", null))) {
+                return null;
+            }
+            JsonValue detail = value.asObject().get("detail");
+            if (detail == null || !detail.isObject()) {
+                return null;
+            }
+            JsonObject detailObject = detail.asObject();
+            String instanceId = detailObject.getString("instance-id", null);
+            String state = detailObject.getString("state", null);
+            return instanceId == null || state == null ? null : new InstanceStateChange(instanceId, state);
+        } catch (ParseException e) {
+            return null;
+        } catch (UnsupportedOperationException e) {
+            // a field of an unexpected type
+            return null;
+        }
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * Returns whether the instance has started and may run a member now.
+     */
+    public boolean isRunning() {
+        return "running".equals(state);
+    }
+
+    /**
+     * Returns whether the instance is going away, so it cannot run a member anymore.
+     */
+    public boolean isStopping() {
+        return "shutting-down".equals(state) || "terminated".equals(state) || "stopping".equals(state)
+                || "stopped".equals(state);
+    }
+
+    @Override
+    public String toString() {
+        return "InstanceStateChange{instanceId='" + instanceId + "', state='" + state + "'}";
+    }
+}
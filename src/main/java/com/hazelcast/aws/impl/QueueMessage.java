@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+/**
+ * Message received from an SQS queue.
+ */
+public final class QueueMessage {
+    private final String receiptHandle;
+    private final String body;
+
+    public QueueMessage(String receiptHandle, String body) {
+        this.receiptHandle = receiptHandle;
+        this.body = body;
+    }
+
+    /**
+     * Returns the handle to delete the message with once it has been processed.
+     */
+    public String getReceiptHandle() {
+        return receiptHandle;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}
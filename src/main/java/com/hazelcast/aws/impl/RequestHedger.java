@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.metrics.DiscoveryMetrics;
+import com.hazelcast.aws.utility.DaemonThreadFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.nio.IOUtil.closeResource;
+
+/**
+ * Hedges the requests to an endpoint: if a request has not answered after the given percentile of the latencies of the
+ * recent requests, a second request is sent and the first answer is used, the other one being cancelled and closed.
+ * <p>
+ * Hedging trades extra requests for a shorter tail latency, so it is bounded in two ways to never amplify the load on the
+ * EC2 API: a budget allows at most one hedged request per {@value #REQUESTS_PER_HEDGE} requests, and no request is
+ * hedged for {@value #THROTTLE_BACKOFF_MILLIS} ms after a request was throttled.
+ * <p>
+ * The latencies are kept per endpoint and JVM-wide, since a {@link DescribeInstances} is created for every request. So
+ * are the threads the attempts run on: at most {@value #MAX_THREADS}, a request finding them all busy is sent without
+ * hedging on the calling thread.
+ */
+final class RequestHedger {
+    static final int WINDOW_SIZE = 100;
+    static final int MIN_SAMPLES = 10;
+    static final int REQUESTS_PER_HEDGE = 10;
+    static final long THROTTLE_BACKOFF_MILLIS = 60000L;
+
+    private static final int MAX_HEDGE_CREDITS = 10 * REQUESTS_PER_HEDGE;
+    private static final int PERCENT = 100;
+    private static final int MAX_THREADS = 16;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60L;
+    private static final ConcurrentMap<String, RequestHedger> HEDGERS = new ConcurrentHashMap<String, RequestHedger>();
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, MAX_THREADS, THREAD_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new DaemonThreadFactory("hz-aws-hedge"),
+            new ThreadPoolExecutor.AbortPolicy());
+
+    private final int percentile;
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private int latencyCount;
+    private int hedgeCredits;
+    private long throttledUntilMillis;
+
+    RequestHedger(int percentile) {
+        this.percentile = percentile;
+    }
+
+    /**
+     * Returns the hedger of the given endpoint, hedging after the given percentile of its recent latencies.
+     */
+    static RequestHedger forEndpoint(String endpoint, int percentile) {
+        String key = endpoint + '@' + percentile;
+        RequestHedger hedger = HEDGERS.get(key);
+        if (hedger == null) {
+            RequestHedger newHedger = new RequestHedger(percentile);
+            hedger = HEDGERS.putIfAbsent(key, newHedger);
+            if (hedger == null) {
+                hedger = newHedger;
+            }
+        }
+        return hedger;
+    }
+
+    /**
+     * Calls {@code request} and, if it does not answer in time and the budget allows it, {@code hedge}.
+     *
+     * @return the first response
+     * @throws Exception the first failure if all the calls fail
+     */
+    InputStream call(Callable<InputStream> request, Callable<InputStream> hedge)
+            throws Exception {
+        long hedgeDelayNanos = startRequest();
+        HedgedCall call = new HedgedCall();
+        List<Future<?>> attempts = new ArrayList<Future<?>>(2);
+        Future<?> attempt = submit(call.attempt(request));
+        if (attempt == null) {
+            return request.call();
+        }
+        attempts.add(attempt);
+        try {
+            if (hedgeDelayNanos >= 0 && !call.await(hedgeDelayNanos, 1) && acquireHedge()) {
+                attempt = submit(call.attempt(hedge));
+                if (attempt != null) {
+                    DiscoveryMetrics.get().recordHedge();
+                    attempts.add(attempt);
+                }
+            }
+            return call.get(attempts.size());
+        } finally {
+            for (Future<?> submitted : attempts) {
+                submitted.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Submits an attempt, returning {@code null} if all the threads are busy.
+     */
+    private static Future<?> submit(Runnable attempt) {
+        try {
+            return EXECUTOR.submit(attempt);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds the credit of a request to the budget.
+     *
+     * @return the nanoseconds after which the request may be hedged, or {@code -1} if there are not enough latencies yet
+     */
+    private synchronized long startRequest() {
+        hedgeCredits = Math.min(hedgeCredits + 1, MAX_HEDGE_CREDITS);
+        if (latencyCount < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, Math.min(latencyCount, WINDOW_SIZE));
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(sorted.length * (double) percentile / PERCENT);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private synchronized boolean acquireHedge() {
+        if (hedgeCredits < REQUESTS_PER_HEDGE || System.currentTimeMillis() < throttledUntilMillis) {
+            return false;
+        }
+        hedgeCredits -= REQUESTS_PER_HEDGE;
+        return true;
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[latencyCount % WINDOW_SIZE] = nanos;
+        latencyCount++;
+    }
+
+    private synchronized void recordFailure(Throwable e) {
+        if (e instanceof AwsConnectionException) {
+            AwsConnectionException awsException = (AwsConnectionException) e;
+            if (DescribeInstances.isThrottling(awsException.getHttpReponseCode(), awsException.getErrorMessage())) {
+                throttledUntilMillis = System.currentTimeMillis() + THROTTLE_BACKOFF_MILLIS;
+            }
+        }
+    }
+
+    /**
+     * The attempts of a call. The first successful attempt wins, the responses of the others are closed.
+     */
+    final class HedgedCall {
+        private InputStream response;
+        private Throwable firstFailure;
+        private int failures;
+        private boolean done;
+
+        Runnable attempt(final Callable<InputStream> callable) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    try {
+                        InputStream stream = callable.call();
+                        recordLatency(System.nanoTime() - start);
+                        if (!succeed(stream)) {
+                            closeResource(stream);
+                        }
+                    } catch (Throwable e) {
+                        // including errors, which would otherwise leave the caller waiting forever
+                        recordFailure(e);
+                        fail(e);
+                    }
+                }
+            };
+        }
+
+        synchronized boolean succeed(InputStream stream) {
+            // an earlier response may not be taken by the caller yet
+            if (done || response != null) {
+                return false;
+            }
+            response = stream;
+            notifyAll();
+            return true;
+        }
+
+        synchronized void fail(Throwable e) {
+            if (firstFailure == null) {
+                firstFailure = e;
+            }
+            failures++;
+            notifyAll();
+        }
+
+        /**
+         * Waits until an attempt succeeds or all the {@code attempts} fail.
+         *
+         * @return whether the call is complete
+         */
+        synchronized boolean await(long timeoutNanos, int attempts)
+                throws InterruptedException {
+            long deadline = System.nanoTime() + timeoutNanos;
+            for (long remaining = timeoutNanos; response == null && failures < attempts && remaining > 0;
+                 remaining = deadline - System.nanoTime()) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return response != null || failures >= attempts;
+        }
+
+        synchronized InputStream get(int attempts)
+                throws Exception {
+            try {
+                while (response == null && failures < attempts) {
+                    wait();
+                }
+            } finally {
+                done = true;
+            }
+            if (response == null && firstFailure instanceof Error) {
+                throw (Error) firstFailure;
+            }
+            if (response == null) {
+                throw (Exception) firstFailure;
+            }
+            return response;
+        }
+    }
+}
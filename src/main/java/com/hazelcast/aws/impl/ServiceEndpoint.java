@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Endpoint of an AWS service. The endpoint is a host name, optionally with a port, and may start with an explicit
+ * protocol, e.g. {@code http://127.0.0.1:8080} for a local stand-in of the service. Without a protocol, HTTPS is used.
+ */
+public final class ServiceEndpoint {
+    private static final Pattern PROTOCOL = Pattern.compile("^(https?)://");
+    private static final String DEFAULT_PROTOCOL = "https";
+
+    private final String protocol;
+    private final String host;
+
+    private ServiceEndpoint(String protocol, String host) {
+        this.protocol = protocol;
+        this.host = host;
+    }
+
+    public static ServiceEndpoint parse(String endpoint) {
+        Matcher matcher = PROTOCOL.matcher(endpoint.trim());
+        if (matcher.find()) {
+            return new ServiceEndpoint(matcher.group(1), toHost(matcher.group(1), endpoint.trim().substring(matcher.end())));
+        }
+        return new ServiceEndpoint(DEFAULT_PROTOCOL, toHost(DEFAULT_PROTOCOL, endpoint.trim()));
+    }
+
+    /**
+     * Removes a trailing slash and the default port of the protocol, which {@link java.net.HttpURLConnection} leaves out of
+     * the {@code Host} header, so that the signed host matches the sent one.
+     */
+    private static String toHost(String protocol, String host) {
+        String withoutSlash = host.endsWith("/") ? host.substring(0, host.length() - 1) : host;
+        String defaultPort = DEFAULT_PROTOCOL.equals(protocol) ? ":443" : ":80";
+        return withoutSlash.endsWith(defaultPort)
+                ? withoutSlash.substring(0, withoutSlash.length() - defaultPort.length()) : withoutSlash;
+    }
+
+    /**
+     * Returns whether the given endpoint starts with an explicit protocol.
+     */
+    public static boolean hasProtocol(String endpoint) {
+        return PROTOCOL.matcher(endpoint).find();
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Returns the host name with the port, if any, as sent in the {@code Host} header and signed.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the URL of a query to the root path of the endpoint.
+     */
+    public String toQueryUrl(String query) {
+        return protocol + "://" + host + "/?" + query;
+    }
+
+    @Override
+    public String toString() {
+        return protocol + "://" + host;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.aws.security.EC2RequestSigner;
+import com.hazelcast.aws.utility.RetryUtils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.aws.impl.Constants.SIGNATURE_METHOD_V4;
+import static com.hazelcast.nio.IOUtil.closeResource;
+
+/**
+ * Request to an AWS API other than DescribeInstances (STS, SQS, ECS, Auto Scaling and the EC2 status checks), signed with
+ * Signature Version 4 in the query string. The failed attempts are retried up to the connection retries of the
+ * configuration, each one signed anew, and the AWS errors are thrown as {@link AwsConnectionException}.
+ */
+final class SignedRequest {
+    private static final String UTF_8 = "UTF-8";
+
+    private final AwsConfig awsConfig;
+    private final ServiceEndpoint serviceEndpoint;
+    private final String service;
+    private final String signingRegion;
+    private int retries;
+    private int readTimeoutMillis;
+
+    /**
+     * @param service       the service name the request is signed for, e.g. "ec2" or "sts"
+     * @param signingRegion the region the request is signed for
+     */
+    SignedRequest(AwsConfig awsConfig, ServiceEndpoint serviceEndpoint, String service, String signingRegion) {
+        this.awsConfig = awsConfig;
+        this.serviceEndpoint = serviceEndpoint;
+        this.service = service;
+        this.signingRegion = signingRegion;
+        this.retries = awsConfig.getConnectionRetries();
+        this.readTimeoutMillis = (int) TimeUnit.SECONDS.toMillis(awsConfig.getConnectionTimeoutSeconds());
+    }
+
+    /**
+     * Makes a single attempt, e.g. when the caller fails over to another endpoint and retries itself.
+     */
+    SignedRequest singleAttempt() {
+        retries = 0;
+        return this;
+    }
+
+    /**
+     * Extends the read timeout, e.g. for a long poll whose response takes up to its wait time.
+     */
+    SignedRequest extendReadTimeout(long millis) {
+        readTimeoutMillis += (int) millis;
+        return this;
+    }
+
+    /**
+     * Sends a {@code GET} request with the given query parameters.
+     *
+     * @return the response stream, to be closed by the caller
+     * @throws AwsConnectionException if the service still answers with an error after the retries
+     */
+    InputStream get(final Map<String, String> parameters, final AwsCredentials credentials) {
+        return RetryUtils.retry(new Callable<InputStream>() {
+            @Override
+            public InputStream call()
+                    throws Exception {
+                return send(Constants.GET, parameters, Collections.<String, String>emptyMap(), null, credentials);
+            }
+        }, retries);
+    }
+
+    /**
+     * Sends a {@code POST} request with the given headers and body, signed with the hash of the body.
+     *
+     * @return the response stream, to be closed by the caller
+     * @throws AwsConnectionException if the service still answers with an error after the retries
+     */
+    InputStream post(final Map<String, String> headers, final String payload, final AwsCredentials credentials) {
+        return RetryUtils.retry(new Callable<InputStream>() {
+            @Override
+            public InputStream call()
+                    throws Exception {
+                return send(Constants.POST, Collections.<String, String>emptyMap(), headers, payload, credentials);
+            }
+        }, retries);
+    }
+
+    private InputStream send(String method, Map<String, String> parameters, Map<String, String> headers, String payload,
+                             AwsCredentials credentials)
+            throws Exception {
+        String timeStamp = getFormattedTimestamp();
+        EC2RequestSigner signer = new EC2RequestSigner(awsConfig, timeStamp, signingRegion, serviceEndpoint.getHost(),
+                credentials);
+        // a copy, so that the signature attributes of an attempt are not signed by the next one
+        Map<String, String> attributes = new HashMap<String, String>(parameters);
+        if (credentials.getSessionToken() != null) {
+            attributes.put("X-Amz-Security-Token", credentials.getSessionToken());
+        }
+        attributes.put("X-Amz-Algorithm", SIGNATURE_METHOD_V4);
+        attributes.put("X-Amz-Credential", signer.createFormattedCredential(service));
+        attributes.put("X-Amz-Date", timeStamp);
+        attributes.put("X-Amz-SignedHeaders", "host");
+        attributes.put("X-Amz-Expires", "30");
+        attributes.put("X-Amz-Signature", payload == null
+                ? signer.sign(service, attributes) : signer.sign(service, attributes, method, payload));
+
+        URL url = new URL(serviceEndpoint.toQueryUrl(signer.getCanonicalizedQueryString(attributes)));
+        HttpURLConnection httpConnection = (HttpURLConnection) (url.openConnection());
+        httpConnection.setRequestMethod(method);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            httpConnection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        httpConnection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(awsConfig.getConnectionTimeoutSeconds()));
+        httpConnection.setReadTimeout(readTimeoutMillis);
+        httpConnection.setDoOutput(payload != null);
+        if (payload != null) {
+            OutputStream out = httpConnection.getOutputStream();
+            try {
+                out.write(payload.getBytes(UTF_8));
+            } finally {
+                closeResource(out);
+            }
+        } else {
+            httpConnection.connect();
+        }
+
+        int responseCode = httpConnection.getResponseCode();
+        if (DescribeInstances.isAwsError(responseCode)) {
+            throw new AwsConnectionException(responseCode, DescribeInstances.extractErrorMessage(httpConnection));
+        }
+        return httpConnection.getInputStream();
+    }
+
+    private static String getFormattedTimestamp() {
+        SimpleDateFormat df = new SimpleDateFormat(Constants.DATE_FORMAT);
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return df.format(new Date());
+    }
+}
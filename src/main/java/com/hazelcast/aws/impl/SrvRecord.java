@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws.impl;
+
+/**
+ * DNS SRV record as resolved by {@link DnsResolver}: the host name of a member and the port it listens on.
+ */
+public final class SrvRecord {
+    private final String target;
+    private final int port;
+
+    public SrvRecord(String target, int port) {
+        this.target = target;
+        this.port = port;
+    }
+
+    /**
+     * Returns the host name of the member, without the trailing dot.
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public String toString() {
+        return "SrvRecord{target='" + target + "', port=" + port + '}';
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.metrics;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the AWS discovery: latency histograms of the discovery phases, retries, throttling events, response sizes
+ * and the number of discovered instances.
+ * <p>
+ * The metrics are collected JVM-wide by {@link #get()} and exposed as the JMX MBean {@value #OBJECT_NAME}.
+ */
+public final class DiscoveryMetrics {
+
+    /**
+     * Name of the JMX MBean exposing the metrics.
+     */
+    public static final String OBJECT_NAME = "com.hazelcast.aws:type=DiscoveryMetrics";
+
+    /**
+     * Timed phases of the discovery.
+     */
+    public enum Phase {
+        /**
+         * Resolving the credentials from the IAM Role, the IAM Task Role or by assuming a role.
+         */
+        CREDENTIALS("credentials"),
+        /**
+         * Signing the request.
+         */
+        SIGNING("signing"),
+        /**
+         * Sending the request until the response headers are received, including retries.
+         */
+        HTTP("http"),
+        /**
+         * Reading and parsing the response body.
+         */
+        PARSE("parse"),
+        /**
+         * Creating the discovery nodes from the discovered addresses.
+         */
+        NODE_EXPANSION("nodeExpansion"),
+        /**
+         * The whole discovery.
+         */
+        DISCOVERY("discovery");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final double P50 = 50;
+    private static final double P90 = 90;
+    private static final double P99 = 99;
+
+    private static final ILogger LOGGER = Logger.getLogger(DiscoveryMetrics.class);
+
+    private static final DiscoveryMetrics INSTANCE = new DiscoveryMetrics();
+
+    static {
+        registerMBean(INSTANCE);
+    }
+
+    private final Map<Phase, LatencyHistogram> latencies = new EnumMap<Phase, LatencyHistogram>(Phase.class);
+    private final AtomicLong failedDiscoveries = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong throttles = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLong instanceCount = new AtomicLong();
+
+    DiscoveryMetrics() {
+        for (Phase phase : Phase.values()) {
+            latencies.put(phase, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Returns the JVM-wide metrics.
+     */
+    public static DiscoveryMetrics get() {
+        return INSTANCE;
+    }
+
+    private static void registerMBean(DiscoveryMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new DiscoveryMetricsMBean(metrics),
+                    new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            LOGGER.finest("Cannot register the AWS discovery metrics MBean", e);
+        }
+    }
+
+    /**
+     * Records the duration of a phase.
+     *
+     * @param phase     the phase
+     * @param startNanos the {@link System#nanoTime()} when the phase started
+     */
+    public void recordLatency(Phase phase, long startNanos) {
+        latencies.get(phase).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    public void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    public void recordThrottle() {
+        throttles.incrementAndGet();
+    }
+
+    public void recordHedge() {
+        hedges.incrementAndGet();
+    }
+
+    public void recordFailedDiscovery() {
+        failedDiscoveries.incrementAndGet();
+    }
+
+    public void recordInstanceCount(int count) {
+        instanceCount.set(count);
+    }
+
+    /**
+     * Wraps the given response stream so that the bytes read from it are recorded.
+     */
+    public InputStream countResponseBytes(InputStream stream) {
+        return new CountingInputStream(stream, responseBytes);
+    }
+
+    public LatencyHistogram getLatency(Phase phase) {
+        return latencies.get(phase);
+    }
+
+    public long getFailedDiscoveries() {
+        return failedDiscoveries.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getThrottles() {
+        return throttles.get();
+    }
+
+    /**
+     * Returns the number of hedged requests, sent because the first request was slower than usual.
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    /**
+     * Returns the number of instances found by the last discovery.
+     */
+    public long getInstanceCount() {
+        return instanceCount.get();
+    }
+
+    /**
+     * Returns a snapshot of all the metrics keyed by their names, e.g. {@code http.p99Micros} or {@code retries}.
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> metrics = new LinkedHashMap<String, Long>();
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = latencies.get(phase);
+            String prefix = phase.getMetricName() + '.';
+            metrics.put(prefix + "count", histogram.getCount());
+            metrics.put(prefix + "meanMicros", histogram.getMean());
+            metrics.put(prefix + "p50Micros", histogram.getValueAtPercentile(P50));
+            metrics.put(prefix + "p90Micros", histogram.getValueAtPercentile(P90));
+            metrics.put(prefix + "p99Micros", histogram.getValueAtPercentile(P99));
+            metrics.put(prefix + "maxMicros", histogram.getMax());
+        }
+        metrics.put("failedDiscoveries", getFailedDiscoveries());
+        metrics.put("retries", getRetries());
+        metrics.put("throttles", getThrottles());
+        metrics.put("hedges", getHedges());
+        metrics.put("responseBytes", getResponseBytes());
+        metrics.put("instanceCount", getInstanceCount());
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return "DiscoveryMetrics" + toMap();
+    }
+
+    private static final class CountingInputStream
+            extends FilterInputStream {
+        private final AtomicLong counter;
+
+        CountingInputStream(InputStream in, AtomicLong counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read()
+                throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+                throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.addAndGet(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n)
+                throws IOException {
+            long skipped = super.skip(n);
+            counter.addAndGet(skipped);
+            return skipped;
+        }
+    }
+}
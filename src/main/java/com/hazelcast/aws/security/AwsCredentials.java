@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.security;
+
+/**
+ * AWS credentials used to sign requests: access key, secret key and, for temporary credentials, the session token and
+ * the expiration time.
+ */
+public final class AwsCredentials {
+    /**
+     * Expiration of credentials which never expire, e.g. the access and secret key from the configuration.
+     */
+    public static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String sessionToken;
+    private final long expirationMillis;
+
+    public AwsCredentials(String accessKey, String secretKey, String sessionToken) {
+        this(accessKey, secretKey, sessionToken, NO_EXPIRATION);
+    }
+
+    public AwsCredentials(String accessKey, String secretKey, String sessionToken, long expirationMillis) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.sessionToken = sessionToken;
+        this.expirationMillis = expirationMillis;
+    }
+
+    public String getAccessKey() {
+        return accessKey;
+    }
+
+    public String getSecretKey() {
+        return secretKey;
+    }
+
+    /**
+     * @return the session token of temporary credentials or {@code null}
+     */
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    /**
+     * @return the epoch millis when the credentials expire or {@link #NO_EXPIRATION}
+     */
+    public long getExpirationMillis() {
+        return expirationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "AwsCredentials{accessKey='" + accessKey + "', secretKey='***', sessionToken='***', expirationMillis="
+                + expirationMillis + '}';
+    }
+}
@@ -18,6 +18,7 @@ package com.hazelcast.aws.security;
 
 import com.hazelcast.aws.AwsConfig;
 import com.hazelcast.aws.impl.Constants;
+import com.hazelcast.aws.impl.ServiceEndpoint;
 import com.hazelcast.aws.utility.AwsURLEncoder;
 import com.hazelcast.util.QuickMath;
 
@@ -46,22 +47,40 @@ public class EC2RequestSigner {
 
     private final AwsConfig config;
     private final String timestamp;
+    private final String region;
+    private final AwsCredentials credentials;
 
     private String service;
     private Map<String, String> attributes;
     private String endpoint;
+    private String method = Constants.GET;
+    private String payload = "";
 
     public EC2RequestSigner(AwsConfig config, String timeStamp, String endpoint) {
+        this(config, timeStamp, config.getRegion(), endpoint);
+    }
+
+    public EC2RequestSigner(AwsConfig config, String timeStamp, String region, String endpoint) {
+        this(config, timeStamp, region, endpoint, null);
+    }
+
+    /**
+     * Creates a signer for the given {@code credentials}. If {@code credentials} is {@code null}, the access and secret key
+     * of {@code config} are used.
+     */
+    public EC2RequestSigner(AwsConfig config, String timeStamp, String region, String endpoint, AwsCredentials credentials) {
         this.config = config;
         this.timestamp = timeStamp;
+        this.region = region;
         this.service = null;
         this.endpoint = endpoint;
+        this.credentials = credentials;
     }
 
     public String getCredentialScope() {
         // datestamp/region/service/API_TERMINATOR
         String dateStamp = timestamp.substring(0, DATE_LENGTH);
-        return format("%s/%s/%s/%s", dateStamp, config.getRegion(), this.service, API_TERMINATOR);
+        return format("%s/%s/%s/%s", dateStamp, region, this.service, API_TERMINATOR);
     }
 
     public String getSignedHeaders() {
@@ -69,8 +88,18 @@ public class EC2RequestSigner {
     }
 
     public String sign(String service, Map<String, String> attributes) {
+        return sign(service, attributes, Constants.GET, "");
+    }
+
+    /**
+     * Signs a request with a body, e.g. a POST of the JSON protocol. The authentication parameters are still passed in the
+     * query string, while the hash of the {@code payload} is part of the signature.
+     */
+    public String sign(String service, Map<String, String> attributes, String method, String payload) {
         this.service = service;
         this.attributes = attributes;
+        this.method = method;
+        this.payload = payload;
 
         String canonicalRequest = getCanonicalizedRequest();
         String stringToSign = createStringToSign(canonicalRequest);
@@ -81,8 +110,8 @@ public class EC2RequestSigner {
 
     /* Task 1 */
     private String getCanonicalizedRequest() {
-        return Constants.GET + NEW_LINE + '/' + NEW_LINE + getCanonicalizedQueryString(this.attributes) + NEW_LINE
-                + getCanonicalHeaders() + NEW_LINE + getSignedHeaders() + NEW_LINE + sha256Hashhex("");
+        return method + NEW_LINE + '/' + NEW_LINE + getCanonicalizedQueryString(this.attributes) + NEW_LINE
+                + getCanonicalHeaders() + NEW_LINE + getSignedHeaders() + NEW_LINE + sha256Hashhex(payload);
     }
 
     /* Task 2 */
@@ -93,7 +122,7 @@ public class EC2RequestSigner {
 
     /* Task 3 */
     private byte[] deriveSigningKey() {
-        String signKey = config.getSecretKey();
+        String signKey = getSecretKey();
         String dateStamp = timestamp.substring(0, DATE_LENGTH);
         // this is derived from
         // http://docs.aws.amazon.com/general/latest/gr/signature-v4-examples.html#signature-v4-examples-python
@@ -108,7 +137,7 @@ public class EC2RequestSigner {
             Mac mRegion = Mac.getInstance(HMAC_SHA256);
             SecretKeySpec skRegion = new SecretKeySpec(kDate, HMAC_SHA256);
             mRegion.init(skRegion);
-            byte[] kRegion = mRegion.doFinal(config.getRegion().getBytes(UTF_8));
+            byte[] kRegion = mRegion.doFinal(region.getBytes(UTF_8));
 
             Mac mService = Mac.getInstance(HMAC_SHA256);
             SecretKeySpec skService = new SecretKeySpec(kRegion, HMAC_SHA256);
@@ -146,8 +175,12 @@ public class EC2RequestSigner {
         return QuickMath.bytesToHex(signature);
     }
 
+    /**
+     * The endpoint may be given with a protocol or a default port, e.g. when requests fail over between endpoints; the
+     * signed host is always the one sent in the {@code Host} header.
+     */
     protected String getCanonicalHeaders() {
-        return format("host:%s%s", endpoint, NEW_LINE);
+        return format("host:%s%s", ServiceEndpoint.parse(endpoint).getHost(), NEW_LINE);
     }
 
     public String getCanonicalizedQueryString(Map<String, String> attributes) {
@@ -193,7 +226,18 @@ public class EC2RequestSigner {
     }
 
     public String createFormattedCredential() {
-        return config.getAccessKey() + '/' + timestamp.substring(0, LAST_INDEX) + '/' + config.getRegion() + '/'
-                + "ec2/aws4_request";
+        return createFormattedCredential("ec2");
+    }
+
+    public String createFormattedCredential(String service) {
+        return getAccessKey() + '/' + timestamp.substring(0, LAST_INDEX) + '/' + region + '/' + service + '/' + API_TERMINATOR;
+    }
+
+    private String getAccessKey() {
+        return credentials != null ? credentials.getAccessKey() : config.getAccessKey();
+    }
+
+    private String getSecretKey() {
+        return credentials != null ? credentials.getSecretKey() : config.getSecretKey();
     }
 }
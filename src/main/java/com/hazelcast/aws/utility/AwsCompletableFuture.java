@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.ICompletableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link ICompletableFuture} completed explicitly by the code producing its value, typically from a scheduled task.
+ * <p>
+ * Cancelling it also cancels the tasks registered with {@link #cancelOnCancellation(Future)}, e.g. the pending retry of
+ * a failed AWS call, so that a caller giving up on a result does not leave any work behind.
+ *
+ * @param <V> the type of the value
+ */
+public final class AwsCompletableFuture<V>
+        implements ICompletableFuture<V> {
+    /**
+     * Runs the callbacks forwarding an outcome on the thread completing the source future.
+     */
+    static final Executor CALLING_THREAD = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final Executor defaultExecutor;
+    private final List<Future<?>> dependents = new CopyOnWriteArrayList<Future<?>>();
+    private final List<Callback<V>> callbacks = new ArrayList<Callback<V>>();
+
+    private boolean done;
+    private boolean cancelled;
+    private V value;
+    private Throwable failure;
+
+    /**
+     * @param defaultExecutor the executor running the callbacks registered without an executor
+     */
+    public AwsCompletableFuture(Executor defaultExecutor) {
+        this.defaultExecutor = defaultExecutor;
+    }
+
+    /**
+     * Completes the future with the given value, unless it is completed or cancelled already.
+     *
+     * @return {@code true} if the value was set
+     */
+    public boolean complete(V value) {
+        return setOutcome(value, null, false);
+    }
+
+    /**
+     * Completes the future with the given failure, unless it is completed or cancelled already.
+     *
+     * @return {@code true} if the failure was set
+     */
+    public boolean completeExceptionally(Throwable failure) {
+        return setOutcome(null, failure, false);
+    }
+
+    /**
+     * Registers a task to cancel together with this future. If the future is cancelled already, the task is cancelled
+     * right away.
+     */
+    public void cancelOnCancellation(Future<?> dependent) {
+        dependents.add(dependent);
+        if (isCancelled()) {
+            dependent.cancel(false);
+        }
+    }
+
+    /**
+     * Completes this future with the outcome of {@code source}, which is cancelled together with this future.
+     */
+    public void completeWith(ICompletableFuture<V> source) {
+        cancelOnCancellation(source);
+        source.andThen(new ExecutionCallback<V>() {
+            @Override
+            public void onResponse(V response) {
+                complete(response);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                completeExceptionally(t);
+            }
+        }, CALLING_THREAD);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!setOutcome(null, new CancellationException(), true)) {
+            return false;
+        }
+        for (Future<?> dependent : dependents) {
+            dependent.cancel(mayInterruptIfRunning);
+        }
+        return true;
+    }
+
+    private boolean setOutcome(V value, Throwable failure, boolean cancelled) {
+        List<Callback<V>> toNotify;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.done = true;
+            this.cancelled = cancelled;
+            this.value = value;
+            this.failure = failure;
+            toNotify = new ArrayList<Callback<V>>(callbacks);
+            callbacks.clear();
+            notifyAll();
+        }
+        for (Callback<V> callback : toNotify) {
+            notify(callback);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized V get()
+            throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getOutcome();
+    }
+
+    @Override
+    public synchronized V get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        return getOutcome();
+    }
+
+    private V getOutcome()
+            throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return value;
+    }
+
+    @Override
+    public void andThen(ExecutionCallback<V> callback) {
+        andThen(callback, defaultExecutor);
+    }
+
+    @Override
+    public void andThen(ExecutionCallback<V> callback, Executor executor) {
+        Callback<V> entry = new Callback<V>(callback, executor);
+        synchronized (this) {
+            if (!done) {
+                callbacks.add(entry);
+                return;
+            }
+        }
+        notify(entry);
+    }
+
+    private void notify(final Callback<V> callback) {
+        final V outcomeValue;
+        final Throwable outcomeFailure;
+        synchronized (this) {
+            outcomeValue = value;
+            outcomeFailure = failure;
+        }
+        Runnable notification = new Runnable() {
+            @Override
+            public void run() {
+                if (outcomeFailure != null) {
+                    callback.callback.onFailure(outcomeFailure);
+                } else {
+                    callback.callback.onResponse(outcomeValue);
+                }
+            }
+        };
+        try {
+            callback.executor.execute(notification);
+        } catch (RejectedExecutionException e) {
+            // the executor is shut down, e.g. together with the client, still the callback must learn the outcome
+            notification.run();
+        }
+    }
+
+    private static final class Callback<V> {
+        private final ExecutionCallback<V> callback;
+        private final Executor executor;
+
+        Callback(ExecutionCallback<V> callback, Executor executor) {
+            this.callback = callback;
+            this.executor = executor;
+        }
+    }
+}
@@ -16,6 +16,11 @@
 
 package com.hazelcast.aws.utility;
 
+import com.hazelcast.aws.impl.Constants;
+import com.hazelcast.aws.impl.DescribeInstanceStatus;
+import com.hazelcast.aws.impl.Ec2Instance;
+import com.hazelcast.aws.impl.QueueMessage;
+import com.hazelcast.aws.security.AwsCredentials;
 import com.hazelcast.logging.ILogger;
 import com.hazelcast.logging.Logger;
 import org.w3c.dom.Document;
@@ -25,10 +30,13 @@ import org.w3c.dom.Node;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.InputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 
 import static com.hazelcast.config.DomConfigHelper.childElements;
 import static com.hazelcast.config.DomConfigHelper.cleanNodeName;
@@ -55,6 +63,20 @@ public final class CloudyUtility {
      * @return map from private to public IP or empty map in case of exceptions
      */
     public static Map<String, String> unmarshalTheResponse(InputStream stream) {
+        return unmarshalTheResponse(stream, InstancePredicate.ACCEPT_ALL);
+    }
+
+    /**
+     * Unmarshal the response from {@link com.hazelcast.aws.impl.DescribeInstances} and return the discovered node map
+     * of the instances accepted by the predicate. The predicate is evaluated on the parsed instance element, so the
+     * rejected instances are never added to the map.
+     * If there is an exception while unmarshalling the response, returns an empty map.
+     *
+     * @param stream    the response XML stream
+     * @param predicate the client-side instance predicate
+     * @return map from private to public IP or empty map in case of exceptions
+     */
+    public static Map<String, String> unmarshalTheResponse(InputStream stream, InstancePredicate predicate) {
         DocumentBuilder builder;
         try {
             DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
@@ -71,7 +93,7 @@ public final class CloudyUtility {
                 List<NodeHolder> items = reservation.getSubNodes(NODE_ITEM);
                 for (NodeHolder item : items) {
                     NodeHolder instancesSet = item.getFirstSubNode("instancesset");
-                    addresses.putAll(instancesSet.getAddresses());
+                    addresses.putAll(instancesSet.getAddresses(predicate));
                 }
             }
             return addresses;
@@ -81,7 +103,263 @@ public final class CloudyUtility {
         return new LinkedHashMap<String, String>();
     }
 
-    private static class NodeHolder {
+    /**
+     * Unmarshal the response from {@link com.hazelcast.aws.impl.DescribeInstances} and return the discovered instances
+     * with their IDs.
+     *
+     * @param stream the response XML stream
+     * @return the instances that have a private IP
+     * @throws IllegalStateException if the response cannot be parsed
+     */
+    public static List<Ec2Instance> unmarshalInstances(InputStream stream) {
+        return unmarshalInstances(stream, InstancePredicate.ACCEPT_ALL);
+    }
+
+    /**
+     * Unmarshal the response from {@link com.hazelcast.aws.impl.DescribeInstances} and return the discovered instances
+     * accepted by the predicate.
+     *
+     * @param stream    the response XML stream
+     * @param predicate the client-side instance predicate
+     * @return the accepted instances that have a private IP
+     * @throws IllegalStateException if the response cannot be parsed
+     */
+    public static List<Ec2Instance> unmarshalInstances(InputStream stream, InstancePredicate predicate) {
+        try {
+            NodeHolder root = new NodeHolder(parse(stream).getDocumentElement());
+            List<Ec2Instance> instances = new ArrayList<Ec2Instance>();
+            for (NodeHolder reservation : root.getSubNodes("reservationset")) {
+                for (NodeHolder item : reservation.getSubNodes(NODE_ITEM)) {
+                    instances.addAll(item.getFirstSubNode("instancesset").getInstances(predicate));
+                }
+            }
+            return instances;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot parse the DescribeInstances response", e);
+        }
+    }
+
+    /**
+     * Unmarshal the {@code DescribeNetworkInterfaces} response from {@link com.hazelcast.aws.impl.DescribeInstances} and
+     * return the map from every private IP of the network interfaces to its public IP, or {@code null}.
+     * If there is an exception while unmarshalling the response, returns an empty map.
+     *
+     * @param stream    the response XML stream
+     * @param predicate the client-side instance predicate, evaluated on each private IP with the tags of its interface
+     * @return map from private to public IP or empty map in case of exceptions
+     */
+    public static Map<String, String> unmarshalNetworkInterfaceAddresses(InputStream stream, InstancePredicate predicate) {
+        Map<String, String> addresses = new LinkedHashMap<String, String>();
+        try {
+            for (Ec2Instance address : unmarshalNetworkInterfaces(stream, predicate)) {
+                addresses.put(address.getPrivateIp(), address.getPublicIp());
+            }
+        } catch (IllegalStateException e) {
+            LOGGER.warning(e);
+            addresses.clear();
+        }
+        return addresses;
+    }
+
+    /**
+     * Unmarshal the {@code DescribeNetworkInterfaces} response from {@link com.hazelcast.aws.impl.DescribeInstances} and
+     * return an entry for every private IP, primary or secondary, of the network interfaces, with the ID of the instance
+     * the interface is attached to. The interfaces not attached to an instance are skipped.
+     *
+     * @param stream    the response XML stream
+     * @param predicate the client-side instance predicate, evaluated on each private IP with the tags of its interface
+     * @return the accepted private IPs
+     * @throws IllegalStateException if the response cannot be parsed
+     */
+    public static List<Ec2Instance> unmarshalNetworkInterfaces(InputStream stream, InstancePredicate predicate) {
+        try {
+            NodeHolder root = new NodeHolder(parse(stream).getDocumentElement());
+            List<Ec2Instance> addresses = new ArrayList<Ec2Instance>();
+            for (NodeHolder networkInterface : root.getFirstSubNode("networkinterfaceset").getSubNodes(NODE_ITEM)) {
+                String instanceId = getText(networkInterface.getFirstSubNode("attachment"), "instanceid");
+                if (instanceId == null) {
+                    continue;
+                }
+                List<NodeHolder> privateIps = networkInterface.getFirstSubNode("privateipaddressesset").getSubNodes(NODE_ITEM);
+                if (privateIps.isEmpty()) {
+                    // the primary private IP is listed in the set as well, unless the response omits the set
+                    privateIps.add(networkInterface);
+                }
+                for (NodeHolder privateIp : privateIps) {
+                    NetworkInterfaceAddress address = new NetworkInterfaceAddress(networkInterface, privateIp);
+                    if (address.getPrivateIp() != null && predicate.matches(address)) {
+                        addresses.add(new Ec2Instance(instanceId, address.getPrivateIp(), address.getPublicIp()));
+                    }
+                }
+            }
+            return addresses;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot parse the DescribeNetworkInterfaces response", e);
+        }
+    }
+
+    /**
+     * Unmarshal the response from the SQS {@code ReceiveMessage} action of {@link com.hazelcast.aws.impl.EventQueue}.
+     *
+     * @param stream the response XML stream
+     * @return the received messages, empty if the long poll timed out
+     * @throws IllegalStateException if the response cannot be parsed
+     */
+    public static List<QueueMessage> unmarshalMessages(InputStream stream) {
+        try {
+            NodeHolder result = new NodeHolder(parse(stream).getDocumentElement()).getFirstSubNode("receivemessageresult");
+            List<QueueMessage> messages = new ArrayList<QueueMessage>();
+            for (NodeHolder message : result.getSubNodes("message")) {
+                messages.add(new QueueMessage(getText(message, "receipthandle"), getText(message, "body")));
+            }
+            return messages;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot parse the ReceiveMessage response", e);
+        }
+    }
+
+    /**
+     * Unmarshal the response from the Auto Scaling {@code DescribeAutoScalingGroups} action of
+     * {@link com.hazelcast.aws.impl.AutoScalingGroups}.
+     *
+     * @param stream        the response XML stream
+     * @param instanceStates the map to put the lifecycle state of each instance of the groups into, by instance ID
+     * @return the token of the next page or {@code null} if this is the last page
+     * @throws IllegalStateException if the response cannot be parsed
+     */
+    public static String unmarshalAutoScalingInstances(InputStream stream, Map<String, String> instanceStates) {
+        try {
+            NodeHolder result = new NodeHolder(parse(stream).getDocumentElement())
+                    .getFirstSubNode("describeautoscalinggroupsresult");
+            for (NodeHolder group : result.getFirstSubNode("autoscalinggroups").getSubNodes("member")) {
+                for (NodeHolder instance : group.getFirstSubNode("instances").getSubNodes("member")) {
+                    instanceStates.put(getText(instance, "instanceid"), getText(instance, "lifecyclestate"));
+                }
+            }
+            return getText(result, "nexttoken");
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot parse the DescribeAutoScalingGroups response", e);
+        }
+    }
+
+    /**
+     * Unmarshal the response from {@link com.hazelcast.aws.impl.DescribeInstanceStatus}.
+     *
+     * @param stream           the response XML stream
+     * @param instanceStatuses the map to put the status of each instance into, by instance ID: "impaired" if its system or
+     *                         instance status check fails, otherwise the status of its instance status check, e.g. "ok"
+     * @throws IllegalStateException if the response cannot be parsed
+     */
+    public static void unmarshalInstanceStatuses(InputStream stream, Map<String, String> instanceStatuses) {
+        try {
+            NodeHolder response = new NodeHolder(parse(stream).getDocumentElement());
+            for (NodeHolder item : response.getFirstSubNode("instancestatusset").getSubNodes(NODE_ITEM)) {
+                String systemStatus = getText(item.getFirstSubNode("systemstatus"), "status");
+                String instanceStatus = getText(item.getFirstSubNode("instancestatus"), "status");
+                instanceStatuses.put(getText(item, "instanceid"),
+                        DescribeInstanceStatus.IMPAIRED.equals(systemStatus) ? systemStatus : instanceStatus);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot parse the DescribeInstanceStatus response", e);
+        }
+    }
+
+    private static Document parse(InputStream stream)
+            throws Exception {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        return dbf.newDocumentBuilder().parse(stream);
+    }
+
+    /**
+     * Unmarshal the response from {@link com.hazelcast.aws.impl.AssumeRole} and return the session credentials.
+     *
+     * @param stream the response XML stream
+     * @return the session credentials
+     * @throws IllegalStateException if the response does not contain credentials
+     */
+    public static AwsCredentials unmarshalCredentials(InputStream stream) {
+        try {
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document doc = dbf.newDocumentBuilder().parse(stream);
+
+            NodeHolder credentials = new NodeHolder(doc.getDocumentElement()).getFirstSubNode("assumeroleresult")
+                                                                              .getFirstSubNode("credentials");
+            String accessKey = getText(credentials, "accesskeyid");
+            String secretKey = getText(credentials, "secretaccesskey");
+            if (accessKey == null || secretKey == null) {
+                throw new IllegalStateException("No credentials found in the AssumeRole response");
+            }
+            return new AwsCredentials(accessKey, secretKey, getText(credentials, "sessiontoken"),
+                    parseExpiration(getText(credentials, "expiration")));
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot parse the AssumeRole response", e);
+        }
+    }
+
+    private static String getText(NodeHolder parent, String name) {
+        Node node = parent.getFirstSubNode(name).getNode();
+        // the text content, since the text of an element with escaped characters may be split into several nodes
+        return node == null || node.getFirstChild() == null ? null : node.getTextContent().trim();
+    }
+
+    /**
+     * Parses an ISO 8601 UTC timestamp like "2019-01-15T23:28:33.359Z", ignoring the fraction of second.
+     */
+    private static long parseExpiration(String expiration)
+            throws ParseException {
+        if (expiration == null) {
+            return AwsCredentials.NO_EXPIRATION;
+        }
+        SimpleDateFormat df = new SimpleDateFormat(Constants.ISO_8601_DATE_FORMAT);
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return df.parse(expiration).getTime();
+    }
+
+    /**
+     * A private IP of a network interface, with the tags of the interface and the time it was attached at as launch time.
+     */
+    private static final class NetworkInterfaceAddress
+            implements InstancePredicate.Instance {
+
+        private final NodeHolder networkInterface;
+        private final String privateIp;
+        private final String publicIp;
+
+        NetworkInterfaceAddress(NodeHolder networkInterface, NodeHolder address) {
+            this.networkInterface = networkInterface;
+            this.privateIp = getText(address, "privateipaddress");
+            this.publicIp = getText(address.getFirstSubNode("association"), "publicip");
+        }
+
+        @Override
+        public String getTag(String key) {
+            return networkInterface.getTag(key);
+        }
+
+        @Override
+        public String getPrivateIp() {
+            return privateIp;
+        }
+
+        @Override
+        public String getPublicIp() {
+            return publicIp;
+        }
+
+        @Override
+        public String getLaunchTime() {
+            return getText(networkInterface.getFirstSubNode("attachment"), "attachtime");
+        }
+    }
+
+    private static class NodeHolder
+            implements InstancePredicate.Instance {
 
         private final Node node;
 
@@ -90,7 +368,17 @@ public final class CloudyUtility {
         }
 
         private static String getInstanceName(NodeHolder nodeHolder) {
-            NodeHolder tagSetHolder = nodeHolder.getFirstSubNode("tagset");
+            return nodeHolder.getTag("Name");
+        }
+
+        private static String getIp(String name, NodeHolder nodeHolder) {
+            Node child = nodeHolder.getFirstSubNode(name).getNode();
+            return (child == null ? null : child.getFirstChild().getNodeValue());
+        }
+
+        @Override
+        public String getTag(String key) {
+            NodeHolder tagSetHolder = getFirstSubNode("tagset");
             if (tagSetHolder.getNode() == null) {
                 return null;
             }
@@ -100,22 +388,33 @@ public final class CloudyUtility {
                     continue;
                 }
                 String nodeValue = keyNode.getFirstChild().getNodeValue();
-                if (!"Name".equals(nodeValue)) {
+                if (!key.equals(nodeValue)) {
                     continue;
                 }
 
                 Node valueNode = itemHolder.getFirstSubNode(NODE_VALUE).getNode();
                 if (valueNode == null || valueNode.getFirstChild() == null) {
-                    continue;
+                    // a tag with an empty value
+                    return "";
                 }
                 return valueNode.getFirstChild().getNodeValue();
             }
             return null;
         }
 
-        private static String getIp(String name, NodeHolder nodeHolder) {
-            Node child = nodeHolder.getFirstSubNode(name).getNode();
-            return (child == null ? null : child.getFirstChild().getNodeValue());
+        @Override
+        public String getPrivateIp() {
+            return getIp("privateipaddress", this);
+        }
+
+        @Override
+        public String getPublicIp() {
+            return getIp("ipaddress", this);
+        }
+
+        @Override
+        public String getLaunchTime() {
+            return getText(this, "launchtime");
         }
 
         Node getNode() {
@@ -155,7 +454,19 @@ public final class CloudyUtility {
          * @return map from private to public IP
          * @see #getFirstSubNode(String)
          */
-        Map<String, String> getAddresses() {
+        List<Ec2Instance> getInstances(InstancePredicate predicate) {
+            List<Ec2Instance> instances = new ArrayList<Ec2Instance>();
+            for (NodeHolder childHolder : getSubNodes(NODE_ITEM)) {
+                String privateIp = getIp("privateipaddress", childHolder);
+                if (privateIp != null && predicate.matches(childHolder)) {
+                    instances.add(new Ec2Instance(getText(childHolder, "instanceid"), privateIp,
+                            getIp("ipaddress", childHolder)));
+                }
+            }
+            return instances;
+        }
+
+        Map<String, String> getAddresses(InstancePredicate predicate) {
             Map<String, String> privatePublicPairs = new LinkedHashMap<String, String>();
             if (node == null) {
                 return privatePublicPairs;
@@ -163,14 +474,18 @@ public final class CloudyUtility {
 
             for (NodeHolder childHolder : getSubNodes(NODE_ITEM)) {
                 String privateIp = getIp("privateipaddress", childHolder);
-                String publicIp = getIp("ipaddress", childHolder);
-                String instanceName = getInstanceName(childHolder);
-
-                if (privateIp != null) {
-                    privatePublicPairs.put(privateIp, publicIp);
-                    LOGGER.finest(format("Accepting EC2 instance [%s][%s]", instanceName, privateIp));
+                if (privateIp == null) {
+                    continue;
+                }
+                if (predicate.matches(childHolder)) {
+                    privatePublicPairs.put(privateIp, getIp("ipaddress", childHolder));
+                    if (LOGGER.isFinestEnabled()) {
+                        LOGGER.finest(format("Accepting EC2 instance [%s][%s]", getInstanceName(childHolder), privateIp));
+                    }
+                } else if (LOGGER.isFinestEnabled()) {
+                    LOGGER.finest(format("Rejecting EC2 instance [%s][%s] by the predicate [%s]",
+                            getInstanceName(childHolder), privateIp, predicate));
                 }
-
             }
             return privatePublicPairs;
         }
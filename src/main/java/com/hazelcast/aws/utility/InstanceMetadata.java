@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+import com.hazelcast.util.ExceptionUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.hazelcast.aws.utility.AwsCompletableFuture.CALLING_THREAD;
+import static com.hazelcast.aws.utility.MetadataUtil.AVAILABILITY_ZONE_URI;
+import static com.hazelcast.aws.utility.MetadataUtil.IAM_SECURITY_CREDENTIALS_URI;
+import static com.hazelcast.aws.utility.MetadataUtil.INSTANCE_METADATA_URI;
+import static com.hazelcast.nio.IOUtil.closeResource;
+
+/**
+ * JVM-wide cache of the Instance Metadata Service values which do not change for the life of an instance, so that they
+ * are fetched once per process instead of once per discovery strategy or per call.
+ * <p>
+ * A value is loaded on its first lookup. Concurrent lookups of a value which is still loading, blocking or not, attach to
+ * that load instead of sending their own requests, and a failed load is not cached, so that the next lookup tries again.
+ * <p>
+ * If the {@value #CACHE_FILE_PROPERTY} system property names a file, the loaded values are persisted there as well, so that
+ * a restarted member does not query the Instance Metadata Service again. The file records the Linux boot ID and is ignored
+ * after a reboot or on another instance, e.g. when it has been baked into an AMI; where there is no boot ID, nothing is
+ * persisted.
+ */
+public final class InstanceMetadata {
+
+    /**
+     * Cached metadata value.
+     */
+    public enum Key {
+        /**
+         * Availability Zone of the instance, e.g. {@code us-east-1a}.
+         */
+        AVAILABILITY_ZONE(AVAILABILITY_ZONE_URI, false),
+        /**
+         * Region of the instance, e.g. {@code us-east-1}.
+         */
+        REGION("placement/region", false),
+        /**
+         * ID of the instance, e.g. {@code i-0abc}.
+         */
+        INSTANCE_ID("instance-id", false),
+        /**
+         * Name of the IAM role of the instance profile, empty if the instance has none.
+         */
+        IAM_ROLE_NAME(IAM_SECURITY_CREDENTIALS_URI, false),
+        /**
+         * Private IPv4 address of the primary network interface.
+         */
+        LOCAL_IPV4("local-ipv4", false),
+        /**
+         * Name of the placement group of the instance, {@code null} if it is in none.
+         */
+        PLACEMENT_GROUP("placement/group-name", true);
+
+        private final String path;
+        private final boolean optional;
+
+        Key(String path, boolean optional) {
+            this.path = path;
+            this.optional = optional;
+        }
+
+        /**
+         * Returns the path of the value relative to {@link MetadataUtil#INSTANCE_METADATA_URI}.
+         */
+        public String getPath() {
+            return path;
+        }
+    }
+
+    /**
+     * System property naming the file the metadata is persisted in.
+     */
+    public static final String CACHE_FILE_PROPERTY = "hazelcast.aws.metadata.cache.file";
+
+    private static final ILogger LOGGER = Logger.getLogger(InstanceMetadata.class);
+    private static final String BOOT_ID_FILE = "/proc/sys/kernel/random/boot_id";
+    private static final String BOOT_ID_ENTRY = "boot-id";
+
+    /**
+     * Region prefix of an Availability Zone, including Local Zones and Wavelength Zones, e.g. {@code us-west-2} of
+     * {@code us-west-2a}, {@code us-west-2-lax-1a} and {@code us-west-2-wl1-las-wlz-1}.
+     */
+    private static final Pattern REGION_OF_AVAILABILITY_ZONE = Pattern.compile("^([a-z]{2}(-gov|-iso[a-z]*)?-[a-z]+-\\d+)");
+
+    private static final InstanceMetadata INSTANCE = new InstanceMetadata(INSTANCE_METADATA_URI,
+            System.getProperty(CACHE_FILE_PROPERTY) == null ? null : new File(System.getProperty(CACHE_FILE_PROPERTY)),
+            readBootId());
+
+    private final ConcurrentMap<Key, AwsCompletableFuture<String>> values
+            = new ConcurrentHashMap<Key, AwsCompletableFuture<String>>();
+    private final String baseUri;
+    private final File file;
+    private final String bootId;
+
+    /**
+     * @param baseUri the URI the paths of the keys are relative to
+     * @param file    the file to persist the values in, or {@code null} to keep them in memory only
+     * @param bootId  the boot ID of the instance, or {@code null} if it is not known
+     */
+    InstanceMetadata(String baseUri, File file, String bootId) {
+        this.baseUri = baseUri;
+        this.file = bootId == null ? null : file;
+        this.bootId = bootId;
+        if (this.file != null && this.file.isFile()) {
+            load();
+        }
+    }
+
+    /**
+     * Returns the metadata cache of this JVM.
+     */
+    public static InstanceMetadata get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the value of {@code key}, loading it with the given settings unless it is cached or being loaded.
+     *
+     * @param key              the value to return
+     * @param timeoutInSeconds timeout for the Instance Metadata Service call
+     * @param retries          number of retries in case the call fails, not applied to optional values
+     * @param imdsV1Fallback   whether requests may be made without the IMDSv2 session token if the token cannot be fetched
+     * @return the value, {@code null} only for an optional value which does not exist
+     * @throws InstanceMetadataUnavailableException if the Instance Metadata Service is not reachable
+     */
+    public String get(Key key, int timeoutInSeconds, int retries, boolean imdsV1Fallback) {
+        AwsCompletableFuture<String> value = values.get(key);
+        if (value == null) {
+            AwsCompletableFuture<String> newValue = new AwsCompletableFuture<String>(CALLING_THREAD);
+            value = values.putIfAbsent(key, newValue);
+            if (value == null) {
+                value = newValue;
+                String uri = baseUri.concat(key.path);
+                try {
+                    loaded(newValue, key.optional
+                            ? MetadataUtil.retrieveOptionalMetadataFromURI(uri, timeoutInSeconds, imdsV1Fallback)
+                            : MetadataUtil.retrieveMetadataFromURI(uri, timeoutInSeconds, retries, imdsV1Fallback));
+                } catch (Throwable t) {
+                    failed(key, newValue, t);
+                }
+            }
+        }
+        try {
+            return value.get();
+        } catch (ExecutionException e) {
+            throw ExceptionUtil.rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ExceptionUtil.rethrow(e);
+        }
+    }
+
+    /**
+     * Returns the region of the instance, derived from its cached Availability Zone, so that no further request is needed.
+     * The {@link Key#REGION} value is fetched only if the Availability Zone has an unknown format.
+     *
+     * @see #get(Key, int, int, boolean)
+     */
+    public String getRegion(int timeoutInSeconds, int retries, boolean imdsV1Fallback) {
+        String region = regionOf(get(Key.AVAILABILITY_ZONE, timeoutInSeconds, retries, imdsV1Fallback));
+        return region != null ? region : get(Key.REGION, timeoutInSeconds, retries, imdsV1Fallback);
+    }
+
+    /**
+     * Returns the region of {@code availabilityZone}, or {@code null} if it has an unknown format.
+     */
+    static String regionOf(String availabilityZone) {
+        Matcher matcher = REGION_OF_AVAILABILITY_ZONE.matcher(availabilityZone);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(Key, int, int, boolean)} for values which are not optional: a cached value
+     * completes the returned future right away, a value being loaded completes it with that load, otherwise the request
+     * and its retries run on the {@code scheduler} and the value is cached once they succeed.
+     * <p>
+     * Cancelling the returned future does not cancel the load, which other lookups may be waiting for.
+     */
+    public ICompletableFuture<String> getAsync(final Key key, int timeoutInSeconds, int retries, boolean imdsV1Fallback,
+                                               ScheduledExecutorService scheduler) {
+        AwsCompletableFuture<String> value = values.get(key);
+        if (value == null) {
+            final AwsCompletableFuture<String> newValue = new AwsCompletableFuture<String>(CALLING_THREAD);
+            value = values.putIfAbsent(key, newValue);
+            if (value == null) {
+                value = newValue;
+                MetadataUtil.retrieveMetadataFromURIAsync(baseUri.concat(key.path), timeoutInSeconds, retries,
+                        imdsV1Fallback, scheduler).andThen(new ExecutionCallback<String>() {
+                    @Override
+                    public void onResponse(String response) {
+                        loaded(newValue, response);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        failed(key, newValue, t);
+                    }
+                });
+            }
+        }
+        final AwsCompletableFuture<String> future = new AwsCompletableFuture<String>(scheduler);
+        value.andThen(new ExecutionCallback<String>() {
+            @Override
+            public void onResponse(String response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, CALLING_THREAD);
+        return future;
+    }
+
+    /**
+     * Completes a load, which stays cached.
+     */
+    private void loaded(AwsCompletableFuture<String> value, String response) {
+        value.complete(response);
+        if (response != null) {
+            persist();
+        }
+    }
+
+    /**
+     * Fails a load, which is removed first, so that the lookups following it fetch again.
+     */
+    private void failed(Key key, AwsCompletableFuture<String> value, Throwable failure) {
+        values.remove(key, value);
+        value.completeExceptionally(failure);
+    }
+
+    private static AwsCompletableFuture<String> completed(String value) {
+        AwsCompletableFuture<String> future = new AwsCompletableFuture<String>(CALLING_THREAD);
+        future.complete(value);
+        return future;
+    }
+
+    private void load() {
+        Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            properties.load(in);
+        } catch (IOException e) {
+            LOGGER.warning("Cannot load the instance metadata from " + file + ": " + e.getMessage());
+            return;
+        } finally {
+            closeResource(in);
+        }
+        if (!bootId.equals(properties.getProperty(BOOT_ID_ENTRY))) {
+            LOGGER.info("Ignoring the instance metadata in " + file + ", it has been persisted before a reboot or on"
+                    + " another instance");
+            return;
+        }
+        for (Key key : Key.values()) {
+            String value = properties.getProperty(key.name());
+            if (value != null) {
+                values.put(key, completed(value));
+            }
+        }
+    }
+
+    private synchronized void persist() {
+        if (file == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(BOOT_ID_ENTRY, bootId);
+        for (Map.Entry<Key, AwsCompletableFuture<String>> entry : values.entrySet()) {
+            String value = loadedValue(entry.getValue());
+            if (value != null) {
+                properties.setProperty(entry.getKey().name(), value);
+            }
+        }
+        File temporary = new File(file.getPath() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(temporary);
+            properties.store(out, "Instance metadata cache");
+            out.close();
+            if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+                throw new IOException("Cannot rename " + temporary + " to " + file);
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Cannot persist the instance metadata to " + file + ": " + e.getMessage());
+        } finally {
+            closeResource(out);
+        }
+    }
+
+    /**
+     * Returns the value loaded by {@code value}, or {@code null} if it is still loading, has failed or does not exist.
+     */
+    private static String loadedValue(AwsCompletableFuture<String> value) {
+        if (!value.isDone()) {
+            return null;
+        }
+        try {
+            return value.get();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String readBootId() {
+        File bootIdFile = new File(BOOT_ID_FILE);
+        if (!bootIdFile.isFile()) {
+            return null;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(bootIdFile), "UTF-8"));
+            String bootId = reader.readLine();
+            return bootId == null || bootId.trim().length() == 0 ? null : bootId.trim();
+        } catch (IOException e) {
+            LOGGER.finest(e);
+            return null;
+        } finally {
+            closeResource(reader);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.config.InvalidConfigurationException;
+
+/**
+ * Thrown without contacting the Instance Metadata Service when it has been detected as not reachable, i.e. the member
+ * is not running on EC2.
+ *
+ * @see RuntimeEnvironment
+ */
+public class InstanceMetadataUnavailableException
+        extends InvalidConfigurationException {
+
+    public InstanceMetadataUnavailableException(String uri) {
+        super("Unable to lookup " + uri + ", the Instance Metadata Service is not reachable (not running on EC2?)");
+    }
+}
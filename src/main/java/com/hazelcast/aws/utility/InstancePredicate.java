@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.util.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Client-side selection of the discovered instances by rules that EC2 filters cannot express, compiled once from an
+ * expression and evaluated per instance while the DescribeInstances response is parsed.
+ * <p>
+ * The expression is a list of conditions separated by {@code &&}, all of which must hold:
+ * <ul>
+ * <li>{@code tag:KEY} / {@code !tag:KEY}: the instance has / does not have the tag</li>
+ * <li>{@code tag:KEY = VALUE}, {@code tag:KEY != VALUE}, {@code tag:KEY ~ REGEX}: the tag value equals / differs from
+ * the value or fully matches the regular expression; a missing tag only satisfies {@code !=}</li>
+ * <li>{@code private-ip in CIDR}, {@code public-ip in CIDR}: the IPv4 address is in the block, e.g. 10.0.0.0/16</li>
+ * <li>{@code launch-time OP TIMESTAMP}: the launch time compared with {@code <}, {@code <=}, {@code >} or {@code >=} to
+ * an ISO 8601 UTC timestamp, e.g. 2020-01-15T00:00:00Z</li>
+ * <li>{@code launch-age OP DURATION}: the time since the launch compared to a duration in seconds, minutes, hours or
+ * days, e.g. 90s, 5m, 2h, 7d</li>
+ * </ul>
+ * For example {@code tag:Name ~ hz-.* && !tag:draining && private-ip in 10.0.0.0/16 && launch-age > 2m}.
+ */
+public final class InstancePredicate {
+    /**
+     * Predicate accepting all the instances.
+     */
+    public static final InstancePredicate ACCEPT_ALL = new InstancePredicate("", new Condition[0]);
+
+    private static final Pattern TAG_PRESENCE = Pattern.compile("^(!?)tag:([A-Za-z0-9:._/@+-]+)$");
+    private static final Pattern CONDITION = Pattern.compile("^([A-Za-z0-9:._/@+-]+)\\s*(!=|<=|>=|=|~|<|>|\\bin\\b)\\s*(.+)$");
+    private static final Pattern DURATION = Pattern.compile("^(\\d+)([smhd])$");
+    private static final int IPV4_BITS = 32;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int IPV4_BYTES = 4;
+    private static final String TIMESTAMP_SEPARATORS = "    -  -  T  :  :  ";
+    private static final int TIMESTAMP_LENGTH = TIMESTAMP_SEPARATORS.length() + 1;
+
+    private final String expression;
+    private final Condition[] conditions;
+
+    private InstancePredicate(String expression, Condition[] conditions) {
+        this.expression = expression;
+        this.conditions = conditions;
+    }
+
+    /**
+     * Attributes of an instance read by the predicate, looked up lazily so that a rejected instance costs as little as
+     * possible.
+     */
+    public interface Instance {
+
+        /**
+         * @return the value of the tag or {@code null} if the instance does not have the tag
+         */
+        String getTag(String key);
+
+        String getPrivateIp();
+
+        /**
+         * @return the public IP or {@code null} if the instance has none
+         */
+        String getPublicIp();
+
+        /**
+         * @return the launch time as an ISO 8601 UTC timestamp or {@code null} if unknown
+         */
+        String getLaunchTime();
+    }
+
+    /**
+     * Compiles the expression.
+     *
+     * @param expression the expression, {@code null} or empty to accept all the instances
+     * @return the compiled predicate
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static InstancePredicate compile(String expression) {
+        if (expression == null || expression.trim().length() == 0) {
+            return ACCEPT_ALL;
+        }
+        List<Condition> conditions = new ArrayList<Condition>();
+        for (String condition : expression.split("&&")) {
+            conditions.add(compileCondition(condition.trim()));
+        }
+        return new InstancePredicate(expression, conditions.toArray(new Condition[0]));
+    }
+
+    /**
+     * Returns whether the instance satisfies all the conditions.
+     */
+    public boolean matches(Instance instance) {
+        long now = conditions.length == 0 ? 0 : Clock.currentTimeMillis();
+        for (Condition condition : conditions) {
+            if (!condition.matches(instance, now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isAcceptAll() {
+        return conditions.length == 0;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private static Condition compileCondition(String condition) {
+        Matcher presence = TAG_PRESENCE.matcher(condition);
+        if (presence.matches()) {
+            return new TagPresence(presence.group(2), presence.group(1).length() == 0);
+        }
+        Matcher matcher = CONDITION.matcher(condition);
+        if (!matcher.matches()) {
+            throw invalid(condition, "expected 'tag:KEY', '!tag:KEY' or 'ATTRIBUTE OPERATOR VALUE'");
+        }
+        String attribute = matcher.group(1);
+        String operator = matcher.group(2);
+        String value = matcher.group(3).trim();
+        if (attribute.startsWith("tag:")) {
+            return compileTagCondition(tagKey(attribute, condition), operator, value, condition);
+        } else if ("private-ip".equals(attribute) || "public-ip".equals(attribute)) {
+            return compileIpCondition("private-ip".equals(attribute), operator, value, condition);
+        } else if ("launch-time".equals(attribute)) {
+            Long timestamp = parseTimestamp(value);
+            if (timestamp == null) {
+                throw invalid(condition, "expected an ISO 8601 UTC timestamp like 2020-01-15T00:00:00Z");
+            }
+            return new LaunchTime(comparison(operator, condition), timestamp, false);
+        } else if ("launch-age".equals(attribute)) {
+            return new LaunchTime(comparison(operator, condition), parseDuration(value, condition), true);
+        }
+        throw invalid(condition, "unknown attribute '" + attribute + "'");
+    }
+
+    private static String tagKey(String attribute, String condition) {
+        String key = attribute.substring("tag:".length());
+        if (key.length() == 0) {
+            throw invalid(condition, "missing tag key");
+        }
+        return key;
+    }
+
+    private static Condition compileTagCondition(String key, String operator, String value, String condition) {
+        if ("=".equals(operator) || "!=".equals(operator)) {
+            return new TagValue(key, value, "=".equals(operator));
+        }
+        if ("~".equals(operator)) {
+            try {
+                return new TagRegex(key, Pattern.compile(value));
+            } catch (PatternSyntaxException e) {
+                throw invalid(condition, e.getDescription());
+            }
+        }
+        throw invalid(condition, "tags support the operators =, != and ~");
+    }
+
+    private static Condition compileIpCondition(boolean privateIp, String operator, String value, String condition) {
+        if (!"in".equals(operator)) {
+            throw invalid(condition, "IPs support the operator in");
+        }
+        int slash = value.indexOf('/');
+        Integer address = parseIpv4(slash < 0 ? value : value.substring(0, slash));
+        int prefix = slash < 0 ? IPV4_BITS : parsePrefix(value.substring(slash + 1));
+        if (address == null || prefix < 0 || prefix > IPV4_BITS) {
+            throw invalid(condition, "expected an IPv4 CIDR block like 10.0.0.0/16");
+        }
+        int mask = prefix == 0 ? 0 : -1 << (IPV4_BITS - prefix);
+        return new IpInCidr(privateIp, address & mask, mask);
+    }
+
+    private static int parsePrefix(String prefix) {
+        try {
+            return Integer.parseInt(prefix);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Comparison comparison(String operator, String condition) {
+        for (Comparison comparison : Comparison.values()) {
+            if (comparison.operator.equals(operator)) {
+                return comparison;
+            }
+        }
+        throw invalid(condition, "launch times support the operators <, <=, > and >=");
+    }
+
+    private static long parseDuration(String value, String condition) {
+        Matcher matcher = DURATION.matcher(value);
+        if (!matcher.matches()) {
+            throw invalid(condition, "expected a duration like 90s, 5m, 2h or 7d");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        char unit = matcher.group(2).charAt(0);
+        if (unit == 's') {
+            return TimeUnit.SECONDS.toMillis(amount);
+        } else if (unit == 'm') {
+            return TimeUnit.MINUTES.toMillis(amount);
+        } else if (unit == 'h') {
+            return TimeUnit.HOURS.toMillis(amount);
+        }
+        return TimeUnit.DAYS.toMillis(amount);
+    }
+
+    private static IllegalArgumentException invalid(String condition, String reason) {
+        return new IllegalArgumentException("Invalid instance predicate condition '" + condition + "': " + reason);
+    }
+
+    /**
+     * Parses a dotted IPv4 address without allocating.
+     *
+     * @return the address as a 32-bit integer or {@code null} if it is not an IPv4 address
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    static Integer parseIpv4(String ip) {
+        int address = 0;
+        int octet = -1;
+        int octets = 0;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (octet < 0 || ++octets > IPV4_BYTES) {
+                    return null;
+                }
+                address = (address << BITS_PER_BYTE) | octet;
+                octet = -1;
+            } else if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > BYTE_MASK) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return octets == IPV4_BYTES ? address : null;
+    }
+
+    /**
+     * Parses an ISO 8601 UTC timestamp like "2011-09-27T11:37:35.000Z", ignoring the fraction of second.
+     *
+     * @return epoch milliseconds or {@code null} if the value is not such a timestamp
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    static Long parseTimestamp(String value) {
+        // yyyy-MM-ddTHH:mm:ss followed by an optional fraction and Z
+        if (value.length() < TIMESTAMP_LENGTH || value.charAt(value.length() - 1) != 'Z') {
+            return null;
+        }
+        for (int i = 0; i < TIMESTAMP_SEPARATORS.length(); i++) {
+            char separator = TIMESTAMP_SEPARATORS.charAt(i);
+            if (separator != ' ' && value.charAt(i) != separator) {
+                return null;
+            }
+        }
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        long days = daysFromCivil(digits(value, 0, 4), month, day);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        int second = digits(value, 17, 2);
+        if (days == Long.MIN_VALUE || (hour | minute | second) < 0) {
+            return null;
+        }
+        return TimeUnit.DAYS.toMillis(days) + TimeUnit.HOURS.toMillis(hour) + TimeUnit.MINUTES.toMillis(minute)
+                + TimeUnit.SECONDS.toMillis(second);
+    }
+
+    @SuppressWarnings("checkstyle:magicnumber")
+    private static int digits(String value, int offset, int count) {
+        int result = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Days since 1970-01-01 of the proleptic Gregorian date or {@link Long#MIN_VALUE} if the fields are out of range,
+     * see http://howardhinnant.github.io/date_algorithms.html.
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    private static long daysFromCivil(int year, int month, int day) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return Long.MIN_VALUE;
+        }
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private interface Condition {
+        boolean matches(Instance instance, long now);
+    }
+
+    private static final class TagPresence
+            implements Condition {
+        private final String key;
+        private final boolean present;
+
+        TagPresence(String key, boolean present) {
+            this.key = key;
+            this.present = present;
+        }
+
+        @Override
+        public boolean matches(Instance instance, long now) {
+            return (instance.getTag(key) != null) == present;
+        }
+    }
+
+    private static final class TagValue
+            implements Condition {
+        private final String key;
+        private final String value;
+        private final boolean equal;
+
+        TagValue(String key, String value, boolean equal) {
+            this.key = key;
+            this.value = value;
+            this.equal = equal;
+        }
+
+        @Override
+        public boolean matches(Instance instance, long now) {
+            return value.equals(instance.getTag(key)) == equal;
+        }
+    }
+
+    private static final class TagRegex
+            implements Condition {
+        private final String key;
+        private final Pattern pattern;
+
+        TagRegex(String key, Pattern pattern) {
+            this.key = key;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean matches(Instance instance, long now) {
+            String value = instance.getTag(key);
+            return value != null && pattern.matcher(value).matches();
+        }
+    }
+
+    private static final class IpInCidr
+            implements Condition {
+        private final boolean privateIp;
+        private final int network;
+        private final int mask;
+
+        IpInCidr(boolean privateIp, int network, int mask) {
+            this.privateIp = privateIp;
+            this.network = network;
+            this.mask = mask;
+        }
+
+        @Override
+        public boolean matches(Instance instance, long now) {
+            String ip = privateIp ? instance.getPrivateIp() : instance.getPublicIp();
+            Integer address = ip == null ? null : parseIpv4(ip);
+            return address != null && (address & mask) == network;
+        }
+    }
+
+    private enum Comparison {
+        LESS("<"), LESS_OR_EQUAL("<="), GREATER_OR_EQUAL(">="), GREATER(">");
+
+        private final String operator;
+
+        Comparison(String operator) {
+            this.operator = operator;
+        }
+
+        boolean compare(long actual, long operand) {
+            switch (this) {
+                case LESS:
+                    return actual < operand;
+                case LESS_OR_EQUAL:
+                    return actual <= operand;
+                case GREATER_OR_EQUAL:
+                    return actual >= operand;
+                default:
+                    return actual > operand;
+            }
+        }
+    }
+
+    private static final class LaunchTime
+            implements Condition {
+        private final Comparison comparison;
+        private final long operand;
+        private final boolean age;
+
+        LaunchTime(Comparison comparison, long operand, boolean age) {
+            this.comparison = comparison;
+            this.operand = operand;
+            this.age = age;
+        }
+
+        @Override
+        public boolean matches(Instance instance, long now) {
+            String launchTime = instance.getLaunchTime();
+            Long launchMillis = launchTime == null ? null : parseTimestamp(launchTime);
+            return launchMillis != null && comparison.compare(age ? now - launchMillis : launchMillis, operand);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+import com.hazelcast.util.Clock;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Session token of the Instance Metadata Service Version 2 (IMDSv2).
+ * <p>
+ * The token is fetched with a single {@code PUT} request and then shared by all the metadata lookups until shortly before
+ * it expires. Within the last {@link #REFRESH_BEFORE_EXPIRATION_MS} of its lifetime, one caller fetches a new token while
+ * the others keep using the current one, so the lookups never wait for the token once it has been fetched.
+ * <p>
+ * When the token cannot be fetched and the lookups may fall back to IMDSv1 (e.g. IMDSv1-only hosts, or containers whose
+ * {@code PUT} response is dropped by a hop limit of 1), the fallback is remembered for {@link #FALLBACK_TTL_MS}, so that
+ * the lookups do not wait for the {@code PUT} timeout every time; the token is requested again after that.
+ * <p>
+ * See https://docs.aws.amazon.com/AWSEC2/latest/UserGuide/configuring-instance-metadata-service.html.
+ */
+public final class MetadataSessionToken {
+    static final int TOKEN_TTL_SECONDS = 21600;
+    static final long REFRESH_BEFORE_EXPIRATION_MS = TimeUnit.MINUTES.toMillis(10);
+    static final long FALLBACK_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    static final String TOKEN_TTL_HEADER = "X-aws-ec2-metadata-token-ttl-seconds";
+    static final String TOKEN_HEADER = "X-aws-ec2-metadata-token";
+
+    private static final ILogger LOGGER = Logger.getLogger(MetadataSessionToken.class);
+
+    private final String tokenUri;
+    private final long fallbackTtlMillis;
+    private final Lock fetchLock = new ReentrantLock();
+
+    private volatile String token;
+    private volatile long expirationMillis;
+    private volatile long fallbackUntilMillis;
+
+    /**
+     * @param tokenUri the URI where a {@code PUT} request returns a new session token
+     */
+    public MetadataSessionToken(String tokenUri) {
+        this(tokenUri, FALLBACK_TTL_MS);
+    }
+
+    MetadataSessionToken(String tokenUri, long fallbackTtlMillis) {
+        this.tokenUri = tokenUri;
+        this.fallbackTtlMillis = fallbackTtlMillis;
+    }
+
+    /**
+     * Returns the cached session token, fetching it first if there is no valid one.
+     *
+     * @param timeoutInSeconds timeout for fetching the token
+     * @return the session token
+     * @throws IOException if there is no valid token and a new one cannot be fetched
+     */
+    public String get(int timeoutInSeconds)
+            throws IOException {
+        return get(timeoutInSeconds, false);
+    }
+
+    /**
+     * Returns the cached session token, fetching it first if there is no valid one, or {@code null} if it cannot be fetched
+     * and the lookups should fall back to IMDSv1. After a failed fetch, {@code null} is returned without fetching the
+     * token again for {@link #FALLBACK_TTL_MS}.
+     *
+     * @param timeoutInSeconds timeout for fetching the token
+     * @return the session token or {@code null}
+     */
+    public String getOrFallBack(int timeoutInSeconds) {
+        try {
+            return get(timeoutInSeconds, true);
+        } catch (IOException e) {
+            LOGGER.fine("Cannot fetch the IMDSv2 session token, falling back to IMDSv1 for the next "
+                    + TimeUnit.MILLISECONDS.toSeconds(fallbackTtlMillis) + " seconds: " + e);
+            return null;
+        }
+    }
+
+    private String get(int timeoutInSeconds, boolean fallBack)
+            throws IOException {
+        String current = token;
+        long now = Clock.currentTimeMillis();
+        if (current != null && now < expirationMillis - REFRESH_BEFORE_EXPIRATION_MS) {
+            return current;
+        }
+        if (current != null && now < expirationMillis) {
+            refreshProactively(timeoutInSeconds);
+            return token;
+        }
+        if (fallBack && now < fallbackUntilMillis) {
+            return null;
+        }
+
+        fetchLock.lock();
+        try {
+            if (token == null || Clock.currentTimeMillis() >= expirationMillis) {
+                if (fallBack && Clock.currentTimeMillis() < fallbackUntilMillis) {
+                    // a concurrent lookup has just failed to fetch it
+                    return null;
+                }
+                fetchOrRememberFailure(timeoutInSeconds);
+            }
+            return token;
+        } finally {
+            fetchLock.unlock();
+        }
+    }
+
+    private void refreshProactively(int timeoutInSeconds) {
+        if (!fetchLock.tryLock()) {
+            // another thread is refreshing it already
+            return;
+        }
+        try {
+            if (Clock.currentTimeMillis() >= expirationMillis - REFRESH_BEFORE_EXPIRATION_MS) {
+                fetch(timeoutInSeconds);
+            }
+        } catch (IOException e) {
+            LOGGER.finest("Cannot refresh the IMDSv2 session token, the current one is still valid", e);
+        } finally {
+            fetchLock.unlock();
+        }
+    }
+
+    /**
+     * Discards the cached token, e.g. after the Instance Metadata Service rejected it.
+     */
+    public void invalidate() {
+        token = null;
+    }
+
+    private void fetchOrRememberFailure(int timeoutInSeconds)
+            throws IOException {
+        try {
+            fetch(timeoutInSeconds);
+        } catch (IOException e) {
+            fallbackUntilMillis = Clock.currentTimeMillis() + fallbackTtlMillis;
+            throw e;
+        }
+    }
+
+    private void fetch(int timeoutInSeconds)
+            throws IOException {
+        long requestedAt = Clock.currentTimeMillis();
+        HttpURLConnection connection = (HttpURLConnection) new URL(tokenUri).openConnection();
+        try {
+            connection.setRequestMethod("PUT");
+            connection.setRequestProperty(TOKEN_TTL_HEADER, String.valueOf(TOKEN_TTL_SECONDS));
+            connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(timeoutInSeconds));
+            connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(timeoutInSeconds));
+            Scanner scanner = new Scanner(connection.getInputStream(), "UTF-8").useDelimiter("\\A");
+            String newToken = scanner.hasNext() ? scanner.next().trim() : "";
+            scanner.close();
+            if (newToken.isEmpty()) {
+                throw new IOException("Empty IMDSv2 session token received from " + tokenUri);
+            }
+            expirationMillis = requestedAt + TimeUnit.SECONDS.toMillis(TOKEN_TTL_SECONDS);
+            token = newToken;
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -17,15 +17,19 @@
 package com.hazelcast.aws.utility;
 
 import com.hazelcast.config.InvalidConfigurationException;
+import com.hazelcast.core.ICompletableFuture;
 import com.hazelcast.logging.ILogger;
 import com.hazelcast.logging.Logger;
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public final class MetadataUtil {
@@ -37,6 +41,11 @@ public final class MetadataUtil {
      */
     public static final String INSTANCE_METADATA_URI = "http://169.254.169.254/latest/meta-data/";
 
+    /**
+     * URI to fetch the IMDSv2 session token with a {@code PUT} request.
+     */
+    public static final String INSTANCE_METADATA_TOKEN_URI = "http://169.254.169.254/latest/api/token";
+
     /**
      * Post-fix URI to fetch IAM role details
      */
@@ -47,35 +56,141 @@ public final class MetadataUtil {
      */
     public static final String AVAILABILITY_ZONE_URI = "placement/availability-zone/";
 
+    /**
+     * Post-fix URI of the pending Spot Instance interruption, present only during the two-minute warning.
+     */
+    public static final String SPOT_INSTANCE_ACTION_URI = "spot/instance-action";
+
+    /**
+     * Post-fix URI of the rebalance recommendation of a Spot Instance at an elevated risk of interruption.
+     */
+    public static final String REBALANCE_RECOMMENDATION_URI = "events/recommendations/rebalance";
+
     private static final ILogger LOGGER = Logger.getLogger(MetadataUtil.class);
 
+    private static final String INSTANCE_METADATA_HOST_URI = "http://169.254.169.254/";
+
+    /**
+     * The IMDSv2 session token shared by all the metadata lookups of the JVM.
+     */
+    private static final MetadataSessionToken SESSION_TOKEN = new MetadataSessionToken(INSTANCE_METADATA_TOKEN_URI);
+
     private MetadataUtil() {
     }
 
     /**
      * Performs the HTTP request to retrieve AWS Instance Metadata from the given URI.
+     * <p>
+     * Requests to the Instance Metadata Service are made with the cached IMDSv2 session token. If the token cannot be
+     * fetched, they fall back to IMDSv1.
      *
      * @param uri              the full URI where a `GET` request will retrieve the metadata information, represented as JSON.
      * @param timeoutInSeconds timeout for the AWS service call
      * @return The content of the HTTP response, as a String. NOTE: This is NEVER null.
      */
     public static String retrieveMetadataFromURI(String uri, int timeoutInSeconds) {
+        return retrieveMetadataFromURI(uri, timeoutInSeconds, true);
+    }
+
+    /**
+     * Performs the HTTP request to retrieve AWS Instance Metadata from the given URI.
+     *
+     * @param uri              the full URI where a `GET` request will retrieve the metadata information, represented as JSON.
+     * @param timeoutInSeconds timeout for the AWS service call
+     * @param imdsV1Fallback   whether requests to the Instance Metadata Service may be made without the IMDSv2 session token
+     *                         if the token cannot be fetched
+     * @return The content of the HTTP response, as a String. NOTE: This is NEVER null.
+     */
+    public static String retrieveMetadataFromURI(String uri, int timeoutInSeconds, boolean imdsV1Fallback) {
+        boolean instanceMetadata = isInstanceMetadataURI(uri);
+        MetadataSessionToken sessionToken = instanceMetadata ? SESSION_TOKEN : null;
+        return retrieveMetadataFromURI(uri, timeoutInSeconds, imdsV1Fallback, sessionToken);
+    }
+
+    /**
+     * Returns whether the given URI belongs to the Instance Metadata Service and the service has been detected as
+     * reachable, see {@link RuntimeEnvironment}.
+     *
+     * @throws InstanceMetadataUnavailableException if the URI belongs to the Instance Metadata Service and the service is
+     *                                              not reachable
+     */
+    private static boolean isInstanceMetadataURI(String uri) {
+        if (!uri.startsWith(INSTANCE_METADATA_HOST_URI)) {
+            return false;
+        }
+        if (!RuntimeEnvironment.get().isInstanceMetadataAvailable()) {
+            throw new InstanceMetadataUnavailableException(uri);
+        }
+        return true;
+    }
+
+    /**
+     * @param sessionToken the IMDSv2 session token to send or {@code null} if the URI does not belong to the Instance
+     *                     Metadata Service
+     */
+    static String retrieveMetadataFromURI(String uri, int timeoutInSeconds, boolean imdsV1Fallback,
+                                          MetadataSessionToken sessionToken) {
+        try {
+            String token = sessionToken == null ? null : getSessionToken(sessionToken, timeoutInSeconds, imdsV1Fallback);
+            try {
+                return readFromURI(uri, timeoutInSeconds, token);
+            } catch (UnauthorizedException e) {
+                // the token has been rejected, e.g. because the Instance Metadata Service restarted
+                sessionToken.invalidate();
+                return readFromURI(uri, timeoutInSeconds, getSessionToken(sessionToken, timeoutInSeconds, imdsV1Fallback));
+            }
+        } catch (IOException io) {
+            throw new InvalidConfigurationException("Unable to lookup role in URI: " + uri, io);
+        }
+    }
+
+    /**
+     * Performs the HTTP request to retrieve AWS Instance Metadata which exists only while an event is pending, e.g.
+     * {@link #SPOT_INSTANCE_ACTION_URI}.
+     *
+     * @param uri              the full URI where a `GET` request will retrieve the metadata information
+     * @param timeoutInSeconds timeout for the AWS service call
+     * @param imdsV1Fallback   whether requests to the Instance Metadata Service may be made without the IMDSv2 session token
+     *                         if the token cannot be fetched
+     * @return The content of the HTTP response or {@code null} if the metadata does not exist (HTTP 404).
+     */
+    public static String retrieveOptionalMetadataFromURI(String uri, int timeoutInSeconds, boolean imdsV1Fallback) {
+        boolean instanceMetadata = isInstanceMetadataURI(uri);
+        MetadataSessionToken sessionToken = instanceMetadata ? SESSION_TOKEN : null;
+        return retrieveOptionalMetadataFromURI(uri, timeoutInSeconds, imdsV1Fallback, sessionToken);
+    }
+
+    static String retrieveOptionalMetadataFromURI(String uri, int timeoutInSeconds, boolean imdsV1Fallback,
+                                                  MetadataSessionToken sessionToken) {
+        try {
+            return retrieveMetadataFromURI(uri, timeoutInSeconds, imdsV1Fallback, sessionToken);
+        } catch (InvalidConfigurationException e) {
+            if (e.getCause() instanceof FileNotFoundException) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private static String getSessionToken(MetadataSessionToken sessionToken, int timeoutInSeconds, boolean imdsV1Fallback)
+            throws IOException {
+        return imdsV1Fallback ? sessionToken.getOrFallBack(timeoutInSeconds) : sessionToken.get(timeoutInSeconds);
+    }
+
+    private static String readFromURI(String uri, int timeoutInSeconds, String token)
+            throws IOException {
         StringBuilder response = new StringBuilder();
 
         InputStreamReader is = null;
         BufferedReader reader = null;
         try {
-            URLConnection url = new URL(uri).openConnection();
-            url.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(timeoutInSeconds));
-            is = new InputStreamReader(url.getInputStream(), "UTF-8");
+            is = new InputStreamReader(openConnection(uri, timeoutInSeconds, token).getInputStream(), "UTF-8");
             reader = new BufferedReader(is);
             String resp;
             while ((resp = reader.readLine()) != null) {
                 response = response.append(resp);
             }
             return response.toString();
-        } catch (IOException io) {
-            throw new InvalidConfigurationException("Unable to lookup role in URI: " + uri, io);
         } finally {
             if (is != null) {
                 try {
@@ -94,6 +209,19 @@ public final class MetadataUtil {
         }
     }
 
+    private static URLConnection openConnection(String uri, int timeoutInSeconds, String token)
+            throws IOException {
+        URLConnection url = new URL(uri).openConnection();
+        url.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(timeoutInSeconds));
+        if (token != null) {
+            url.setRequestProperty(MetadataSessionToken.TOKEN_HEADER, token);
+            if (((HttpURLConnection) url).getResponseCode() == HttpURLConnection.HTTP_UNAUTHORIZED) {
+                throw new UnauthorizedException(uri);
+            }
+        }
+        return url;
+    }
+
     /**
      * Performs the HTTP request to retrieve AWS Instance Metadata from the given URI.
      *
@@ -103,11 +231,55 @@ public final class MetadataUtil {
      * @return The content of the HTTP response, as a String. NOTE: This is NEVER null.
      */
     public static String retrieveMetadataFromURI(final String uri, final int timeoutInSeconds, int retries) {
+        return retrieveMetadataFromURI(uri, timeoutInSeconds, retries, true);
+    }
+
+    /**
+     * Performs the HTTP request to retrieve AWS Instance Metadata from the given URI.
+     *
+     * @param uri              the full URI where a `GET` request will retrieve the metadata information, represented as JSON.
+     * @param timeoutInSeconds timeout for the AWS service call
+     * @param retries          number of retries in case the AWS request fails
+     * @param imdsV1Fallback   whether requests to the Instance Metadata Service may be made without the IMDSv2 session token
+     *                         if the token cannot be fetched
+     * @return The content of the HTTP response, as a String. NOTE: This is NEVER null.
+     */
+    public static String retrieveMetadataFromURI(final String uri, final int timeoutInSeconds, int retries,
+                                                 final boolean imdsV1Fallback) {
+        // fail fast without retries when not running on EC2
+        isInstanceMetadataURI(uri);
         return RetryUtils.retry(new Callable<String>() {
             @Override
             public String call() {
-                return retrieveMetadataFromURI(uri, timeoutInSeconds);
+                return retrieveMetadataFromURI(uri, timeoutInSeconds, imdsV1Fallback);
             }
         }, retries);
     }
+
+    /**
+     * Asynchronous variant of {@link #retrieveMetadataFromURI(String, int, int, boolean)}: the request and its retries run
+     * on the {@code scheduler}, see {@link RetryUtils#retryAsync(Callable, int, ScheduledExecutorService)}.
+     *
+     * @return future completed with the content of the HTTP response
+     */
+    public static ICompletableFuture<String> retrieveMetadataFromURIAsync(final String uri, final int timeoutInSeconds,
+                                                                       int retries, final boolean imdsV1Fallback,
+                                                                       ScheduledExecutorService scheduler) {
+        return RetryUtils.retryAsync(new Callable<String>() {
+            @Override
+            public String call() {
+                return retrieveMetadataFromURI(uri, timeoutInSeconds, imdsV1Fallback);
+            }
+        }, retries, scheduler);
+    }
+
+    /**
+     * Thrown when the Instance Metadata Service rejects the IMDSv2 session token.
+     */
+    private static final class UnauthorizedException
+            extends IOException {
+        UnauthorizedException(String uri) {
+            super("IMDSv2 session token rejected by " + uri);
+        }
+    }
 }
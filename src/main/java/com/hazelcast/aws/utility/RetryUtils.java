@@ -16,12 +16,17 @@
 
 package com.hazelcast.aws.utility;
 
+import com.hazelcast.aws.metrics.DiscoveryMetrics;
 import com.hazelcast.core.HazelcastException;
+import com.hazelcast.core.ICompletableFuture;
 import com.hazelcast.logging.ILogger;
 import com.hazelcast.logging.Logger;
 import com.hazelcast.util.ExceptionUtil;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Static utility class to retry operations related to connecting to AWS Services.
@@ -43,6 +48,8 @@ public final class RetryUtils {
      * <p>
      * Note that {@code callable} should be an idempotent operation which is a call to the AWS Service.
      * <p>
+     * An {@link InstanceMetadataUnavailableException} is not retried.
+     * <p>
      * If {@code callable} throws an unchecked exception, it is wrapped into {@link HazelcastException}.
      */
     public static <T> T retry(Callable<T> callable, int retries) {
@@ -52,9 +59,10 @@ public final class RetryUtils {
                 return callable.call();
             } catch (Exception e) {
                 retryCount++;
-                if (retryCount > retries) {
+                if (retryCount > retries || !isRetryable(e)) {
                     throw ExceptionUtil.rethrow(e);
                 }
+                DiscoveryMetrics.get().recordRetry();
                 long waitIntervalMs = backoffIntervalForRetry(retryCount);
                 LOGGER.warning(String.format("Couldn't connect to the AWS service, [%s] retrying in %s seconds...", retryCount,
                         waitIntervalMs / MS_IN_SECOND));
@@ -63,6 +71,27 @@ public final class RetryUtils {
         }
     }
 
+    /**
+     * Asynchronous variant of {@link #retry(Callable, int)}: the calls run on the {@code scheduler} and the retries are
+     * scheduled after the same backoff intervals instead of sleeping, so no thread is blocked between the attempts.
+     * <p>
+     * Cancelling the returned future cancels the pending retry.
+     *
+     * @return future completed with the result of the first successful call, or with the failure of the last call
+     */
+    public static <T> ICompletableFuture<T> retryAsync(Callable<T> callable, int retries, ScheduledExecutorService scheduler) {
+        AsyncRetry<T> retry = new AsyncRetry<T>(callable, retries, scheduler);
+        retry.schedule(0);
+        return retry.future;
+    }
+
+    /**
+     * The unavailability of the Instance Metadata Service is detected once per JVM, so retrying cannot help.
+     */
+    private static boolean isRetryable(Exception e) {
+        return !(e instanceof InstanceMetadataUnavailableException);
+    }
+
     private static long backoffIntervalForRetry(int retryCount) {
         long result = INITIAL_BACKOFF_MS;
         for (int i = 1; i < retryCount; i++) {
@@ -82,4 +111,52 @@ public final class RetryUtils {
             throw new HazelcastException(e);
         }
     }
+
+    /**
+     * Attempt of an asynchronous retry, rescheduling itself until the call succeeds or the retries are exhausted.
+     */
+    private static final class AsyncRetry<T>
+            implements Runnable {
+        private final Callable<T> callable;
+        private final int retries;
+        private final ScheduledExecutorService scheduler;
+        private final AwsCompletableFuture<T> future;
+        private int retryCount;
+
+        AsyncRetry(Callable<T> callable, int retries, ScheduledExecutorService scheduler) {
+            this.callable = callable;
+            this.retries = retries;
+            this.scheduler = scheduler;
+            this.future = new AwsCompletableFuture<T>(scheduler);
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(callable.call());
+            } catch (Exception e) {
+                retryCount++;
+                if (retryCount > retries || !isRetryable(e)) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                DiscoveryMetrics.get().recordRetry();
+                long waitIntervalMs = backoffIntervalForRetry(retryCount);
+                LOGGER.warning(String.format("Couldn't connect to the AWS service, [%s] retrying in %s seconds...", retryCount,
+                        waitIntervalMs / MS_IN_SECOND));
+                schedule(waitIntervalMs);
+            }
+        }
+
+        void schedule(long delayMillis) {
+            try {
+                future.cancelOnCancellation(scheduler.schedule(this, delayMillis, TimeUnit.MILLISECONDS));
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
 }
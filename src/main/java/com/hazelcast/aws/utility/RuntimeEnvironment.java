@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+import com.hazelcast.util.Clock;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.aws.impl.Constants.ECS_CREDENTIALS_ENV_VAR_NAME;
+import static com.hazelcast.aws.utility.MetadataUtil.INSTANCE_METADATA_URI;
+
+/**
+ * Detects the environment the JVM is running in.
+ * <p>
+ * The Instance Metadata Service is probed with a short timeout, so that the metadata lookups fail fast when not running on
+ * EC2 instead of waiting for the connection timeout on every retry. A reachable service is cached for the lifetime of the
+ * JVM; an unreachable one only for {@link #UNAVAILABLE_TTL_MILLIS}, after which the service is probed again, so that a
+ * single slow answer at boot does not disable the metadata lookups, e.g. of the IAM Role credentials, for good. Use
+ * {@link #get()} to access the detected environment, e.g. for diagnostics.
+ */
+public final class RuntimeEnvironment {
+
+    /**
+     * Type of the environment the JVM is running in.
+     */
+    public enum Type {
+        /**
+         * EC2 instance with a reachable Instance Metadata Service.
+         */
+        EC2,
+        /**
+         * ECS container, either on EC2 or on Fargate.
+         */
+        ECS,
+        /**
+         * Neither EC2 nor ECS, e.g. on-premises or CI.
+         */
+        OTHER
+    }
+
+    static final int PROBE_TIMEOUT_MILLIS = 1000;
+    static final long UNAVAILABLE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String[] ECS_ENV_VAR_NAMES = {
+            ECS_CREDENTIALS_ENV_VAR_NAME, "ECS_CONTAINER_METADATA_URI", "ECS_CONTAINER_METADATA_URI_V4",
+    };
+
+    private static final ILogger LOGGER = Logger.getLogger(RuntimeEnvironment.class);
+
+    private static final RuntimeEnvironment INSTANCE =
+            new RuntimeEnvironment(INSTANCE_METADATA_URI, new Environment(), PROBE_TIMEOUT_MILLIS);
+
+    private final String probeUri;
+    private final Environment environment;
+    private final int probeTimeoutMillis;
+    private final long unavailableTtlMillis;
+
+    private volatile boolean instanceMetadataAvailable;
+    private volatile long unavailableUntilMillis;
+    private boolean unavailableLogged;
+
+    RuntimeEnvironment(String probeUri, Environment environment, int probeTimeoutMillis) {
+        this(probeUri, environment, probeTimeoutMillis, UNAVAILABLE_TTL_MILLIS);
+    }
+
+    RuntimeEnvironment(String probeUri, Environment environment, int probeTimeoutMillis, long unavailableTtlMillis) {
+        this.probeUri = probeUri;
+        this.environment = environment;
+        this.probeTimeoutMillis = probeTimeoutMillis;
+        this.unavailableTtlMillis = unavailableTtlMillis;
+    }
+
+    /**
+     * Returns the environment of this JVM.
+     */
+    public static RuntimeEnvironment get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the type of the environment. ECS takes precedence over EC2, since ECS containers on EC2 may reach the
+     * Instance Metadata Service as well.
+     */
+    public Type getType() {
+        for (String name : ECS_ENV_VAR_NAMES) {
+            if (environment.getEnvVar(name) != null) {
+                return Type.ECS;
+            }
+        }
+        return isInstanceMetadataAvailable() ? Type.EC2 : Type.OTHER;
+    }
+
+    /**
+     * Returns whether the Instance Metadata Service is reachable. It is probed on the first call and, while it is not
+     * reachable, again on the first call after {@link #UNAVAILABLE_TTL_MILLIS}.
+     */
+    public boolean isInstanceMetadataAvailable() {
+        if (instanceMetadataAvailable) {
+            return true;
+        }
+        if (Clock.currentTimeMillis() < unavailableUntilMillis) {
+            return false;
+        }
+        synchronized (this) {
+            if (!instanceMetadataAvailable && Clock.currentTimeMillis() >= unavailableUntilMillis) {
+                instanceMetadataAvailable = probe();
+                if (!instanceMetadataAvailable) {
+                    unavailableUntilMillis = Clock.currentTimeMillis() + unavailableTtlMillis;
+                }
+            }
+            return instanceMetadataAvailable;
+        }
+    }
+
+    private boolean probe() {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(probeUri).openConnection();
+            connection.setConnectTimeout(probeTimeoutMillis);
+            connection.setReadTimeout(probeTimeoutMillis);
+            try {
+                // any response, even 401 of IMDSv2-only instances, proves that the service is reachable
+                connection.getResponseCode();
+                return true;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            String message = "Instance Metadata Service is not reachable at " + probeUri + ", not running on EC2; probing again"
+                    + " in " + TimeUnit.MILLISECONDS.toSeconds(unavailableTtlMillis) + " seconds";
+            if (unavailableLogged) {
+                LOGGER.fine(message);
+            } else {
+                LOGGER.info(message);
+                unavailableLogged = true;
+            }
+            LOGGER.finest(e);
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RuntimeEnvironment{type=" + getType() + ", instanceMetadataAvailable=" + isInstanceMetadataAvailable() + '}';
+    }
+}
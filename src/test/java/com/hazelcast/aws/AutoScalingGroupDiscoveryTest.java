@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.emulator.EmulatedInstance;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link AutoScalingGroupDiscovery} against the Auto Scaling and EC2 APIs of the {@link AwsEmulator}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class AutoScalingGroupDiscoveryTest {
+    private static final String GROUP = "hazelcast-asg";
+
+    private AwsEmulator emulator;
+    private AutoScalingGroupDiscovery discovery;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+        AwsConfig awsConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                                       .setAccessKey(AwsEmulator.ACCESS_KEY).setSecretKey(AwsEmulator.SECRET_KEY)
+                                       .setConnectionTimeoutSeconds(5).setConnectionRetries(0)
+                                       .setAutoScalingGroupNames(Arrays.asList(GROUP)).build();
+        discovery = new AutoScalingGroupDiscovery(awsConfig, new AWSClient(awsConfig), new Callable<AwsCredentials>() {
+            @Override
+            public AwsCredentials call() {
+                return new AwsCredentials(AwsEmulator.ACCESS_KEY, AwsEmulator.SECRET_KEY, null);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        emulator.shutdown();
+    }
+
+    @Test
+    public void getAddresses_onlyInServiceInstances()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1");
+        emulator.addInstance("i-2", "10.0.0.2", "54.0.0.2");
+        emulator.addInstance("i-3", "10.0.0.3", "54.0.0.3");
+        emulator.addInstance("i-4", "10.0.0.4", "54.0.0.4");
+        emulator.setAutoScalingInstance(GROUP, "i-1", "InService");
+        emulator.setAutoScalingInstance(GROUP, "i-2", "Pending:Wait");
+        emulator.setAutoScalingInstance(GROUP, "i-3", "Terminating");
+
+        // when
+        Map<String, String> addresses = discovery.getAddresses();
+
+        // then
+        assertEquals(1, addresses.size());
+        assertEquals("54.0.0.1", addresses.get("10.0.0.1"));
+    }
+
+    @Test
+    public void getAddresses_describesInstancesInBatches()
+            throws Exception {
+        // given
+        List<EmulatedInstance> instances = emulator.addInstances(450);
+        for (EmulatedInstance instance : instances) {
+            emulator.setAutoScalingInstance(GROUP, instance.getInstanceId(), "InService");
+        }
+        emulator.setAutoScalingInstance(GROUP, instances.get(0).getInstanceId(), "Terminating:Wait");
+
+        // when
+        Map<String, String> addresses = discovery.getAddresses();
+
+        // then
+        assertEquals(449, addresses.size());
+        assertFalse(addresses.containsKey(instances.get(0).getPrivateIp()));
+        assertTrue(addresses.containsKey(instances.get(449).getPrivateIp()));
+        assertEquals(3, emulator.getDescribeInstancesRequests());
+    }
+
+    @Test
+    public void getAddresses_emptyWithoutInServiceInstances()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1");
+        emulator.setAutoScalingInstance(GROUP, "i-1", "Pending");
+
+        // when
+        Map<String, String> addresses = discovery.getAddresses();
+
+        // then
+        assertTrue(addresses.isEmpty());
+        assertEquals(0, emulator.getDescribeInstancesRequests());
+    }
+
+    @Test
+    public void discoverNodes_ofAutoScalingGroup() {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1");
+        emulator.addInstance("i-2", "10.0.0.2", "54.0.0.2");
+        emulator.addInstance("i-3", "10.0.0.3", "54.0.0.3");
+        emulator.setAutoScalingInstance(GROUP, "i-1", "InService");
+        emulator.setAutoScalingInstance(GROUP, "i-2", "Terminating:Wait");
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("host-header", emulator.getEndpoint());
+        properties.put("access-key", AwsEmulator.ACCESS_KEY);
+        properties.put("secret-key", AwsEmulator.SECRET_KEY);
+        properties.put("connection-retries", 0);
+        properties.put("hz-port", "5701");
+        properties.put("auto-scaling-group-names", GROUP);
+        AwsDiscoveryStrategy strategy = new AwsDiscoveryStrategy(properties);
+
+        // when
+        List<String> addresses = new ArrayList<String>();
+        try {
+            for (DiscoveryNode node : strategy.discoverNodes()) {
+                addresses.add(node.getPrivateAddress().getHost() + ":" + node.getPrivateAddress().getPort());
+            }
+        } finally {
+            strategy.destroy();
+        }
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.1:5701"), addresses);
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.impl.DescribeApi;
+import com.hazelcast.aws.impl.Ec2Instance;
+import com.hazelcast.aws.metrics.DiscoveryMetrics;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.test.AssertTask;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.hazelcast.test.HazelcastTestSupport.assertTrueAllTheTime;
+import static com.hazelcast.test.HazelcastTestSupport.assertTrueEventually;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@link AWSClient} over HTTP against the {@link AwsEmulator}, exercising signing, transport and parsing.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class AwsClientEmulatorTest {
+    private AwsEmulator emulator;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+    }
+
+    @After
+    public void tearDown() {
+        emulator.shutdown();
+    }
+
+    private AwsConfig.Builder configBuilder() {
+        return AwsConfig.builder().setHostHeader(emulator.getEndpoint()).setRegion("us-east-1")
+                        .setAccessKey(AwsEmulator.ACCESS_KEY).setSecretKey(AwsEmulator.SECRET_KEY)
+                        .setConnectionTimeoutSeconds(5).setConnectionRetries(0);
+    }
+
+    @Test
+    public void getAddresses_withFilters()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1").withTag("cluster", "a");
+        emulator.addInstance("i-2", "10.0.0.2", null).withTag("cluster", "a");
+        emulator.addInstance("i-3", "10.0.0.3", "54.0.0.3").withTag("cluster", "b");
+        emulator.addInstance("i-4", "10.0.0.4", "54.0.0.4").withTag("cluster", "a").withState("stopped");
+        emulator.addInstance("i-5", "10.0.0.5", "54.0.0.5").withTag("cluster", "a").withSecurityGroupName("other");
+        AWSClient awsClient = new AWSClient(configBuilder().setTagKey("cluster").setTagValue("a")
+                                                           .setSecurityGroupName("hazelcast").build());
+
+        // when
+        Map<String, String> addresses = awsClient.getAddresses();
+
+        // then
+        assertEquals(2, addresses.size());
+        assertEquals("54.0.0.1", addresses.get("10.0.0.1"));
+        assertTrue(addresses.containsKey("10.0.0.2"));
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void getAddresses_withTagsAndPlacementFilters()
+            throws Exception {
+        // given
+        emulator.addInstances(200);
+        emulator.addInstance("i-a1", "10.1.0.1", null).withTag("cluster", "prod").withTag("team", "data")
+                .withVpcId("vpc-1").withSubnetId("subnet-a").withInstanceType("r5.xlarge").withPlacementGroup("pg");
+        emulator.addInstance("i-a2", "10.1.0.2", null).withTag("cluster", "staging").withTag("team", "data")
+                .withVpcId("vpc-1").withSubnetId("subnet-b").withInstanceType("r5.2xlarge").withPlacementGroup("pg");
+        emulator.addInstance("i-b1", "10.1.0.3", null).withTag("cluster", "prod")
+                .withVpcId("vpc-1").withSubnetId("subnet-a").withInstanceType("r5.xlarge").withPlacementGroup("pg");
+        emulator.addInstance("i-b2", "10.1.0.4", null).withTag("cluster", "prod").withTag("team", "data")
+                .withVpcId("vpc-2").withSubnetId("subnet-a").withInstanceType("r5.xlarge").withPlacementGroup("pg");
+        emulator.addInstance("i-b3", "10.1.0.5", null).withTag("cluster", "prod").withTag("team", "data")
+                .withVpcId("vpc-1").withSubnetId("subnet-c").withInstanceType("r5.xlarge").withPlacementGroup("pg");
+        emulator.addInstance("i-b4", "10.1.0.6", null).withTag("cluster", "prod").withTag("team", "data")
+                .withVpcId("vpc-1").withSubnetId("subnet-a").withInstanceType("m5.large").withPlacementGroup("pg");
+        Map<String, List<String>> tags = new LinkedHashMap<String, List<String>>();
+        tags.put("cluster", Arrays.asList("prod", "staging"));
+        tags.put("team", Collections.<String>emptyList());
+        AWSClient awsClient = new AWSClient(configBuilder().setTags(tags).setVpcId("vpc-1")
+                                                           .setSubnetIds(Arrays.asList("subnet-a", "subnet-b"))
+                                                           .setInstanceTypes(Arrays.asList("r5.xlarge", "r5.2xlarge"))
+                                                           .setPlacementGroup("pg").build());
+
+        // when
+        Map<String, String> addresses = awsClient.getAddresses();
+
+        // then
+        assertEquals(2, addresses.size());
+        assertTrue(addresses.containsKey("10.1.0.1"));
+        assertTrue(addresses.containsKey("10.1.0.2"));
+    }
+
+    @Test
+    public void getAddresses_withNetworkInterfaces()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1").withTag("cluster", "a").withSecondaryPrivateIp("10.0.1.1")
+                .withSecondaryPrivateIp("10.0.1.2");
+        emulator.addInstance("i-2", "10.0.0.2", null).withTag("cluster", "a").withSubnetId("subnet-b");
+        emulator.addInstance("i-3", "10.0.0.3", "54.0.0.3").withTag("cluster", "b").withSecondaryPrivateIp("10.0.1.3");
+        emulator.addInstance("i-4", "10.0.0.4", "54.0.0.4").withTag("cluster", "a").withSecurityGroupName("other");
+        AWSClient awsClient = new AWSClient(configBuilder().setTagKey("cluster").setTagValue("a")
+                                                           .setSecurityGroupName("hazelcast")
+                                                           .setSubnetIds(Arrays.asList("subnet-emulator", "subnet-b"))
+                                                           .setDescribeApi(DescribeApi.NETWORK_INTERFACES).build());
+
+        // when
+        Map<String, String> addresses = awsClient.getAddresses();
+        List<Ec2Instance> instances = awsClient.getInstances(Arrays.asList("i-1"));
+
+        // then
+        assertEquals(4, addresses.size());
+        assertEquals("54.0.0.1", addresses.get("10.0.0.1"));
+        assertTrue(addresses.containsKey("10.0.1.1"));
+        assertTrue(addresses.containsKey("10.0.1.2"));
+        assertTrue(addresses.containsKey("10.0.0.2"));
+        assertEquals(3, instances.size());
+        assertEquals("i-1", instances.get(2).getInstanceId());
+        assertEquals(2, emulator.getDescribeNetworkInterfacesRequests());
+        assertEquals(0, emulator.getDescribeInstancesRequests());
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void getAddresses_withNetworkInterfaces_skipsInterfacesManagedByAws()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1");
+        emulator.addInstance("elb-1", "10.0.0.9", "54.0.0.9").asRequesterManagedInterface();
+        AWSClient awsClient = new AWSClient(configBuilder().setDescribeApi(DescribeApi.NETWORK_INTERFACES).build());
+
+        // when
+        Map<String, String> addresses = awsClient.getAddresses();
+
+        // then
+        assertEquals(1, addresses.size());
+        assertEquals("54.0.0.1", addresses.get("10.0.0.1"));
+    }
+
+    @Test
+    public void getAddresses_whenWrongSecretKey()
+            throws Exception {
+        // given
+        emulator.addInstances(1);
+        AWSClient awsClient = new AWSClient(configBuilder().setSecretKey("wrong").build());
+
+        // when
+        try {
+            awsClient.getAddresses();
+            fail("Request with a wrong signature should fail");
+        } catch (AwsConnectionException e) {
+            // then
+            assertEquals(403, e.getHttpReponseCode());
+            assertEquals(1, emulator.getRejectedSignatures());
+        }
+    }
+
+    @Test
+    public void getAddresses_whenThrottled_thenRetries()
+            throws Exception {
+        // given
+        emulator.addInstances(3);
+        emulator.throttleNext(1);
+        long throttlesBefore = DiscoveryMetrics.get().getThrottles();
+        AWSClient awsClient = new AWSClient(configBuilder().setConnectionRetries(1).build());
+
+        // when
+        Map<String, String> addresses = awsClient.getAddresses();
+
+        // then
+        assertEquals(3, addresses.size());
+        assertEquals(1, emulator.getThrottledRequests());
+        assertEquals(2, emulator.getDescribeInstancesRequests());
+        assertTrue(DiscoveryMetrics.get().getThrottles() > throttlesBefore);
+    }
+
+    @Test
+    public void getAddresses_withEndpoints_failsOverFromUnhealthyEndpoint()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1");
+        AwsEmulator unhealthy = new AwsEmulator();
+        try {
+            unhealthy.failNext(100, 500);
+            AWSClient awsClient = new AWSClient(configBuilder()
+                    .setEndpoints(Arrays.asList(unhealthy.getEndpoint(), emulator.getEndpoint() + "/")).build());
+
+            // when
+            for (int i = 0; i < 3; i++) {
+                assertEquals("54.0.0.1", awsClient.getAddresses().get("10.0.0.1"));
+            }
+
+            // then
+            assertEquals(2, unhealthy.getFailedRequests());
+            assertEquals(3, emulator.getDescribeInstancesRequests());
+            assertEquals(0, emulator.getRejectedSignatures());
+        } finally {
+            unhealthy.shutdown();
+        }
+    }
+
+    @Test
+    public void getInstances_withEndpoints_sendsOneAttemptPerEndpoint()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1");
+        AwsEmulator unhealthy = new AwsEmulator();
+        try {
+            unhealthy.failNext(100, 500);
+            AWSClient awsClient = new AWSClient(configBuilder().setConnectionRetries(1)
+                    .setEndpoints(Arrays.asList(unhealthy.getEndpoint(), emulator.getEndpoint() + "/")).build());
+
+            // when
+            List<Ec2Instance> instances = awsClient.getInstances(Collections.<String>emptyList());
+
+            // then
+            assertEquals(1, instances.size());
+            assertEquals(1, unhealthy.getFailedRequests());
+            assertEquals(1, emulator.getDescribeInstancesRequests());
+        } finally {
+            unhealthy.shutdown();
+        }
+    }
+
+    @Test(expected = AwsConnectionException.class)
+    public void getAddresses_whenServerErrors()
+            throws Exception {
+        // given
+        emulator.addInstances(1);
+        emulator.failNext(1, 500);
+        AWSClient awsClient = new AWSClient(configBuilder().build());
+
+        // when
+        awsClient.getAddresses();
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void getAddresses_whenBodyTruncated_thenEmpty()
+            throws Exception {
+        // given
+        emulator.addInstances(10);
+        emulator.truncateNext(1);
+        AWSClient awsClient = new AWSClient(configBuilder().build());
+
+        // when
+        Map<String, String> addresses = awsClient.getAddresses();
+
+        // then
+        assertEquals(Collections.<String, String>emptyMap(), addresses);
+        assertEquals(1, emulator.getTruncatedResponses());
+    }
+
+    @Test
+    public void getAddressesByRegion()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1").withRegion("us-east-1");
+        emulator.addInstance("i-2", "10.1.0.1", "34.0.0.1").withRegion("eu-west-1");
+        AWSClient awsClient = new AWSClient(configBuilder().setRegions(Arrays.asList("us-east-1", "eu-west-1")).build());
+
+        // when
+        Map<String, Map<String, String>> addressesByRegion = awsClient.getAddressesByRegion();
+
+        // then
+        assertEquals(Collections.singletonMap("10.0.0.1", "54.0.0.1"), addressesByRegion.get("us-east-1"));
+        assertEquals(Collections.singletonMap("10.1.0.1", "34.0.0.1"), addressesByRegion.get("eu-west-1"));
+        assertEquals(0, emulator.getRejectedSignatures());
+        awsClient.shutdown();
+    }
+
+    @Test
+    public void getAddressesAsync_whenThrottled_thenRetriesOnSchedulerThread()
+            throws Exception {
+        // given
+        emulator.addInstances(3);
+        emulator.throttleNext(1);
+        AWSClient awsClient = new AWSClient(configBuilder().setConnectionRetries(1).build());
+        final Thread caller = Thread.currentThread();
+        final Thread[] callbackThread = new Thread[1];
+
+        // when
+        ICompletableFuture<Map<String, String>> future = awsClient.getAddressesAsync();
+        future.andThen(new ExecutionCallback<Map<String, String>>() {
+            @Override
+            public void onResponse(Map<String, String> response) {
+                callbackThread[0] = Thread.currentThread();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+            }
+        });
+
+        // then
+        assertEquals(3, future.get(1, TimeUnit.MINUTES).size());
+        assertEquals(2, emulator.getDescribeInstancesRequests());
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() {
+                assertNotSame(caller, callbackThread[0]);
+            }
+        });
+        awsClient.shutdown();
+    }
+
+    @Test
+    public void getAddressesByRegionAsync()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1").withRegion("us-east-1");
+        emulator.addInstance("i-2", "10.1.0.1", "34.0.0.1").withRegion("eu-west-1");
+        AWSClient awsClient = new AWSClient(configBuilder().setRegions(Arrays.asList("us-east-1", "eu-west-1")).build());
+
+        // when
+        Map<String, Map<String, String>> addressesByRegion = awsClient.getAddressesByRegionAsync().get(1, TimeUnit.MINUTES);
+
+        // then
+        assertEquals(Collections.singletonMap("10.0.0.1", "54.0.0.1"), addressesByRegion.get("us-east-1"));
+        assertEquals(Collections.singletonMap("10.1.0.1", "34.0.0.1"), addressesByRegion.get("eu-west-1"));
+        awsClient.shutdown();
+    }
+
+    @Test
+    public void getAddressesAsync_whenServerErrors()
+            throws Exception {
+        // given
+        emulator.addInstances(1);
+        emulator.failNext(1, 500);
+        AWSClient awsClient = new AWSClient(configBuilder().build());
+
+        // when
+        try {
+            awsClient.getAddressesAsync().get(1, TimeUnit.MINUTES);
+            fail("Request should fail");
+        } catch (ExecutionException e) {
+            // then
+            assertTrue(e.getCause() instanceof AwsConnectionException);
+        }
+        awsClient.shutdown();
+    }
+
+    @Test
+    public void getAddressesAsync_whenTimedOutAndCancelled_thenNoMoreRetries()
+            throws Exception {
+        // given
+        emulator.addInstances(1);
+        emulator.failNext(10, 500);
+        AWSClient awsClient = new AWSClient(configBuilder().setConnectionRetries(10).build());
+        ICompletableFuture<Map<String, String>> future = awsClient.getAddressesAsync();
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() {
+                assertEquals(1, emulator.getFailedRequests());
+            }
+        });
+
+        // when
+        try {
+            future.get(100, TimeUnit.MILLISECONDS);
+            fail("Request should be waiting for the retry");
+        } catch (TimeoutException e) {
+            future.cancel(false);
+        }
+
+        // then
+        assertTrue(future.isCancelled());
+        assertTrueAllTheTime(new AssertTask() {
+            @Override
+            public void run() {
+                assertEquals(1, emulator.getDescribeInstancesRequests());
+            }
+        }, 3);
+        awsClient.shutdown();
+    }
+}
@@ -16,6 +16,8 @@
 
 package com.hazelcast.aws;
 
+import com.hazelcast.aws.impl.StsStandIn;
+import com.hazelcast.aws.security.AwsCredentials;
 import com.hazelcast.config.InvalidConfigurationException;
 import com.hazelcast.test.HazelcastParallelClassRunner;
 import com.hazelcast.test.annotation.ParallelTest;
@@ -23,8 +25,25 @@ import com.hazelcast.test.annotation.QuickTest;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
 
 @RunWith(HazelcastParallelClassRunner.class)
 @Category({QuickTest.class, ParallelTest.class})
@@ -59,4 +78,129 @@ public class AwsClientTest {
         AwsConfig awsConfig = predefinedAwsConfigBuilder().setIamRole("test").setHostHeader("ec3.amazonaws.com.cn").build();
         new AWSClient(awsConfig);
     }
+
+    @Test
+    public void testAwsClient_getRegionEndpoints() {
+        AwsConfig awsConfig = predefinedAwsConfigBuilder().setRegions(Arrays.asList("us-east-1", "eu-west-1")).build();
+        AWSClient awsClient = new AWSClient(awsConfig);
+
+        Map<String, String> regionEndpoints = awsClient.getRegionEndpoints();
+
+        assertEquals(2, regionEndpoints.size());
+        assertEquals("ec2.us-east-1.amazonaws.com", regionEndpoints.get("us-east-1"));
+        assertEquals("ec2.eu-west-1.amazonaws.com", regionEndpoints.get("eu-west-1"));
+        awsClient.shutdown();
+    }
+
+    @Test
+    public void testAwsClient_getAddressesByRegion_queriesRegionsInParallel()
+            throws Exception {
+        // given
+        final long regionLatencyMs = 500;
+        AwsConfig awsConfig = predefinedAwsConfigBuilder().setAccessKey("accessKey").setSecretKey("secretKey")
+                .setRegions(Arrays.asList("us-east-1", "eu-west-1", "ap-south-1")).build();
+        AWSClient awsClient = spy(new AWSClient(awsConfig));
+        doAnswer(new Answer<Map<String, String>>() {
+            @Override
+            public Map<String, String> answer(InvocationOnMock invocation)
+                    throws Throwable {
+                Thread.sleep(regionLatencyMs);
+                String region = (String) invocation.getArguments()[0];
+                return Collections.singletonMap("10.0.0." + region.length(), "54.0.0." + region.length());
+            }
+        }).when(awsClient).describeInstances(anyString(), anyString(), any(AwsCredentials.class));
+
+        // when
+        long startMs = System.currentTimeMillis();
+        Map<String, Map<String, String>> result = awsClient.getAddressesByRegion();
+        long elapsedMs = System.currentTimeMillis() - startMs;
+
+        // then
+        assertEquals(Arrays.asList("us-east-1", "eu-west-1", "ap-south-1"), new ArrayList<String>(result.keySet()));
+        assertEquals("54.0.0.9", result.get("us-east-1").get("10.0.0.9"));
+        assertTrue("Regions were not queried in parallel, took " + elapsedMs + " ms", elapsedMs < 2 * regionLatencyMs);
+        awsClient.shutdown();
+    }
+
+    @Test
+    public void testAwsClient_getAddresses_mergesRegionsAndSkipsFailedRegion()
+            throws Exception {
+        // given
+        AwsConfig awsConfig = predefinedAwsConfigBuilder().setAccessKey("accessKey").setSecretKey("secretKey")
+                .setRegions(Arrays.asList("us-east-1", "eu-west-1")).build();
+        AWSClient awsClient = spy(new AWSClient(awsConfig));
+        doReturn(Collections.singletonMap("10.0.0.1", "54.0.0.1")).when(awsClient)
+                .describeInstances(eq("us-east-1"), eq("ec2.us-east-1.amazonaws.com"), any(AwsCredentials.class));
+        doThrow(new IllegalStateException("expected")).when(awsClient)
+                .describeInstances(eq("eu-west-1"), eq("ec2.eu-west-1.amazonaws.com"), any(AwsCredentials.class));
+
+        // when
+        Map<String, String> result = awsClient.getAddresses();
+
+        // then
+        assertEquals(Collections.singletonMap("10.0.0.1", "54.0.0.1"), result);
+        awsClient.shutdown();
+    }
+
+    @Test
+    public void testAwsClient_getAddressesByRegion_signsAllRequestsWithTheSameCredentials()
+            throws Exception {
+        // given
+        AwsConfig awsConfig = predefinedAwsConfigBuilder().setAccessKey("accessKey").setSecretKey("secretKey")
+                .setRegions(Arrays.asList("us-east-1", "eu-west-1", "ap-south-1")).build();
+        AWSClient awsClient = spy(new AWSClient(awsConfig));
+        final List<AwsCredentials> credentials = Collections.synchronizedList(new ArrayList<AwsCredentials>());
+        doAnswer(new Answer<Map<String, String>>() {
+            @Override
+            public Map<String, String> answer(InvocationOnMock invocation) {
+                credentials.add((AwsCredentials) invocation.getArguments()[2]);
+                return Collections.emptyMap();
+            }
+        }).when(awsClient).describeInstances(anyString(), anyString(), any(AwsCredentials.class));
+
+        // when
+        awsClient.getAddressesByRegion();
+
+        // then
+        assertEquals(3, credentials.size());
+        assertSame(credentials.get(0), credentials.get(1));
+        assertSame(credentials.get(0), credentials.get(2));
+        assertEquals("accessKey", credentials.get(0).getAccessKey());
+        awsClient.shutdown();
+    }
+
+    @Test
+    public void testAwsClient_getAddresses_mergesAccountsOfAssumedRoles()
+            throws Exception {
+        // given
+        StsStandIn sts = new StsStandIn();
+        AwsConfig awsConfig = predefinedAwsConfigBuilder().setAccessKey("accessKey").setSecretKey("secretKey")
+                .setAssumeRoleArns(Arrays.asList("arn:aws:iam::111111111111:role/hz", "arn:aws:iam::222222222222:role/hz"))
+                .setStsEndpoint(sts.getEndpoint()).build();
+        AWSClient awsClient = spy(new AWSClient(awsConfig));
+        doAnswer(new Answer<Map<String, String>>() {
+            @Override
+            public Map<String, String> answer(InvocationOnMock invocation)
+                    throws Throwable {
+                AwsCredentials credentials = (AwsCredentials) invocation.getArguments()[2];
+                String account = credentials.getAccessKey().substring(credentials.getAccessKey().length() - 1);
+                return Collections.singletonMap("10.0.0." + account, "54.0.0." + account);
+            }
+        }).when(awsClient).describeInstances(anyString(), anyString(), any(AwsCredentials.class));
+
+        try {
+            // when
+            awsClient.getAddresses();
+            Map<String, String> result = awsClient.getAddresses();
+
+            // then
+            assertEquals(2, result.size());
+            assertEquals("54.0.0.1", result.get("10.0.0.1"));
+            assertEquals("54.0.0.2", result.get("10.0.0.2"));
+            assertEquals("Session credentials were not cached", 2, sts.getRequests().size());
+        } finally {
+            awsClient.shutdown();
+            sts.shutdown();
+        }
+    }
 }
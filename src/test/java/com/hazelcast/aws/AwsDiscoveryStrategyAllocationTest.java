@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.utility.AllocationMeter;
+import com.hazelcast.aws.utility.CloudyUtility;
+import com.hazelcast.aws.utility.CloudyUtilityAllocationTest;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.test.HazelcastSerialClassRunner;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Allocation budgets of {@link AwsDiscoveryStrategy#discoverNodes()}, per discovered node (instance and port), with the
+ * default port range of 8 ports. The budgets leave about 25% headroom over the allocations measured on JDK 8; raise them
+ * only for a deliberate trade-off.
+ */
+@RunWith(HazelcastSerialClassRunner.class)
+@Category(QuickTest.class)
+public class AwsDiscoveryStrategyAllocationTest {
+    private static final int INSTANCES = 100;
+    private static final int NODES = INSTANCES * 8;
+    private static final long NODE_EXPANSION_BUDGET_BYTES_PER_NODE = 1536;
+    private static final long DISCOVERY_BUDGET_BYTES_PER_NODE = 2560;
+
+    private final AWSClient mockClient = mock(AWSClient.class);
+    private final AwsDiscoveryStrategy awsDiscoveryStrategy = new AwsDiscoveryStrategy(
+            Collections.<String, Comparable>emptyMap(), mockClient);
+
+    @Before
+    public void setUp() {
+        assumeTrue(AllocationMeter.isSupported());
+    }
+
+    @Test
+    public void discoverNodes_nodeExpansion()
+            throws Exception {
+        // given
+        Map<String, String> addresses = CloudyUtility.unmarshalTheResponse(
+                new ByteArrayInputStream(CloudyUtilityAllocationTest.syntheticResponse(INSTANCES).getBytes("UTF-8")));
+        given(mockClient.getAddresses()).willReturn(addresses);
+
+        // when
+        long allocated = AllocationMeter.bytesPerInvocation(discoverNodes());
+
+        // then
+        assertTrue("Node expansion allocated " + allocated / NODES + " bytes per node, the budget is "
+                + NODE_EXPANSION_BUDGET_BYTES_PER_NODE, allocated <= NODE_EXPANSION_BUDGET_BYTES_PER_NODE * NODES);
+    }
+
+    @Test
+    public void discoverNodes_parsingAndNodeExpansion()
+            throws Exception {
+        // given
+        final byte[] response = CloudyUtilityAllocationTest.syntheticResponse(INSTANCES).getBytes("UTF-8");
+        given(mockClient.getAddresses()).willAnswer(new Answer<Map<String, String>>() {
+            @Override
+            public Map<String, String> answer(InvocationOnMock invocation) {
+                return CloudyUtility.unmarshalTheResponse(new ByteArrayInputStream(response));
+            }
+        });
+
+        // when
+        long allocated = AllocationMeter.bytesPerInvocation(discoverNodes());
+
+        // then
+        assertTrue("Discovery allocated " + allocated / NODES + " bytes per node, the budget is "
+                + DISCOVERY_BUDGET_BYTES_PER_NODE, allocated <= DISCOVERY_BUDGET_BYTES_PER_NODE * NODES);
+    }
+
+    private Callable<Iterable<DiscoveryNode>> discoverNodes() {
+        return new Callable<Iterable<DiscoveryNode>>() {
+            @Override
+            public Iterable<DiscoveryNode> call() {
+                Iterable<DiscoveryNode> nodes = awsDiscoveryStrategy.discoverNodes();
+                assertNodeCount(nodes);
+                return nodes;
+            }
+        };
+    }
+
+    private static void assertNodeCount(Iterable<DiscoveryNode> nodes) {
+        int count = 0;
+        for (Iterator<DiscoveryNode> iterator = nodes.iterator(); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        assertEquals(NODES, count);
+    }
+}
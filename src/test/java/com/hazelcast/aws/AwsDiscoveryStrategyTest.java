@@ -16,6 +16,7 @@
 
 package com.hazelcast.aws;
 
+import com.hazelcast.config.InvalidConfigurationException;
 import com.hazelcast.nio.Address;
 import com.hazelcast.spi.discovery.DiscoveryNode;
 import com.hazelcast.test.HazelcastParallelClassRunner;
@@ -24,17 +25,25 @@ import com.hazelcast.test.annotation.QuickTest;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static com.hazelcast.spi.partitiongroup.PartitionGroupMetaData.PARTITION_GROUP_ZONE;
 import static java.util.Collections.emptyList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @RunWith(HazelcastParallelClassRunner.class)
 @Category(QuickTest.class)
@@ -114,4 +123,212 @@ public class AwsDiscoveryStrategyTest
         assertEquals(new Address(publicAddress, port), node.getPublicAddress());
         assertFalse(iterator.hasNext());
     }
+
+    @Test
+    public void discoverNodesMultipleRegions()
+            throws Exception {
+        // given
+        Map<String, Map<String, String>> addressesByRegion = new LinkedHashMap<String, Map<String, String>>();
+        addressesByRegion.put("us-east-1", Collections.singletonMap("10.0.0.1", "156.24.63.1"));
+        addressesByRegion.put("eu-west-1", Collections.singletonMap("10.1.0.1", "34.24.63.1"));
+        given(mockClient.getAddressesByRegion()).willReturn(addressesByRegion);
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("regions", "us-east-1, eu-west-1");
+        properties.put("hz-port", 5701);
+        AwsDiscoveryStrategy awsDiscoveryStrategy = new AwsDiscoveryStrategy(properties, mockClient);
+
+        // when
+        Iterable<DiscoveryNode> result = awsDiscoveryStrategy.discoverNodes();
+
+        // then
+        Iterator<DiscoveryNode> iterator = result.iterator();
+        DiscoveryNode node = iterator.next();
+        assertEquals(new Address("10.0.0.1", 5701), node.getPrivateAddress());
+        assertEquals("us-east-1", node.getProperties().get(AwsDiscoveryStrategy.REGION_PROPERTY));
+        node = iterator.next();
+        assertEquals(new Address("10.1.0.1", 5701), node.getPrivateAddress());
+        assertEquals("eu-west-1", node.getProperties().get(AwsDiscoveryStrategy.REGION_PROPERTY));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void discoverNodesWithBackgroundRefreshReturnsLastResult()
+            throws Exception {
+        // given
+        given(mockClient.getAddresses()).willReturn(Collections.singletonMap("10.0.0.1", "156.24.63.1"))
+                                        .willReturn(Collections.<String, String>emptyMap());
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("refresh-interval-max-seconds", 60);
+        AwsDiscoveryStrategy awsDiscoveryStrategy = new AwsDiscoveryStrategy(properties, mockClient);
+
+        try {
+            // when
+            awsDiscoveryStrategy.discoverNodes();
+            Iterable<DiscoveryNode> result = awsDiscoveryStrategy.discoverNodes();
+
+            // then
+            assertEquals(new Address("10.0.0.1", 5701), result.iterator().next().getPrivateAddress());
+            verify(mockClient, times(1)).getAddresses();
+        } finally {
+            awsDiscoveryStrategy.destroy();
+        }
+    }
+
+    @Test
+    public void discoverNodesFallsBackToSeedIpsWhenEc2Fails()
+            throws Exception {
+        // given
+        given(mockClient.getAddresses()).willThrow(new IllegalStateException("Expected exception"));
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("fallback-seed-ips", "10.0.0.1, 10.0.0.2");
+        properties.put("hz-port", 5701);
+        AwsDiscoveryStrategy awsDiscoveryStrategy = new AwsDiscoveryStrategy(properties, mockClient);
+
+        try {
+            // when
+            Iterable<DiscoveryNode> result = awsDiscoveryStrategy.discoverNodes();
+
+            // then
+            Iterator<DiscoveryNode> iterator = result.iterator();
+            assertEquals(new Address("10.0.0.1", 5701), iterator.next().getPrivateAddress());
+            assertEquals(new Address("10.0.0.2", 5701), iterator.next().getPrivateAddress());
+            assertFalse(iterator.hasNext());
+        } finally {
+            awsDiscoveryStrategy.destroy();
+        }
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void refreshIntervalMinGreaterThanMax() {
+        // given
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("refresh-interval-min-seconds", 30);
+        properties.put("refresh-interval-max-seconds", 10);
+
+        // when
+        new AwsDiscoveryStrategy(properties, mockClient);
+
+        // then
+        // throws exception
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void tagWithoutKey() {
+        // given
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("tags", "cluster=prod,=data");
+
+        // when
+        new AwsDiscoveryStrategy(properties, mockClient);
+
+        // then
+        // throws exception
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void invalidInstancePredicate() {
+        // given
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("instance-predicate", "tag:Name ~ hz-( && !tag:draining");
+
+        // when
+        new AwsDiscoveryStrategy(properties, mockClient);
+
+        // then
+        // throws exception
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void invalidDescribeApi() {
+        // given
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("describe-api", "network-interface");
+
+        // when
+        new AwsDiscoveryStrategy(properties, mockClient);
+
+        // then
+        // throws exception
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void networkInterfacesWithInstanceTypes() {
+        // given
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("describe-api", "network-interfaces");
+        properties.put("instance-types", "m5.large");
+
+        // when
+        new AwsDiscoveryStrategy(properties, mockClient);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void startLooksUpZoneAndDiscoversConcurrently()
+            throws Exception {
+        // given
+        final long callMillis = 1000;
+        given(mockClient.getAvailabilityZone()).willAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation)
+                    throws Throwable {
+                Thread.sleep(callMillis);
+                return "us-east-1a";
+            }
+        });
+        given(mockClient.getAddresses()).willAnswer(new Answer<Map<String, String>>() {
+            @Override
+            public Map<String, String> answer(InvocationOnMock invocation)
+                    throws Throwable {
+                Thread.sleep(callMillis);
+                return Collections.singletonMap("10.0.0.1", "156.24.63.1");
+            }
+        });
+
+        // when
+        long start = System.currentTimeMillis();
+        awsDiscoveryStrategy.start();
+        Map<String, Object> localMetaData = awsDiscoveryStrategy.discoverLocalMetadata();
+        Iterable<DiscoveryNode> result = awsDiscoveryStrategy.discoverNodes();
+        long elapsed = System.currentTimeMillis() - start;
+
+        // then
+        assertEquals("us-east-1a", localMetaData.get(PARTITION_GROUP_ZONE));
+        assertEquals(new Address("10.0.0.1", 5701), result.iterator().next().getPrivateAddress());
+        assertTrue("Startup took " + elapsed + " ms", elapsed < 2 * callMillis);
+        verify(mockClient, times(1)).getAddresses();
+    }
+
+    @Test
+    public void startDoesNotLookUpZoneUntilAskedFor()
+            throws Exception {
+        // given
+        given(mockClient.getAddresses()).willReturn(Collections.singletonMap("10.0.0.1", "156.24.63.1"));
+
+        // when
+        awsDiscoveryStrategy.start();
+        awsDiscoveryStrategy.discoverNodes();
+
+        // then
+        verify(mockClient, never()).getAvailabilityZone();
+    }
+
+    @Test
+    public void discoverNodesAfterStartQueriesCurrentInstances()
+            throws Exception {
+        // given
+        given(mockClient.getAddresses()).willReturn(Collections.singletonMap("10.0.0.1", "156.24.63.1"))
+                                        .willReturn(Collections.<String, String>emptyMap());
+        awsDiscoveryStrategy.start();
+        awsDiscoveryStrategy.discoverNodes();
+
+        // when
+        Iterable<DiscoveryNode> result = awsDiscoveryStrategy.discoverNodes();
+
+        // then
+        assertEquals(emptyList(), result);
+        verify(mockClient, times(2)).getAddresses();
+    }
 }
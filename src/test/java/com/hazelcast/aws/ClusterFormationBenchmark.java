@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.metrics.LatencyHistogram;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.DiscoveryStrategyConfig;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.NetworkConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.DiscoveryStrategy;
+import com.hazelcast.spi.partitiongroup.PartitionGroupMetaData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cluster-formation benchmark: starts members in this JVM which discover each other with {@link AwsDiscoveryStrategy}
+ * through the {@link AwsEmulator}, and reports the time to full membership, the number of EC2 API calls and throttled
+ * requests, and the discovery latency per member.
+ * <p>
+ * All the members run on 127.0.0.1 with consecutive ports, so the emulator serves a single instance and the members are
+ * found through the {@code hz-port} range. Run it with
+ * <pre>
+ * java -cp ... com.hazelcast.aws.ClusterFormationBenchmark [members] [EC2 API requests per second] [API latency ms]
+ * </pre>
+ * e.g. {@code 100 20 50} to approximate a large cluster hitting the EC2 API request rate limit.
+ */
+public class ClusterFormationBenchmark {
+    private static final int BASE_PORT = 5701;
+    private static final int DEFAULT_MEMBERS = 50;
+    private static final int DEFAULT_RATE_LIMIT = 20;
+    private static final int DEFAULT_LATENCY_MILLIS = 50;
+    private static final int START_THREADS = 16;
+    private static final long POLL_MILLIS = 10;
+
+    private final int memberCount;
+    private final int rateLimit;
+    private final long apiLatencyMillis;
+    private final long timeoutMillis;
+
+    /**
+     * @param memberCount      number of members to start
+     * @param rateLimit        EC2 API requests per second accepted by the emulator, 0 for no limit
+     * @param apiLatencyMillis latency of every emulated request
+     * @param timeoutMillis    maximum time to wait for the full membership
+     */
+    public ClusterFormationBenchmark(int memberCount, int rateLimit, long apiLatencyMillis, long timeoutMillis) {
+        this.memberCount = memberCount;
+        this.rateLimit = rateLimit;
+        this.apiLatencyMillis = apiLatencyMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static void main(String[] args)
+            throws Exception {
+        int members = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MEMBERS;
+        int rateLimit = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RATE_LIMIT;
+        int latency = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_LATENCY_MILLIS;
+        Result result = new ClusterFormationBenchmark(members, rateLimit, latency, TimeUnit.MINUTES.toMillis(10)).run();
+        System.out.println(result);
+        System.exit(0);
+    }
+
+    /**
+     * Starts the members, waits for the full membership and shuts everything down.
+     */
+    public Result run()
+            throws Exception {
+        AwsEmulator emulator = new AwsEmulator();
+        emulator.addInstance("i-benchmark", "127.0.0.1", null);
+        emulator.setRateLimit(rateLimit);
+        emulator.setLatencyMillis(apiLatencyMillis);
+
+        List<LatencyHistogram> latencies = new ArrayList<LatencyHistogram>(memberCount);
+        List<Future<HazelcastInstance>> members = new ArrayList<Future<HazelcastInstance>>(memberCount);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(memberCount, START_THREADS));
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < memberCount; i++) {
+                final LatencyHistogram latency = new LatencyHistogram();
+                latencies.add(latency);
+                final Config config = memberConfig(emulator, BASE_PORT + i, latency);
+                members.add(executor.submit(new Callable<HazelcastInstance>() {
+                    @Override
+                    public HazelcastInstance call() {
+                        return Hazelcast.newHazelcastInstance(config);
+                    }
+                }));
+            }
+            awaitFullMembership(members, start);
+            long formationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Result(memberCount, formationMillis, emulator.getDescribeInstancesRequests(),
+                    emulator.getThrottledRequests(), latencies);
+        } finally {
+            executor.shutdownNow();
+            Hazelcast.shutdownAll();
+            emulator.shutdown();
+        }
+    }
+
+    private void awaitFullMembership(List<Future<HazelcastInstance>> members, long startNanos)
+            throws Exception {
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Future<HazelcastInstance> member : members) {
+            HazelcastInstance instance = member.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            while (instance.getCluster().getMembers().size() < memberCount) {
+                if (System.nanoTime() > deadline) {
+                    throw new TimeoutException("Only " + instance.getCluster().getMembers().size() + " of " + memberCount
+                            + " members joined within " + timeoutMillis + " ms");
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+        }
+    }
+
+    private Config memberConfig(AwsEmulator emulator, int port, LatencyHistogram latency) {
+        Config config = new Config();
+        config.setProperty("hazelcast.discovery.enabled", "true");
+        config.setProperty("hazelcast.phone.home.enabled", "false");
+
+        NetworkConfig networkConfig = config.getNetworkConfig();
+        networkConfig.setPort(port).setPortAutoIncrement(false);
+        networkConfig.getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+        JoinConfig joinConfig = networkConfig.getJoin();
+        joinConfig.getMulticastConfig().setEnabled(false);
+        joinConfig.getTcpIpConfig().setEnabled(false);
+        joinConfig.getAwsConfig().setEnabled(false);
+
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("host-header", emulator.getEndpoint());
+        properties.put("region", "us-east-1");
+        properties.put("access-key", AwsEmulator.ACCESS_KEY);
+        properties.put("secret-key", AwsEmulator.SECRET_KEY);
+        properties.put("hz-port", BASE_PORT + "-" + (BASE_PORT + memberCount - 1));
+        properties.put("connection-retries", "3");
+        properties.put("connection-timeout-seconds", "5");
+        joinConfig.getDiscoveryConfig().addDiscoveryStrategyConfig(
+                new DiscoveryStrategyConfig(new TimedDiscoveryStrategyFactory(latency), properties));
+        return config;
+    }
+
+    /**
+     * Creates {@link AwsDiscoveryStrategy} instances recording the latency of every discovery of their member.
+     */
+    private static final class TimedDiscoveryStrategyFactory
+            extends AwsDiscoveryStrategyFactory {
+        private final LatencyHistogram latency;
+
+        TimedDiscoveryStrategyFactory(LatencyHistogram latency) {
+            this.latency = latency;
+        }
+
+        /**
+         * Hazelcast matches the factories by strategy type, so it must differ from the one of the default factory.
+         */
+        @Override
+        public Class<? extends DiscoveryStrategy> getDiscoveryStrategyType() {
+            return TimedDiscoveryStrategy.class;
+        }
+
+        @Override
+        public DiscoveryStrategy newDiscoveryStrategy(DiscoveryNode discoveryNode, ILogger logger,
+                                                      Map<String, Comparable> properties) {
+            return new TimedDiscoveryStrategy(properties, latency);
+        }
+    }
+
+    private static final class TimedDiscoveryStrategy
+            extends AwsDiscoveryStrategy {
+        private final LatencyHistogram latency;
+
+        TimedDiscoveryStrategy(Map<String, Comparable> properties, LatencyHistogram latency) {
+            super(properties);
+            this.latency = latency;
+        }
+
+        @Override
+        public Map<String, Object> discoverLocalMetadata() {
+            // the Instance Metadata Service address is fixed, so it cannot be served by the emulator
+            return Collections.<String, Object>singletonMap(PartitionGroupMetaData.PARTITION_GROUP_ZONE, "us-east-1a");
+        }
+
+        @Override
+        public Iterable<DiscoveryNode> discoverNodes() {
+            long start = System.nanoTime();
+            try {
+                return super.discoverNodes();
+            } finally {
+                latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            }
+        }
+    }
+
+    /**
+     * Outcome of a benchmark run.
+     */
+    public static final class Result {
+        private final int memberCount;
+        private final long formationMillis;
+        private final int apiCalls;
+        private final int throttles;
+        private final List<LatencyHistogram> memberLatencies;
+
+        Result(int memberCount, long formationMillis, int apiCalls, int throttles, List<LatencyHistogram> memberLatencies) {
+            this.memberCount = memberCount;
+            this.formationMillis = formationMillis;
+            this.apiCalls = apiCalls;
+            this.throttles = throttles;
+            this.memberLatencies = memberLatencies;
+        }
+
+        /**
+         * Returns the time from starting the first member until all the members see the full membership.
+         */
+        public long getFormationMillis() {
+            return formationMillis;
+        }
+
+        public int getApiCalls() {
+            return apiCalls;
+        }
+
+        public int getThrottles() {
+            return throttles;
+        }
+
+        public List<LatencyHistogram> getMemberLatencies() {
+            return memberLatencies;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Cluster of %d members formed in %d ms%n", memberCount, formationMillis));
+            sb.append(String.format("EC2 API calls: %d, throttled: %d%n", apiCalls, throttles));
+            sb.append(String.format("%-8s %10s %12s %12s %12s%n", "member", "discoveries", "mean [ms]", "p99 [ms]",
+                    "max [ms]"));
+            for (int i = 0; i < memberLatencies.size(); i++) {
+                LatencyHistogram latency = memberLatencies.get(i);
+                sb.append(String.format("%-8d %10d %12.1f %12.1f %12.1f%n", i, latency.getCount(), millis(latency.getMean()),
+                        millis(latency.getValueAtPercentile(99)), millis(latency.getMax())));
+            }
+            return sb.toString();
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
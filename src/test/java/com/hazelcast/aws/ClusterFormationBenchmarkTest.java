@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.test.HazelcastSerialClassRunner;
+import com.hazelcast.test.annotation.SlowTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Keeps {@link ClusterFormationBenchmark} working with a small cluster.
+ */
+@RunWith(HazelcastSerialClassRunner.class)
+@Category(SlowTest.class)
+public class ClusterFormationBenchmarkTest {
+
+    @Test
+    public void run()
+            throws Exception {
+        // given
+        ClusterFormationBenchmark benchmark = new ClusterFormationBenchmark(3, 0, 0, TimeUnit.MINUTES.toMillis(2));
+
+        // when
+        ClusterFormationBenchmark.Result result = benchmark.run();
+
+        // then
+        assertTrue(result.getApiCalls() >= 3);
+        assertEquals(0, result.getThrottles());
+        assertEquals(3, result.getMemberLatencies().size());
+        assertTrue(result.toString(), result.getMemberLatencies().get(0).getCount() > 0);
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.impl.DnsResolver;
+import com.hazelcast.aws.impl.DnsStandIn;
+import com.hazelcast.test.AssertTask;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.test.HazelcastTestSupport.assertTrueEventually;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class DiscoveryRaceTest {
+    private static final String SERVICE = "hazelcast.cluster.local";
+    private static final long BUDGET_MILLIS = 200;
+
+    private final CountDownLatch ec2Released = new CountDownLatch(1);
+
+    private DnsStandIn dns;
+    private DiscoveryRace race;
+    private File snapshotFile;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        dns = new DnsStandIn();
+        snapshotFile = File.createTempFile("aws-discovery", ".snapshot");
+        snapshotFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        ec2Released.countDown();
+        if (race != null) {
+            race.shutdown();
+        }
+        dns.shutdown();
+        snapshotFile.delete();
+    }
+
+    @Test
+    public void ec2WinsWithinBudget()
+            throws Exception {
+        // given
+        dns.addAddress(SERVICE, "10.0.1.1");
+        race = createRace(ec2(addresses("10.0.0.1")), new DiscoverySnapshot(snapshotFile), Arrays.asList("10.0.2.1"),
+                Collections.singletonList(SERVICE));
+
+        // when
+        Map<String, Map<String, String>> result = race.discover();
+
+        // then
+        assertEquals(addresses("10.0.0.1"), result);
+        assertEquals(DiscoveryRace.Source.EC2, race.getLastWinner());
+    }
+
+    @Test
+    public void slowEc2LosesToDns_andIsSavedToSnapshot()
+            throws Exception {
+        // given
+        dns.addAddress(SERVICE, "10.0.1.1");
+        final DiscoverySnapshot snapshot = new DiscoverySnapshot(snapshotFile);
+        race = createRace(slowEc2(addresses("10.0.0.1")), snapshot, Collections.<String>emptyList(),
+                Collections.singletonList(SERVICE));
+
+        // when
+        Map<String, Map<String, String>> result = race.discover();
+        ec2Released.countDown();
+
+        // then
+        assertEquals(addresses("10.0.1.1"), result);
+        assertEquals(DiscoveryRace.Source.DNS, race.getLastWinner());
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() {
+                assertEquals(addresses("10.0.0.1"), snapshot.get());
+                assertEquals(addresses("10.0.0.1"), new DiscoverySnapshot(snapshotFile).get());
+            }
+        });
+    }
+
+    @Test
+    public void failingEc2FallsBackToPersistedSnapshot()
+            throws Exception {
+        // given
+        new DiscoverySnapshot(snapshotFile).save(addresses("10.0.0.1"));
+        race = createRace(failingEc2(), new DiscoverySnapshot(snapshotFile), Arrays.asList("10.0.2.1"),
+                Collections.<String>emptyList());
+
+        // when
+        Map<String, Map<String, String>> result = race.discover();
+
+        // then
+        assertEquals(addresses("10.0.0.1"), result);
+        assertEquals(DiscoveryRace.Source.SNAPSHOT, race.getLastWinner());
+    }
+
+    @Test
+    public void seedsAreLastResort()
+            throws Exception {
+        // given
+        race = createRace(slowEc2(addresses("10.0.0.1")), new DiscoverySnapshot(null), Arrays.asList("10.0.2.1", "10.0.2.2"),
+                Collections.singletonList(SERVICE));
+
+        // when
+        Map<String, Map<String, String>> result = race.discover();
+
+        // then
+        assertEquals(addresses("10.0.2.1", "10.0.2.2"), result);
+        assertEquals(DiscoveryRace.Source.SEEDS, race.getLastWinner());
+    }
+
+    @Test
+    public void ec2IsAwaitedWhenNoFallbackAnswers()
+            throws Exception {
+        // given
+        race = createRace(slowEc2(addresses("10.0.0.1")), new DiscoverySnapshot(null), Collections.<String>emptyList(),
+                Collections.singletonList(SERVICE));
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(2 * BUDGET_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ec2Released.countDown();
+            }
+        }).start();
+
+        // when
+        Map<String, Map<String, String>> result = race.discover();
+
+        // then
+        assertEquals(addresses("10.0.0.1"), result);
+        assertEquals(DiscoveryRace.Source.EC2, race.getLastWinner());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ec2FailureIsRethrownWhenNoFallbackAnswers()
+            throws Exception {
+        // given
+        race = createRace(failingEc2(), new DiscoverySnapshot(null), Collections.<String>emptyList(),
+                Collections.<String>emptyList());
+
+        // when
+        race.discover();
+    }
+
+    @Test
+    public void busyDnsResolutionsDoNotRunOnTheDiscoveringThread()
+            throws Exception {
+        // given
+        dns.setDropQueries(true);
+        race = createRace(slowEc2(addresses("10.0.0.1")), new DiscoverySnapshot(null), Arrays.asList("10.0.2.1"),
+                Collections.singletonList(SERVICE));
+        final CountDownLatch started = new CountDownLatch(1);
+        List<Future<Long>> discoveries = new ArrayList<Future<Long>>();
+        ExecutorService discoverers = Executors.newCachedThreadPool();
+        try {
+            for (int i = 0; i < 8; i++) {
+                discoveries.add(discoverers.submit(new Callable<Long>() {
+                    @Override
+                    public Long call()
+                            throws Exception {
+                        started.await();
+                        long start = System.nanoTime();
+                        race.discover();
+                        return System.nanoTime() - start;
+                    }
+                }));
+            }
+
+            // when
+            started.countDown();
+
+            // then every discovery falls back to the seeds after the budget, none waits for a dropped DNS query
+            for (Future<Long> discovery : discoveries) {
+                assertTrue(discovery.get() < TimeUnit.MILLISECONDS.toNanos(900));
+            }
+        } finally {
+            discoverers.shutdownNow();
+        }
+    }
+
+    private DiscoveryRace createRace(Callable<Map<String, Map<String, String>>> ec2, DiscoverySnapshot snapshot,
+                                     List<String> seedIps, List<String> dnsNames) {
+        return new DiscoveryRace(ec2, snapshot, seedIps, new DnsResolver(dns.getServer(), 1), dnsNames, BUDGET_MILLIS);
+    }
+
+    private static Callable<Map<String, Map<String, String>>> ec2(final Map<String, Map<String, String>> addresses) {
+        return new Callable<Map<String, Map<String, String>>>() {
+            @Override
+            public Map<String, Map<String, String>> call() {
+                return addresses;
+            }
+        };
+    }
+
+    private Callable<Map<String, Map<String, String>>> slowEc2(final Map<String, Map<String, String>> addresses) {
+        return new Callable<Map<String, Map<String, String>>>() {
+            @Override
+            public Map<String, Map<String, String>> call()
+                    throws Exception {
+                ec2Released.await();
+                return addresses;
+            }
+        };
+    }
+
+    private static Callable<Map<String, Map<String, String>>> failingEc2() {
+        return new Callable<Map<String, Map<String, String>>>() {
+            @Override
+            public Map<String, Map<String, String>> call() {
+                throw new IllegalStateException("Expected exception");
+            }
+        };
+    }
+
+    private static Map<String, Map<String, String>> addresses(String... privateIps) {
+        Map<String, String> regionAddresses = new LinkedHashMap<String, String>();
+        for (String privateIp : privateIps) {
+            regionAddresses.put(privateIp, null);
+        }
+        return Collections.singletonMap(null, regionAddresses);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.test.AssertTask;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.hazelcast.test.HazelcastTestSupport.assertTrueEventually;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class DiscoveryRefresherTest {
+    private static final long MIN_INTERVAL_MILLIS = 1000;
+    private static final long MAX_INTERVAL_MILLIS = 4000;
+
+    private final AtomicReference<Map<String, Map<String, String>>> discovered
+            = new AtomicReference<Map<String, Map<String, String>>>(addresses("10.0.0.1", "10.0.0.2"));
+    private final AtomicInteger discoveries = new AtomicInteger();
+    private final AtomicInteger clusterSize = new AtomicInteger(DiscoveryRefresher.UNKNOWN_CLUSTER_SIZE);
+
+    private DiscoveryRefresher refresher;
+
+    @After
+    public void tearDown() {
+        if (refresher != null) {
+            refresher.shutdown();
+        }
+    }
+
+    private DiscoveryRefresher createRefresher(long minIntervalMillis, long maxIntervalMillis) {
+        refresher = new DiscoveryRefresher(new Callable<Map<String, Map<String, String>>>() {
+            @Override
+            public Map<String, Map<String, String>> call() {
+                discoveries.incrementAndGet();
+                Map<String, Map<String, String>> result = discovered.get();
+                if (result == null) {
+                    throw new IllegalStateException("Expected exception");
+                }
+                return result;
+            }
+        }, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return clusterSize.get();
+            }
+        }, minIntervalMillis, maxIntervalMillis);
+        return refresher;
+    }
+
+    private static Map<String, Map<String, String>> addresses(String... privateIps) {
+        Map<String, String> regionAddresses = new HashMap<String, String>();
+        for (String privateIp : privateIps) {
+            regionAddresses.put(privateIp, null);
+        }
+        return Collections.singletonMap(null, regionAddresses);
+    }
+
+    @Test
+    public void getAddresses_returnsInitialAddresses()
+            throws Exception {
+        // given
+        createRefresher(MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+        Map<String, Map<String, String>> initial = addresses("10.0.0.1");
+
+        // when
+        Map<String, Map<String, String>> first = refresher.getAddresses(initial);
+        Map<String, Map<String, String>> second = refresher.getAddresses(null);
+
+        // then
+        assertSame(initial, first);
+        assertSame(initial, second);
+        assertEquals(0, discoveries.get());
+    }
+
+    @Test
+    public void getAddresses_withoutInitialAddresses_discovers()
+            throws Exception {
+        // given
+        createRefresher(MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+
+        // when
+        Map<String, Map<String, String>> result = refresher.getAddresses(null);
+
+        // then
+        assertEquals(2, result.get(null).size());
+        assertEquals(1, discoveries.get());
+    }
+
+    @Test
+    public void refresh_whenNothingChanges_thenLengthensIntervalUpToMaximum()
+            throws Exception {
+        // given
+        createRefresher(MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+        refresher.getAddresses(null);
+
+        // when
+        refresher.refresh();
+        long afterFirst = refresher.getIntervalMillis();
+        refresher.refresh();
+        refresher.refresh();
+
+        // then
+        assertEquals(2 * MIN_INTERVAL_MILLIS, afterFirst);
+        assertEquals(MAX_INTERVAL_MILLIS, refresher.getIntervalMillis());
+    }
+
+    @Test
+    public void refresh_whenInstancesChange_thenShortensInterval()
+            throws Exception {
+        // given
+        createRefresher(MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+        refresher.getAddresses(null);
+        refresher.refresh();
+        refresher.refresh();
+
+        // when
+        discovered.set(addresses("10.0.0.1", "10.0.0.3"));
+        refresher.refresh();
+
+        // then
+        assertEquals(MIN_INTERVAL_MILLIS, refresher.getIntervalMillis());
+        assertEquals(discovered.get(), refresher.getAddresses(null));
+    }
+
+    @Test
+    public void refresh_whenClusterSmallerThanDiscovered_thenShortensInterval()
+            throws Exception {
+        // given
+        createRefresher(MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+        refresher.getAddresses(null);
+        refresher.refresh();
+
+        // when
+        clusterSize.set(1);
+        refresher.refresh();
+
+        // then
+        assertEquals(MIN_INTERVAL_MILLIS, refresher.getIntervalMillis());
+    }
+
+    @Test
+    public void refresh_whenDiscoveryFails_thenKeepsAddresses()
+            throws Exception {
+        // given
+        createRefresher(MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+        Map<String, Map<String, String>> initial = refresher.getAddresses(null);
+
+        // when
+        discovered.set(null);
+        refresher.refresh();
+
+        // then
+        assertSame(initial, refresher.getAddresses(null));
+        assertEquals(2 * MIN_INTERVAL_MILLIS, refresher.getIntervalMillis());
+    }
+
+    @Test
+    public void refreshesInBackground()
+            throws Exception {
+        // given
+        createRefresher(50, 100);
+        refresher.getAddresses(null);
+
+        // when
+        discovered.set(addresses("10.0.0.3"));
+
+        // then
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run()
+                    throws Exception {
+                assertEquals(addresses("10.0.0.3"), refresher.getAddresses(null));
+            }
+        }, 5);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.DiscoveryConfig;
+import com.hazelcast.config.DiscoveryStrategyConfig;
+import com.hazelcast.config.XmlConfigBuilder;
+import com.hazelcast.config.properties.PropertyDefinition;
+import com.hazelcast.spi.discovery.DiscoveryStrategy;
+import com.hazelcast.spi.discovery.impl.DefaultDiscoveryService;
+import com.hazelcast.spi.discovery.integration.DiscoveryServiceSettings;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category(QuickTest.class)
+public class DnsDiscoveryStrategyFactoryTest {
+
+    private static Config createConfig(String xmlFileName) {
+        final InputStream xmlResource = DnsDiscoveryStrategyFactoryTest.class.getClassLoader().getResourceAsStream(xmlFileName);
+        return new XmlConfigBuilder(xmlResource).build();
+    }
+
+    @Test
+    public void parseAndCreateDiscoveryStrategyPasses() {
+        final DiscoveryConfig discoveryConfig = createConfig("test-dns-config.xml").getNetworkConfig().getJoin()
+                                                                                   .getDiscoveryConfig();
+        final DiscoveryServiceSettings settings = new DiscoveryServiceSettings().setDiscoveryConfig(discoveryConfig);
+        final Iterator<DiscoveryStrategy> strategies = new DefaultDiscoveryService(settings).getDiscoveryStrategies()
+                                                                                            .iterator();
+
+        assertTrue(strategies.hasNext());
+        final DiscoveryStrategy strategy = strategies.next();
+        assertTrue(strategy instanceof DnsDiscoveryStrategy);
+        strategy.destroy();
+    }
+
+    @Test
+    public void parseDiscoveryStrategyConfigPasses() {
+        final DnsDiscoveryStrategyFactory factory = new DnsDiscoveryStrategyFactory();
+        final DiscoveryConfig discoveryConfig = createConfig("test-dns-config.xml").getNetworkConfig().getJoin()
+                                                                                   .getDiscoveryConfig();
+        final DiscoveryStrategyConfig providerConfig = discoveryConfig.getDiscoveryStrategyConfigs().iterator().next();
+        final Map<String, Comparable> providerProperties = providerConfig.getProperties();
+        final Collection<PropertyDefinition> factoryConfigProperties = factory.getConfigurationProperties();
+
+        assertEquals(DnsDiscoveryStrategy.class, factory.getDiscoveryStrategyType());
+        assertEquals(DnsDiscoveryStrategy.class.getName(), providerConfig.getClassName());
+        assertEquals(factoryConfigProperties.size(), providerProperties.size());
+        for (DnsProperties prop : DnsProperties.values()) {
+            assertTrue(factoryConfigProperties.contains(prop.getDefinition()));
+        }
+        assertEquals("hazelcast.test.local", providerProperties.get("service-dns-names"));
+        assertEquals("127.0.0.1:53", providerProperties.get("dns-server"));
+    }
+}
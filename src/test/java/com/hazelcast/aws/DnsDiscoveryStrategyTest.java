@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.impl.DnsStandIn;
+import com.hazelcast.config.InvalidConfigurationException;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link DnsDiscoveryStrategy} against a {@link DnsStandIn}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class DnsDiscoveryStrategyTest {
+    private static final String SERVICE = "hazelcast.cluster.local";
+
+    private DnsStandIn dns;
+    private Map<String, Comparable> properties;
+    private DnsDiscoveryStrategy strategy;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        dns = new DnsStandIn();
+        properties = new HashMap<String, Comparable>();
+        properties.put("service-dns-names", SERVICE);
+        properties.put("dns-server", dns.getServer());
+        properties.put("resolve-timeout-seconds", 1);
+    }
+
+    @After
+    public void tearDown() {
+        if (strategy != null) {
+            strategy.destroy();
+        }
+        dns.shutdown();
+    }
+
+    @Test
+    public void discoverNodes_atSrvPorts()
+            throws Exception {
+        // given
+        dns.addSrv(SERVICE, 5701, "node-1.cluster.local").addSrv(SERVICE, 5702, "node-2.cluster.local")
+           .addSrv(SERVICE, 5703, "node-2.cluster.local");
+        dns.addAddress("node-1.cluster.local", "10.0.0.1").addAddress("node-2.cluster.local", "10.0.0.2");
+        strategy = new DnsDiscoveryStrategy(properties);
+
+        // when
+        List<String> addresses = discover();
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.1:5701", "10.0.0.2:5702", "10.0.0.2:5703"), addresses);
+        assertEquals(1, dns.getQueries("node-2.cluster.local", "A"));
+    }
+
+    @Test
+    public void discoverNodes_atHzPortsWithoutSrvRecords()
+            throws Exception {
+        // given
+        dns.addAddress(SERVICE, "10.0.0.1").addAddress(SERVICE, "10.0.0.2");
+        properties.put("hz-port", "5701-5702");
+        strategy = new DnsDiscoveryStrategy(properties);
+
+        // when
+        List<String> addresses = discover();
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.1:5701", "10.0.0.1:5702", "10.0.0.2:5701", "10.0.0.2:5702"), addresses);
+    }
+
+    @Test
+    public void discoverNodes_ofSeveralNames()
+            throws Exception {
+        // given
+        dns.addAddress(SERVICE, "10.0.0.1");
+        dns.addSrv("canary.cluster.local", 5801, "canary-1.cluster.local").addAddress("canary-1.cluster.local", "10.0.1.1");
+        properties.put("service-dns-names", SERVICE + ", canary.cluster.local");
+        properties.put("hz-port", 5701);
+        strategy = new DnsDiscoveryStrategy(properties);
+
+        // when
+        List<String> addresses = discover();
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.1:5701", "10.0.1.1:5801"), addresses);
+    }
+
+    @Test
+    public void discoverNodes_cachedUntilTtlExpires()
+            throws Exception {
+        // given
+        dns.addAddress(SERVICE, "10.0.0.1");
+        properties.put("hz-port", 5701);
+        strategy = new DnsDiscoveryStrategy(properties);
+
+        // when
+        discover();
+        dns.addAddress(SERVICE, "10.0.0.2");
+        List<String> addresses = discover();
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.1:5701"), addresses);
+        assertEquals(1, dns.getQueries(SERVICE, "SRV"));
+        assertEquals(1, dns.getQueries(SERVICE, "A"));
+    }
+
+    @Test
+    public void discoverNodes_keepsLastMembersWhenResolutionFails()
+            throws Exception {
+        // given
+        dns.addAddress(SERVICE, "10.0.0.1");
+        properties.put("hz-port", 5701);
+        properties.put("cache-ttl-seconds", 0);
+        strategy = new DnsDiscoveryStrategy(properties);
+        discover();
+
+        // when
+        dns.setDropQueries(true);
+        List<String> addresses = discover();
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.1:5701"), addresses);
+        assertTrue(dns.getQueries(SERVICE, "SRV") > 1);
+    }
+
+    @Test
+    public void discoverNodes_unknownName() {
+        // given
+        strategy = new DnsDiscoveryStrategy(properties);
+
+        // when
+        List<String> addresses = discover();
+
+        // then
+        assertEquals(0, addresses.size());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void noServiceDnsNames() {
+        // given
+        properties.put("service-dns-names", " , ");
+
+        // when
+        new DnsDiscoveryStrategy(properties);
+
+        // then
+        // throws exception
+    }
+
+    private List<String> discover() {
+        List<String> addresses = new ArrayList<String>();
+        for (DiscoveryNode node : strategy.discoverNodes()) {
+            addresses.add(node.getPrivateAddress().getHost() + ":" + node.getPrivateAddress().getPort());
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.impl.EcsTasks;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Runs {@link EcsTaskDiscovery} against the ECS API of the {@link AwsEmulator}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class EcsTaskDiscoveryTest {
+    private static final String CLUSTER = "hazelcast-cluster";
+    private static final String TASK_DEFINITION = "arn:aws:ecs:us-east-1:123456789012:task-definition/hazelcast:1";
+
+    private AwsEmulator emulator;
+    private EcsTaskDiscovery discovery;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+        AwsConfig awsConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                                       .setConnectionTimeoutSeconds(5).build();
+        discovery = new EcsTaskDiscovery(new EcsTasks(awsConfig, emulator.getEndpoint()), new Callable<AwsCredentials>() {
+            @Override
+            public AwsCredentials call() {
+                return new AwsCredentials(AwsEmulator.ACCESS_KEY, AwsEmulator.SECRET_KEY, null);
+            }
+        }, CLUSTER, "hazelcast", new PortRange("5701-5703"));
+    }
+
+    @After
+    public void tearDown() {
+        emulator.shutdown();
+    }
+
+    @Test
+    public void getAddresses_returnsTaskIpsAndPorts()
+            throws Exception {
+        // given
+        emulator.addTask(CLUSTER, "10.0.0.1").withServiceName("hazelcast");
+        emulator.addTask(CLUSTER, "10.0.0.2").withServiceName("hazelcast");
+        emulator.addTask(CLUSTER, "10.0.0.3").withServiceName("web");
+        emulator.setTaskDefinitionPorts(TASK_DEFINITION, Arrays.asList(8080, 5702));
+
+        // when
+        Map<String, String> addresses = discovery.getAddresses();
+
+        // then
+        assertEquals(2, addresses.size());
+        assertEquals("10.0.0.1", addresses.get("10.0.0.1"));
+        assertEquals(Arrays.asList(5702), discovery.getPorts("10.0.0.1"));
+        assertEquals(Arrays.asList(5702), discovery.getPorts("10.0.0.2"));
+        assertNull(discovery.getPorts("10.0.0.3"));
+    }
+
+    @Test
+    public void getAddresses_describesTaskDefinitionOnce()
+            throws Exception {
+        // given
+        emulator.addTask(CLUSTER, "10.0.0.1").withServiceName("hazelcast");
+        emulator.addTask(CLUSTER, "10.0.0.2").withServiceName("hazelcast");
+        emulator.setTaskDefinitionPorts(TASK_DEFINITION, Arrays.asList(5701));
+
+        // when
+        discovery.getAddresses();
+        discovery.getAddresses();
+
+        // then
+        assertEquals(1, emulator.getEcsRequests("DescribeTaskDefinition"));
+        assertEquals(2, emulator.getEcsRequests("DescribeTasks"));
+    }
+
+    @Test
+    public void getPorts_isNullWhenNoPortInRange()
+            throws Exception {
+        // given
+        emulator.addTask(CLUSTER, "10.0.0.1").withServiceName("hazelcast");
+        emulator.setTaskDefinitionPorts(TASK_DEFINITION, Arrays.asList(8080));
+
+        // when
+        discovery.getAddresses();
+
+        // then
+        assertNull(discovery.getPorts("10.0.0.1"));
+    }
+
+    @Test
+    public void discoverNodes_ofEcsTasks() {
+        // given
+        emulator.addTask(CLUSTER, "10.0.0.1").withServiceName("hazelcast");
+        emulator.addTask(CLUSTER, "10.0.0.2").withServiceName("hazelcast");
+        emulator.setTaskDefinitionPorts(TASK_DEFINITION, Arrays.asList(5701));
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("host-header", emulator.getEndpoint());
+        properties.put("access-key", AwsEmulator.ACCESS_KEY);
+        properties.put("secret-key", AwsEmulator.SECRET_KEY);
+        properties.put("connection-retries", 0);
+        properties.put("ecs-cluster", CLUSTER);
+        properties.put("ecs-service-name", "hazelcast");
+        AwsDiscoveryStrategy strategy = new AwsDiscoveryStrategy(properties);
+
+        // when
+        List<String> addresses = new ArrayList<String>();
+        try {
+            for (DiscoveryNode node : strategy.discoverNodes()) {
+                addresses.add(node.getPrivateAddress().getHost() + ":" + node.getPrivateAddress().getPort());
+            }
+        } finally {
+            strategy.destroy();
+        }
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.1:5701", "10.0.0.2:5701"), addresses);
+        assertEquals(0, emulator.getDescribeInstancesRequests());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class EndpointPoolTest {
+    private static final String VPC_ENDPOINT = "vpce-1.ec2.us-east-1.vpce.amazonaws.com";
+    private static final String REGIONAL_ENDPOINT = "ec2.us-east-1.amazonaws.com";
+    private static final long PROBE_INTERVAL_MILLIS = 200;
+
+    private final EndpointPool pool = new EndpointPool(Arrays.asList(VPC_ENDPOINT, REGIONAL_ENDPOINT), PROBE_INTERVAL_MILLIS);
+    private final FakeEndpoints endpoints = new FakeEndpoints();
+
+    @Test
+    public void sendsToFirstEndpoint()
+            throws Exception {
+        // when
+        String response = pool.send(endpoints);
+
+        // then
+        assertEquals(VPC_ENDPOINT, response);
+        assertEquals(Collections.singletonList(VPC_ENDPOINT), endpoints.requests);
+    }
+
+    @Test
+    public void failsOverWithinRequest()
+            throws Exception {
+        // given
+        endpoints.failing.add(VPC_ENDPOINT);
+
+        // when
+        String response = pool.send(endpoints);
+
+        // then
+        assertEquals(REGIONAL_ENDPOINT, response);
+        assertEquals(Arrays.asList(VPC_ENDPOINT, REGIONAL_ENDPOINT), endpoints.requests);
+    }
+
+    @Test
+    public void unhealthyEndpointIsSkipped_untilProbeSucceeds()
+            throws Exception {
+        // given
+        endpoints.failing.add(VPC_ENDPOINT);
+        pool.send(endpoints);
+        pool.send(endpoints);
+        endpoints.requests.clear();
+
+        // when
+        pool.send(endpoints);
+        endpoints.failing.clear();
+        Thread.sleep(PROBE_INTERVAL_MILLIS);
+        String probed = pool.send(endpoints);
+
+        // then
+        assertEquals(VPC_ENDPOINT, probed);
+        assertEquals(Arrays.asList(REGIONAL_ENDPOINT, VPC_ENDPOINT), endpoints.requests);
+        assertEquals(VPC_ENDPOINT, pool.getPreferred());
+    }
+
+    @Test
+    public void slowEndpointIsAvoided()
+            throws Exception {
+        // given
+        endpoints.delays.put(VPC_ENDPOINT, 100L);
+        endpoints.failing.add(VPC_ENDPOINT);
+        pool.send(endpoints);
+        endpoints.failing.clear();
+
+        // when
+        pool.send(endpoints);
+
+        // then
+        assertEquals(REGIONAL_ENDPOINT, pool.getPreferred());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void allEndpointsFail()
+            throws Exception {
+        // given
+        endpoints.failing.add(VPC_ENDPOINT);
+        endpoints.failing.add(REGIONAL_ENDPOINT);
+
+        // when
+        pool.send(endpoints);
+    }
+
+    /**
+     * Answers with the endpoint, after its delay, or fails if it is failing.
+     */
+    private static final class FakeEndpoints
+            implements EndpointPool.Request<String> {
+        private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> failing = Collections.synchronizedList(new ArrayList<String>());
+        private final Map<String, Long> delays = Collections.synchronizedMap(new HashMap<String, Long>());
+
+        @Override
+        public String send(String endpoint)
+                throws Exception {
+            requests.add(endpoint);
+            Long delay = delays.get(endpoint);
+            if (delay != null) {
+                Thread.sleep(delay);
+            }
+            if (failing.contains(endpoint)) {
+                throw new IllegalStateException("Expected exception");
+            }
+            return endpoint;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.impl.EventQueue;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.test.AssertTask;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.test.HazelcastTestSupport.assertTrueAllTheTime;
+import static com.hazelcast.test.HazelcastTestSupport.assertTrueEventually;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link InstanceEventWatcher} against the EC2 and SQS APIs of the {@link AwsEmulator}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class InstanceEventWatcherTest {
+    private static final int WAIT_TIME_SECONDS = 1;
+
+    private AwsEmulator emulator;
+    private AWSClient awsClient;
+    private InstanceEventWatcher watcher;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1").withTag("cluster", "a");
+        emulator.addInstance("i-2", "10.0.0.2", "54.0.0.2").withTag("cluster", "a");
+    }
+
+    @After
+    public void tearDown() {
+        if (watcher != null) {
+            watcher.shutdown();
+        }
+        if (awsClient != null) {
+            awsClient.shutdown();
+        }
+        emulator.shutdown();
+    }
+
+    private InstanceEventWatcher createWatcher(long reconciliationIntervalMillis) {
+        AwsConfig awsConfig = AwsConfig.builder().setHostHeader(emulator.getEndpoint()).setRegion("us-east-1")
+                                       .setAccessKey(AwsEmulator.ACCESS_KEY).setSecretKey(AwsEmulator.SECRET_KEY)
+                                       .setTagKey("cluster").setTagValue("a")
+                                       .setConnectionTimeoutSeconds(5).setConnectionRetries(0).build();
+        awsClient = new AWSClient(awsConfig);
+        watcher = new InstanceEventWatcher(awsClient, new EventQueue(awsConfig, emulator.getQueueUrl()),
+                new Callable<AwsCredentials>() {
+                    @Override
+                    public AwsCredentials call() {
+                        return new AwsCredentials(AwsEmulator.ACCESS_KEY, AwsEmulator.SECRET_KEY, null);
+                    }
+                }, reconciliationIntervalMillis, WAIT_TIME_SECONDS);
+        return watcher;
+    }
+
+    @Test
+    public void getAddresses_describesInstancesOnce()
+            throws Exception {
+        // given
+        createWatcher(TimeUnit.HOURS.toMillis(1));
+
+        // when
+        Map<String, String> first = watcher.getAddresses();
+        Map<String, String> second = watcher.getAddresses();
+
+        // then
+        assertEquals(2, first.size());
+        assertEquals("54.0.0.1", first.get("10.0.0.1"));
+        assertEquals(first, second);
+        assertEquals(1, emulator.getDescribeInstancesRequests());
+    }
+
+    @Test
+    public void runningInstance_isAdded()
+            throws Exception {
+        // given
+        createWatcher(TimeUnit.HOURS.toMillis(1));
+        watcher.getAddresses();
+
+        // when
+        emulator.addInstance("i-3", "10.0.0.3", "54.0.0.3").withTag("cluster", "a");
+        emulator.publishStateChange("i-3", "running");
+
+        // then
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run()
+                    throws Exception {
+                assertEquals("54.0.0.3", watcher.getAddresses().get("10.0.0.3"));
+                assertEquals(1, emulator.getDeletedMessages());
+            }
+        }, 10);
+        assertEquals(2, emulator.getDescribeInstancesRequests());
+    }
+
+    @Test
+    public void runningInstanceNotMatchingFilters_isNotAdded()
+            throws Exception {
+        // given
+        createWatcher(TimeUnit.HOURS.toMillis(1));
+        watcher.getAddresses();
+
+        // when
+        emulator.addInstance("i-3", "10.0.0.3", "54.0.0.3").withTag("cluster", "b");
+        emulator.publishStateChange("i-3", "running");
+
+        // then
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() {
+                assertEquals(1, emulator.getDeletedMessages());
+            }
+        }, 10);
+        assertEquals(2, watcher.getAddresses().size());
+    }
+
+    @Test
+    public void terminatedInstance_isRemovedWithoutDescribeInstances()
+            throws Exception {
+        // given
+        createWatcher(TimeUnit.HOURS.toMillis(1));
+        watcher.getAddresses();
+
+        // when
+        emulator.publishMessage("{\"detail-type\":\"Unrelated\"}");
+        emulator.publishStateChange("i-1", "shutting-down");
+
+        // then
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run()
+                    throws Exception {
+                assertFalse(watcher.getAddresses().containsKey("10.0.0.1"));
+                assertEquals(2, emulator.getDeletedMessages());
+            }
+        }, 10);
+        assertEquals(1, watcher.getAddresses().size());
+        assertEquals(1, emulator.getDescribeInstancesRequests());
+    }
+
+    @Test
+    public void lostEvent_isCorrectedByReconciliation()
+            throws Exception {
+        // given
+        createWatcher(TimeUnit.SECONDS.toMillis(1));
+        watcher.getAddresses();
+
+        // when
+        emulator.addInstance("i-3", "10.0.0.3", "54.0.0.3").withTag("cluster", "a");
+
+        // then
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run()
+                    throws Exception {
+                assertTrue(watcher.getAddresses().containsKey("10.0.0.3"));
+            }
+        }, 10);
+    }
+
+    @Test
+    public void noEvents_noDescribeInstances()
+            throws Exception {
+        // given
+        createWatcher(TimeUnit.HOURS.toMillis(1));
+        watcher.getAddresses();
+
+        // when
+        assertTrueAllTheTime(new AssertTask() {
+            @Override
+            public void run()
+                    throws Exception {
+                assertEquals(2, watcher.getAddresses().size());
+            }
+        }, 2);
+
+        // then
+        assertEquals(1, emulator.getDescribeInstancesRequests());
+        assertTrue(emulator.getReceiveMessageRequests() >= 1);
+    }
+
+    @Test
+    public void discoverNodes_fromEvents()
+            throws Exception {
+        // given
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("host-header", emulator.getEndpoint());
+        properties.put("access-key", AwsEmulator.ACCESS_KEY);
+        properties.put("secret-key", AwsEmulator.SECRET_KEY);
+        properties.put("connection-retries", 0);
+        properties.put("hz-port", "5701");
+        properties.put("event-queue-url", emulator.getQueueUrl());
+        final AwsDiscoveryStrategy strategy = new AwsDiscoveryStrategy(properties);
+        try {
+            assertEquals(2, count(strategy.discoverNodes()));
+
+            // when
+            emulator.publishStateChange("i-2", "terminated");
+
+            // then
+            assertTrueEventually(new AssertTask() {
+                @Override
+                public void run() {
+                    assertEquals(1, count(strategy.discoverNodes()));
+                }
+            }, 10);
+            assertEquals(1, emulator.getDescribeInstancesRequests());
+        } finally {
+            strategy.destroy();
+        }
+    }
+
+    @Test
+    public void discoverNodes_withNetworkInterfaces_pollsInsteadOfWatchingEvents() {
+        // given
+        emulator.addInstance("i-3", "10.0.0.3", null).withTag("cluster", "a").withSecondaryPrivateIp("10.0.1.3");
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put("host-header", emulator.getEndpoint());
+        properties.put("access-key", AwsEmulator.ACCESS_KEY);
+        properties.put("secret-key", AwsEmulator.SECRET_KEY);
+        properties.put("connection-retries", 0);
+        properties.put("hz-port", "5701");
+        properties.put("event-queue-url", emulator.getQueueUrl());
+        properties.put("describe-api", "network-interfaces");
+        AwsDiscoveryStrategy strategy = new AwsDiscoveryStrategy(properties);
+        try {
+            // when
+            int discovered = count(strategy.discoverNodes());
+
+            // then
+            assertEquals(4, discovered);
+            assertEquals(0, emulator.getReceiveMessageRequests());
+        } finally {
+            strategy.destroy();
+        }
+    }
+
+    private static int count(Iterable<DiscoveryNode> nodes) {
+        int count = 0;
+        for (Iterator<DiscoveryNode> iterator = nodes.iterator(); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.emulator.EmulatedInstance;
+import com.hazelcast.aws.impl.DescribeApi;
+import com.hazelcast.aws.impl.DescribeInstances;
+import com.hazelcast.aws.impl.Ec2Instance;
+import com.hazelcast.aws.impl.ImpairedInstancePolicy;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs {@link InstanceStatusFilter} against the EC2 API of the {@link AwsEmulator}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class InstanceStatusFilterTest {
+    private AwsEmulator emulator;
+    private AwsConfig awsConfig;
+    private AWSClient awsClient;
+    private EmulatedInstance impaired;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+        awsConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                             .setConnectionTimeoutSeconds(5).build();
+        awsClient = new AWSClient(awsConfig);
+        impaired = emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1").withStatusChecks("impaired", "ok");
+        emulator.addInstance("i-2", "10.0.0.2", "54.0.0.2");
+        emulator.addInstance("i-3", "10.0.0.3", null);
+    }
+
+    @After
+    public void tearDown() {
+        awsClient.shutdown();
+        emulator.shutdown();
+    }
+
+    @Test
+    public void getAddresses_excludesImpairedInstances() {
+        // given
+        InstanceStatusFilter filter = newFilter(ImpairedInstancePolicy.EXCLUDE, AwsEmulator.SECRET_KEY);
+
+        // when
+        List<String> privateIps = new ArrayList<String>(filter.getAddresses(instances()).keySet());
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.2", "10.0.0.3"), privateIps);
+    }
+
+    @Test
+    public void getAddresses_deprioritizesImpairedInstances() {
+        // given
+        InstanceStatusFilter filter = newFilter(ImpairedInstancePolicy.DEPRIORITIZE, AwsEmulator.SECRET_KEY);
+
+        // when
+        List<String> privateIps = new ArrayList<String>(filter.getAddresses(instances()).keySet());
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.2", "10.0.0.3", "10.0.0.1"), privateIps);
+    }
+
+    @Test
+    public void getAddresses_cachesStatusChecks() {
+        // given
+        InstanceStatusFilter filter = newFilter(ImpairedInstancePolicy.EXCLUDE, AwsEmulator.SECRET_KEY);
+        filter.getAddresses(instances());
+        impaired.withStatusChecks("ok", "ok");
+
+        // when
+        List<String> privateIps = new ArrayList<String>(filter.getAddresses(instances()).keySet());
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.2", "10.0.0.3"), privateIps);
+        assertEquals(1, emulator.getDescribeInstanceStatusRequests());
+    }
+
+    @Test
+    public void getAddresses_describesNewInstancesOnly() {
+        // given
+        InstanceStatusFilter filter = newFilter(ImpairedInstancePolicy.EXCLUDE, AwsEmulator.SECRET_KEY);
+        filter.getAddresses(instances());
+        emulator.addInstance("i-4", "10.0.0.4", null).withStatusChecks("ok", "impaired");
+        List<Ec2Instance> instances = instances();
+        instances.add(new Ec2Instance("i-4", "10.0.0.4", null));
+
+        // when
+        List<String> privateIps = new ArrayList<String>(filter.getAddresses(instances).keySet());
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.2", "10.0.0.3"), privateIps);
+        assertEquals(2, emulator.getDescribeInstanceStatusRequests());
+    }
+
+    @Test
+    public void getAddresses_withNetworkInterfaces_excludesAllPrivateIpsOfImpairedInstances()
+            throws Exception {
+        // given
+        impaired.withSecondaryPrivateIp("10.0.1.1");
+        AwsConfig networkInterfacesConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                                                     .setAccessKey(AwsEmulator.ACCESS_KEY)
+                                                     .setSecretKey(AwsEmulator.SECRET_KEY).setConnectionTimeoutSeconds(5)
+                                                     .setDescribeApi(DescribeApi.NETWORK_INTERFACES).build();
+        List<Ec2Instance> instances = new DescribeInstances(networkInterfacesConfig, emulator.getEndpoint())
+                .describe(Collections.<String>emptyList());
+        instances.add(new Ec2Instance(null, "10.0.2.1", null));
+        InstanceStatusFilter filter = newFilter(ImpairedInstancePolicy.EXCLUDE, AwsEmulator.SECRET_KEY);
+
+        // when
+        List<String> privateIps = new ArrayList<String>(filter.getAddresses(instances).keySet());
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.2", "10.0.0.3", "10.0.2.1"), privateIps);
+        assertEquals(1, emulator.getDescribeInstanceStatusRequests());
+    }
+
+    @Test
+    public void getAddresses_whenStatusChecksCannotBeDescribed_thenKeepsAllInstances() {
+        // given
+        InstanceStatusFilter filter = newFilter(ImpairedInstancePolicy.EXCLUDE, "wrong");
+
+        // when
+        List<String> privateIps = new ArrayList<String>(filter.getAddresses(instances()).keySet());
+
+        // then
+        assertEquals(Arrays.asList("10.0.0.1", "10.0.0.2", "10.0.0.3"), privateIps);
+    }
+
+    @Test
+    public void getAddresses_withEndpoints_failsOverToHealthyEndpoint()
+            throws Exception {
+        // given
+        AwsEmulator unhealthy = new AwsEmulator();
+        AWSClient failoverClient = new AWSClient(AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                .setConnectionTimeoutSeconds(5)
+                .setEndpoints(Arrays.asList(unhealthy.getEndpoint(), emulator.getEndpoint())).build());
+        try {
+            unhealthy.failNext(100, 500);
+            InstanceStatusFilter filter = newFilter(failoverClient, ImpairedInstancePolicy.EXCLUDE, AwsEmulator.SECRET_KEY);
+
+            // when
+            List<String> privateIps = new ArrayList<String>(filter.getAddresses(instances()).keySet());
+
+            // then
+            assertEquals(Arrays.asList("10.0.0.2", "10.0.0.3"), privateIps);
+            assertEquals(1, unhealthy.getFailedRequests());
+            assertEquals(1, emulator.getDescribeInstanceStatusRequests());
+        } finally {
+            failoverClient.shutdown();
+            unhealthy.shutdown();
+        }
+    }
+
+    private InstanceStatusFilter newFilter(ImpairedInstancePolicy policy, String secretKey) {
+        return newFilter(awsClient, policy, secretKey);
+    }
+
+    private static InstanceStatusFilter newFilter(AWSClient awsClient, ImpairedInstancePolicy policy, final String secretKey) {
+        return new InstanceStatusFilter(awsClient,
+                new Callable<AwsCredentials>() {
+                    @Override
+                    public AwsCredentials call() {
+                        return new AwsCredentials(AwsEmulator.ACCESS_KEY, secretKey, null);
+                    }
+                }, policy, InstanceStatusFilter.STATUS_TTL_MILLIS);
+    }
+
+    private static List<Ec2Instance> instances() {
+        List<Ec2Instance> instances = new ArrayList<Ec2Instance>();
+        instances.add(new Ec2Instance("i-1", "10.0.0.1", "54.0.0.1"));
+        instances.add(new Ec2Instance("i-2", "10.0.0.2", "54.0.0.2"));
+        instances.add(new Ec2Instance("i-3", "10.0.0.3", null));
+        return instances;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws;
+
+import com.hazelcast.aws.utility.ImdsStandIn;
+import com.hazelcast.aws.utility.MetadataUtil;
+import com.hazelcast.test.AssertTask;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import static com.hazelcast.test.HazelcastTestSupport.assertTrueEventually;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Runs {@link SpotInterruptionWatcher} against a local {@link ImdsStandIn}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class SpotInterruptionWatcherTest {
+    private static final String INSTANCE_ACTION = "{\"action\": \"terminate\", \"time\": \"2020-10-27T08:22:00Z\"}";
+    private static final long INSTANCE_ACTION_TIME = 1603786920000L;
+    private static final String REBALANCE_RECOMMENDATION = "{\"noticeTime\": \"2020-10-27T08:20:00Z\"}";
+    private static final long REBALANCE_RECOMMENDATION_TIME = 1603786800000L;
+
+    private ImdsStandIn imds;
+    private SpotInterruptionListener listener;
+    private SpotInterruptionWatcher watcher;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        imds = new ImdsStandIn();
+        listener = mock(SpotInterruptionListener.class);
+        watcher = new SpotInterruptionWatcher(imds.getMetadataUri(""), 100, true, listener);
+    }
+
+    @After
+    public void tearDown() {
+        watcher.shutdown();
+        imds.shutdown();
+    }
+
+    @Test
+    public void poll_noEvents() {
+        // when
+        watcher.poll();
+
+        // then
+        verifyZeroInteractions(listener);
+    }
+
+    @Test
+    public void poll_notifiesEachEventOnce() {
+        // given
+        imds.setMetadata(MetadataUtil.REBALANCE_RECOMMENDATION_URI, REBALANCE_RECOMMENDATION);
+        watcher.poll();
+        imds.setMetadata(MetadataUtil.SPOT_INSTANCE_ACTION_URI, INSTANCE_ACTION);
+
+        // when
+        watcher.poll();
+        watcher.poll();
+
+        // then
+        verify(listener, times(1)).onRebalanceRecommendation(REBALANCE_RECOMMENDATION_TIME);
+        verify(listener, times(1)).onInterruption("terminate", INSTANCE_ACTION_TIME);
+    }
+
+    @Test
+    public void poll_whenListenerFails_thenNotifiesAgain() {
+        // given
+        imds.setMetadata(MetadataUtil.SPOT_INSTANCE_ACTION_URI, INSTANCE_ACTION);
+        doThrow(new AssertionError("Expected error")).doNothing()
+                .when(listener).onInterruption("terminate", INSTANCE_ACTION_TIME);
+        watcher.poll();
+
+        // when
+        watcher.poll();
+        watcher.poll();
+
+        // then
+        verify(listener, times(2)).onInterruption("terminate", INSTANCE_ACTION_TIME);
+    }
+
+    @Test
+    public void poll_whenRebalanceListenerFails_thenStillNotifiesInterruption() {
+        // given
+        imds.setMetadata(MetadataUtil.REBALANCE_RECOMMENDATION_URI, REBALANCE_RECOMMENDATION);
+        imds.setMetadata(MetadataUtil.SPOT_INSTANCE_ACTION_URI, INSTANCE_ACTION);
+        doThrow(new IllegalStateException("Expected exception"))
+                .when(listener).onRebalanceRecommendation(REBALANCE_RECOMMENDATION_TIME);
+
+        // when
+        watcher.poll();
+
+        // then
+        verify(listener).onInterruption("terminate", INSTANCE_ACTION_TIME);
+    }
+
+    @Test
+    public void poll_unparseableEvent() {
+        // given
+        imds.setMetadata(MetadataUtil.SPOT_INSTANCE_ACTION_URI, "unexpected");
+
+        // when
+        watcher.poll();
+
+        // then
+        verify(listener).onInterruption(null, -1);
+    }
+
+    @Test
+    public void poll_whenMetadataServiceFails_thenNoEvent() {
+        // given
+        imds.shutdown();
+
+        // when
+        watcher.poll();
+
+        // then
+        verify(listener, never()).onInterruption(anyString(), anyLong());
+    }
+
+    @Test
+    public void start_pollsInBackground() {
+        // given
+        watcher.start();
+
+        // when
+        imds.setMetadata(MetadataUtil.SPOT_INSTANCE_ACTION_URI, INSTANCE_ACTION);
+
+        // then
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() {
+                verify(listener).onInterruption("terminate", INSTANCE_ACTION_TIME);
+            }
+        }, 5);
+    }
+}
@@ -0,0 +1,828 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.emulator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonArray;
+import com.hazelcast.internal.json.JsonObject;
+import com.hazelcast.internal.json.JsonValue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded emulator of the AWS services used by the plugin, for tests and offline load tests:
+ * <ul>
+ * <li>the EC2 {@code DescribeInstances} API at {@code /}, with filters, pagination ({@code MaxResults}/{@code NextToken})
+ * and Signature Version 4 validation; instances are returned for the region of the credential scope</li>
+ * <li>the Instance Metadata Service at {@code /latest/}, including IMDSv2 session tokens</li>
+ * <li>the ECS credentials endpoint at {@link #ECS_CREDENTIALS_PATH}</li>
+ * <li>the SQS {@code ReceiveMessage} (with long polling) and {@code DeleteMessageBatch} APIs at {@code /} for the queue
+ * {@link #getQueueUrl()}, receiving the events of {@link #publishStateChange(String, String)}; received messages are not
+ * delivered again, even if they are not deleted</li>
+ * <li>the ECS {@code ListTasks} (with pagination), {@code DescribeTasks} (at most 100 tasks per request) and
+ * {@code DescribeTaskDefinition} APIs of the JSON protocol at {@code /}, serving the tasks of
+ * {@link #addTask(String, String)}</li>
+ * <li>the EC2 {@code DescribeNetworkInterfaces} API at {@code /}, returning the primary network interface of each
+ * instance with its secondary private IPs</li>
+ * <li>the Auto Scaling {@code DescribeAutoScalingGroups} API at {@code /}, with pagination, listing the instances of
+ * {@link #setAutoScalingInstance(String, String, String)}</li>
+ * <li>the EC2 {@code DescribeInstanceStatus} API at {@code /}, at most 100 instance IDs per request, returning the status
+ * checks of {@link EmulatedInstance#withStatusChecks(String, String)} for the running instances</li>
+ * </ul>
+ * Faults can be injected into the EC2 API: latency (applied to all the requests), throttling, bursts of 5xx responses and
+ * truncated response bodies.
+ * <p>
+ * Point the plugin to the emulator with the host header {@link #getEndpoint()} and the keys {@link #ACCESS_KEY} and
+ * {@link #SECRET_KEY}, or the session credentials served to IAM roles.
+ */
+public class AwsEmulator {
+    public static final String ACCESS_KEY = "AKIAEMULATOR";
+    public static final String SECRET_KEY = "emulator-secret-key";
+    public static final String ROLE_NAME = "emulator-role";
+    public static final String ROLE_ACCESS_KEY = "ASIAEMULATOR";
+    public static final String ROLE_SECRET_KEY = "emulator-role-secret-key";
+    public static final String ROLE_SESSION_TOKEN = "emulator-session-token";
+    public static final String ECS_CREDENTIALS_PATH = "/v2/credentials/emulator";
+
+    private static final String METADATA_PATH = "/latest/meta-data/";
+    private static final String TOKEN_PATH = "/latest/api/token";
+    private static final String SECURITY_CREDENTIALS = "iam/security-credentials/";
+    private static final int THREADS = 16;
+    private static final String QUEUE_PATH = "/123456789012/hazelcast-events";
+    private static final String ECS_TARGET_PREFIX = "AmazonEC2ContainerServiceV20141113.";
+    private static final int MAX_ECS_TASKS = 100;
+    private static final int MAX_FILTER_VALUES = 200;
+    private static final int MAX_INSTANCE_STATUS_IDS = 100;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<EmulatedInstance> instances = new CopyOnWriteArrayList<EmulatedInstance>();
+    private final List<EmulatedTask> tasks = new CopyOnWriteArrayList<EmulatedTask>();
+    private final Map<String, List<Integer>> taskDefinitionPorts = new ConcurrentHashMap<String, List<Integer>>();
+    private final Map<String, AtomicInteger> ecsRequests = new ConcurrentHashMap<String, AtomicInteger>();
+    private final Map<String, Map<String, String>> autoScalingGroups = new ConcurrentHashMap<String, Map<String, String>>();
+    private final Map<String, String> secretKeys = new ConcurrentHashMap<String, String>();
+    private final SignatureV4Validator signatureValidator = new SignatureV4Validator(secretKeys);
+    private final BlockingQueue<String> queuedEvents = new LinkedBlockingQueue<String>();
+    private final Map<String, String> receivedEvents = new ConcurrentHashMap<String, String>();
+
+    private final AtomicInteger describeInstancesRequests = new AtomicInteger();
+    private final AtomicInteger metadataRequests = new AtomicInteger();
+    private final AtomicInteger ecsCredentialsRequests = new AtomicInteger();
+    private final AtomicInteger rejectedSignatures = new AtomicInteger();
+    private final AtomicInteger throttledRequests = new AtomicInteger();
+    private final AtomicInteger failedRequests = new AtomicInteger();
+    private final AtomicInteger truncatedResponses = new AtomicInteger();
+    private final AtomicInteger receiveMessageRequests = new AtomicInteger();
+    private final AtomicInteger deletedMessages = new AtomicInteger();
+    private final AtomicInteger describeAutoScalingGroupsRequests = new AtomicInteger();
+    private final AtomicInteger describeNetworkInterfacesRequests = new AtomicInteger();
+    private final AtomicInteger describeInstanceStatusRequests = new AtomicInteger();
+    private final AtomicInteger messageIds = new AtomicInteger();
+    private final AtomicInteger throttleNext = new AtomicInteger();
+    private final AtomicInteger failNext = new AtomicInteger();
+    private final AtomicInteger truncateNext = new AtomicInteger();
+
+    private final Object rateLimitMutex = new Object();
+    private int requestsPerSecond;
+    private long rateLimitWindowStart;
+    private int rateLimitWindowRequests;
+
+    private volatile long latencyMillis;
+    private volatile int failureCode = 500;
+    private volatile boolean validateSignatures = true;
+    private volatile String availabilityZone = "us-east-1a";
+
+    public AwsEmulator()
+            throws IOException {
+        secretKeys.put(ACCESS_KEY, SECRET_KEY);
+        secretKeys.put(ROLE_ACCESS_KEY, ROLE_SECRET_KEY);
+        executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "aws-emulator");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException {
+                try {
+                    sleep(latencyMillis);
+                    route(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Returns the endpoint to configure as the host header of the plugin, e.g. {@code http://127.0.0.1:12345}.
+     */
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the URL of the emulated SQS queue receiving the EC2 instance state-change events.
+     */
+    public String getQueueUrl() {
+        return getEndpoint() + QUEUE_PATH;
+    }
+
+    /**
+     * Sends an EventBridge {@code EC2 Instance State-change Notification} event to the queue of {@link #getQueueUrl()}.
+     */
+    public void publishStateChange(String instanceId, String state) {
+        queuedEvents.add("{\"version\":\"0\",\"id\":\"event-" + messageIds.incrementAndGet() + "\","
+                + "\"detail-type\":\"EC2 Instance State-change Notification\",\"source\":\"aws.ec2\","
+                + "\"account\":\"123456789012\",\"region\":\"us-east-1\","
+                + "\"resources\":[\"arn:aws:ec2:us-east-1:123456789012:instance/" + instanceId + "\"],"
+                + "\"detail\":{\"instance-id\":\"" + instanceId + "\",\"state\":\"" + state + "\"}}");
+    }
+
+    /**
+     * Sends an arbitrary message to the queue of {@link #getQueueUrl()}.
+     */
+    public void publishMessage(String body) {
+        queuedEvents.add(body);
+    }
+
+    public EmulatedInstance addInstance(String instanceId, String privateIp, String publicIp) {
+        EmulatedInstance instance = new EmulatedInstance(instanceId, privateIp, publicIp);
+        instances.add(instance);
+        return instance;
+    }
+
+    /**
+     * Adds running instances with private IPs 10.x.y.z and public IPs 54.x.y.z.
+     */
+    public List<EmulatedInstance> addInstances(int count) {
+        List<EmulatedInstance> added = new ArrayList<EmulatedInstance>(count);
+        int offset = instances.size();
+        for (int i = offset; i < offset + count; i++) {
+            String suffix = ((i >> 16) & 0xFF) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+            added.add(addInstance(String.format("i-%08x", i), "10." + suffix, "54." + suffix));
+        }
+        return added;
+    }
+
+    /**
+     * Adds a running ECS task of the cluster, with a generated ARN.
+     */
+    public EmulatedTask addTask(String cluster, String privateIp) {
+        EmulatedTask task = new EmulatedTask("arn:aws:ecs:us-east-1:123456789012:task/" + cluster + "/task-"
+                + (tasks.size() + 1), cluster, privateIp);
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Sets the container ports of the port mappings of the task definition.
+     */
+    public void setTaskDefinitionPorts(String taskDefinitionArn, List<Integer> ports) {
+        taskDefinitionPorts.put(taskDefinitionArn, ports);
+    }
+
+    /**
+     * Returns the number of requests of the ECS action, e.g. "DescribeTasks".
+     */
+    public int getEcsRequests(String action) {
+        AtomicInteger requests = ecsRequests.get(action);
+        return requests == null ? 0 : requests.get();
+    }
+
+    public void removeInstance(EmulatedInstance instance) {
+        instances.remove(instance);
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Limits the rate of the EC2 API requests, like the EC2 API request throttling. Requests above the limit of the
+     * current second are answered with HTTP 503 {@code RequestLimitExceeded}.
+     *
+     * @param requestsPerSecond the maximum number of requests per second, 0 for no limit
+     */
+    public void setRateLimit(int requestsPerSecond) {
+        synchronized (rateLimitMutex) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+    }
+
+    /**
+     * Answers the next {@code count} EC2 API requests with HTTP 503 {@code RequestLimitExceeded}.
+     */
+    public void throttleNext(int count) {
+        throttleNext.set(count);
+    }
+
+    /**
+     * Answers the next {@code count} EC2, ECS and Auto Scaling API requests with the given 5xx HTTP code.
+     */
+    public void failNext(int count, int code) {
+        failureCode = code;
+        failNext.set(count);
+    }
+
+    /**
+     * Cuts the body of the next {@code count} EC2 API responses in half.
+     */
+    public void truncateNext(int count) {
+        truncateNext.set(count);
+    }
+
+    public void setValidateSignatures(boolean validateSignatures) {
+        this.validateSignatures = validateSignatures;
+    }
+
+    public void setAvailabilityZone(String availabilityZone) {
+        this.availabilityZone = availabilityZone;
+    }
+
+    public int getDescribeInstancesRequests() {
+        return describeInstancesRequests.get();
+    }
+
+    public int getMetadataRequests() {
+        return metadataRequests.get();
+    }
+
+    public int getEcsCredentialsRequests() {
+        return ecsCredentialsRequests.get();
+    }
+
+    public int getRejectedSignatures() {
+        return rejectedSignatures.get();
+    }
+
+    public int getThrottledRequests() {
+        return throttledRequests.get();
+    }
+
+    public int getFailedRequests() {
+        return failedRequests.get();
+    }
+
+    public int getTruncatedResponses() {
+        return truncatedResponses.get();
+    }
+
+    public int getReceiveMessageRequests() {
+        return receiveMessageRequests.get();
+    }
+
+    public int getDeletedMessages() {
+        return deletedMessages.get();
+    }
+
+    public int getDescribeNetworkInterfacesRequests() {
+        return describeNetworkInterfacesRequests.get();
+    }
+
+    public int getDescribeAutoScalingGroupsRequests() {
+        return describeAutoScalingGroupsRequests.get();
+    }
+
+    public int getDescribeInstanceStatusRequests() {
+        return describeInstanceStatusRequests.get();
+    }
+
+    /**
+     * Adds the instance to the Auto Scaling group or changes its lifecycle state in the group, e.g. to "InService" or
+     * "Terminating:Wait".
+     */
+    public void setAutoScalingInstance(String groupName, String instanceId, String lifecycleState) {
+        Map<String, String> group = new ConcurrentHashMap<String, String>();
+        Map<String, String> existing = ((ConcurrentHashMap<String, Map<String, String>>) autoScalingGroups)
+                .putIfAbsent(groupName, group);
+        (existing == null ? group : existing).put(instanceId, lifecycleState);
+    }
+
+    public void shutdown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void route(HttpExchange exchange)
+            throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (TOKEN_PATH.equals(path)) {
+            respond(exchange, 200, "text/plain", "emulator-token");
+        } else if (path.startsWith(METADATA_PATH)) {
+            metadataRequests.incrementAndGet();
+            handleMetadata(exchange, path.substring(METADATA_PATH.length()));
+        } else if (ECS_CREDENTIALS_PATH.equals(path)) {
+            ecsCredentialsRequests.incrementAndGet();
+            respond(exchange, 200, "application/json", roleCredentialsJson());
+        } else if (exchange.getRequestHeaders().getFirst("X-Amz-Target") != null) {
+            handleEcs(exchange);
+        } else {
+            handleEc2(exchange);
+        }
+    }
+
+    private void handleMetadata(HttpExchange exchange, String relativePath)
+            throws IOException {
+        if ("placement/availability-zone/".equals(relativePath) || "placement/availability-zone".equals(relativePath)) {
+            respond(exchange, 200, "text/plain", availabilityZone);
+        } else if (SECURITY_CREDENTIALS.equals(relativePath)) {
+            respond(exchange, 200, "text/plain", ROLE_NAME);
+        } else if ((SECURITY_CREDENTIALS + ROLE_NAME).equals(relativePath)) {
+            respond(exchange, 200, "application/json", roleCredentialsJson());
+        } else {
+            respond(exchange, 404, "text/plain", "");
+        }
+    }
+
+    private static String roleCredentialsJson() {
+        return "{\n  \"Code\" : \"Success\",\n  \"Type\" : \"AWS-HMAC\",\n  \"AccessKeyId\" : \"" + ROLE_ACCESS_KEY + "\",\n"
+                + "  \"SecretAccessKey\" : \"" + ROLE_SECRET_KEY + "\",\n  \"Token\" : \"" + ROLE_SESSION_TOKEN + "\",\n"
+                + "  \"Expiration\" : \"2099-01-01T00:00:00Z\"\n}";
+    }
+
+    private void handleEc2(HttpExchange exchange)
+            throws IOException {
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        if ("ReceiveMessage".equals(parameters.get("Action")) || "DeleteMessageBatch".equals(parameters.get("Action"))) {
+            handleSqs(exchange, parameters);
+            return;
+        }
+        if ("DescribeAutoScalingGroups".equals(parameters.get("Action"))) {
+            handleAutoScaling(exchange, parameters);
+            return;
+        }
+        if ("DescribeInstanceStatus".equals(parameters.get("Action"))) {
+            handleInstanceStatus(exchange, parameters);
+            return;
+        }
+        boolean networkInterfaces = "DescribeNetworkInterfaces".equals(parameters.get("Action"));
+        if (!networkInterfaces && !"DescribeInstances".equals(parameters.get("Action"))) {
+            respond(exchange, 400, "text/xml", error("InvalidAction", "Unsupported action " + parameters.get("Action")));
+            return;
+        }
+        (networkInterfaces ? describeNetworkInterfacesRequests : describeInstancesRequests).incrementAndGet();
+        if (validateSignatures) {
+            String failure = signatureValidator.validate(parameters, exchange.getRequestHeaders().getFirst("Host"));
+            if (failure != null) {
+                rejectedSignatures.incrementAndGet();
+                respond(exchange, 403, "text/xml", error("SignatureDoesNotMatch", failure));
+                return;
+            }
+        }
+        if (decrementIfPositive(throttleNext) || isRateLimited()) {
+            throttledRequests.incrementAndGet();
+            respond(exchange, 503, "text/xml", error("RequestLimitExceeded", "Request limit exceeded."));
+            return;
+        }
+        if (decrementIfPositive(failNext)) {
+            failedRequests.incrementAndGet();
+            respond(exchange, failureCode, "text/xml", error("InternalError", "An internal error has occurred."));
+            return;
+        }
+        try {
+            String body = networkInterfaces ? describeNetworkInterfaces(parameters) : describeInstances(parameters);
+            if (decrementIfPositive(truncateNext)) {
+                truncatedResponses.incrementAndGet();
+                body = body.substring(0, body.length() / 2);
+            }
+            respond(exchange, 200, "text/xml", body);
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "text/xml", error("InvalidParameterValue", e.getMessage()));
+        }
+    }
+
+    private void handleEcs(HttpExchange exchange)
+            throws IOException {
+        String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+        String action = target.startsWith(ECS_TARGET_PREFIX) ? target.substring(ECS_TARGET_PREFIX.length()) : target;
+        ecsRequests.putIfAbsent(action, new AtomicInteger());
+        ecsRequests.get(action).incrementAndGet();
+        Reader reader = new InputStreamReader(exchange.getRequestBody(), "UTF-8");
+        StringBuilder body = new StringBuilder();
+        char[] buffer = new char[1024];
+        for (int read = reader.read(buffer); read > 0; read = reader.read(buffer)) {
+            body.append(buffer, 0, read);
+        }
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        if (validateSignatures) {
+            String failure = signatureValidator.validate(parameters, exchange.getRequestHeaders().getFirst("Host"),
+                    exchange.getRequestMethod(), body.toString());
+            if (failure != null) {
+                rejectedSignatures.incrementAndGet();
+                respond(exchange, 403, "application/x-amz-json-1.1", ecsError("SignatureDoesNotMatch", failure));
+                return;
+            }
+        }
+        if (decrementIfPositive(failNext)) {
+            failedRequests.incrementAndGet();
+            respond(exchange, failureCode, "application/x-amz-json-1.1", ecsError("ServerException", "Internal error."));
+            return;
+        }
+        JsonObject request = Json.parse(body.toString()).asObject();
+        if ("ListTasks".equals(action)) {
+            respond(exchange, 200, "application/x-amz-json-1.1", listTasks(request));
+        } else if ("DescribeTasks".equals(action) && request.get("tasks").asArray().size() <= MAX_ECS_TASKS) {
+            respond(exchange, 200, "application/x-amz-json-1.1", describeTasks(request));
+        } else if ("DescribeTaskDefinition".equals(action)) {
+            List<Integer> ports = taskDefinitionPorts.get(request.getString("taskDefinition", ""));
+            JsonArray portMappings = new JsonArray();
+            for (int port : ports == null ? new ArrayList<Integer>() : ports) {
+                portMappings.add(Json.object().add("containerPort", port).add("hostPort", port).add("protocol", "tcp"));
+            }
+            JsonArray containerDefinitions = new JsonArray()
+                    .add(Json.object().add("name", "hazelcast").add("portMappings", portMappings));
+            respond(exchange, 200, "application/x-amz-json-1.1", Json.object().add("taskDefinition", Json.object()
+                    .add("containerDefinitions", containerDefinitions).add("networkMode", "awsvpc")).toString());
+        } else {
+            respond(exchange, 400, "application/x-amz-json-1.1", ecsError("InvalidParameterException", "Invalid " + action));
+        }
+    }
+
+    private String listTasks(JsonObject request) {
+        String cluster = request.getString("cluster", "default");
+        String serviceName = request.getString("serviceName", null);
+        List<String> taskArns = new ArrayList<String>();
+        for (EmulatedTask task : tasks) {
+            if (task.getCluster().equals(cluster) && (serviceName == null || serviceName.equals(task.getServiceName()))) {
+                taskArns.add(task.getTaskArn());
+            }
+        }
+        int from = Integer.parseInt(request.getString("nextToken", "0"));
+        int to = Math.min(from + request.getInt("maxResults", MAX_ECS_TASKS), taskArns.size());
+        JsonArray page = new JsonArray();
+        for (String taskArn : taskArns.subList(from, to)) {
+            page.add(taskArn);
+        }
+        JsonObject response = Json.object().add("taskArns", page);
+        if (to < taskArns.size()) {
+            response.add("nextToken", String.valueOf(to));
+        }
+        return response.toString();
+    }
+
+    private String describeTasks(JsonObject request) {
+        JsonArray described = new JsonArray();
+        for (JsonValue taskArn : request.get("tasks").asArray()) {
+            for (EmulatedTask task : tasks) {
+                if (task.getTaskArn().equals(taskArn.asString())) {
+                    described.add(task.toJson());
+                }
+            }
+        }
+        return Json.object().add("tasks", described).add("failures", new JsonArray()).toString();
+    }
+
+    private static String ecsError(String type, String message) {
+        return Json.object().add("__type", type).add("message", message).toString();
+    }
+
+    private void handleAutoScaling(HttpExchange exchange, Map<String, String> parameters)
+            throws IOException {
+        describeAutoScalingGroupsRequests.incrementAndGet();
+        if (validateSignatures) {
+            String failure = signatureValidator.validate(parameters, exchange.getRequestHeaders().getFirst("Host"));
+            if (failure != null) {
+                rejectedSignatures.incrementAndGet();
+                respond(exchange, 403, "text/xml", error("SignatureDoesNotMatch", failure));
+                return;
+            }
+        }
+        if (decrementIfPositive(failNext)) {
+            failedRequests.incrementAndGet();
+            respond(exchange, failureCode, "text/xml", error("InternalFailure", "An internal error has occurred."));
+            return;
+        }
+        List<String> groupNames = new ArrayList<String>();
+        for (int i = 1; parameters.containsKey("AutoScalingGroupNames.member." + i); i++) {
+            groupNames.add(parameters.get("AutoScalingGroupNames.member." + i));
+        }
+        int from = parameters.containsKey("NextToken") ? Integer.parseInt(parameters.get("NextToken")) : 0;
+        int maxRecords = parameters.containsKey("MaxRecords") ? Integer.parseInt(parameters.get("MaxRecords")) : 50;
+        int to = Math.min(groupNames.size(), from + maxRecords);
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?>\n<DescribeAutoScalingGroupsResponse "
+                + "xmlns=\"http://autoscaling.amazonaws.com/doc/2011-01-01/\"><DescribeAutoScalingGroupsResult>"
+                + "<AutoScalingGroups>");
+        for (String groupName : groupNames.subList(from, to)) {
+            Map<String, String> group = autoScalingGroups.get(groupName);
+            if (group == null) {
+                continue;
+            }
+            xml.append("<member><AutoScalingGroupName>").append(groupName).append("</AutoScalingGroupName><Instances>");
+            for (Map.Entry<String, String> instance : group.entrySet()) {
+                xml.append("<member><InstanceId>").append(instance.getKey()).append("</InstanceId><LifecycleState>")
+                   .append(instance.getValue()).append("</LifecycleState><HealthStatus>Healthy</HealthStatus>")
+                   .append("<AvailabilityZone>us-east-1a</AvailabilityZone></member>");
+            }
+            xml.append("</Instances></member>");
+        }
+        xml.append("</AutoScalingGroups>");
+        if (to < groupNames.size()) {
+            xml.append("<NextToken>").append(to).append("</NextToken>");
+        }
+        respond(exchange, 200, "text/xml", xml.append("</DescribeAutoScalingGroupsResult>"
+                + "<ResponseMetadata><RequestId>emulator</RequestId></ResponseMetadata>"
+                + "</DescribeAutoScalingGroupsResponse>").toString());
+    }
+
+    private void handleInstanceStatus(HttpExchange exchange, Map<String, String> parameters)
+            throws IOException {
+        describeInstanceStatusRequests.incrementAndGet();
+        if (validateSignatures) {
+            String failure = signatureValidator.validate(parameters, exchange.getRequestHeaders().getFirst("Host"));
+            if (failure != null) {
+                rejectedSignatures.incrementAndGet();
+                respond(exchange, 403, "text/xml", error("SignatureDoesNotMatch", failure));
+                return;
+            }
+        }
+        if (decrementIfPositive(failNext)) {
+            failedRequests.incrementAndGet();
+            respond(exchange, failureCode, "text/xml", error("InternalError", "An internal error has occurred."));
+            return;
+        }
+        List<String> instanceIds = new ArrayList<String>();
+        for (int i = 1; parameters.containsKey("InstanceId." + i); i++) {
+            instanceIds.add(parameters.get("InstanceId." + i));
+        }
+        if (instanceIds.size() > MAX_INSTANCE_STATUS_IDS) {
+            respond(exchange, 400, "text/xml", error("InvalidParameterValue", "Too many instance IDs"));
+            return;
+        }
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<DescribeInstanceStatusResponse"
+                + " xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\"><requestId>emulator</requestId><instanceStatusSet>");
+        for (EmulatedInstance instance : instances) {
+            if (instanceIds.contains(instance.getInstanceId()) && "running".equals(instance.getState())) {
+                xml.append("<item><instanceId>").append(instance.getInstanceId()).append("</instanceId>")
+                   .append("<instanceState><code>16</code><name>running</name></instanceState>")
+                   .append("<systemStatus><status>").append(instance.getSystemStatus()).append("</status></systemStatus>")
+                   .append("<instanceStatus><status>").append(instance.getInstanceStatus())
+                   .append("</status></instanceStatus></item>");
+            }
+        }
+        respond(exchange, 200, "text/xml", xml.append("</instanceStatusSet></DescribeInstanceStatusResponse>").toString());
+    }
+
+    private void handleSqs(HttpExchange exchange, Map<String, String> parameters)
+            throws IOException {
+        if (validateSignatures) {
+            String failure = signatureValidator.validate(parameters, exchange.getRequestHeaders().getFirst("Host"));
+            if (failure != null) {
+                rejectedSignatures.incrementAndGet();
+                respond(exchange, 403, "text/xml", error("SignatureDoesNotMatch", failure));
+                return;
+            }
+        }
+        if (!getQueueUrl().equals(parameters.get("QueueUrl"))) {
+            respond(exchange, 400, "text/xml", error("AWS.SimpleQueueService.NonExistentQueue", "The queue does not exist."));
+        } else if ("ReceiveMessage".equals(parameters.get("Action"))) {
+            receiveMessageRequests.incrementAndGet();
+            respond(exchange, 200, "text/xml", receiveMessage(parameters));
+        } else {
+            StringBuilder xml = new StringBuilder("<DeleteMessageBatchResponse><DeleteMessageBatchResult>");
+            for (int i = 1; parameters.containsKey("DeleteMessageBatchRequestEntry." + i + ".Id"); i++) {
+                if (receivedEvents.remove(parameters.get("DeleteMessageBatchRequestEntry." + i + ".ReceiptHandle")) != null) {
+                    deletedMessages.incrementAndGet();
+                }
+                xml.append("<DeleteMessageBatchResultEntry><Id>")
+                   .append(parameters.get("DeleteMessageBatchRequestEntry." + i + ".Id"))
+                   .append("</Id></DeleteMessageBatchResultEntry>");
+            }
+            respond(exchange, 200, "text/xml", xml.append("</DeleteMessageBatchResult></DeleteMessageBatchResponse>").toString());
+        }
+    }
+
+    private String receiveMessage(Map<String, String> parameters) {
+        int maxMessages = parameters.containsKey("MaxNumberOfMessages")
+                ? Integer.parseInt(parameters.get("MaxNumberOfMessages")) : 1;
+        long waitSeconds = parameters.containsKey("WaitTimeSeconds") ? Long.parseLong(parameters.get("WaitTimeSeconds")) : 0;
+        List<String> events = new ArrayList<String>();
+        try {
+            String first = queuedEvents.poll(waitSeconds, TimeUnit.SECONDS);
+            if (first != null) {
+                events.add(first);
+                queuedEvents.drainTo(events, maxMessages - 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?>\n<ReceiveMessageResponse "
+                + "xmlns=\"http://queue.amazonaws.com/doc/2012-11-05/\"><ReceiveMessageResult>");
+        for (String event : events) {
+            String receiptHandle = "receipt-" + messageIds.incrementAndGet();
+            receivedEvents.put(receiptHandle, event);
+            xml.append("<Message><MessageId>").append(receiptHandle).append("</MessageId><ReceiptHandle>")
+               .append(receiptHandle).append("</ReceiptHandle><Body>").append(escapeXml(event)).append("</Body></Message>");
+        }
+        return xml.append("</ReceiveMessageResult></ReceiveMessageResponse>").toString();
+    }
+
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private String describeInstances(Map<String, String> parameters) {
+        Map<String, List<String>> filters = parseFilters(parameters);
+        String region = SignatureV4Validator.getRegion(parameters);
+        List<EmulatedInstance> matching = new ArrayList<EmulatedInstance>();
+        for (EmulatedInstance instance : instances) {
+            if ((region == null || instance.getRegion() == null || region.equals(instance.getRegion()))
+                    && !instance.isRequesterManaged() && matches(instance, filters)) {
+                matching.add(instance);
+            }
+        }
+
+        int from = parameters.containsKey("NextToken") ? Integer.parseInt(parameters.get("NextToken")) : 0;
+        int to = parameters.containsKey("MaxResults")
+                ? Math.min(matching.size(), from + Integer.parseInt(parameters.get("MaxResults")))
+                : matching.size();
+
+        return describeInstancesResponse(matching.subList(from, to), to < matching.size() ? String.valueOf(to) : null);
+    }
+
+    private String describeNetworkInterfaces(Map<String, String> parameters) {
+        Map<String, List<String>> filters = parseFilters(parameters);
+        String region = SignatureV4Validator.getRegion(parameters);
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<DescribeNetworkInterfacesResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">"
+                + "<requestId>emulator</requestId><networkInterfaceSet>");
+        for (EmulatedInstance instance : instances) {
+            if ((region == null || instance.getRegion() == null || region.equals(instance.getRegion()))
+                    && matchesNetworkInterface(instance, filters)) {
+                instance.appendNetworkInterfaceXml(xml);
+            }
+        }
+        return xml.append("</networkInterfaceSet></DescribeNetworkInterfacesResponse>").toString();
+    }
+
+    /**
+     * Builds a DescribeInstancesResponse listing the given instances, e.g. to feed synthetic responses to the parser.
+     *
+     * @param nextToken the token of the next page or {@code null} if this is the last page
+     */
+    public static String describeInstancesResponse(List<EmulatedInstance> instances, String nextToken) {
+        StringBuilder xml = new StringBuilder(256 + instances.size() * 1024);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+           .append("<DescribeInstancesResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">")
+           .append("<requestId>emulator</requestId><reservationSet>");
+        for (EmulatedInstance instance : instances) {
+            instance.appendXml(xml);
+        }
+        xml.append("</reservationSet>");
+        if (nextToken != null) {
+            xml.append("<nextToken>").append(nextToken).append("</nextToken>");
+        }
+        return xml.append("</DescribeInstancesResponse>").toString();
+    }
+
+    private boolean isRateLimited() {
+        synchronized (rateLimitMutex) {
+            if (requestsPerSecond <= 0) {
+                return false;
+            }
+            long now = System.currentTimeMillis();
+            if (now - rateLimitWindowStart >= TimeUnit.SECONDS.toMillis(1)) {
+                rateLimitWindowStart = now;
+                rateLimitWindowRequests = 0;
+            }
+            return ++rateLimitWindowRequests > requestsPerSecond;
+        }
+    }
+
+    private static Map<String, List<String>> parseFilters(Map<String, String> parameters) {
+        Map<String, List<String>> filters = new LinkedHashMap<String, List<String>>();
+        for (int i = 1; parameters.containsKey("Filter." + i + ".Name"); i++) {
+            List<String> values = new ArrayList<String>();
+            for (int j = 1; parameters.containsKey("Filter." + i + ".Value." + j); j++) {
+                values.add(parameters.get("Filter." + i + ".Value." + j));
+            }
+            if (values.size() > MAX_FILTER_VALUES) {
+                throw new IllegalArgumentException("The filter " + parameters.get("Filter." + i + ".Name") + " has more than "
+                        + MAX_FILTER_VALUES + " values");
+            }
+            filters.put(parameters.get("Filter." + i + ".Name"), values);
+        }
+        return filters;
+    }
+
+    private static boolean matches(EmulatedInstance instance, Map<String, List<String>> filters) {
+        for (Map.Entry<String, List<String>> filter : filters.entrySet()) {
+            Boolean matches = instance.matches(filter.getKey(), filter.getValue());
+            if (matches == null) {
+                throw new IllegalArgumentException("The filter '" + filter.getKey() + "' is invalid");
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesNetworkInterface(EmulatedInstance instance, Map<String, List<String>> filters) {
+        for (Map.Entry<String, List<String>> filter : filters.entrySet()) {
+            Boolean matches = instance.matchesNetworkInterface(filter.getKey(), filter.getValue());
+            if (matches == null) {
+                throw new IllegalArgumentException("The filter '" + filter.getKey() + "' is invalid");
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String error(String code, String message) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Response><Errors><Error><Code>" + code + "</Code><Message>"
+                + message + "</Message></Error></Errors><RequestID>emulator</RequestID></Response>";
+    }
+
+    private static boolean decrementIfPositive(AtomicInteger counter) {
+        while (true) {
+            int current = counter.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String contentType, String response)
+            throws IOException {
+        byte[] body = response.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    private static Map<String, String> parseQuery(String query)
+            throws IOException {
+        Map<String, String> parameters = new LinkedHashMap<String, String>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            String[] keyValue = parameter.split("=", 2);
+            parameters.put(URLDecoder.decode(keyValue[0], "UTF-8"),
+                    keyValue.length > 1 ? URLDecoder.decode(keyValue[1], "UTF-8") : "");
+        }
+        return parameters;
+    }
+
+    private static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
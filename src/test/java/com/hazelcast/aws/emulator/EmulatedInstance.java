@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.emulator;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * EC2 instance served by the {@link AwsEmulator}. Its primary network interface has the private IP of the instance and
+ * its secondary private IPs, and the tags of the instance.
+ */
+public class EmulatedInstance {
+    private final String instanceId;
+    private final String privateIp;
+    private final String publicIp;
+    private final Map<String, String> tags = new LinkedHashMap<String, String>();
+    private final List<String> secondaryPrivateIps = new CopyOnWriteArrayList<String>();
+
+    private volatile String state = "running";
+    private volatile String region;
+    private volatile String availabilityZone = "us-east-1a";
+    private volatile String securityGroupName = "hazelcast";
+    private volatile String instanceType = "m5.large";
+    private volatile String vpcId = "vpc-emulator";
+    private volatile String subnetId = "subnet-emulator";
+    private volatile String placementGroup;
+    private volatile String systemStatus = "ok";
+    private volatile String instanceStatus = "ok";
+    private volatile boolean requesterManaged;
+
+    public EmulatedInstance(String instanceId, String privateIp, String publicIp) {
+        this.instanceId = instanceId;
+        this.privateIp = privateIp;
+        this.publicIp = publicIp;
+    }
+
+    public EmulatedInstance withTag(String key, String value) {
+        synchronized (tags) {
+            tags.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * Assigns a secondary private IP to the primary network interface, which is only discovered with
+     * {@code DescribeNetworkInterfaces}.
+     */
+    public EmulatedInstance withSecondaryPrivateIp(String secondaryPrivateIp) {
+        secondaryPrivateIps.add(secondaryPrivateIp);
+        return this;
+    }
+
+    /**
+     * Turns the primary network interface into one managed by an AWS service, like the interface of a load balancer, which
+     * is in use but not attached to an instance. It is only returned by {@code DescribeNetworkInterfaces}.
+     */
+    public EmulatedInstance asRequesterManagedInterface() {
+        this.requesterManaged = true;
+        return this;
+    }
+
+    /**
+     * Sets the statuses of the system and instance status checks returned by {@code DescribeInstanceStatus}, e.g. "ok",
+     * "impaired" or "initializing".
+     */
+    public EmulatedInstance withStatusChecks(String systemStatus, String instanceStatus) {
+        this.systemStatus = systemStatus;
+        this.instanceStatus = instanceStatus;
+        return this;
+    }
+
+    public EmulatedInstance withState(String state) {
+        this.state = state;
+        return this;
+    }
+
+    /**
+     * Sets the region the instance runs in. Instances without a region are returned for all the regions.
+     */
+    public EmulatedInstance withRegion(String region) {
+        this.region = region;
+        return this;
+    }
+
+    public EmulatedInstance withAvailabilityZone(String availabilityZone) {
+        this.availabilityZone = availabilityZone;
+        return this;
+    }
+
+    public EmulatedInstance withSecurityGroupName(String securityGroupName) {
+        this.securityGroupName = securityGroupName;
+        return this;
+    }
+
+    public EmulatedInstance withInstanceType(String instanceType) {
+        this.instanceType = instanceType;
+        return this;
+    }
+
+    public EmulatedInstance withVpcId(String vpcId) {
+        this.vpcId = vpcId;
+        return this;
+    }
+
+    public EmulatedInstance withSubnetId(String subnetId) {
+        this.subnetId = subnetId;
+        return this;
+    }
+
+    public EmulatedInstance withPlacementGroup(String placementGroup) {
+        this.placementGroup = placementGroup;
+        return this;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public String getPrivateIp() {
+        return privateIp;
+    }
+
+    public String getPublicIp() {
+        return publicIp;
+    }
+
+    public String getSystemStatus() {
+        return systemStatus;
+    }
+
+    public String getInstanceStatus() {
+        return instanceStatus;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public String getAvailabilityZone() {
+        return availabilityZone;
+    }
+
+    boolean isRequesterManaged() {
+        return requesterManaged;
+    }
+
+    public Map<String, String> getTags() {
+        synchronized (tags) {
+            return Collections.unmodifiableMap(new LinkedHashMap<String, String>(tags));
+        }
+    }
+
+    /**
+     * Returns whether the instance matches the EC2 filter with the given name and any of the values, or {@code null} if
+     * the filter is not supported by the emulator.
+     */
+    Boolean matches(String filterName, Iterable<String> values) {
+        return matches(filterName, values, attributes());
+    }
+
+    /**
+     * Same as {@link #matches(String, Iterable)}, for the DescribeNetworkInterfaces filters of the primary network interface.
+     */
+    Boolean matchesNetworkInterface(String filterName, Iterable<String> values) {
+        return matches(filterName, values, networkInterfaceAttributes());
+    }
+
+    private Boolean matches(String filterName, Iterable<String> values, Map<String, String> attributes) {
+        String actual;
+        Map<String, String> currentTags = getTags();
+        if (filterName.startsWith("tag:")) {
+            actual = currentTags.get(filterName.substring("tag:".length()));
+        } else if ("tag-key".equals(filterName)) {
+            return containsAny(currentTags.keySet(), values);
+        } else if ("tag-value".equals(filterName)) {
+            return containsAny(currentTags.values(), values);
+        } else {
+            if (!attributes.containsKey(filterName)) {
+                return null;
+            }
+            actual = attributes.get(filterName);
+        }
+        return actual != null && containsAny(Collections.singleton(actual), values);
+    }
+
+    private Map<String, String> attributes() {
+        Map<String, String> attributes = new LinkedHashMap<String, String>();
+        attributes.put("instance-id", instanceId);
+        attributes.put("instance-state-name", state);
+        attributes.put("private-ip-address", privateIp);
+        attributes.put("ip-address", publicIp);
+        attributes.put("availability-zone", availabilityZone);
+        attributes.put("instance.group-name", securityGroupName);
+        attributes.put("instance-type", instanceType);
+        attributes.put("vpc-id", vpcId);
+        attributes.put("subnet-id", subnetId);
+        attributes.put("placement-group-name", placementGroup);
+        return attributes;
+    }
+
+    private Map<String, String> networkInterfaceAttributes() {
+        Map<String, String> attributes = new LinkedHashMap<String, String>();
+        attributes.put("attachment.instance-id", requesterManaged ? null : instanceId);
+        attributes.put("requester-managed", String.valueOf(requesterManaged));
+        // the interface stays attached to a stopped instance
+        attributes.put("status", "terminated".equals(state) ? "available" : "in-use");
+        attributes.put("private-ip-address", privateIp);
+        attributes.put("availability-zone", availabilityZone);
+        attributes.put("group-name", securityGroupName);
+        attributes.put("vpc-id", vpcId);
+        attributes.put("subnet-id", subnetId);
+        return attributes;
+    }
+
+    private static boolean containsAny(Iterable<String> actual, Iterable<String> expected) {
+        for (String value : expected) {
+            for (String candidate : actual) {
+                if (value.equals(candidate)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void appendXml(StringBuilder xml) {
+        xml.append("<item><reservationId>r-").append(instanceId).append("</reservationId><ownerId>123456789012</ownerId>")
+           .append("<groupSet/><instancesSet><item>")
+           .append("<instanceId>").append(instanceId).append("</instanceId>")
+           .append("<instanceState><name>").append(state).append("</name></instanceState>")
+           .append("<instanceType>").append(instanceType).append("</instanceType>")
+           .append("<placement><availabilityZone>").append(availabilityZone).append("</availabilityZone>");
+        if (placementGroup != null) {
+            xml.append("<groupName>").append(placementGroup).append("</groupName>");
+        }
+        xml.append("</placement>")
+           .append("<subnetId>").append(subnetId).append("</subnetId><vpcId>").append(vpcId).append("</vpcId>")
+           .append("<privateIpAddress>").append(privateIp).append("</privateIpAddress>");
+        if (publicIp != null) {
+            xml.append("<ipAddress>").append(publicIp).append("</ipAddress>");
+        }
+        xml.append("<groupSet><item><groupName>").append(securityGroupName).append("</groupName></item></groupSet>")
+           .append("<tagSet>");
+        for (Map.Entry<String, String> tag : getTags().entrySet()) {
+            xml.append("<item><key>").append(tag.getKey()).append("</key><value>").append(tag.getValue())
+               .append("</value></item>");
+        }
+        xml.append("</tagSet></item></instancesSet></item>");
+    }
+
+    void appendNetworkInterfaceXml(StringBuilder xml) {
+        xml.append("<item><networkInterfaceId>eni-").append(instanceId).append("</networkInterfaceId>")
+           .append("<subnetId>").append(subnetId).append("</subnetId><vpcId>").append(vpcId).append("</vpcId>")
+           .append("<availabilityZone>").append(availabilityZone).append("</availabilityZone>")
+           .append("<status>in-use</status><privateIpAddress>").append(privateIp).append("</privateIpAddress>");
+        appendAssociation(xml, publicIp);
+        xml.append("<groupSet><item><groupName>").append(securityGroupName).append("</groupName></item></groupSet>")
+           .append("<requesterManaged>").append(requesterManaged).append("</requesterManaged>");
+        if (!requesterManaged) {
+            xml.append("<attachment><instanceId>").append(instanceId).append("</instanceId><deviceIndex>0</deviceIndex>")
+               .append("<status>attached</status><attachTime>2020-01-01T00:00:00.000Z</attachTime></attachment>");
+        }
+        xml.append("<tagSet>");
+        for (Map.Entry<String, String> tag : getTags().entrySet()) {
+            xml.append("<item><key>").append(tag.getKey()).append("</key><value>").append(tag.getValue())
+               .append("</value></item>");
+        }
+        xml.append("</tagSet><privateIpAddressesSet><item><privateIpAddress>").append(privateIp)
+           .append("</privateIpAddress><primary>true</primary>");
+        appendAssociation(xml, publicIp);
+        xml.append("</item>");
+        for (String secondaryPrivateIp : secondaryPrivateIps) {
+            xml.append("<item><privateIpAddress>").append(secondaryPrivateIp).append("</privateIpAddress>")
+               .append("<primary>false</primary></item>");
+        }
+        xml.append("</privateIpAddressesSet></item>");
+    }
+
+    private static void appendAssociation(StringBuilder xml, String publicIp) {
+        if (publicIp != null) {
+            xml.append("<association><publicIp>").append(publicIp).append("</publicIp></association>");
+        }
+    }
+}
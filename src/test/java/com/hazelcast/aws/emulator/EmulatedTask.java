@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.emulator;
+
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonArray;
+import com.hazelcast.internal.json.JsonObject;
+
+/**
+ * ECS task in the awsvpc network mode served by the {@link AwsEmulator}.
+ */
+public class EmulatedTask {
+    private final String taskArn;
+    private final String cluster;
+    private final String privateIp;
+
+    private volatile String serviceName;
+    private volatile String taskDefinitionArn = "arn:aws:ecs:us-east-1:123456789012:task-definition/hazelcast:1";
+    private volatile String lastStatus = "RUNNING";
+
+    public EmulatedTask(String taskArn, String cluster, String privateIp) {
+        this.taskArn = taskArn;
+        this.cluster = cluster;
+        this.privateIp = privateIp;
+    }
+
+    public EmulatedTask withServiceName(String serviceName) {
+        this.serviceName = serviceName;
+        return this;
+    }
+
+    public EmulatedTask withTaskDefinitionArn(String taskDefinitionArn) {
+        this.taskDefinitionArn = taskDefinitionArn;
+        return this;
+    }
+
+    public EmulatedTask withLastStatus(String lastStatus) {
+        this.lastStatus = lastStatus;
+        return this;
+    }
+
+    public String getTaskArn() {
+        return taskArn;
+    }
+
+    public String getCluster() {
+        return cluster;
+    }
+
+    public String getPrivateIp() {
+        return privateIp;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getTaskDefinitionArn() {
+        return taskDefinitionArn;
+    }
+
+    JsonObject toJson() {
+        JsonArray details = new JsonArray()
+                .add(Json.object().add("name", "subnetId").add("value", "subnet-emulator"))
+                .add(Json.object().add("name", "privateIPv4Address").add("value", privateIp));
+        JsonArray attachments = new JsonArray().add(Json.object().add("type", "ElasticNetworkInterface")
+                                                         .add("status", "ATTACHED").add("details", details));
+        JsonArray containers = new JsonArray().add(Json.object().add("name", "hazelcast").add("lastStatus", lastStatus)
+                                                       .add("networkBindings", new JsonArray()));
+        return Json.object().add("taskArn", taskArn).add("clusterArn", cluster).add("taskDefinitionArn", taskDefinitionArn)
+                   .add("lastStatus", lastStatus).add("desiredStatus", "RUNNING").add("attachments", attachments)
+                   .add("containers", containers);
+    }
+}
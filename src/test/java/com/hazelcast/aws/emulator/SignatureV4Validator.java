@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.emulator;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates AWS Signature Version 4 of query-string authenticated requests, independently of the signer of the
+ * plugin.
+ * <p>
+ * See https://docs.aws.amazon.com/general/latest/gr/sigv4-query-string-auth.html.
+ */
+class SignatureV4Validator {
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final String UNRESERVED = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_.~";
+    private static final int CREDENTIAL_PARTS = 5;
+
+    private final Map<String, String> secretKeys;
+
+    /**
+     * @param secretKeys the secret keys by access key
+     */
+    SignatureV4Validator(Map<String, String> secretKeys) {
+        this.secretKeys = secretKeys;
+    }
+
+    /**
+     * Returns {@code null} if the signature is valid or the reason why it is not.
+     */
+    String validate(Map<String, String> parameters, String host) {
+        return validate(parameters, host, "GET", "");
+    }
+
+    /**
+     * Returns {@code null} if the signature of the request with the given method and body is valid or the reason why it
+     * is not.
+     */
+    String validate(Map<String, String> parameters, String host, String method, String payload) {
+        if (!ALGORITHM.equals(parameters.get("X-Amz-Algorithm"))) {
+            return "Unsupported algorithm " + parameters.get("X-Amz-Algorithm");
+        }
+        String credential = parameters.get("X-Amz-Credential");
+        String signature = parameters.get("X-Amz-Signature");
+        String timestamp = parameters.get("X-Amz-Date");
+        if (credential == null || signature == null || timestamp == null) {
+            return "Missing signature parameters";
+        }
+        String[] credentialParts = credential.split("/");
+        if (credentialParts.length != CREDENTIAL_PARTS || !"aws4_request".equals(credentialParts[4])) {
+            return "Malformed credential " + credential;
+        }
+        String secretKey = secretKeys.get(credentialParts[0]);
+        if (secretKey == null) {
+            return "Unknown access key " + credentialParts[0];
+        }
+        if (!timestamp.startsWith(credentialParts[1])) {
+            return "Credential date does not match X-Amz-Date";
+        }
+        String expected = sign(parameters, host, method, payload, timestamp, credentialParts, secretKey);
+        return expected.equals(signature) ? null : "Signature does not match, expected " + expected;
+    }
+
+    /**
+     * Returns the region of the credential scope of the request.
+     */
+    static String getRegion(Map<String, String> parameters) {
+        String credential = parameters.get("X-Amz-Credential");
+        String[] credentialParts = credential == null ? new String[0] : credential.split("/");
+        return credentialParts.length == CREDENTIAL_PARTS ? credentialParts[2] : null;
+    }
+
+    private static String sign(Map<String, String> parameters, String host, String method, String payload, String timestamp,
+                               String[] credentialParts, String secretKey) {
+        try {
+            String canonicalRequest = method + "\n/\n" + canonicalQueryString(parameters) + "\nhost:" + host + "\n\nhost\n"
+                    + hex(sha256(payload));
+            String scope = credentialParts[1] + '/' + credentialParts[2] + '/' + credentialParts[3] + "/aws4_request";
+            String stringToSign = ALGORITHM + '\n' + timestamp + '\n' + scope + '\n' + hex(sha256(canonicalRequest));
+
+            byte[] key = hmac(("AWS4" + secretKey).getBytes("UTF-8"), credentialParts[1]);
+            key = hmac(key, credentialParts[2]);
+            key = hmac(key, credentialParts[3]);
+            key = hmac(key, "aws4_request");
+            return hex(hmac(key, stringToSign));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String canonicalQueryString(Map<String, String> parameters)
+            throws Exception {
+        List<String> components = new ArrayList<String>();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (!"X-Amz-Signature".equals(parameter.getKey())) {
+                components.add(encode(parameter.getKey()) + '=' + encode(parameter.getValue()));
+            }
+        }
+        Collections.sort(components);
+        StringBuilder result = new StringBuilder();
+        for (String component : components) {
+            if (result.length() > 0) {
+                result.append('&');
+            }
+            result.append(component);
+        }
+        return result.toString();
+    }
+
+    private static String encode(String value)
+            throws Exception {
+        StringBuilder result = new StringBuilder();
+        for (byte b : value.getBytes("UTF-8")) {
+            char c = (char) (b & 0xFF);
+            if (UNRESERVED.indexOf(c) >= 0) {
+                result.append(c);
+            } else {
+                result.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return result.toString();
+    }
+
+    private static byte[] sha256(String value)
+            throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(value.getBytes("UTF-8"));
+    }
+
+    private static byte[] hmac(byte[] key, String value)
+            throws Exception {
+        Mac mac = Mac.getInstance(HMAC_SHA256);
+        mac.init(new SecretKeySpec(key, HMAC_SHA256));
+        return mac.doFinal(value.getBytes("UTF-8"));
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b & 0xFF));
+        }
+        return result.toString();
+    }
+}
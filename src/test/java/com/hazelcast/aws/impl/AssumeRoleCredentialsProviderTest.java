@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class AssumeRoleCredentialsProviderTest {
+    private static final Executor CALLER_RUNS = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final AssumeRoleCredentialsProvider provider = spy(new AssumeRoleCredentialsProvider(AwsConfig.builder().build(),
+            "arn:aws:iam::123456789012:role/hazelcast", new Callable<AwsCredentials>() {
+        @Override
+        public AwsCredentials call() {
+            return new AwsCredentials("accessKey", "secretKey", null);
+        }
+    }, CALLER_RUNS));
+
+    private static AwsCredentials credentialsExpiringIn(long duration, TimeUnit unit) {
+        return new AwsCredentials("ASIA", "secret", "token", System.currentTimeMillis() + unit.toMillis(duration));
+    }
+
+    @Test
+    public void getCredentials_cachedUntilCloseToExpiration()
+            throws Exception {
+        // given
+        AwsCredentials credentials = credentialsExpiringIn(1, TimeUnit.HOURS);
+        doReturn(credentials).when(provider).assumeRole();
+
+        // when
+        provider.getCredentials();
+        AwsCredentials result = provider.getCredentials();
+
+        // then
+        assertSame(credentials, result);
+        verify(provider, times(1)).assumeRole();
+    }
+
+    @Test
+    public void getCredentials_refreshedInBackgroundWhenCloseToExpiration()
+            throws Exception {
+        // given
+        AwsCredentials expiringCredentials = credentialsExpiringIn(3, TimeUnit.MINUTES);
+        AwsCredentials freshCredentials = credentialsExpiringIn(1, TimeUnit.HOURS);
+        doReturn(expiringCredentials).doReturn(freshCredentials).when(provider).assumeRole();
+
+        // when
+        provider.getCredentials();
+        AwsCredentials stillValid = provider.getCredentials();
+        AwsCredentials refreshed = provider.getCredentials();
+
+        // then
+        assertSame(expiringCredentials, stillValid);
+        assertSame(freshCredentials, refreshed);
+        verify(provider, times(2)).assumeRole();
+    }
+
+    @Test
+    public void getCredentials_refreshedSynchronouslyWhenExpired()
+            throws Exception {
+        // given
+        AwsCredentials expiredCredentials = credentialsExpiringIn(30, TimeUnit.SECONDS);
+        AwsCredentials freshCredentials = credentialsExpiringIn(1, TimeUnit.HOURS);
+        doReturn(expiredCredentials).doReturn(freshCredentials).when(provider).assumeRole();
+
+        // when
+        provider.getCredentials();
+        AwsCredentials result = provider.getCredentials();
+
+        // then
+        assertSame(freshCredentials, result);
+        verify(provider, times(2)).assumeRole();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.Map;
+
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class AssumeRoleTest {
+    private static final String ROLE_ARN = "arn:aws:iam::123456789012:role/hazelcast";
+
+    private StsStandIn sts;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        sts = new StsStandIn();
+    }
+
+    @After
+    public void tearDown() {
+        sts.shutdown();
+    }
+
+    private AwsConfig.Builder predefinedAwsConfigBuilder() {
+        return AwsConfig.builder().setStsEndpoint(sts.getEndpoint()).setConnectionTimeoutSeconds(5);
+    }
+
+    @Test
+    public void execute()
+            throws Exception {
+        // given
+        AwsConfig awsConfig = predefinedAwsConfigBuilder().setAssumeRoleExternalId("external-id").build();
+        AwsCredentials baseCredentials = new AwsCredentials("baseAccessKey", "baseSecretKey", "baseToken");
+
+        // when
+        AwsCredentials credentials = new AssumeRole(awsConfig, ROLE_ARN, baseCredentials).execute();
+
+        // then
+        assertEquals("ASIA-123456789012", credentials.getAccessKey());
+        assertEquals("secret-123456789012", credentials.getSecretKey());
+        assertEquals("token-123456789012", credentials.getSessionToken());
+        assertTrue(credentials.getExpirationMillis() > System.currentTimeMillis());
+
+        Map<String, String> request = sts.getRequests().get(0);
+        assertEquals("AssumeRole", request.get("Action"));
+        assertEquals(ROLE_ARN, request.get("RoleArn"));
+        assertEquals("external-id", request.get("ExternalId"));
+        assertEquals("baseToken", request.get("X-Amz-Security-Token"));
+        assertThat(request.get("X-Amz-Credential"), containsString("baseAccessKey/"));
+        assertThat(request.get("X-Amz-Credential"), containsString("/us-east-1/sts/aws4_request"));
+    }
+
+    @Test
+    public void execute_whenAccessDenied()
+            throws Exception {
+        // given
+        sts.setResponseCode(403);
+        AwsConfig awsConfig = predefinedAwsConfigBuilder().build();
+
+        // when & then
+        try {
+            new AssumeRole(awsConfig, ROLE_ARN, new AwsCredentials("accessKey", "secretKey", null)).execute();
+            fail("AwsConnectionException was not thrown");
+        } catch (AwsConnectionException e) {
+            assertEquals(403, e.getHttpReponseCode());
+            assertThat(e.getErrorMessage(), containsString("AccessDenied"));
+        }
+    }
+
+    @Test
+    public void getSigningRegion() {
+        assertEquals("us-east-1", AssumeRole.getSigningRegion("sts.amazonaws.com"));
+        assertEquals("eu-west-1", AssumeRole.getSigningRegion("sts.eu-west-1.amazonaws.com"));
+        assertEquals("us-east-1", AssumeRole.getSigningRegion("127.0.0.1:8080"));
+    }
+}
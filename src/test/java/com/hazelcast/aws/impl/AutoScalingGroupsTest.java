@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs {@link AutoScalingGroups} against the Auto Scaling API of the {@link AwsEmulator}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class AutoScalingGroupsTest {
+    private static final AwsCredentials CREDENTIALS = new AwsCredentials(AwsEmulator.ACCESS_KEY, AwsEmulator.SECRET_KEY, null);
+
+    private AwsEmulator emulator;
+    private AutoScalingGroups autoScalingGroups;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+        AwsConfig awsConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                                       .setConnectionTimeoutSeconds(5).build();
+        autoScalingGroups = new AutoScalingGroups(awsConfig, AutoScalingGroups.endpointFor(awsConfig));
+    }
+
+    @After
+    public void tearDown() {
+        emulator.shutdown();
+    }
+
+    @Test
+    public void endpointFor() {
+        assertEquals("autoscaling.eu-west-1.amazonaws.com", AutoScalingGroups.endpointFor(
+                AwsConfig.builder().setRegion("eu-west-1").setHostHeader("ec2.amazonaws.com").build()));
+        assertEquals(emulator.getEndpoint(), AutoScalingGroups.endpointFor(
+                AwsConfig.builder().setRegion("eu-west-1").setHostHeader(emulator.getEndpoint()).build()));
+    }
+
+    @Test
+    public void getInServiceInstanceIds_skipsOtherLifecycleStates()
+            throws Exception {
+        // given
+        emulator.setAutoScalingInstance("hazelcast", "i-1", "InService");
+        emulator.setAutoScalingInstance("hazelcast", "i-2", "Pending");
+        emulator.setAutoScalingInstance("hazelcast", "i-3", "Pending:Wait");
+        emulator.setAutoScalingInstance("hazelcast", "i-4", "Terminating:Wait");
+        emulator.setAutoScalingInstance("hazelcast", "i-5", "Standby");
+        emulator.setAutoScalingInstance("web", "i-6", "InService");
+
+        // when
+        List<String> instanceIds = autoScalingGroups.getInServiceInstanceIds(CREDENTIALS, Arrays.asList("hazelcast"));
+
+        // then
+        assertEquals(Arrays.asList("i-1"), instanceIds);
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void getInServiceInstanceIds_retriesFailedRequest()
+            throws Exception {
+        // given
+        emulator.setAutoScalingInstance("hazelcast", "i-1", "InService");
+        AwsConfig awsConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                                       .setConnectionTimeoutSeconds(5).setConnectionRetries(1).build();
+        AutoScalingGroups retryingGroups = new AutoScalingGroups(awsConfig, AutoScalingGroups.endpointFor(awsConfig));
+        emulator.failNext(1, 500);
+
+        // when
+        List<String> instanceIds = retryingGroups.getInServiceInstanceIds(CREDENTIALS, Arrays.asList("hazelcast"));
+
+        // then
+        assertEquals(Arrays.asList("i-1"), instanceIds);
+        assertEquals(2, emulator.getDescribeAutoScalingGroupsRequests());
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void getInServiceInstanceIds_followsPagination()
+            throws Exception {
+        // given
+        List<String> groupNames = new ArrayList<String>();
+        for (int i = 0; i < AutoScalingGroups.MAX_RECORDS + 50; i++) {
+            groupNames.add("group-" + i);
+            emulator.setAutoScalingInstance("group-" + i, "i-" + i, "InService");
+        }
+
+        // when
+        List<String> instanceIds = autoScalingGroups.getInServiceInstanceIds(CREDENTIALS, groupNames);
+
+        // then
+        assertEquals(groupNames.size(), instanceIds.size());
+        assertEquals(2, emulator.getDescribeAutoScalingGroupsRequests());
+    }
+
+    @Test
+    public void getInServiceInstanceIds_emptyForUnknownGroup()
+            throws Exception {
+        assertEquals(Collections.<String>emptyList(),
+                autoScalingGroups.getInServiceInstanceIds(CREDENTIALS, Arrays.asList("unknown")));
+    }
+
+    @Test(expected = AwsConnectionException.class)
+    public void getInServiceInstanceIds_rejectedSignature()
+            throws Exception {
+        autoScalingGroups.getInServiceInstanceIds(new AwsCredentials(AwsEmulator.ACCESS_KEY, "wrong", null),
+                Arrays.asList("hazelcast"));
+    }
+}
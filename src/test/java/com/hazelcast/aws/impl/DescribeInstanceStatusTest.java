@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs {@link DescribeInstanceStatus} against the EC2 API of the {@link AwsEmulator}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class DescribeInstanceStatusTest {
+    private static final AwsCredentials CREDENTIALS = new AwsCredentials(AwsEmulator.ACCESS_KEY, AwsEmulator.SECRET_KEY, null);
+
+    private AwsEmulator emulator;
+    private DescribeInstanceStatus describeInstanceStatus;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+        AwsConfig awsConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                                       .setConnectionTimeoutSeconds(5).build();
+        describeInstanceStatus = new DescribeInstanceStatus(awsConfig, emulator.getEndpoint());
+    }
+
+    @After
+    public void tearDown() {
+        emulator.shutdown();
+    }
+
+    @Test
+    public void getImpairedInstanceIds_failingSystemOrInstanceStatusCheck()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", null);
+        emulator.addInstance("i-2", "10.0.0.2", null).withStatusChecks("impaired", "ok");
+        emulator.addInstance("i-3", "10.0.0.3", null).withStatusChecks("ok", "impaired");
+        emulator.addInstance("i-4", "10.0.0.4", null).withStatusChecks("initializing", "insufficient-data");
+
+        // when
+        Set<String> impaired = describeInstanceStatus.getImpairedInstanceIds(CREDENTIALS,
+                Arrays.asList("i-1", "i-2", "i-3", "i-4"));
+
+        // then
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("i-2", "i-3")), impaired);
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void getImpairedInstanceIds_inBatches()
+            throws Exception {
+        // given
+        List<String> instanceIds = new ArrayList<String>();
+        for (int i = 0; i < DescribeInstanceStatus.MAX_INSTANCE_IDS * 2 + 50; i++) {
+            instanceIds.add("i-" + i);
+            emulator.addInstance("i-" + i, "10.0." + (i / 250) + "." + (i % 250), null);
+        }
+        emulator.addInstance("i-last", "10.1.0.1", null).withStatusChecks("impaired", "impaired");
+        instanceIds.add("i-last");
+
+        // when
+        Set<String> impaired = describeInstanceStatus.getImpairedInstanceIds(CREDENTIALS, instanceIds);
+
+        // then
+        assertEquals(Collections.singleton("i-last"), impaired);
+        assertEquals(3, emulator.getDescribeInstanceStatusRequests());
+    }
+
+    @Test
+    public void getImpairedInstanceIds_retriesFailedRequest()
+            throws Exception {
+        // given
+        emulator.addInstance("i-1", "10.0.0.1", null).withStatusChecks("impaired", "ok");
+        emulator.failNext(1, 500);
+        AwsConfig awsConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                                       .setConnectionTimeoutSeconds(5).setConnectionRetries(1).build();
+
+        // when
+        Set<String> impaired = new DescribeInstanceStatus(awsConfig, emulator.getEndpoint())
+                .getImpairedInstanceIds(CREDENTIALS, Arrays.asList("i-1"));
+
+        // then
+        assertEquals(Collections.singleton("i-1"), impaired);
+        assertEquals(1, emulator.getFailedRequests());
+        assertEquals(2, emulator.getDescribeInstanceStatusRequests());
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test(expected = AwsConnectionException.class)
+    public void getImpairedInstanceIds_rejectedSignature()
+            throws Exception {
+        describeInstanceStatus.getImpairedInstanceIds(new AwsCredentials(AwsEmulator.ACCESS_KEY, "wrong", null),
+                Arrays.asList("i-1"));
+    }
+}
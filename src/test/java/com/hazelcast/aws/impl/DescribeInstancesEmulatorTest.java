@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.utility.Environment;
+import com.hazelcast.aws.utility.MetadataUtil;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs {@link DescribeInstances} with IAM Role and IAM Task Role credentials served by the {@link AwsEmulator}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class DescribeInstancesEmulatorTest {
+    private AwsEmulator emulator;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+        emulator.addInstance("i-1", "10.0.0.1", "54.0.0.1");
+    }
+
+    @After
+    public void tearDown() {
+        emulator.shutdown();
+    }
+
+    @Test
+    public void execute_withIamRoleCredentials()
+            throws Exception {
+        // given
+        AwsConfig awsConfig = configBuilder().setIamRole("DEFAULT").build();
+        DescribeInstances describeInstances = redirectToEmulator(new DescribeInstances(awsConfig, emulator.getEndpoint()));
+
+        // when
+        Map<String, String> addresses = describeInstances.execute();
+
+        // then
+        assertEquals("54.0.0.1", addresses.get("10.0.0.1"));
+        assertEquals("DEFAULT", awsConfig.getIamRole());
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void execute_withIamTaskRoleCredentials()
+            throws Exception {
+        // given
+        AwsConfig awsConfig = configBuilder().build();
+        Environment environment = mock(Environment.class);
+        when(environment.getEnvVar(Constants.ECS_CREDENTIALS_ENV_VAR_NAME)).thenReturn(AwsEmulator.ECS_CREDENTIALS_PATH);
+        DescribeInstances describeInstances = redirectToEmulator(new DescribeInstances(awsConfig, emulator.getEndpoint()));
+        doReturn("").when(describeInstances).retrieveDefaultIamRole();
+        doReturn(environment).when(describeInstances).getEnvironment();
+
+        // when
+        Map<String, String> addresses = describeInstances.execute();
+
+        // then
+        assertEquals("54.0.0.1", addresses.get("10.0.0.1"));
+        assertEquals(1, emulator.getEcsCredentialsRequests());
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void execute_withSlowEndpointHedgedToAlternateEndpoint()
+            throws Exception {
+        // given
+        AwsEmulator alternate = new AwsEmulator();
+        try {
+            alternate.addInstance("i-1", "10.0.0.1", "54.0.0.1");
+            AwsConfig awsConfig = configBuilder().setAccessKey(AwsEmulator.ACCESS_KEY).setSecretKey(AwsEmulator.SECRET_KEY)
+                                                 .setHedgePercentile(90).setHedgeEndpoint(alternate.getEndpoint()).build();
+            for (int i = 0; i < RequestHedger.MIN_SAMPLES; i++) {
+                new DescribeInstances(awsConfig, emulator.getEndpoint()).execute();
+            }
+            emulator.setLatencyMillis(TimeUnit.SECONDS.toMillis(3));
+
+            // when
+            long start = System.nanoTime();
+            Map<String, String> addresses = new DescribeInstances(awsConfig, emulator.getEndpoint()).execute();
+
+            // then
+            assertEquals("54.0.0.1", addresses.get("10.0.0.1"));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            assertEquals(1, alternate.getDescribeInstancesRequests());
+            assertEquals(0, alternate.getRejectedSignatures());
+        } finally {
+            alternate.shutdown();
+        }
+    }
+
+    private AwsConfig.Builder configBuilder() {
+        return AwsConfig.builder().setHostHeader(emulator.getEndpoint()).setRegion("us-east-1")
+                        .setConnectionTimeoutSeconds(5);
+    }
+
+    /**
+     * Sends the Instance Metadata Service and ECS credentials requests to the emulator.
+     */
+    private DescribeInstances redirectToEmulator(DescribeInstances describeInstances) {
+        DescribeInstances spy = spy(describeInstances);
+        doAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                String uri = (String) invocation.getArguments()[0];
+                String redirected = uri.replace("http://169.254.169.254", emulator.getEndpoint())
+                                       .replace(DescribeInstances.IAM_TASK_ROLE_ENDPOINT, emulator.getEndpoint());
+                return MetadataUtil.retrieveMetadataFromURI(redirected, 5, 0);
+            }
+        }).when(spy).retrieveRoleFromURI(anyString());
+        doAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                String uri = MetadataUtil.INSTANCE_METADATA_URI.concat(MetadataUtil.IAM_SECURITY_CREDENTIALS_URI);
+                return MetadataUtil.retrieveMetadataFromURI(uri.replace("http://169.254.169.254", emulator.getEndpoint()), 5, 0);
+            }
+        }).when(spy).retrieveDefaultIamRole();
+        return spy;
+    }
+}
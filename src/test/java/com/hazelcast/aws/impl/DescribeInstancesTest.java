@@ -18,7 +18,9 @@ package com.hazelcast.aws.impl;
 
 import com.hazelcast.aws.AwsConfig;
 import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.security.AwsCredentials;
 import com.hazelcast.aws.utility.Environment;
+import com.hazelcast.aws.utility.InstanceMetadataUnavailableException;
 import com.hazelcast.test.HazelcastParallelClassRunner;
 import com.hazelcast.test.annotation.ParallelTest;
 import com.hazelcast.test.annotation.QuickTest;
@@ -37,10 +39,12 @@ import static com.hazelcast.aws.utility.MetadataUtil.IAM_SECURITY_CREDENTIALS_UR
 import static com.hazelcast.aws.utility.MetadataUtil.INSTANCE_METADATA_URI;
 import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
@@ -74,12 +78,10 @@ public class DescribeInstancesTest {
         Environment mockedEnv = mock(Environment.class);
         when(mockedEnv.getEnvVar(Constants.ECS_CREDENTIALS_ENV_VAR_NAME)).thenReturn(null);
 
-        final String uri = INSTANCE_METADATA_URI + IAM_SECURITY_CREDENTIALS_URI;
-
         DescribeInstances descriptor = spy(new DescribeInstances(predefinedAwsConfigBuilder().build()));
-        doReturn("").when(descriptor).retrieveRoleFromURI(uri);
+        doReturn("").when(descriptor).retrieveDefaultIamRole();
         doReturn(mockedEnv).when(descriptor).getEnvironment();
-        descriptor.fillKeysFromIamRoles();
+        descriptor.resolveRoleCredentials();
     }
 
     @Test
@@ -89,44 +91,44 @@ public class DescribeInstancesTest {
         when(mockedEnv.getEnvVar(Constants.ECS_CREDENTIALS_ENV_VAR_NAME)).thenReturn(null);
 
         final String defaultIamRoleName = "defaultIamRole";
-        final String uri = INSTANCE_METADATA_URI + IAM_SECURITY_CREDENTIALS_URI;
-
         final String roleUri = INSTANCE_METADATA_URI + IAM_SECURITY_CREDENTIALS_URI + defaultIamRoleName;
 
         // test when <iam-role>DEFAULT</iam-role>
         AwsConfig awsConfig = predefinedAwsConfigBuilder().setIamRole("DEFAULT").build();
 
         DescribeInstances descriptor = spy(new DescribeInstances(awsConfig));
-        doReturn(defaultIamRoleName).when(descriptor).retrieveRoleFromURI(uri);
+        doReturn(defaultIamRoleName).when(descriptor).retrieveDefaultIamRole();
         doReturn(DUMMY_IAM_ROLE).when(descriptor).retrieveRoleFromURI(roleUri);
         doReturn(mockedEnv).when(descriptor).getEnvironment();
-        descriptor.fillKeysFromIamRoles();
+        AwsCredentials credentials = descriptor.resolveRoleCredentials();
 
-        assertEquals("Could not parse access key from IAM role", DUMMY_ACCESS_KEY, awsConfig.getAccessKey());
-        assertEquals("Could not parse secret key from IAM role", DUMMY_SECRET_KEY, awsConfig.getSecretKey());
+        assertEquals("Could not parse access key from IAM role", DUMMY_ACCESS_KEY, credentials.getAccessKey());
+        assertEquals("Could not parse secret key from IAM role", DUMMY_SECRET_KEY, credentials.getSecretKey());
 
         // test when <iam-role></iam-role>
         awsConfig = predefinedAwsConfigBuilder().setIamRole("").build();
 
         descriptor = spy(new DescribeInstances(awsConfig));
-        doReturn(defaultIamRoleName).when(descriptor).retrieveRoleFromURI(uri);
+        doReturn(defaultIamRoleName).when(descriptor).retrieveDefaultIamRole();
         doReturn(DUMMY_IAM_ROLE).when(descriptor).retrieveRoleFromURI(roleUri);
-        descriptor.fillKeysFromIamRoles();
+        credentials = descriptor.resolveRoleCredentials();
 
-        assertEquals("Could not parse access key from IAM role", DUMMY_ACCESS_KEY, awsConfig.getAccessKey());
-        assertEquals("Could not parse secret key from IAM role", DUMMY_SECRET_KEY, awsConfig.getSecretKey());
+        assertEquals("Could not parse access key from IAM role", DUMMY_ACCESS_KEY, credentials.getAccessKey());
+        assertEquals("Could not parse secret key from IAM role", DUMMY_SECRET_KEY, credentials.getSecretKey());
 
         // test when no <iam-role></iam-role> defined, BUT default IAM role has been assigned
         awsConfig = predefinedAwsConfigBuilder().build();
 
         descriptor = spy(new DescribeInstances(awsConfig));
-        doReturn(defaultIamRoleName).when(descriptor).retrieveRoleFromURI(uri);
+        doReturn(defaultIamRoleName).when(descriptor).retrieveDefaultIamRole();
         doReturn(DUMMY_IAM_ROLE).when(descriptor).retrieveRoleFromURI(roleUri);
-        descriptor.fillKeysFromIamRoles();
-
-        assertEquals("Could not parse access key from IAM role", DUMMY_ACCESS_KEY, awsConfig.getAccessKey());
-        assertEquals("Could not parse secret key from IAM role", DUMMY_SECRET_KEY, awsConfig.getSecretKey());
+        credentials = descriptor.resolveRoleCredentials();
 
+        assertEquals("Could not parse access key from IAM role", DUMMY_ACCESS_KEY, credentials.getAccessKey());
+        assertEquals("Could not parse secret key from IAM role", DUMMY_SECRET_KEY, credentials.getSecretKey());
+        assertEquals(DUMMY_TOKEN, credentials.getSessionToken());
+        assertNull("The resolved credentials must not be written to the shared config", awsConfig.getAccessKey());
+        assertNull(awsConfig.getIamRole());
     }
 
     @Test
@@ -139,10 +141,10 @@ public class DescribeInstancesTest {
 
         DescribeInstances descriptor = spy(new DescribeInstances(awsConfig));
         doReturn(DUMMY_IAM_ROLE).when(descriptor).retrieveRoleFromURI(uri);
-        descriptor.fillKeysFromIamRoles();
+        AwsCredentials credentials = descriptor.resolveRoleCredentials();
 
-        assertEquals("Could not parse access key from IAM role", DUMMY_ACCESS_KEY, awsConfig.getAccessKey());
-        assertEquals("Could not parse secret key from IAM role", DUMMY_SECRET_KEY, awsConfig.getSecretKey());
+        assertEquals("Could not parse access key from IAM role", DUMMY_ACCESS_KEY, credentials.getAccessKey());
+        assertEquals("Could not parse secret key from IAM role", DUMMY_SECRET_KEY, credentials.getSecretKey());
 
     }
 
@@ -151,7 +153,6 @@ public class DescribeInstancesTest {
             throws IOException {
         final String ecsEnvVarCredsUri = "someURL";
         final String uri = DescribeInstances.IAM_TASK_ROLE_ENDPOINT + ecsEnvVarCredsUri;
-        final String defaultRoleUri = INSTANCE_METADATA_URI + IAM_SECURITY_CREDENTIALS_URI;
 
         Environment mockedEnv = mock(Environment.class);
         when(mockedEnv.getEnvVar(Constants.ECS_CREDENTIALS_ENV_VAR_NAME)).thenReturn(ecsEnvVarCredsUri);
@@ -161,13 +162,35 @@ public class DescribeInstancesTest {
         // test when default role is null
         DescribeInstances descriptor = spy(new DescribeInstances(awsConfig));
         doReturn(DUMMY_IAM_ROLE).when(descriptor).retrieveRoleFromURI(uri);
-        doReturn("").when(descriptor).retrieveRoleFromURI(defaultRoleUri);
+        doReturn("").when(descriptor).retrieveDefaultIamRole();
+        doReturn(mockedEnv).when(descriptor).getEnvironment();
+
+        AwsCredentials credentials = descriptor.resolveRoleCredentials();
+
+        assertEquals("Could not parse access key from IAM task role", DUMMY_ACCESS_KEY, credentials.getAccessKey());
+        assertEquals("Could not parse secret key from IAM task role", DUMMY_SECRET_KEY, credentials.getSecretKey());
+    }
+
+    @Test
+    public void test_whenInstanceMetadataUnavailable_And_IamTaskRoleEnvVar_Exists()
+            throws IOException {
+        final String ecsEnvVarCredsUri = "someURL";
+        final String uri = DescribeInstances.IAM_TASK_ROLE_ENDPOINT + ecsEnvVarCredsUri;
+
+        Environment mockedEnv = mock(Environment.class);
+        when(mockedEnv.getEnvVar(Constants.ECS_CREDENTIALS_ENV_VAR_NAME)).thenReturn(ecsEnvVarCredsUri);
+
+        AwsConfig awsConfig = predefinedAwsConfigBuilder().build();
+
+        DescribeInstances descriptor = spy(new DescribeInstances(awsConfig));
+        doReturn(DUMMY_IAM_ROLE).when(descriptor).retrieveRoleFromURI(uri);
+        doThrow(new InstanceMetadataUnavailableException(INSTANCE_METADATA_URI)).when(descriptor).retrieveDefaultIamRole();
         doReturn(mockedEnv).when(descriptor).getEnvironment();
 
-        descriptor.fillKeysFromIamRoles();
+        AwsCredentials credentials = descriptor.resolveRoleCredentials();
 
-        assertEquals("Could not parse access key from IAM task role", DUMMY_ACCESS_KEY, awsConfig.getAccessKey());
-        assertEquals("Could not parse secret key from IAM task role", DUMMY_SECRET_KEY, awsConfig.getSecretKey());
+        assertEquals("Could not parse access key from IAM task role", DUMMY_ACCESS_KEY, credentials.getAccessKey());
+        assertEquals("Could not parse secret key from IAM task role", DUMMY_SECRET_KEY, credentials.getSecretKey());
     }
 
     @Test
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.naming.NamingException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link DnsResolver} against a {@link DnsStandIn}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class DnsResolverTest {
+    private DnsStandIn dns;
+    private DnsResolver resolver;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        dns = new DnsStandIn();
+        resolver = new DnsResolver(dns.getServer(), 1);
+    }
+
+    @After
+    public void tearDown() {
+        dns.shutdown();
+    }
+
+    @Test
+    public void resolveSrv()
+            throws Exception {
+        // given
+        dns.addSrv("hazelcast.cluster.local", 5701, "node-1.cluster.local.").addSrv("hazelcast.cluster.local", 5702,
+                "node-2.cluster.local.");
+
+        // when
+        List<SrvRecord> records = resolver.resolveSrv("hazelcast.cluster.local");
+
+        // then
+        assertEquals(2, records.size());
+        assertEquals("node-1.cluster.local", records.get(0).getTarget());
+        assertEquals(5701, records.get(0).getPort());
+        assertEquals("node-2.cluster.local", records.get(1).getTarget());
+        assertEquals(5702, records.get(1).getPort());
+    }
+
+    @Test
+    public void resolveAddresses_ipv4AndIpv6()
+            throws Exception {
+        // given
+        dns.addAddress("hazelcast.cluster.local", "10.0.0.1").addAddress("hazelcast.cluster.local", "10.0.0.2")
+           .addAddress("hazelcast.cluster.local", "fd00::1");
+
+        // when
+        List<String> addresses = resolver.resolveAddresses("hazelcast.cluster.local");
+
+        // then
+        assertEquals(3, addresses.size());
+        assertEquals(Arrays.asList("10.0.0.1", "10.0.0.2"), addresses.subList(0, 2));
+        assertTrue(addresses.get(2).startsWith("fd00:"));
+    }
+
+    @Test
+    public void resolve_unknownName()
+            throws Exception {
+        // given
+        dns.addAddress("hazelcast.cluster.local", "10.0.0.1");
+
+        // then
+        assertTrue(resolver.resolveSrv("unknown.cluster.local").isEmpty());
+        assertTrue(resolver.resolveSrv("hazelcast.cluster.local").isEmpty());
+        assertTrue(resolver.resolveAddresses("unknown.cluster.local").isEmpty());
+    }
+
+    @Test(expected = NamingException.class)
+    public void resolve_timeout()
+            throws Exception {
+        // given
+        dns.addAddress("hazelcast.cluster.local", "10.0.0.1");
+        dns.setDropQueries(true);
+
+        // when
+        resolver.resolveAddresses("hazelcast.cluster.local");
+    }
+}
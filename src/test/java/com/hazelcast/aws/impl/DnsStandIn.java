@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for a DNS server, answering the UDP queries for the SRV, A and AAAA records added to it, e.g. as AWS
+ * Cloud Map would for a service. Names without any record are answered with NXDOMAIN.
+ */
+public class DnsStandIn {
+    private static final ILogger LOGGER = Logger.getLogger(DnsStandIn.class);
+
+    private static final int TYPE_A = 1;
+    private static final int TYPE_AAAA = 28;
+    private static final int TYPE_SRV = 33;
+    private static final int HEADER_LENGTH = 12;
+
+    private final DatagramSocket socket;
+    private final Thread thread;
+    private final Map<String, List<Record>> records = new ConcurrentHashMap<String, List<Record>>();
+    private final ConcurrentMap<String, AtomicInteger> queries = new ConcurrentHashMap<String, AtomicInteger>();
+
+    private volatile boolean dropQueries;
+
+    public DnsStandIn()
+            throws IOException {
+        socket = new DatagramSocket(new InetSocketAddress("127.0.0.1", 0));
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve();
+            }
+        }, "dns-stand-in");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the "host:port" of the server.
+     */
+    public String getServer() {
+        return "127.0.0.1:" + socket.getLocalPort();
+    }
+
+    public DnsStandIn addSrv(String name, int port, String target)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream rdata = new DataOutputStream(bytes);
+        // priority and weight
+        rdata.writeShort(10);
+        rdata.writeShort(10);
+        rdata.writeShort(port);
+        writeName(rdata, target);
+        add(name, new Record(TYPE_SRV, bytes.toByteArray()));
+        return this;
+    }
+
+    public DnsStandIn addAddress(String name, String ip)
+            throws IOException {
+        byte[] address = InetAddress.getByName(ip).getAddress();
+        add(name, new Record(address.length == 4 ? TYPE_A : TYPE_AAAA, address));
+        return this;
+    }
+
+    public void removeAll(String name) {
+        records.remove(key(name));
+    }
+
+    /**
+     * Stops answering the queries, so that they time out.
+     */
+    public void setDropQueries(boolean dropQueries) {
+        this.dropQueries = dropQueries;
+    }
+
+    /**
+     * Returns the number of queries for the records of the given type ("SRV", "A" or "AAAA") of the name.
+     */
+    public int getQueries(String name, String type) {
+        AtomicInteger count = queries.get(key(name) + "/" + type);
+        return count == null ? 0 : count.get();
+    }
+
+    public void shutdown() {
+        socket.close();
+        thread.interrupt();
+    }
+
+    private void add(String name, Record record) {
+        List<Record> nameRecords = records.get(key(name));
+        if (nameRecords == null) {
+            nameRecords = new CopyOnWriteArrayList<Record>();
+            records.put(key(name), nameRecords);
+        }
+        nameRecords.add(record);
+    }
+
+    private void serve() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            DatagramPacket query = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(query);
+                byte[] response = answer(query.getData(), query.getLength());
+                if (response != null) {
+                    socket.send(new DatagramPacket(response, response.length, query.getSocketAddress()));
+                }
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                LOGGER.warning("Cannot answer the DNS query", e);
+            }
+        }
+    }
+
+    private byte[] answer(byte[] query, int length)
+            throws IOException {
+        StringBuilder name = new StringBuilder();
+        int offset = HEADER_LENGTH;
+        while (query[offset] != 0) {
+            int labelLength = query[offset];
+            name.append(name.length() == 0 ? "" : ".").append(new String(query, offset + 1, labelLength, "US-ASCII"));
+            offset += labelLength + 1;
+        }
+        int type = ((query[offset + 1] & 0xFF) << 8) | (query[offset + 2] & 0xFF);
+        int questionEnd = offset + 5;
+        String typeName = type == TYPE_SRV ? "SRV" : type == TYPE_A ? "A" : type == TYPE_AAAA ? "AAAA" : String.valueOf(type);
+        String queryKey = key(name.toString()) + "/" + typeName;
+        queries.putIfAbsent(queryKey, new AtomicInteger());
+        queries.get(queryKey).incrementAndGet();
+        if (dropQueries) {
+            return null;
+        }
+
+        List<Record> nameRecords = records.get(key(name.toString()));
+        List<Record> answers = new ArrayList<Record>();
+        if (nameRecords != null) {
+            for (Record record : nameRecords) {
+                if (record.type == type) {
+                    answers.add(record);
+                }
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream response = new DataOutputStream(bytes);
+        response.write(query, 0, 2);
+        // response, recursion desired and available, NXDOMAIN if the name has no records at all
+        response.writeShort(0x8180 | (nameRecords == null ? 3 : 0));
+        response.writeShort(1);
+        response.writeShort(answers.size());
+        response.writeShort(0);
+        response.writeShort(0);
+        response.write(query, HEADER_LENGTH, questionEnd - HEADER_LENGTH);
+        for (Record record : answers) {
+            // pointer to the name of the question
+            response.writeShort(0xC000 | HEADER_LENGTH);
+            response.writeShort(record.type);
+            response.writeShort(1);
+            response.writeInt(60);
+            response.writeShort(record.rdata.length);
+            response.write(record.rdata);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeName(DataOutputStream out, String name)
+            throws IOException {
+        for (String label : name.split("\\.")) {
+            if (label.length() > 0) {
+                out.writeByte(label.length());
+                out.write(label.getBytes("US-ASCII"));
+            }
+        }
+        out.writeByte(0);
+    }
+
+    private static String key(String name) {
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        return lowerCase.endsWith(".") ? lowerCase.substring(0, lowerCase.length() - 1) : lowerCase;
+    }
+
+    private static final class Record {
+        private final int type;
+        private final byte[] rdata;
+
+        Record(int type, byte[] rdata) {
+            this.type = type;
+            this.rdata = rdata;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link EcsTasks} against the ECS API of the {@link AwsEmulator}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class EcsTasksTest {
+    private static final AwsCredentials CREDENTIALS = new AwsCredentials(AwsEmulator.ACCESS_KEY, AwsEmulator.SECRET_KEY, null);
+    private static final String CLUSTER = "hazelcast-cluster";
+
+    private AwsEmulator emulator;
+    private EcsTasks ecsTasks;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+        AwsConfig awsConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                                       .setConnectionTimeoutSeconds(5).build();
+        ecsTasks = new EcsTasks(awsConfig, EcsTasks.endpointFor(awsConfig));
+    }
+
+    @After
+    public void tearDown() {
+        emulator.shutdown();
+    }
+
+    @Test
+    public void endpointFor() {
+        assertEquals("ecs.eu-west-1.amazonaws.com",
+                EcsTasks.endpointFor(AwsConfig.builder().setRegion("eu-west-1").setHostHeader("ec2.amazonaws.com").build()));
+        assertEquals(emulator.getEndpoint(),
+                EcsTasks.endpointFor(AwsConfig.builder().setRegion("eu-west-1").setHostHeader(emulator.getEndpoint()).build()));
+    }
+
+    @Test
+    public void listTasks_followsPagination()
+            throws Exception {
+        // given
+        for (int i = 0; i < 250; i++) {
+            emulator.addTask(CLUSTER, "10.0." + (i / 256) + "." + (i % 256));
+        }
+        emulator.addTask("other-cluster", "10.1.0.1");
+
+        // when
+        List<String> taskArns = ecsTasks.listTasks(CREDENTIALS, CLUSTER, null);
+
+        // then
+        assertEquals(250, taskArns.size());
+        assertEquals(3, emulator.getEcsRequests("ListTasks"));
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void listTasks_retriesFailedRequest()
+            throws Exception {
+        // given
+        String taskArn = emulator.addTask(CLUSTER, "10.0.0.1").getTaskArn();
+        AwsConfig awsConfig = AwsConfig.builder().setRegion("us-east-1").setHostHeader(emulator.getEndpoint())
+                                       .setConnectionTimeoutSeconds(5).setConnectionRetries(1).build();
+        EcsTasks retryingEcsTasks = new EcsTasks(awsConfig, EcsTasks.endpointFor(awsConfig));
+        emulator.failNext(1, 500);
+
+        // when
+        List<String> taskArns = retryingEcsTasks.listTasks(CREDENTIALS, CLUSTER, null);
+
+        // then
+        assertEquals(Arrays.asList(taskArn), taskArns);
+        assertEquals(2, emulator.getEcsRequests("ListTasks"));
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void listTasks_ofService()
+            throws Exception {
+        // given
+        String taskArn = emulator.addTask(CLUSTER, "10.0.0.1").withServiceName("hazelcast").getTaskArn();
+        emulator.addTask(CLUSTER, "10.0.0.2").withServiceName("web");
+
+        // when
+        List<String> taskArns = ecsTasks.listTasks(CREDENTIALS, CLUSTER, "hazelcast");
+
+        // then
+        assertEquals(Arrays.asList(taskArn), taskArns);
+    }
+
+    @Test
+    public void describeTasks_inBatches()
+            throws Exception {
+        // given
+        for (int i = 0; i < 250; i++) {
+            emulator.addTask(CLUSTER, "10.0." + (i / 256) + "." + (i % 256));
+        }
+        List<String> taskArns = ecsTasks.listTasks(CREDENTIALS, CLUSTER, null);
+
+        // when
+        List<EcsTask> tasks = ecsTasks.describeTasks(CREDENTIALS, CLUSTER, taskArns);
+
+        // then
+        assertEquals(250, tasks.size());
+        assertEquals(3, emulator.getEcsRequests("DescribeTasks"));
+        assertEquals("10.0.0.0", tasks.get(0).getPrivateIp());
+        assertEquals(taskArns.get(0), tasks.get(0).getTaskArn());
+        assertTrue(tasks.get(0).getPorts().isEmpty());
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void describeTasks_skipsTasksNotRunning()
+            throws Exception {
+        // given
+        emulator.addTask(CLUSTER, "10.0.0.1");
+        emulator.addTask(CLUSTER, "10.0.0.2").withLastStatus("PROVISIONING");
+        emulator.addTask(CLUSTER, "10.0.0.3").withLastStatus("DEPROVISIONING");
+
+        // when
+        List<EcsTask> tasks = ecsTasks.describeTasks(CREDENTIALS, CLUSTER, ecsTasks.listTasks(CREDENTIALS, CLUSTER, null));
+
+        // then
+        assertEquals(1, tasks.size());
+        assertEquals("10.0.0.1", tasks.get(0).getPrivateIp());
+    }
+
+    @Test
+    public void describeTaskDefinitionPorts()
+            throws Exception {
+        // given
+        String taskDefinitionArn = emulator.addTask(CLUSTER, "10.0.0.1").getTaskDefinitionArn();
+        emulator.setTaskDefinitionPorts(taskDefinitionArn, Arrays.asList(5701, 8080));
+
+        // when
+        List<Integer> ports = ecsTasks.describeTaskDefinitionPorts(CREDENTIALS, taskDefinitionArn);
+
+        // then
+        assertEquals(Arrays.asList(5701, 8080), ports);
+    }
+
+    @Test(expected = AwsConnectionException.class)
+    public void invalidCredentials()
+            throws Exception {
+        ecsTasks.listTasks(new AwsCredentials(AwsEmulator.ACCESS_KEY, "wrong-secret-key", null), CLUSTER, null);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.AwsConfig;
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.aws.security.AwsCredentials;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link EventQueue} against the SQS API of the {@link AwsEmulator}.
+ */
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class EventQueueTest {
+    private static final AwsCredentials CREDENTIALS = new AwsCredentials(AwsEmulator.ACCESS_KEY, AwsEmulator.SECRET_KEY, null);
+
+    private AwsEmulator emulator;
+    private EventQueue eventQueue;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        emulator = new AwsEmulator();
+        AwsConfig awsConfig = AwsConfig.builder().setRegion("us-east-1").setConnectionTimeoutSeconds(5).build();
+        eventQueue = new EventQueue(awsConfig, emulator.getQueueUrl());
+    }
+
+    @After
+    public void tearDown() {
+        emulator.shutdown();
+    }
+
+    @Test
+    public void getSigningRegion() {
+        assertEquals("eu-west-1", EventQueue.getSigningRegion("sqs.eu-west-1.amazonaws.com", "us-east-1"));
+        assertEquals("ap-south-1", EventQueue.getSigningRegion("ap-south-1.queue.amazonaws.com", "us-east-1"));
+        assertEquals("us-east-1", EventQueue.getSigningRegion("127.0.0.1:8080", "us-east-1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidQueueUrl() {
+        new EventQueue(AwsConfig.builder().setRegion("us-east-1").build(), "sqs.us-east-1.amazonaws.com/123/queue");
+    }
+
+    @Test
+    public void receiveAndDelete()
+            throws Exception {
+        // given
+        emulator.publishStateChange("i-1", "running");
+        emulator.publishStateChange("i-2", "terminated");
+
+        // when
+        List<QueueMessage> messages = eventQueue.receive(CREDENTIALS, 1);
+        eventQueue.delete(CREDENTIALS, messages);
+
+        // then
+        assertEquals(2, messages.size());
+        assertEquals("i-1", InstanceStateChange.parse(messages.get(0).getBody()).getInstanceId());
+        assertTrue(InstanceStateChange.parse(messages.get(1).getBody()).isStopping());
+        assertEquals(2, emulator.getDeletedMessages());
+        assertEquals(0, emulator.getRejectedSignatures());
+    }
+
+    @Test
+    public void receive_noMessages()
+            throws Exception {
+        // when
+        List<QueueMessage> messages = eventQueue.receive(CREDENTIALS, 0);
+
+        // then
+        assertTrue(messages.isEmpty());
+    }
+
+    @Test(expected = AwsConnectionException.class)
+    public void receive_invalidCredentials()
+            throws Exception {
+        eventQueue.receive(new AwsCredentials(AwsEmulator.ACCESS_KEY, "wrong-secret-key", null), 0);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class InstanceStateChangeTest {
+
+    @Test
+    public void parse() {
+        // given
+        String event = "{\"version\":\"0\",\"id\":\"7bf73129-1428-4cd3-a780-95db273d1602\","
+                + "\"detail-type\":\"EC2 Instance State-change Notification\",\"source\":\"aws.ec2\","
+                + "\"account\":\"123456789012\",\"time\":\"2019-11-11T21:29:54Z\",\"region\":\"us-east-1\","
+                + "\"resources\":[\"arn:aws:ec2:us-east-1:123456789012:instance/i-abcd1111\"],"
+                + "\"detail\":{\"instance-id\":\"i-abcd1111\",\"state\":\"pending\"}}";
+
+        // when
+        InstanceStateChange change = InstanceStateChange.parse(event);
+
+        // then
+        assertEquals("i-abcd1111", change.getInstanceId());
+        assertEquals("pending", change.getState());
+        assertFalse(change.isRunning());
+        assertFalse(change.isStopping());
+    }
+
+    @Test
+    public void parse_otherEvent() {
+        // given
+        String event = "{\"detail-type\":\"EC2 Spot Instance Interruption Warning\","
+                + "\"detail\":{\"instance-id\":\"i-abcd1111\",\"instance-action\":\"terminate\"}}";
+
+        // when
+        InstanceStateChange change = InstanceStateChange.parse(event);
+
+        // then
+        assertNull(change);
+    }
+
+    @Test
+    public void parse_malformed() {
+        assertNull(InstanceStateChange.parse("not json"));
+        assertNull(InstanceStateChange.parse("[]"));
+        assertNull(InstanceStateChange.parse("{\"detail-type\":\"EC2 Instance State-change Notification\",\"detail\":1}"));
+        assertNull(InstanceStateChange.parse("{\"detail-type\":\"EC2 Instance State-change Notification\","
+                + "\"detail\":{\"instance-id\":1,\"state\":\"running\"}}"));
+    }
+
+    @Test
+    public void states() {
+        assertTrue(new InstanceStateChange("i-1", "running").isRunning());
+        assertTrue(new InstanceStateChange("i-1", "shutting-down").isStopping());
+        assertTrue(new InstanceStateChange("i-1", "terminated").isStopping());
+        assertTrue(new InstanceStateChange("i-1", "stopping").isStopping());
+        assertTrue(new InstanceStateChange("i-1", "stopped").isStopping());
+        assertFalse(new InstanceStateChange("i-1", "running").isStopping());
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.hazelcast.aws.exception.AwsConnectionException;
+import com.hazelcast.test.AssertTask;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hazelcast.test.HazelcastTestSupport.assertTrueEventually;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class RequestHedgerTest {
+    private static final long SLOW_MILLIS = 300;
+
+    private final RequestHedger hedger = new RequestHedger(50);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final AtomicInteger hedges = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        released.countDown();
+    }
+
+    @Test
+    public void noHedgeBeforeEnoughLatencies()
+            throws Exception {
+        // given
+        warmUp(RequestHedger.MIN_SAMPLES - 1);
+        TrackedStream response = new TrackedStream();
+
+        // when
+        InputStream result = hedger.call(slow(response), hedge(new TrackedStream()));
+
+        // then
+        assertSame(response, result);
+        assertEquals(0, hedges.get());
+    }
+
+    @Test
+    public void slowRequestIsHedged_andLoserIsClosed()
+            throws Exception {
+        // given
+        warmUp(RequestHedger.MIN_SAMPLES);
+        final TrackedStream response = new TrackedStream();
+        TrackedStream hedgeResponse = new TrackedStream();
+
+        // when
+        InputStream result = hedger.call(blocked(response), hedge(hedgeResponse));
+        released.countDown();
+
+        // then
+        assertSame(hedgeResponse, result);
+        assertEquals(1, hedges.get());
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() {
+                assertTrue(response.closed);
+            }
+        });
+    }
+
+    @Test
+    public void hedgesAreLimitedByBudget()
+            throws Exception {
+        // given
+        warmUp(RequestHedger.REQUESTS_PER_HEDGE);
+
+        // when
+        hedger.call(slow(new TrackedStream()), hedge(new TrackedStream()));
+        hedger.call(slow(new TrackedStream()), hedge(new TrackedStream()));
+
+        // then
+        assertEquals(1, hedges.get());
+    }
+
+    @Test
+    public void throttledHedgeSuspendsHedging()
+            throws Exception {
+        // given
+        warmUp(3 * RequestHedger.REQUESTS_PER_HEDGE);
+        TrackedStream response = new TrackedStream();
+        hedger.call(slow(response), new Callable<InputStream>() {
+            @Override
+            public InputStream call() {
+                hedges.incrementAndGet();
+                throw new AwsConnectionException(503, "RequestLimitExceeded");
+            }
+        });
+
+        // when
+        hedger.call(slow(new TrackedStream()), hedge(new TrackedStream()));
+
+        // then
+        assertEquals(1, hedges.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failedRequestIsNotHedged()
+            throws Exception {
+        // given
+        warmUp(RequestHedger.MIN_SAMPLES);
+
+        // when
+        try {
+            hedger.call(new Callable<InputStream>() {
+                @Override
+                public InputStream call() {
+                    throw new IllegalStateException("Expected exception");
+                }
+            }, hedge(new TrackedStream()));
+        } finally {
+            // then
+            assertEquals(0, hedges.get());
+        }
+    }
+
+    @Test(expected = AssertionError.class)
+    public void errorOfRequestIsRethrown()
+            throws Exception {
+        // when
+        hedger.call(new Callable<InputStream>() {
+            @Override
+            public InputStream call() {
+                throw new AssertionError("Expected error");
+            }
+        }, hedge(new TrackedStream()));
+    }
+
+    @Test
+    public void whenBothAttemptsSucceedBeforeTheCallerWakesUp_thenFirstWinsAndSecondIsClosed()
+            throws Exception {
+        // given
+        RequestHedger.HedgedCall call = hedger.new HedgedCall();
+        TrackedStream first = new TrackedStream();
+        TrackedStream second = new TrackedStream();
+        call.attempt(fast(first)).run();
+        call.attempt(fast(second)).run();
+
+        // when
+        InputStream result = call.get(2);
+
+        // then
+        assertSame(first, result);
+        assertFalse(first.closed);
+        assertTrue(second.closed);
+    }
+
+    private void warmUp(int requests)
+            throws Exception {
+        for (int i = 0; i < requests; i++) {
+            hedger.call(fast(new TrackedStream()), hedge(new TrackedStream()));
+        }
+        hedges.set(0);
+    }
+
+    private static Callable<InputStream> fast(final InputStream response) {
+        return new Callable<InputStream>() {
+            @Override
+            public InputStream call() {
+                return response;
+            }
+        };
+    }
+
+    private static Callable<InputStream> slow(final InputStream response) {
+        return new Callable<InputStream>() {
+            @Override
+            public InputStream call()
+                    throws Exception {
+                Thread.sleep(SLOW_MILLIS);
+                return response;
+            }
+        };
+    }
+
+    /**
+     * Returns a request blocked until {@link #released}, ignoring the interrupts like a blocking socket read.
+     */
+    private Callable<InputStream> blocked(final InputStream response) {
+        return new Callable<InputStream>() {
+            @Override
+            public InputStream call() {
+                while (true) {
+                    try {
+                        released.await();
+                        return response;
+                    } catch (InterruptedException e) {
+                        // ignored
+                        continue;
+                    }
+                }
+            }
+        };
+    }
+
+    private Callable<InputStream> hedge(final InputStream response) {
+        return new Callable<InputStream>() {
+            @Override
+            public InputStream call() {
+                hedges.incrementAndGet();
+                return response;
+            }
+        };
+    }
+
+    private static final class TrackedStream
+            extends ByteArrayInputStream {
+        private volatile boolean closed;
+
+        TrackedStream() {
+            super(new byte[0]);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
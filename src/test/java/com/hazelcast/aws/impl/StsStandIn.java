@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the STS AssumeRole API. It records the query parameters of all the requests and answers with
+ * session credentials derived from the account of the requested role: access key "ASIA-[account ID]".
+ */
+public class StsStandIn {
+    private final HttpServer server;
+    private final List<Map<String, String>> requests = Collections.synchronizedList(new ArrayList<Map<String, String>>());
+
+    private volatile long sessionDurationMillis = TimeUnit.HOURS.toMillis(1);
+    private volatile int responseCode = 200;
+
+    public StsStandIn()
+            throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException {
+                Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+                requests.add(parameters);
+                String roleArn = parameters.get("RoleArn");
+                String response = responseCode == 200
+                        ? assumeRoleResponse(roleArn.split(":")[4])
+                        : "<ErrorResponse><Error><Code>AccessDenied</Code></Error></ErrorResponse>";
+                byte[] body = response.getBytes("UTF-8");
+                exchange.sendResponseHeaders(responseCode, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+    }
+
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public List<Map<String, String>> getRequests() {
+        return requests;
+    }
+
+    public void setSessionDurationMillis(long sessionDurationMillis) {
+        this.sessionDurationMillis = sessionDurationMillis;
+    }
+
+    public void setResponseCode(int responseCode) {
+        this.responseCode = responseCode;
+    }
+
+    public void shutdown() {
+        server.stop(0);
+    }
+
+    private String assumeRoleResponse(String account) {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String expiration = df.format(new Date(System.currentTimeMillis() + sessionDurationMillis));
+        return "<AssumeRoleResponse xmlns=\"https://sts.amazonaws.com/doc/2011-06-15/\">\n"
+                + "  <AssumeRoleResult>\n"
+                + "    <Credentials>\n"
+                + "      <SessionToken>token-" + account + "</SessionToken>\n"
+                + "      <SecretAccessKey>secret-" + account + "</SecretAccessKey>\n"
+                + "      <Expiration>" + expiration + "</Expiration>\n"
+                + "      <AccessKeyId>ASIA-" + account + "</AccessKeyId>\n"
+                + "    </Credentials>\n"
+                + "  </AssumeRoleResult>\n"
+                + "</AssumeRoleResponse>";
+    }
+
+    private static Map<String, String> parseQuery(String query)
+            throws IOException {
+        Map<String, String> parameters = new HashMap<String, String>();
+        for (String parameter : query.split("&")) {
+            String[] keyValue = parameter.split("=", 2);
+            parameters.put(URLDecoder.decode(keyValue[0], "UTF-8"), URLDecoder.decode(keyValue[1], "UTF-8"));
+        }
+        return parameters;
+    }
+}
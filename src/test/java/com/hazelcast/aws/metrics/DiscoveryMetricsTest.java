@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.metrics;
+
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class DiscoveryMetricsTest {
+    private final DiscoveryMetrics metrics = new DiscoveryMetrics();
+
+    @Test
+    public void toMap()
+            throws Exception {
+        // given
+        metrics.recordLatency(DiscoveryMetrics.Phase.HTTP, System.nanoTime());
+        metrics.recordRetry();
+        metrics.recordThrottle();
+        metrics.recordHedge();
+        metrics.recordInstanceCount(3);
+
+        // when
+        Map<String, Long> snapshot = metrics.toMap();
+
+        // then
+        assertEquals(Long.valueOf(1), snapshot.get("http.count"));
+        assertEquals(Long.valueOf(0), snapshot.get("parse.count"));
+        assertEquals(Long.valueOf(1), snapshot.get("retries"));
+        assertEquals(Long.valueOf(1), snapshot.get("throttles"));
+        assertEquals(Long.valueOf(1), snapshot.get("hedges"));
+        assertEquals(Long.valueOf(3), snapshot.get("instanceCount"));
+    }
+
+    @Test
+    public void countResponseBytes()
+            throws Exception {
+        // given
+        InputStream stream = metrics.countResponseBytes(new ByteArrayInputStream(new byte[100]));
+
+        // when
+        stream.read();
+        stream.read(new byte[50]);
+        stream.skip(10);
+        stream.read(new byte[100]);
+
+        // then
+        assertEquals(100, metrics.getResponseBytes());
+    }
+
+    @Test
+    public void mBean()
+            throws Exception {
+        // given
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(DiscoveryMetrics.OBJECT_NAME);
+        DiscoveryMetrics.get().recordRetry();
+
+        // when
+        Object retries = server.getAttribute(name, "retries");
+        Object p99 = server.getAttribute(name, "discovery.p99Micros");
+
+        // then
+        assertTrue((Long) retries >= 1);
+        assertTrue((Long) p99 >= 0);
+        assertEquals(DiscoveryMetrics.get().toMap().size(), server.getMBeanInfo(name).getAttributes().length);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.metrics;
+
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class LatencyHistogramTest {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void bucketIndex_isWithinPrecision() {
+        for (long value = 0; value < 1000000; value = value * 3 / 2 + 1) {
+            // when
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketIndex(value));
+
+            // then
+            assertTrue("value " + value + " mapped to " + highest, highest >= value);
+            assertTrue("value " + value + " mapped to " + highest, highest <= value + value / LatencyHistogram.SUB_BUCKET_COUNT);
+        }
+    }
+
+    @Test
+    public void bucketIndex_ofMaxValue() {
+        // when
+        long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+
+        // then
+        assertEquals(Long.MAX_VALUE, highest);
+    }
+
+    @Test
+    public void getValueAtPercentile() {
+        // given
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000);
+        }
+
+        // when
+        long p50 = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        long p100 = histogram.getValueAtPercentile(100);
+
+        // then
+        assertEquals(50000, p50, 50000 / LatencyHistogram.SUB_BUCKET_COUNT);
+        assertEquals(99000, p99, 99000 / LatencyHistogram.SUB_BUCKET_COUNT);
+        assertEquals(100000, p100);
+        assertEquals(100, histogram.getCount());
+        assertEquals(50500, histogram.getMean());
+        assertEquals(100000, histogram.getMax());
+    }
+
+    @Test
+    public void getValueAtPercentile_whenEmpty() {
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMean());
+    }
+}
@@ -27,6 +27,7 @@ import org.junit.runner.RunWith;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -99,6 +100,20 @@ public class EC2RequestSignerTest {
         assertEquals(TEST_SIGNATURE_EXPECTED, signature);
     }
 
+    @Test
+    public void testSigning_withProtocolAndDefaultPort() {
+        AwsConfig awsConfig = AwsConfig.builder().setRegion(TEST_REGION).setAccessKey(TEST_ACCESS_KEY)
+                                       .setSecretKey(TEST_SECRET_KEY).build();
+        Map<String, String> attributes = new HashMap<String, String>();
+        attributes.put("Action", "DescribeInstances");
+
+        String expected = new EC2RequestSigner(awsConfig, TEST_REQUEST_DATE, TEST_HOST).sign(TEST_SERVICE, attributes);
+        String actual = new EC2RequestSigner(awsConfig, TEST_REQUEST_DATE, "https://" + TEST_HOST + ":443/")
+                .sign(TEST_SERVICE, attributes);
+
+        assertEquals(expected, actual);
+    }
+
     private String bytesToHex(byte[] in) {
         char[] hexArray = "0123456789abcdef".toCharArray();
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+
+/**
+ * Measures the bytes allocated by the current thread with the {@code com.sun.management.ThreadMXBean} extension, to guard
+ * the discovery hot path against allocation regressions.
+ * <p>
+ * The task is run a number of times first so that class loading, lazy initialization and JIT compilation are not
+ * measured, and the result is the minimum over several rounds, which filters out one-off allocations such as the TLAB
+ * refills of other code.
+ */
+public final class AllocationMeter {
+    private static final int WARM_UP_ITERATIONS = 200;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS_PER_ROUND = 20;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * Returns whether this JVM reports the allocated bytes per thread. If not, the allocation tests are skipped.
+     */
+    public static boolean isSupported() {
+        return THREAD_MX_BEAN != null;
+    }
+
+    /**
+     * Returns the bytes allocated by one invocation of the task on the current thread.
+     */
+    public static long bytesPerInvocation(Callable<?> task)
+            throws Exception {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            task.call();
+        }
+        long threadId = Thread.currentThread().getId();
+        long min = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < ITERATIONS_PER_ROUND; i++) {
+                task.call();
+            }
+            long allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - before;
+            min = Math.min(min, allocated / ITERATIONS_PER_ROUND);
+        }
+        return min;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+        return sunBean;
+    }
+}
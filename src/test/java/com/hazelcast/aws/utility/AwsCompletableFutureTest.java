@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class AwsCompletableFutureTest {
+    private static final Executor CALLER_RUNS = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final AwsCompletableFuture<String> future = new AwsCompletableFuture<String>(CALLER_RUNS);
+
+    @Test
+    public void complete()
+            throws Exception {
+        // given
+        RecordingCallback callback = new RecordingCallback();
+        future.andThen(callback);
+
+        // when
+        boolean completed = future.complete("value");
+
+        // then
+        assertTrue(completed);
+        assertFalse(future.complete("other"));
+        assertEquals("value", future.get());
+        assertEquals("value", callback.response.get());
+    }
+
+    @Test
+    public void completeExceptionally()
+            throws Exception {
+        // given
+        IllegalStateException failure = new IllegalStateException();
+
+        // when
+        future.completeExceptionally(failure);
+
+        // then
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Failed future should throw");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void andThen_whenCompletedAlready()
+            throws Exception {
+        // given
+        IllegalStateException failure = new IllegalStateException();
+        future.completeExceptionally(failure);
+        RecordingCallback callback = new RecordingCallback();
+
+        // when
+        future.andThen(callback);
+
+        // then
+        assertSame(failure, callback.failure.get());
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void get_whenNotCompleted()
+            throws Exception {
+        // when
+        future.get(10, TimeUnit.MILLISECONDS);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void cancel()
+            throws Exception {
+        // given
+        Future<?> dependent = mock(Future.class);
+        future.cancelOnCancellation(dependent);
+        RecordingCallback callback = new RecordingCallback();
+        future.andThen(callback);
+
+        // when
+        boolean cancelled = future.cancel(false);
+
+        // then
+        assertTrue(cancelled);
+        assertTrue(future.isCancelled());
+        assertFalse(future.complete("value"));
+        verify(dependent).cancel(false);
+        assertTrue(callback.failure.get() instanceof CancellationException);
+    }
+
+    @Test
+    public void cancelOnCancellation_whenCancelledAlready() {
+        // given
+        future.cancel(true);
+        Future<?> dependent = mock(Future.class);
+
+        // when
+        future.cancelOnCancellation(dependent);
+
+        // then
+        verify(dependent).cancel(false);
+    }
+
+    private static final class RecordingCallback
+            implements ExecutionCallback<String> {
+        private final AtomicReference<String> response = new AtomicReference<String>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        @Override
+        public void onResponse(String response) {
+            this.response.set(response);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            failure.set(t);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.aws.emulator.AwsEmulator;
+import com.hazelcast.aws.emulator.EmulatedInstance;
+import com.hazelcast.test.HazelcastSerialClassRunner;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Allocation budget of parsing a DescribeInstances response. The budget is per instance, so that it holds for any
+ * response size, and leaves about 25% headroom over the allocations measured on JDK 8. Raise it only for a deliberate
+ * trade-off.
+ */
+@RunWith(HazelcastSerialClassRunner.class)
+@Category(QuickTest.class)
+public class CloudyUtilityAllocationTest {
+    private static final int INSTANCES = 100;
+    private static final long BUDGET_BYTES_PER_INSTANCE = 8192;
+
+    private byte[] response;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        assumeTrue(AllocationMeter.isSupported());
+        response = syntheticResponse(INSTANCES).getBytes("UTF-8");
+    }
+
+    /**
+     * Builds a response with tagged instances in 10.0.x.y, each with a public IP.
+     */
+    public static String syntheticResponse(int instances) {
+        List<EmulatedInstance> list = new ArrayList<EmulatedInstance>(instances);
+        for (int i = 0; i < instances; i++) {
+            String suffix = (i / 256) + "." + (i % 256);
+            list.add(new EmulatedInstance("i-" + i, "10.0." + suffix, "54.0." + suffix)
+                    .withTag("Name", "hazelcast-" + i).withTag("hazelcast-cluster", "production"));
+        }
+        return AwsEmulator.describeInstancesResponse(list, null);
+    }
+
+    @Test
+    public void unmarshalTheResponse()
+            throws Exception {
+        // given
+        Callable<Map<String, String>> parse = new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() {
+                return CloudyUtility.unmarshalTheResponse(new ByteArrayInputStream(response));
+            }
+        };
+        assertEquals(INSTANCES, parse.call().size());
+
+        // when
+        long allocated = AllocationMeter.bytesPerInvocation(parse);
+
+        // then
+        assertTrue("Parsing allocated " + allocated / INSTANCES + " bytes per instance, the budget is "
+                + BUDGET_BYTES_PER_INSTANCE, allocated <= BUDGET_BYTES_PER_INSTANCE * INSTANCES);
+    }
+}
@@ -18,6 +18,8 @@ package com.hazelcast.aws.utility;
 
 import com.hazelcast.aws.AwsConfig;
 import com.hazelcast.aws.impl.DescribeInstances;
+import com.hazelcast.aws.impl.Ec2Instance;
+import com.hazelcast.aws.impl.QueueMessage;
 import com.hazelcast.test.HazelcastSerialClassRunner;
 import com.hazelcast.test.HazelcastTestSupport;
 import com.hazelcast.test.annotation.QuickTest;
@@ -31,9 +33,11 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(HazelcastSerialClassRunner.class)
 @Category(QuickTest.class)
@@ -153,6 +157,157 @@ public class CloudyUtilityTest
         assertEquals(2, result.size());
     }
 
+    @Test
+    public void testUnmarshallingInstances() {
+        InputStream is = new ByteArrayInputStream(xml.getBytes());
+
+        List<Ec2Instance> result = CloudyUtility.unmarshalInstances(is);
+
+        assertEquals(2, result.size());
+        assertEquals("i-0a0c616a", result.get(0).getInstanceId());
+        assertEquals("10.209.198.50", result.get(0).getPrivateIp());
+        assertEquals("50.17.19.37", result.get(0).getPublicIp());
+    }
+
+    @Test
+    public void testUnmarshallingWithPredicate() {
+        InputStream is = new ByteArrayInputStream(xml.getBytes());
+        InstancePredicate predicate = InstancePredicate.compile("!tag:name && private-ip in 10.209.0.0/16");
+
+        Map<String, String> result = CloudyUtility.unmarshalTheResponse(is, predicate);
+
+        assertEquals(1, result.size());
+        assertEquals("50.16.102.143", result.get("10.209.193.170"));
+    }
+
+    @Test
+    public void testUnmarshallingInstancesWithPredicate() {
+        InputStream is = new ByteArrayInputStream(xml.getBytes());
+        InstancePredicate predicate = InstancePredicate.compile("tag:name && launch-time < 2011-09-28T00:00:00Z");
+
+        List<Ec2Instance> result = CloudyUtility.unmarshalInstances(is, predicate);
+
+        assertEquals(1, result.size());
+        assertEquals("i-0a0c616a", result.get(0).getInstanceId());
+    }
+
+    @Test
+    public void testUnmarshallingNetworkInterfaces() {
+        String response = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<DescribeNetworkInterfacesResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">\n"
+                + "  <requestId>fc45294c-006b-457b-bab9-012f5b3b0e40</requestId>\n"
+                + "  <networkInterfaceSet>\n"
+                + "    <item>\n"
+                + "      <networkInterfaceId>eni-0f782d5b</networkInterfaceId>\n"
+                + "      <status>in-use</status>\n"
+                + "      <privateIpAddress>10.0.0.146</privateIpAddress>\n"
+                + "      <attachment>\n"
+                + "        <instanceId>i-22197876</instanceId>\n"
+                + "        <attachTime>2013-11-30T23:36:42.000Z</attachTime>\n"
+                + "      </attachment>\n"
+                + "      <association><publicIp>203.0.113.12</publicIp></association>\n"
+                + "      <tagSet><item><key>hazelcast</key><value>member</value></item></tagSet>\n"
+                + "      <privateIpAddressesSet>\n"
+                + "        <item>\n"
+                + "          <privateIpAddress>10.0.0.146</privateIpAddress>\n"
+                + "          <primary>true</primary>\n"
+                + "          <association><publicIp>203.0.113.12</publicIp></association>\n"
+                + "        </item>\n"
+                + "        <item>\n"
+                + "          <privateIpAddress>10.0.0.148</privateIpAddress>\n"
+                + "          <primary>false</primary>\n"
+                + "        </item>\n"
+                + "      </privateIpAddressesSet>\n"
+                + "    </item>\n"
+                + "    <item>\n"
+                + "      <networkInterfaceId>eni-a66ed5cf</networkInterfaceId>\n"
+                + "      <status>in-use</status>\n"
+                + "      <privateIpAddress>10.0.1.17</privateIpAddress>\n"
+                + "      <attachment>\n"
+                + "        <instanceId>i-22197876</instanceId>\n"
+                + "        <attachTime>2013-12-01T00:01:12.000Z</attachTime>\n"
+                + "      </attachment>\n"
+                + "      <tagSet/>\n"
+                + "    </item>\n"
+                + "  </networkInterfaceSet>\n"
+                + "</DescribeNetworkInterfacesResponse>";
+
+        List<Ec2Instance> result = CloudyUtility.unmarshalNetworkInterfaces(new ByteArrayInputStream(response.getBytes()),
+                InstancePredicate.ACCEPT_ALL);
+        Map<String, String> tagged = CloudyUtility.unmarshalNetworkInterfaceAddresses(
+                new ByteArrayInputStream(response.getBytes()), InstancePredicate.compile("tag:hazelcast = member"));
+
+        assertEquals(3, result.size());
+        assertEquals("i-22197876", result.get(0).getInstanceId());
+        assertEquals("10.0.0.146", result.get(0).getPrivateIp());
+        assertEquals("203.0.113.12", result.get(0).getPublicIp());
+        assertEquals("10.0.0.148", result.get(1).getPrivateIp());
+        assertEquals(null, result.get(1).getPublicIp());
+        assertEquals("10.0.1.17", result.get(2).getPrivateIp());
+        assertEquals(2, tagged.size());
+        assertEquals("203.0.113.12", tagged.get("10.0.0.146"));
+        assertTrue(tagged.containsKey("10.0.0.148"));
+    }
+
+    @Test
+    public void testUnmarshallingNetworkInterfacesSkipsUnattachedInterfaces() {
+        String response = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<DescribeNetworkInterfacesResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">\n"
+                + "  <networkInterfaceSet>\n"
+                + "    <item>\n"
+                + "      <networkInterfaceId>eni-0f782d5b</networkInterfaceId>\n"
+                + "      <status>in-use</status>\n"
+                + "      <privateIpAddress>10.0.0.146</privateIpAddress>\n"
+                + "      <attachment><instanceId>i-22197876</instanceId></attachment>\n"
+                + "    </item>\n"
+                + "    <item>\n"
+                + "      <networkInterfaceId>eni-1a2b3c4d</networkInterfaceId>\n"
+                + "      <status>in-use</status>\n"
+                + "      <privateIpAddress>10.0.0.201</privateIpAddress>\n"
+                + "      <requesterManaged>true</requesterManaged>\n"
+                + "      <attachment><attachmentId>ela-attach-0e0ba7cb</attachmentId></attachment>\n"
+                + "    </item>\n"
+                + "  </networkInterfaceSet>\n"
+                + "</DescribeNetworkInterfacesResponse>";
+
+        List<Ec2Instance> result = CloudyUtility.unmarshalNetworkInterfaces(new ByteArrayInputStream(response.getBytes()),
+                InstancePredicate.ACCEPT_ALL);
+
+        assertEquals(1, result.size());
+        assertEquals("i-22197876", result.get(0).getInstanceId());
+        assertEquals("10.0.0.146", result.get(0).getPrivateIp());
+    }
+
+    @Test
+    public void testUnmarshallingMessages() {
+        String response = "<?xml version=\"1.0\"?>\n"
+                + "<ReceiveMessageResponse xmlns=\"http://queue.amazonaws.com/doc/2012-11-05/\">\n"
+                + "  <ReceiveMessageResult>\n"
+                + "    <Message>\n"
+                + "      <MessageId>5fea7756-0ea4-451a-a703-a558b933e274</MessageId>\n"
+                + "      <ReceiptHandle>MbZj6wDWli+JvwwJaBV+3dcjk2YW2vA3+STFFljTM8tJJg6HRG6PYSasuWXPJB+Cw</ReceiptHandle>\n"
+                + "      <Body>{&quot;detail&quot;:{&quot;instance-id&quot;:&quot;i-1&quot;}}</Body>\n"
+                + "    </Message>\n"
+                + "  </ReceiveMessageResult>\n"
+                + "  <ResponseMetadata><RequestId>b6633655-283d-45b4-aee4-4e84e0ae6afa</RequestId></ResponseMetadata>\n"
+                + "</ReceiveMessageResponse>";
+        InputStream is = new ByteArrayInputStream(response.getBytes());
+
+        List<QueueMessage> result = CloudyUtility.unmarshalMessages(is);
+
+        assertEquals(1, result.size());
+        assertEquals("MbZj6wDWli+JvwwJaBV+3dcjk2YW2vA3+STFFljTM8tJJg6HRG6PYSasuWXPJB+Cw", result.get(0).getReceiptHandle());
+        assertEquals("{\"detail\":{\"instance-id\":\"i-1\"}}", result.get(0).getBody());
+    }
+
+    @Test
+    public void testUnmarshallingNoMessages() {
+        String response = "<ReceiveMessageResponse><ReceiveMessageResult/></ReceiveMessageResponse>";
+        InputStream is = new ByteArrayInputStream(response.getBytes());
+
+        assertTrue(CloudyUtility.unmarshalMessages(is).isEmpty());
+    }
+
     @Test
     public void testIamRole()
             throws IOException {
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the EC2 Instance Metadata Service. It serves the metadata registered with
+ * {@link #setMetadata(String, String)} under {@code /latest/meta-data/} and issues IMDSv2 session tokens on
+ * {@code PUT /latest/api/token}.
+ */
+public class ImdsStandIn {
+    public static final String TOKEN_PATH = "/latest/api/token";
+    public static final String METADATA_PATH = "/latest/meta-data/";
+
+    private final HttpServer server;
+    private final Map<String, String> metadata = new ConcurrentHashMap<String, String>();
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private final AtomicInteger metadataRequests = new AtomicInteger();
+    private final AtomicInteger tokenGeneration = new AtomicInteger();
+
+    private volatile boolean tokenSupported = true;
+    private volatile boolean tokenRequired;
+    private volatile long metadataDelayMillis;
+
+    public ImdsStandIn()
+            throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                if (TOKEN_PATH.equals(path)) {
+                    handleTokenRequest(exchange);
+                } else {
+                    handleMetadataRequest(exchange, path);
+                }
+            }
+        });
+        server.start();
+    }
+
+    private void handleTokenRequest(HttpExchange exchange)
+            throws IOException {
+        tokenRequests.incrementAndGet();
+        if (!tokenSupported || !"PUT".equals(exchange.getRequestMethod())
+                || exchange.getRequestHeaders().getFirst(MetadataSessionToken.TOKEN_TTL_HEADER) == null) {
+            respond(exchange, 403, "");
+        } else {
+            respond(exchange, 200, currentToken());
+        }
+    }
+
+    private void handleMetadataRequest(HttpExchange exchange, String path)
+            throws IOException {
+        metadataRequests.incrementAndGet();
+        sleepQuietly(metadataDelayMillis);
+        String token = exchange.getRequestHeaders().getFirst(MetadataSessionToken.TOKEN_HEADER);
+        if (token != null ? !token.equals(currentToken()) : tokenRequired) {
+            respond(exchange, 401, "");
+            return;
+        }
+        String value = path.startsWith(METADATA_PATH) ? metadata.get(path.substring(METADATA_PATH.length())) : null;
+        if (value == null) {
+            respond(exchange, 404, "");
+        } else {
+            respond(exchange, 200, value);
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String currentToken() {
+        return "token-" + tokenGeneration.get();
+    }
+
+    private static void respond(HttpExchange exchange, int code, String response)
+            throws IOException {
+        byte[] body = response.getBytes("UTF-8");
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String getTokenUri() {
+        return getEndpoint() + TOKEN_PATH;
+    }
+
+    public String getMetadataUri(String relativePath) {
+        return getEndpoint() + METADATA_PATH + relativePath;
+    }
+
+    public void setMetadata(String relativePath, String value) {
+        metadata.put(relativePath, value);
+    }
+
+    /**
+     * Disables IMDSv2: token requests are rejected, like on instances without IMDSv2 or beyond the token hop limit.
+     */
+    public void setTokenSupported(boolean tokenSupported) {
+        this.tokenSupported = tokenSupported;
+    }
+
+    /**
+     * Disables IMDSv1: metadata requests without a session token are rejected.
+     */
+    public void setTokenRequired(boolean tokenRequired) {
+        this.tokenRequired = tokenRequired;
+    }
+
+    /**
+     * Delays the responses to metadata requests, like a slow Instance Metadata Service.
+     */
+    public void setMetadataDelayMillis(long metadataDelayMillis) {
+        this.metadataDelayMillis = metadataDelayMillis;
+    }
+
+    /**
+     * Invalidates all the issued session tokens, like a restart of the Instance Metadata Service.
+     */
+    public void rotateToken() {
+        tokenGeneration.incrementAndGet();
+    }
+
+    public int getTokenRequests() {
+        return tokenRequests.get();
+    }
+
+    public int getMetadataRequests() {
+        return metadataRequests.get();
+    }
+
+    public void shutdown() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.config.InvalidConfigurationException;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.aws.utility.InstanceMetadata.Key.AVAILABILITY_ZONE;
+import static com.hazelcast.aws.utility.InstanceMetadata.Key.IAM_ROLE_NAME;
+import static com.hazelcast.aws.utility.InstanceMetadata.Key.PLACEMENT_GROUP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class InstanceMetadataTest {
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final String AVAILABILITY_ZONE_VALUE = "us-east-1a";
+    private static final String BOOT_ID = "boot-1";
+
+    private ImdsStandIn imds;
+    private File file;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        imds = new ImdsStandIn();
+        imds.setTokenSupported(false);
+        imds.setMetadata(AVAILABILITY_ZONE.getPath(), AVAILABILITY_ZONE_VALUE);
+        file = File.createTempFile("instance-metadata", ".properties");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        imds.shutdown();
+        file.delete();
+    }
+
+    @Test
+    public void get_fetchesValueOnce() {
+        // given
+        InstanceMetadata metadata = newInstanceMetadata(null, BOOT_ID);
+
+        // when
+        String first = get(metadata, AVAILABILITY_ZONE);
+        String second = get(metadata, AVAILABILITY_ZONE);
+
+        // then
+        assertEquals(AVAILABILITY_ZONE_VALUE, first);
+        assertEquals(AVAILABILITY_ZONE_VALUE, second);
+        assertEquals(1, imds.getMetadataRequests());
+    }
+
+    @Test
+    public void get_whenLoadingConcurrently_thenSharesOneRequest()
+            throws Exception {
+        // given
+        imds.setMetadataDelayMillis(200);
+        final InstanceMetadata metadata = newInstanceMetadata(null, BOOT_ID);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> lookups = new ArrayList<Future<String>>();
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            lookups.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return get(metadata, AVAILABILITY_ZONE);
+                }
+            }));
+        }
+
+        // then
+        for (Future<String> lookup : lookups) {
+            assertEquals(AVAILABILITY_ZONE_VALUE, lookup.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertEquals(1, imds.getMetadataRequests());
+        executor.shutdown();
+    }
+
+    @Test
+    public void get_whenLoadFails_thenNextLookupFetchesAgain() {
+        // given
+        InstanceMetadata metadata = newInstanceMetadata(null, BOOT_ID);
+        try {
+            get(metadata, IAM_ROLE_NAME);
+            fail("the role name does not exist yet");
+        } catch (InvalidConfigurationException expected) {
+            imds.setMetadata(IAM_ROLE_NAME.getPath(), "some-role");
+        }
+
+        // when
+        String role = get(metadata, IAM_ROLE_NAME);
+
+        // then
+        assertEquals("some-role", role);
+        assertEquals(2, imds.getMetadataRequests());
+    }
+
+    @Test
+    public void get_whenOptionalValueMissing_thenReturnsNull() {
+        // given
+        InstanceMetadata metadata = newInstanceMetadata(null, BOOT_ID);
+
+        // when
+        String placementGroup = get(metadata, PLACEMENT_GROUP);
+
+        // then
+        assertNull(placementGroup);
+    }
+
+    @Test
+    public void get_whenPersisted_thenRestartedJvmDoesNotFetch() {
+        // given
+        get(newInstanceMetadata(file, BOOT_ID), AVAILABILITY_ZONE);
+
+        // when
+        String availabilityZone = get(newInstanceMetadata(file, BOOT_ID), AVAILABILITY_ZONE);
+
+        // then
+        assertEquals(AVAILABILITY_ZONE_VALUE, availabilityZone);
+        assertEquals(1, imds.getMetadataRequests());
+    }
+
+    @Test
+    public void get_whenPersistedBeforeReboot_thenFetchesAgain() {
+        // given
+        get(newInstanceMetadata(file, BOOT_ID), AVAILABILITY_ZONE);
+
+        // when
+        String availabilityZone = get(newInstanceMetadata(file, "boot-2"), AVAILABILITY_ZONE);
+
+        // then
+        assertEquals(AVAILABILITY_ZONE_VALUE, availabilityZone);
+        assertEquals(2, imds.getMetadataRequests());
+    }
+
+    @Test
+    public void getAsync_whenCached_thenDoesNotFetch()
+            throws Exception {
+        // given
+        InstanceMetadata metadata = newInstanceMetadata(null, BOOT_ID);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        String loaded = metadata.getAsync(AVAILABILITY_ZONE, TIMEOUT_SECONDS, 0, true, scheduler)
+                                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // when
+        String cached = metadata.getAsync(AVAILABILITY_ZONE, TIMEOUT_SECONDS, 0, true, scheduler)
+                                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(AVAILABILITY_ZONE_VALUE, loaded);
+        assertEquals(AVAILABILITY_ZONE_VALUE, cached);
+        assertEquals(1, imds.getMetadataRequests());
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void getAsync_whenLoadingConcurrently_thenSharesOneRequest()
+            throws Exception {
+        // given
+        imds.setMetadataDelayMillis(200);
+        final InstanceMetadata metadata = newInstanceMetadata(null, BOOT_ID);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // when
+        ICompletableFuture<String> first = metadata.getAsync(AVAILABILITY_ZONE, TIMEOUT_SECONDS, 0, true, scheduler);
+        ICompletableFuture<String> second = metadata.getAsync(AVAILABILITY_ZONE, TIMEOUT_SECONDS, 0, true, scheduler);
+        Future<String> blocking = executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return get(metadata, AVAILABILITY_ZONE);
+            }
+        });
+
+        // then
+        assertEquals(AVAILABILITY_ZONE_VALUE, first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(AVAILABILITY_ZONE_VALUE, second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(AVAILABILITY_ZONE_VALUE, blocking.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, imds.getMetadataRequests());
+        executor.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void getRegion_derivesRegionFromAvailabilityZone() {
+        // given
+        InstanceMetadata metadata = newInstanceMetadata(null, BOOT_ID);
+
+        // when
+        String region = metadata.getRegion(TIMEOUT_SECONDS, 0, true);
+
+        // then
+        assertEquals("us-east-1", region);
+        assertEquals(1, imds.getMetadataRequests());
+    }
+
+    @Test
+    public void regionOf() {
+        assertEquals("eu-west-1", InstanceMetadata.regionOf("eu-west-1c"));
+        assertEquals("us-gov-west-1", InstanceMetadata.regionOf("us-gov-west-1a"));
+        assertEquals("us-west-2", InstanceMetadata.regionOf("us-west-2-lax-1a"));
+        assertEquals("us-east-1", InstanceMetadata.regionOf("us-east-1-wl1-bos-wlz-1"));
+        assertNull(InstanceMetadata.regionOf("unknown"));
+    }
+
+    private InstanceMetadata newInstanceMetadata(File file, String bootId) {
+        return new InstanceMetadata(imds.getMetadataUri(""), file, bootId);
+    }
+
+    private static String get(InstanceMetadata metadata, InstanceMetadata.Key key) {
+        return metadata.get(key, TIMEOUT_SECONDS, 0, true);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class InstancePredicateTest {
+
+    @Test
+    public void emptyExpression() {
+        assertSame(InstancePredicate.ACCEPT_ALL, InstancePredicate.compile(null));
+        assertSame(InstancePredicate.ACCEPT_ALL, InstancePredicate.compile("  "));
+        assertTrue(InstancePredicate.ACCEPT_ALL.matches(new TestInstance()));
+    }
+
+    @Test
+    public void tagPresence() {
+        // given
+        InstancePredicate predicate = InstancePredicate.compile("tag:cluster && !tag:draining");
+
+        // then
+        assertTrue(predicate.matches(new TestInstance().tag("cluster", "")));
+        assertFalse(predicate.matches(new TestInstance().tag("cluster", "prod").tag("draining", "true")));
+        assertFalse(predicate.matches(new TestInstance()));
+    }
+
+    @Test
+    public void tagValue() {
+        // given
+        InstancePredicate equal = InstancePredicate.compile("tag:env = prod");
+        InstancePredicate notEqual = InstancePredicate.compile("tag:env!=prod");
+
+        // then
+        assertTrue(equal.matches(new TestInstance().tag("env", "prod")));
+        assertFalse(equal.matches(new TestInstance().tag("env", "staging")));
+        assertFalse(equal.matches(new TestInstance()));
+        assertFalse(notEqual.matches(new TestInstance().tag("env", "prod")));
+        assertTrue(notEqual.matches(new TestInstance().tag("env", "staging")));
+        assertTrue(notEqual.matches(new TestInstance()));
+    }
+
+    @Test
+    public void tagRegex() {
+        // given
+        InstancePredicate predicate = InstancePredicate.compile("tag:Name ~ hz-[0-9]+");
+
+        // then
+        assertTrue(predicate.matches(new TestInstance().tag("Name", "hz-12")));
+        assertFalse(predicate.matches(new TestInstance().tag("Name", "hz-12-old")));
+        assertFalse(predicate.matches(new TestInstance()));
+    }
+
+    @Test
+    public void ipInCidr() {
+        // given
+        InstancePredicate predicate = InstancePredicate.compile("private-ip in 10.0.16.0/20 && public-ip in 54.1.2.3");
+
+        // then
+        assertTrue(predicate.matches(new TestInstance().privateIp("10.0.31.255").publicIp("54.1.2.3")));
+        assertFalse(predicate.matches(new TestInstance().privateIp("10.0.32.1").publicIp("54.1.2.3")));
+        assertFalse(predicate.matches(new TestInstance().privateIp("10.0.16.1").publicIp("54.1.2.4")));
+        assertFalse(predicate.matches(new TestInstance().privateIp("10.0.16.1")));
+    }
+
+    @Test
+    public void anyIp() {
+        InstancePredicate predicate = InstancePredicate.compile("private-ip in 0.0.0.0/0");
+
+        assertTrue(predicate.matches(new TestInstance().privateIp("192.168.1.1")));
+    }
+
+    @Test
+    public void launchTime() {
+        // given
+        InstancePredicate predicate = InstancePredicate.compile("launch-time >= 2020-01-15T00:00:00Z");
+
+        // then
+        assertTrue(predicate.matches(new TestInstance().launchTime("2020-01-15T00:00:00.000Z")));
+        assertTrue(predicate.matches(new TestInstance().launchTime("2021-03-01T10:20:30.000Z")));
+        assertFalse(predicate.matches(new TestInstance().launchTime("2020-01-14T23:59:59.999Z")));
+        assertFalse(predicate.matches(new TestInstance()));
+    }
+
+    @Test
+    public void launchAge() {
+        // given
+        InstancePredicate predicate = InstancePredicate.compile("launch-age > 2m");
+        long now = System.currentTimeMillis();
+
+        // then
+        assertTrue(predicate.matches(new TestInstance().launchTime(format(now - TimeUnit.MINUTES.toMillis(5)))));
+        assertFalse(predicate.matches(new TestInstance().launchTime(format(now - TimeUnit.SECONDS.toMillis(30)))));
+    }
+
+    @Test
+    public void parseTimestamp() {
+        assertEquals(Long.valueOf(0), InstancePredicate.parseTimestamp("1970-01-01T00:00:00Z"));
+        assertEquals(Long.valueOf(1317123455000L), InstancePredicate.parseTimestamp("2011-09-27T11:37:35.000Z"));
+        assertEquals(Long.valueOf(951782400000L), InstancePredicate.parseTimestamp("2000-02-29T00:00:00Z"));
+        assertNull(InstancePredicate.parseTimestamp("2011-09-27 11:37:35Z"));
+        assertNull(InstancePredicate.parseTimestamp("2011-13-27T11:37:35Z"));
+        assertNull(InstancePredicate.parseTimestamp("2011-09-27T11:37:35"));
+    }
+
+    @Test
+    public void parseIpv4() {
+        assertEquals(Integer.valueOf(0x0A000001), InstancePredicate.parseIpv4("10.0.0.1"));
+        assertEquals(Integer.valueOf(-1), InstancePredicate.parseIpv4("255.255.255.255"));
+        assertNull(InstancePredicate.parseIpv4("10.0.0"));
+        assertNull(InstancePredicate.parseIpv4("10.0.0.256"));
+        assertNull(InstancePredicate.parseIpv4("10..0.1"));
+        assertNull(InstancePredicate.parseIpv4("fe80::1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownAttribute() {
+        InstancePredicate.compile("instance-type = r5.xlarge");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingValue() {
+        InstancePredicate.compile("tag:env =");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRegex() {
+        InstancePredicate.compile("tag:Name ~ hz-(");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCidr() {
+        InstancePredicate.compile("private-ip in 10.0.0.0/33");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidTagOperator() {
+        InstancePredicate.compile("tag:env < prod");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidDuration() {
+        InstancePredicate.compile("launch-age > 5 minutes");
+    }
+
+    private static String format(long millis) {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return df.format(new Date(millis));
+    }
+
+    private static class TestInstance
+            implements InstancePredicate.Instance {
+        private final Map<String, String> tags = new HashMap<String, String>();
+        private String privateIp;
+        private String publicIp;
+        private String launchTime;
+
+        TestInstance tag(String key, String value) {
+            tags.put(key, value);
+            return this;
+        }
+
+        TestInstance privateIp(String privateIp) {
+            this.privateIp = privateIp;
+            return this;
+        }
+
+        TestInstance publicIp(String publicIp) {
+            this.publicIp = publicIp;
+            return this;
+        }
+
+        TestInstance launchTime(String launchTime) {
+            this.launchTime = launchTime;
+            return this;
+        }
+
+        @Override
+        public String getTag(String key) {
+            return tags.get(key);
+        }
+
+        @Override
+        public String getPrivateIp() {
+            return privateIp;
+        }
+
+        @Override
+        public String getPublicIp() {
+            return publicIp;
+        }
+
+        @Override
+        public String getLaunchTime() {
+            return launchTime;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class MetadataSessionTokenTest {
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final int THREADS = 8;
+
+    private ImdsStandIn imds;
+    private MetadataSessionToken sessionToken;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        imds = new ImdsStandIn();
+        sessionToken = new MetadataSessionToken(imds.getTokenUri());
+    }
+
+    @After
+    public void tearDown() {
+        imds.shutdown();
+    }
+
+    @Test
+    public void get_concurrently_fetchesTokenOnce()
+            throws Exception {
+        // given
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        Callable<String> getToken = new Callable<String>() {
+            @Override
+            public String call()
+                    throws Exception {
+                return sessionToken.get(TIMEOUT_SECONDS);
+            }
+        };
+
+        // when
+        Future<String>[] futures = new Future[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            futures[i] = executor.submit(getToken);
+        }
+
+        // then
+        for (Future<String> future : futures) {
+            assertEquals("token-0", future.get());
+        }
+        assertEquals(1, imds.getTokenRequests());
+        executor.shutdown();
+    }
+
+    @Test
+    public void get_afterInvalidate_fetchesNewToken()
+            throws Exception {
+        // given
+        String first = sessionToken.get(TIMEOUT_SECONDS);
+        imds.rotateToken();
+
+        // when
+        sessionToken.invalidate();
+        String second = sessionToken.get(TIMEOUT_SECONDS);
+
+        // then
+        assertNotEquals(first, second);
+        assertEquals(2, imds.getTokenRequests());
+    }
+
+    @Test(expected = IOException.class)
+    public void get_whenTokenNotSupported()
+            throws Exception {
+        // given
+        imds.setTokenSupported(false);
+
+        // when
+        sessionToken.get(TIMEOUT_SECONDS);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void getOrFallBack_whenTokenNotSupported_thenRemembersFallback() {
+        // given
+        imds.setTokenSupported(false);
+
+        // when
+        String first = sessionToken.getOrFallBack(TIMEOUT_SECONDS);
+        String second = sessionToken.getOrFallBack(TIMEOUT_SECONDS);
+
+        // then
+        assertNull(first);
+        assertNull(second);
+        assertEquals(1, imds.getTokenRequests());
+    }
+
+    @Test
+    public void getOrFallBack_afterFallbackTtl_fetchesTokenAgain()
+            throws Exception {
+        // given
+        MetadataSessionToken sessionToken = new MetadataSessionToken(imds.getTokenUri(), 100);
+        imds.setTokenSupported(false);
+        sessionToken.getOrFallBack(TIMEOUT_SECONDS);
+        imds.setTokenSupported(true);
+        Thread.sleep(200);
+
+        // when
+        String token = sessionToken.getOrFallBack(TIMEOUT_SECONDS);
+
+        // then
+        assertEquals("token-0", token);
+        assertEquals(2, imds.getTokenRequests());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.config.InvalidConfigurationException;
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class MetadataUtilTest {
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final String AVAILABILITY_ZONE = "us-east-1a";
+    private static final String ROLE = "some-role";
+
+    private ImdsStandIn imds;
+    private MetadataSessionToken sessionToken;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        imds = new ImdsStandIn();
+        imds.setMetadata(MetadataUtil.AVAILABILITY_ZONE_URI, AVAILABILITY_ZONE);
+        imds.setMetadata(MetadataUtil.IAM_SECURITY_CREDENTIALS_URI, ROLE);
+        sessionToken = new MetadataSessionToken(imds.getTokenUri());
+    }
+
+    @After
+    public void tearDown() {
+        imds.shutdown();
+    }
+
+    @Test
+    public void retrieveMetadataFromURI_sharesSessionToken() {
+        // given
+        imds.setTokenRequired(true);
+
+        // when
+        String availabilityZone = retrieve(MetadataUtil.AVAILABILITY_ZONE_URI, false);
+        String role = retrieve(MetadataUtil.IAM_SECURITY_CREDENTIALS_URI, false);
+        retrieve(MetadataUtil.AVAILABILITY_ZONE_URI, false);
+
+        // then
+        assertEquals(AVAILABILITY_ZONE, availabilityZone);
+        assertEquals(ROLE, role);
+        assertEquals(1, imds.getTokenRequests());
+    }
+
+    @Test
+    public void retrieveMetadataFromURI_whenTokenRejected_thenFetchesNewToken() {
+        // given
+        imds.setTokenRequired(true);
+        retrieve(MetadataUtil.AVAILABILITY_ZONE_URI, false);
+        imds.rotateToken();
+
+        // when
+        String availabilityZone = retrieve(MetadataUtil.AVAILABILITY_ZONE_URI, false);
+
+        // then
+        assertEquals(AVAILABILITY_ZONE, availabilityZone);
+        assertEquals(2, imds.getTokenRequests());
+    }
+
+    @Test
+    public void retrieveMetadataFromURI_whenTokenUnavailable_thenFallsBackToImdsV1() {
+        // given
+        imds.setTokenSupported(false);
+
+        // when
+        String availabilityZone = retrieve(MetadataUtil.AVAILABILITY_ZONE_URI, true);
+
+        // then
+        assertEquals(AVAILABILITY_ZONE, availabilityZone);
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void retrieveMetadataFromURI_whenTokenUnavailableAndNoFallback() {
+        // given
+        imds.setTokenSupported(false);
+
+        // when
+        retrieve(MetadataUtil.AVAILABILITY_ZONE_URI, false);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void retrieveMetadataFromURI_withoutSessionToken() {
+        // given
+        imds.setTokenSupported(false);
+
+        // when
+        String availabilityZone = MetadataUtil.retrieveMetadataFromURI(
+                imds.getMetadataUri(MetadataUtil.AVAILABILITY_ZONE_URI), TIMEOUT_SECONDS, false, null);
+
+        // then
+        assertEquals(AVAILABILITY_ZONE, availabilityZone);
+        assertEquals(0, imds.getTokenRequests());
+    }
+
+    @Test
+    public void retrieveOptionalMetadataFromURI() {
+        // given
+        imds.setTokenRequired(true);
+        imds.setMetadata(MetadataUtil.SPOT_INSTANCE_ACTION_URI, "{\"action\": \"terminate\"}");
+
+        // when
+        String instanceAction = MetadataUtil.retrieveOptionalMetadataFromURI(
+                imds.getMetadataUri(MetadataUtil.SPOT_INSTANCE_ACTION_URI), TIMEOUT_SECONDS, false, sessionToken);
+        String rebalanceRecommendation = MetadataUtil.retrieveOptionalMetadataFromURI(
+                imds.getMetadataUri(MetadataUtil.REBALANCE_RECOMMENDATION_URI), TIMEOUT_SECONDS, false, sessionToken);
+
+        // then
+        assertEquals("{\"action\": \"terminate\"}", instanceAction);
+        assertNull(rebalanceRecommendation);
+    }
+
+    private String retrieve(String relativePath, boolean imdsV1Fallback) {
+        return MetadataUtil.retrieveMetadataFromURI(imds.getMetadataUri(relativePath), TIMEOUT_SECONDS, imdsV1Fallback,
+                sessionToken);
+    }
+}
@@ -17,19 +17,28 @@
 package com.hazelcast.aws.utility;
 
 import com.hazelcast.core.HazelcastException;
+import com.hazelcast.core.ICompletableFuture;
 import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.HazelcastTestSupport;
 import com.hazelcast.test.annotation.ParallelTest;
 import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static com.hazelcast.aws.utility.RetryUtils.BACKOFF_MULTIPLIER;
 import static com.hazelcast.aws.utility.RetryUtils.INITIAL_BACKOFF_MS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -42,6 +51,12 @@ public class RetryUtilsTest {
     private static final String RESULT = "result string";
 
     private Callable<String> callable = mock(Callable.class);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
 
     @Test
     public void retryNoRetries()
@@ -113,4 +128,74 @@ public class RetryUtilsTest {
         assertTrue(twoBackoffIntervalsMs < (endTimeMs - startTimeMs));
     }
 
+    @Test
+    public void retryNotRetryingWhenInstanceMetadataUnavailable()
+            throws Exception {
+        // given
+        InstanceMetadataUnavailableException exception = new InstanceMetadataUnavailableException("uri");
+        given(callable.call()).willThrow(exception).willReturn(RESULT);
+
+        // when
+        try {
+            RetryUtils.retry(callable, RETRIES);
+            fail("Unavailable Instance Metadata Service should not be retried");
+        } catch (InstanceMetadataUnavailableException e) {
+            // then
+            assertSame(exception, e);
+            verify(callable).call();
+        }
+    }
+
+    @Test
+    public void retryAsyncRetriesSuccessful()
+            throws Exception {
+        // given
+        given(callable.call()).willThrow(new RuntimeException()).willReturn(RESULT);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        ICompletableFuture<String> future = RetryUtils.retryAsync(callable, RETRIES, scheduler);
+
+        // then
+        assertEquals(RESULT, future.get(1, TimeUnit.MINUTES));
+        assertTrue(System.currentTimeMillis() - startTimeMs >= INITIAL_BACKOFF_MS);
+        verify(callable, times(2)).call();
+    }
+
+    @Test
+    public void retryAsyncRetriesFailed()
+            throws Exception {
+        // given
+        RuntimeException exception = new RuntimeException();
+        given(callable.call()).willThrow(new RuntimeException()).willThrow(exception).willReturn(RESULT);
+
+        // when
+        ICompletableFuture<String> future = RetryUtils.retryAsync(callable, RETRIES, scheduler);
+
+        // then
+        try {
+            future.get(1, TimeUnit.MINUTES);
+            fail("Retries should be exhausted");
+        } catch (ExecutionException e) {
+            assertSame(exception, e.getCause());
+        }
+    }
+
+    @Test
+    public void retryAsyncCancelledCancelsPendingRetry()
+            throws Exception {
+        // given
+        given(callable.call()).willThrow(new RuntimeException()).willReturn(RESULT);
+        ICompletableFuture<String> future = RetryUtils.retryAsync(callable, RETRIES, scheduler);
+        HazelcastTestSupport.sleepAtLeastMillis(INITIAL_BACKOFF_MS / 3);
+
+        // when
+        future.cancel(false);
+
+        // then
+        assertTrue(future.isCancelled());
+        HazelcastTestSupport.sleepAtLeastMillis(INITIAL_BACKOFF_MS + INITIAL_BACKOFF_MS / 3);
+        verify(callable).call();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2008-2018, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.aws.utility;
+
+import com.hazelcast.test.HazelcastParallelClassRunner;
+import com.hazelcast.test.annotation.ParallelTest;
+import com.hazelcast.test.annotation.QuickTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+
+import java.net.ServerSocket;
+
+import static com.hazelcast.aws.impl.Constants.ECS_CREDENTIALS_ENV_VAR_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(HazelcastParallelClassRunner.class)
+@Category({QuickTest.class, ParallelTest.class})
+public class RuntimeEnvironmentTest {
+    private ImdsStandIn imds;
+    private Environment environment = mock(Environment.class);
+
+    @Before
+    public void setUp()
+            throws Exception {
+        imds = new ImdsStandIn();
+    }
+
+    @After
+    public void tearDown() {
+        imds.shutdown();
+    }
+
+    @Test
+    public void getType_whenInstanceMetadataReachable_thenEc2() {
+        // given
+        RuntimeEnvironment runtimeEnvironment = new RuntimeEnvironment(imds.getMetadataUri(""), environment, 1000);
+
+        // when
+        RuntimeEnvironment.Type type = runtimeEnvironment.getType();
+
+        // then
+        assertEquals(RuntimeEnvironment.Type.EC2, type);
+        assertTrue(runtimeEnvironment.isInstanceMetadataAvailable());
+    }
+
+    @Test
+    public void getType_whenInstanceMetadataRequiresToken_thenEc2() {
+        // given
+        imds.setTokenRequired(true);
+        RuntimeEnvironment runtimeEnvironment = new RuntimeEnvironment(imds.getMetadataUri(""), environment, 1000);
+
+        // when
+        RuntimeEnvironment.Type type = runtimeEnvironment.getType();
+
+        // then
+        assertEquals(RuntimeEnvironment.Type.EC2, type);
+    }
+
+    @Test
+    public void getType_whenEcsEnvVarSet_thenEcs() {
+        // given
+        when(environment.getEnvVar(ECS_CREDENTIALS_ENV_VAR_NAME)).thenReturn("/v2/credentials/some-id");
+        RuntimeEnvironment runtimeEnvironment = new RuntimeEnvironment(imds.getMetadataUri(""), environment, 1000);
+
+        // when
+        RuntimeEnvironment.Type type = runtimeEnvironment.getType();
+
+        // then
+        assertEquals(RuntimeEnvironment.Type.ECS, type);
+        assertEquals(0, imds.getMetadataRequests());
+    }
+
+    @Test
+    public void getType_whenInstanceMetadataNotReachable_thenOther()
+            throws Exception {
+        // given
+        ServerSocket socket = new ServerSocket(0);
+        int closedPort = socket.getLocalPort();
+        socket.close();
+        RuntimeEnvironment runtimeEnvironment =
+                new RuntimeEnvironment("http://127.0.0.1:" + closedPort + "/latest/meta-data/", environment, 1000);
+
+        // when
+        RuntimeEnvironment.Type type = runtimeEnvironment.getType();
+
+        // then
+        assertEquals(RuntimeEnvironment.Type.OTHER, type);
+        assertFalse(runtimeEnvironment.isInstanceMetadataAvailable());
+    }
+
+    @Test
+    public void isInstanceMetadataAvailable_probesOnce() {
+        // given
+        RuntimeEnvironment runtimeEnvironment = new RuntimeEnvironment(imds.getMetadataUri(""), environment, 1000);
+
+        // when
+        runtimeEnvironment.isInstanceMetadataAvailable();
+        runtimeEnvironment.getType();
+        runtimeEnvironment.isInstanceMetadataAvailable();
+
+        // then
+        assertEquals(1, imds.getMetadataRequests());
+    }
+
+    @Test
+    public void isInstanceMetadataAvailable_whenNotReachable_thenProbesAgainAfterTtl()
+            throws Exception {
+        // given
+        imds.setMetadataDelayMillis(500);
+        RuntimeEnvironment runtimeEnvironment = new RuntimeEnvironment(imds.getMetadataUri(""), environment, 100, 300);
+        boolean availableAtBoot = runtimeEnvironment.isInstanceMetadataAvailable();
+        boolean availableWithinTtl = runtimeEnvironment.isInstanceMetadataAvailable();
+        imds.setMetadataDelayMillis(0);
+        Thread.sleep(600);
+
+        // when
+        boolean available = runtimeEnvironment.isInstanceMetadataAvailable();
+
+        // then
+        assertFalse(availableAtBoot);
+        assertFalse(availableWithinTtl);
+        assertTrue(available);
+        assertEquals(2, imds.getMetadataRequests());
+    }
+}